@@ -0,0 +1,127 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pvaccess.impl.remote.TransportSendControl;
+import org.epics.pvaccess.impl.remote.TransportSender;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardPVFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>AbstractCodec</code> encoding (send queue processing, message framing and segmentation)
+ * and decoding (header processing, message reassembly and deserialization) of monitor updates,
+ * without any socket I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	private static final byte CMD_MONITOR = 13;
+
+	private static final int BUFFER_SIZE = 0x4000;
+
+	/**
+	 * Number of array elements, <code>0</code> for a scalar.
+	 */
+	@Param({"0", "1000", "100000"})
+	public int elements;
+
+	/**
+	 * Number of messages per operation (at most <code>AbstractCodec.MAX_MESSAGE_PROCESS</code>).
+	 */
+	@Param({"1", "100"})
+	public int messages;
+
+	private TransportSender sender;
+	private ByteBuffer encoded;
+	private ByteBuffer decoded;
+	private InMemoryCodec encoder;
+	private InMemoryCodec decoder;
+
+	@Setup
+	public void setup() throws IOException {
+		final PVStructure source;
+		if (elements == 0)
+			source = StandardPVFieldFactory.getStandardPVField().scalar(ScalarType.pvDouble, "alarm,timeStamp");
+		else
+		{
+			source = StandardPVFieldFactory.getStandardPVField().scalarArray(ScalarType.pvDouble, "alarm,timeStamp");
+			((PVDoubleArray)source.getScalarArrayField("value", ScalarType.pvDouble)).put(0, elements, new double[elements], 0);
+		}
+		final BitSet changedBitSet = new BitSet(source.getNumberFields());
+		changedBitSet.set(0);
+
+		sender = new TransportSender() {
+			@Override
+			public void lock() {
+				// noop
+			}
+
+			@Override
+			public void unlock() {
+				// noop
+			}
+
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				control.startMessage(CMD_MONITOR, 0);
+				changedBitSet.serialize(buffer, control);
+				source.serialize(buffer, control, changedBitSet);
+			}
+		};
+
+		// header, segment headers and alignment included
+		encoded = ByteBuffer.allocate(messages * (elements * 8 + 2 * BUFFER_SIZE));
+		encoder = new InMemoryCodec(null, encoded, BUFFER_SIZE, null);
+
+		encode();
+		encoded.flip();
+		decoded = encoded.duplicate();
+		decoder = new InMemoryCodec(decoded, null, BUFFER_SIZE,
+				PVDataFactory.getPVDataCreate().createPVStructure(source.getStructure()));
+
+		if (decode() != messages)
+			throw new IllegalStateException("failed to decode encoded messages");
+	}
+
+	@Benchmark
+	public int encode() throws IOException {
+		encoded.clear();
+		for (int i = 0; i < messages; i++)
+			encoder.enqueueSendRequest(sender);
+		encoder.processSendQueue();
+		return encoded.position();
+	}
+
+	@Benchmark
+	public int decode() throws IOException {
+		decoded.rewind();
+		decoder.processRead();
+		return decoder.takeMessagesReceived();
+	}
+}
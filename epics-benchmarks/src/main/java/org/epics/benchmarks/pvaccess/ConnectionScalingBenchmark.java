@@ -0,0 +1,169 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvaccess;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.impl.remote.TransportSendControl;
+import org.epics.pvaccess.impl.remote.TransportSender;
+import org.epics.pvaccess.impl.remote.codec.impl.BlockingSocketAbstractCodec;
+import org.epics.pvdata.pv.Field;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Blocking transport connection scaling, platform vs. virtual threads:
+ * round-trip latency over N open loopback connections, each served by a blocking codec
+ * (receive and send loop) that echoes every message. Round-trips are spread across all the connections.
+ * Each connection uses two (platform or virtual) threads.
+ * NOTE: 10k connections require at least 20k file descriptors (<code>ulimit -n</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xss256k")
+public class ConnectionScalingBenchmark {
+
+	private static final byte ECHO_COMMAND = 20;
+
+	private static class EchoCodec extends BlockingSocketAbstractCodec implements TransportSender {
+
+		public EchoCodec(SocketChannel channel) throws SocketException {
+			super(true, channel, ByteBuffer.allocate(2048), ByteBuffer.allocate(2048), Logger.getLogger("EchoCodec"));
+			setByteOrder(ByteOrder.BIG_ENDIAN);
+		}
+
+		@Override
+		public void processControlMessage() {
+			// noop
+		}
+
+		@Override
+		public void processApplicationMessage() throws IOException {
+			enqueueSendRequest(this);
+		}
+
+		@Override
+		public void send(ByteBuffer buffer, TransportSendControl control) {
+			control.startMessage(ECHO_COMMAND, 0);
+		}
+
+		@Override
+		public void cachedSerialize(Field field, ByteBuffer buffer) {
+			// no cache
+			field.serialize(buffer, this);
+		}
+
+		@Override
+		public void lock() {
+			// noop
+		}
+
+		@Override
+		public void unlock() {
+			// noop
+		}
+	}
+
+	/**
+	 * Number of open connections.
+	 */
+	@Param({"1000", "10000"})
+	public int connections;
+
+	/**
+	 * Run codec receive and send loops on virtual threads (if supported by the JVM).
+	 */
+	@Param({"false", "true"})
+	public boolean virtualThreads;
+
+	private ServerSocketChannel serverChannel;
+	private SocketChannel[] clients;
+	private EchoCodec[] codecs;
+	private int next;
+
+	private final ByteBuffer request = ByteBuffer.allocate(PVAConstants.PVA_MESSAGE_HEADER_SIZE);
+	private final ByteBuffer response = ByteBuffer.allocate(PVAConstants.PVA_MESSAGE_HEADER_SIZE);
+
+	@Setup
+	public void setup() throws IOException {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), connections);
+
+		clients = new SocketChannel[connections];
+		codecs = new EchoCodec[connections];
+		for (int i = 0; i < connections; i++)
+		{
+			clients[i] = SocketChannel.open(serverChannel.socket().getLocalSocketAddress());
+			clients[i].socket().setTcpNoDelay(true);
+
+			SocketChannel channel = serverChannel.accept();
+			channel.socket().setTcpNoDelay(true);
+			codecs[i] = new EchoCodec(channel);
+			codecs[i].setVirtualThreads(virtualThreads);
+			codecs[i].start();
+		}
+		if (virtualThreads && !codecs[0].isUsingVirtualThreads())
+			throw new IllegalStateException("virtual threads are not supported by this JVM");
+		next = 0;
+
+		request.clear();
+		request.put(PVAConstants.PVA_MAGIC);
+		request.put(PVAConstants.PVA_VERSION);
+		request.put((byte)0x80);	// application message, client, big endian
+		request.put(ECHO_COMMAND);
+		request.putInt(0);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		for (int i = 0; i < connections; i++)
+		{
+			if (codecs[i] != null)
+				codecs[i].close();
+			if (clients[i] != null)
+				clients[i].close();
+		}
+		serverChannel.close();
+	}
+
+	@Benchmark
+	public ByteBuffer roundTrip() throws IOException {
+		final SocketChannel client = clients[next];
+		next = (next + 1) % connections;
+
+		request.flip();
+		response.clear();
+		while (request.hasRemaining())
+			client.write(request);
+		while (response.hasRemaining())
+			if (client.read(response) < 0)
+				throw new IOException("connection closed");
+		request.limit(request.capacity());
+		return response;
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvaccess;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+
+import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVStructure;
+
+/**
+ * Non-blocking codec that reads from and writes to byte buffers instead of a socket.
+ * Received application messages are expected to be monitor updates of the given structure,
+ * i.e. changed bit set followed by the changed fields.
+ */
+final class InMemoryCodec extends AbstractCodec implements DeserializableControl {
+
+	private static final InetSocketAddress ADDRESS = InetSocketAddress.createUnresolved("in-memory", 0);
+
+	private final ByteBuffer in;
+	private final ByteBuffer out;
+
+	private final PVStructure received;
+	private final BitSet receivedBitSet;
+	private int messagesReceived = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * Create codec.
+	 * @param in buffer to read from (read mode), can be <code>null</code>.
+	 * @param out buffer to write to (write mode), can be <code>null</code>.
+	 * @param bufferSize size of the codec receive and send buffers.
+	 * @param received structure to deserialize monitor updates to, can be <code>null</code> if nothing is to be read.
+	 */
+	InMemoryCodec(ByteBuffer in, ByteBuffer out, int bufferSize, PVStructure received) {
+		super(false, ByteBuffer.allocate(bufferSize), ByteBuffer.allocate(bufferSize),
+				bufferSize, false, Logger.getLogger(InMemoryCodec.class.getName()));
+		this.in = in;
+		this.out = out;
+		this.received = received;
+		this.receivedBitSet = (received != null) ? new BitSet(received.getNumberFields()) : null;
+	}
+
+	/**
+	 * Get (and reset) number of application messages received.
+	 * @return number of messages received since the last call.
+	 */
+	int takeMessagesReceived() {
+		final int count = messagesReceived;
+		messagesReceived = 0;
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (closed)
+			return -1;
+		if (in == null || !in.hasRemaining())
+			return 0;
+
+		final int count = Math.min(dst.remaining(), in.remaining());
+		final int limit = in.limit();
+		in.limit(in.position() + count);
+		dst.put(in);
+		in.limit(limit);
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.WritableByteChannel#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		if (closed)
+			return -1;
+		if (out == null)
+			throw new IOException("no output buffer");
+
+		final int count = Math.min(src.remaining(), out.remaining());
+		final int limit = src.limit();
+		src.limit(src.position() + count);
+		out.put(src);
+		src.limit(limit);
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.Channel#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.Channel#isOpen()
+	 */
+	@Override
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#processControlMessage()
+	 */
+	@Override
+	public void processControlMessage() {
+		// noop
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#processApplicationMessage()
+	 */
+	@Override
+	public void processApplicationMessage() throws IOException {
+		if (received != null)
+		{
+			receivedBitSet.deserialize(socketBuffer, this);
+			received.deserialize(socketBuffer, this, receivedBitSet);
+		}
+		messagesReceived++;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#getLastReadBufferSocketAddress()
+	 */
+	@Override
+	public InetSocketAddress getLastReadBufferSocketAddress() {
+		return ADDRESS;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#invalidDataStreamHandler()
+	 */
+	@Override
+	public void invalidDataStreamHandler() {
+		throw new IllegalStateException("invalid data stream");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#readPollOne()
+	 */
+	@Override
+	public void readPollOne() throws IOException {
+		// all the data is expected to be in the input buffer
+		throw new IOException("incomplete message in the input buffer");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#writePollOne()
+	 */
+	@Override
+	public void writePollOne() throws IOException {
+		// noop
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#sendBufferFull(int)
+	 */
+	@Override
+	protected void sendBufferFull(int tries) throws IOException {
+		throw new IOException("output buffer full");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#scheduleSend()
+	 */
+	@Override
+	public void scheduleSend() {
+		// noop, send queue is processed explicitly
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#sendCompleted()
+	 */
+	@Override
+	public void sendCompleted() {
+		// noop
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#terminated()
+	 */
+	@Override
+	public boolean terminated() {
+		return closed;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.TransportSendControl#cachedSerialize(org.epics.pvdata.pv.Field, java.nio.ByteBuffer)
+	 */
+	@Override
+	public void cachedSerialize(Field field, ByteBuffer buffer) {
+		// no cache
+		field.serialize(buffer, this);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.DeserializableControl#cachedDeserialize(java.nio.ByteBuffer)
+	 */
+	@Override
+	public Field cachedDeserialize(ByteBuffer buffer) {
+		// no cache
+		return FieldFactory.getFieldCreate().deserialize(buffer, this);
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvaccess;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pvaccess.PVAException;
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelGet;
+import org.epics.pvaccess.client.ChannelGetRequester;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelPut;
+import org.epics.pvaccess.client.ChannelPutRequester;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.server.impl.remote.plugins.DefaultBeaconServerDataProvider;
+import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round-trip throughput and latency of synchronous get, put and put-to-monitor-update
+ * between a client and a server context running in the same JVM (over the loopback interface).
+ * Unless already configured, the client searches for the channel on <code>127.0.0.1</code> only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackBenchmark {
+
+	private static final String CHANNEL_NAME = "benchmark:loopback";
+
+	private static final long TIMEOUT_SECONDS = 5;
+
+	private ServerContextImpl serverContext;
+	private ClientContextImpl clientContext;
+	private Channel channel;
+
+	private ChannelGet channelGet;
+	private ChannelPut channelPut;
+	private Monitor monitor;
+
+	private PVStructure putStructure;
+	private PVDouble putValue;
+	private final BitSet putBitSet = new BitSet();
+	private double counter = 0;
+
+	private volatile double expectedValue = Double.NaN;
+	private volatile PVStructure getStructure;
+	private volatile Status lastStatus;
+
+	private final Semaphore connected = new Semaphore(0);
+	private final Semaphore getDone = new Semaphore(0);
+	private final Semaphore putDone = new Semaphore(0);
+	private final Semaphore monitorUpdate = new Semaphore(0);
+
+	private static void setDefault(String name, String value) {
+		if (System.getenv(name) == null && System.getProperty(name) == null)
+			System.setProperty(name, value);
+	}
+
+	private void await(Semaphore semaphore, String what) throws InterruptedException {
+		if (!semaphore.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+			throw new IllegalStateException(what + " timed out");
+		final Status status = lastStatus;
+		if (status != null && !status.isSuccess())
+			throw new IllegalStateException(what + " failed: " + status);
+	}
+
+	@Setup
+	public void setup() throws PVAException, InterruptedException {
+		setDefault("EPICS_PVA_ADDR_LIST", "127.0.0.1");
+		setDefault("EPICS_PVA_AUTO_ADDR_LIST", "false");
+
+		serverContext = new ServerContextImpl();
+		serverContext.setBeaconServerStatusProvider(new DefaultBeaconServerDataProvider(serverContext));
+		serverContext.initialize(new LoopbackChannelProvider(CHANNEL_NAME));
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					serverContext.run(0);
+				} catch (Throwable th) {
+					th.printStackTrace();
+				}
+			}
+		}, "pvAccess loopback server").start();
+
+		clientContext = new ClientContextImpl();
+		clientContext.initialize();
+
+		final PVStructure pvRequest = CreateRequest.create().createRequest("field()");
+
+		channel = clientContext.getProvider().createChannel(CHANNEL_NAME, new ChannelRequester() {
+			@Override
+			public void channelCreated(Status status, Channel channel) {
+				lastStatus = status;
+			}
+
+			@Override
+			public void channelStateChange(Channel channel, ConnectionState connectionState) {
+				if (connectionState == ConnectionState.CONNECTED)
+					connected.release();
+			}
+
+			@Override
+			public String getRequesterName() {
+				return getClass().getName();
+			}
+
+			@Override
+			public void message(String message, MessageType messageType) {
+				System.err.println("[" + messageType + "] " + message);
+			}
+		}, ChannelProvider.PRIORITY_DEFAULT);
+		await(connected, "channel connect");
+
+		channelGet = channel.createChannelGet(new ChannelGetRequester() {
+			@Override
+			public void channelGetConnect(Status status, ChannelGet channelGet, Structure structure) {
+				lastStatus = status;
+				getDone.release();
+			}
+
+			@Override
+			public void getDone(Status status, ChannelGet channelGet, PVStructure pvStructure, BitSet bitSet) {
+				lastStatus = status;
+				getStructure = pvStructure;
+				getDone.release();
+			}
+
+			@Override
+			public String getRequesterName() {
+				return getClass().getName();
+			}
+
+			@Override
+			public void message(String message, MessageType messageType) {
+				System.err.println("[" + messageType + "] " + message);
+			}
+		}, pvRequest);
+		await(getDone, "channel get connect");
+
+		channelPut = channel.createChannelPut(new ChannelPutRequester() {
+			@Override
+			public void channelPutConnect(Status status, ChannelPut channelPut, Structure structure) {
+				lastStatus = status;
+				if (status.isSuccess())
+				{
+					putStructure = PVFactory.getPVDataCreate().createPVStructure(structure);
+					putValue = putStructure.getDoubleField("value");
+					putBitSet.set(putValue.getFieldOffset());
+				}
+				putDone.release();
+			}
+
+			@Override
+			public void putDone(Status status, ChannelPut channelPut) {
+				lastStatus = status;
+				putDone.release();
+			}
+
+			@Override
+			public void getDone(Status status, ChannelPut channelPut, PVStructure pvStructure, BitSet bitSet) {
+				lastStatus = status;
+				putDone.release();
+			}
+
+			@Override
+			public String getRequesterName() {
+				return getClass().getName();
+			}
+
+			@Override
+			public void message(String message, MessageType messageType) {
+				System.err.println("[" + messageType + "] " + message);
+			}
+		}, pvRequest);
+		await(putDone, "channel put connect");
+
+		monitor = channel.createMonitor(new MonitorRequester() {
+			@Override
+			public void monitorConnect(Status status, Monitor monitor, Structure structure) {
+				lastStatus = status;
+				monitorUpdate.release();
+			}
+
+			@Override
+			public void monitorEvent(Monitor monitor) {
+				MonitorElement element;
+				while ((element = monitor.poll()) != null)
+				{
+					final double value = element.getPVStructure().getDoubleField("value").get();
+					monitor.release(element);
+					if (value == expectedValue)
+						monitorUpdate.release();
+				}
+			}
+
+			@Override
+			public void unlisten(Monitor monitor) {
+				// noop
+			}
+
+			@Override
+			public String getRequesterName() {
+				return getClass().getName();
+			}
+
+			@Override
+			public void message(String message, MessageType messageType) {
+				System.err.println("[" + messageType + "] " + message);
+			}
+		}, pvRequest);
+		await(monitorUpdate, "monitor connect");
+		monitor.start();
+	}
+
+	@TearDown
+	public void tearDown() throws PVAException {
+		if (monitor != null)
+			monitor.destroy();
+		if (channel != null)
+			channel.destroy();
+		if (clientContext != null)
+			clientContext.dispose();
+		if (serverContext != null)
+			serverContext.destroy();
+	}
+
+	@Benchmark
+	public double get() throws InterruptedException {
+		channelGet.get();
+		await(getDone, "get");
+		return getStructure.getDoubleField("value").get();
+	}
+
+	@Benchmark
+	public void put() throws InterruptedException {
+		putValue.put(++counter);
+		channelPut.put(putStructure, putBitSet);
+		await(putDone, "put");
+	}
+
+	@Benchmark
+	public void putToMonitor() throws InterruptedException {
+		expectedValue = ++counter;
+		putValue.put(counter);
+		channelPut.put(putStructure, putBitSet);
+		await(putDone, "put");
+		await(monitorUpdate, "monitor update");
+	}
+}
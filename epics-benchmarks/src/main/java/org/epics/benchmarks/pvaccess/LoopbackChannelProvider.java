@@ -0,0 +1,511 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvaccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.epics.pvaccess.client.AccessRights;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.ChannelArray;
+import org.epics.pvaccess.client.ChannelArrayRequester;
+import org.epics.pvaccess.client.ChannelFind;
+import org.epics.pvaccess.client.ChannelFindRequester;
+import org.epics.pvaccess.client.ChannelGet;
+import org.epics.pvaccess.client.ChannelGetRequester;
+import org.epics.pvaccess.client.ChannelListRequester;
+import org.epics.pvaccess.client.ChannelProcess;
+import org.epics.pvaccess.client.ChannelProcessRequester;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelPut;
+import org.epics.pvaccess.client.ChannelPutGet;
+import org.epics.pvaccess.client.ChannelPutGetRequester;
+import org.epics.pvaccess.client.ChannelPutRequester;
+import org.epics.pvaccess.client.ChannelRPC;
+import org.epics.pvaccess.client.ChannelRPCRequester;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.GetFieldRequester;
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardPVFieldFactory;
+import org.epics.pvdata.factory.StatusFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorQueue;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Status.StatusType;
+import org.epics.pvdata.pv.StatusCreate;
+
+/**
+ * Minimal provider of a single NTScalar double record, supports get, put and monitor requests.
+ * A put is applied to the record and immediately posted to all the monitors of the record.
+ * Field selection of the requests (pvRequest) is ignored, the whole record is always transferred.
+ */
+class LoopbackChannelProvider implements ChannelProvider {
+
+	public static final String PROVIDER_NAME = "loopback";
+
+	private static final int MONITOR_QUEUE_SIZE = 4;
+
+	private static final StatusCreate statusCreate = StatusFactory.getStatusCreate();
+	private static final Status okStatus = statusCreate.getStatusOK();
+	private static final Status noSuchChannelStatus =
+		statusCreate.createStatus(StatusType.ERROR, "no such channel", null);
+	private static final Status notSupportedStatus =
+		statusCreate.createStatus(StatusType.ERROR, "only get, put and monitor requests are supported by this channel", null);
+
+	private static final Convert convert = ConvertFactory.getConvert();
+
+	private final String recordName;
+	private final PVStructure record =
+		StandardPVFieldFactory.getStandardPVField().scalar(ScalarType.pvDouble, "alarm,timeStamp");
+	private final BitSet allChanged = new BitSet(record.getNumberFields());
+	private final ReentrantLock recordLock = new ReentrantLock();
+	private final ArrayList<LoopbackMonitor> monitors = new ArrayList<LoopbackMonitor>();
+
+	private final ChannelFind channelFind =
+		new ChannelFind() {
+
+			@Override
+			public ChannelProvider getChannelProvider() {
+				return LoopbackChannelProvider.this;
+			}
+
+			@Override
+			public void cancel() {
+				// noop
+			}
+		};
+
+	/**
+	 * Create provider.
+	 * @param recordName name of the (only) record.
+	 */
+	LoopbackChannelProvider(String recordName) {
+		this.recordName = recordName;
+		allChanged.set(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#getProviderName()
+	 */
+	@Override
+	public String getProviderName() {
+		return PROVIDER_NAME;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#channelFind(java.lang.String, org.epics.pvaccess.client.ChannelFindRequester)
+	 */
+	@Override
+	public ChannelFind channelFind(String channelName,
+			ChannelFindRequester channelFindRequester) {
+		channelFindRequester.channelFindResult(okStatus, channelFind, recordName.equals(channelName));
+		return channelFind;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#channelList(org.epics.pvaccess.client.ChannelListRequester)
+	 */
+	@Override
+	public ChannelFind channelList(ChannelListRequester channelListRequester) {
+		channelListRequester.channelListResult(okStatus, channelFind, Collections.singleton(recordName), false);
+		return channelFind;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#createChannel(java.lang.String, org.epics.pvaccess.client.ChannelRequester, short)
+	 */
+	@Override
+	public Channel createChannel(String channelName,
+			ChannelRequester channelRequester, short priority) {
+		if (!recordName.equals(channelName))
+		{
+			channelRequester.channelCreated(noSuchChannelStatus, null);
+			return null;
+		}
+
+		Channel channel = new LoopbackChannel(channelRequester);
+		channelRequester.channelCreated(okStatus, channel);
+		return channel;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#createChannel(java.lang.String, org.epics.pvaccess.client.ChannelRequester, short, java.lang.String)
+	 */
+	@Override
+	public Channel createChannel(String channelName,
+			ChannelRequester channelRequester, short priority, String address) {
+		// this will never get called by the pvAccess server
+		throw new RuntimeException("not supported");
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.client.ChannelProvider#destroy()
+	 */
+	@Override
+	public void destroy() {
+		final LoopbackMonitor[] toDestroy;
+		synchronized (monitors) {
+			toDestroy = monitors.toArray(new LoopbackMonitor[monitors.size()]);
+		}
+		for (LoopbackMonitor monitor : toDestroy)
+			monitor.destroy();
+	}
+
+	/**
+	 * Apply changes to the record and post them to the monitors.
+	 * @param pvStructure structure holding the changes.
+	 * @param changedBitSet changed fields.
+	 */
+	private void put(PVStructure pvStructure, BitSet changedBitSet) {
+		final LoopbackMonitor[] toNotify;
+		recordLock.lock();
+		try {
+			convert.copy(pvStructure, record, changedBitSet);
+			synchronized (monitors) {
+				toNotify = monitors.toArray(new LoopbackMonitor[monitors.size()]);
+			}
+			for (LoopbackMonitor monitor : toNotify)
+				monitor.post(changedBitSet);
+		} finally {
+			recordLock.unlock();
+		}
+
+		for (LoopbackMonitor monitor : toNotify)
+			monitor.notifyRequester();
+	}
+
+	private class LoopbackChannel implements Channel {
+
+		private final ChannelRequester channelRequester;
+		private volatile boolean destroyed = false;
+
+		LoopbackChannel(ChannelRequester channelRequester) {
+			this.channelRequester = channelRequester;
+		}
+
+		@Override
+		public ChannelProvider getProvider() {
+			return LoopbackChannelProvider.this;
+		}
+
+		@Override
+		public String getChannelName() {
+			return recordName;
+		}
+
+		@Override
+		public ChannelRequester getChannelRequester() {
+			return channelRequester;
+		}
+
+		@Override
+		public String getRemoteAddress() {
+			// local
+			return getChannelName();
+		}
+
+		@Override
+		public void destroy() {
+			destroyed = true;
+		}
+
+		@Override
+		public boolean isConnected() {
+			// server-side implementation, always connected
+			return !destroyed;
+		}
+
+		@Override
+		public ConnectionState getConnectionState() {
+			return isConnected() ?
+					ConnectionState.CONNECTED :
+					ConnectionState.DESTROYED;
+		}
+
+		@Override
+		public AccessRights getAccessRights(PVField pvField) {
+			return AccessRights.readWrite;
+		}
+
+		@Override
+		public void getField(GetFieldRequester requester, String subField) {
+			requester.getDone(okStatus, record.getStructure());
+		}
+
+		@Override
+		public ChannelGet createChannelGet(final ChannelGetRequester channelGetRequester,
+				PVStructure pvRequest) {
+			ChannelGet channelGet = new LoopbackRequest(this) {
+				@Override
+				public void get() {
+					channelGetRequester.getDone(okStatus, this, record, allChanged);
+				}
+			};
+			channelGetRequester.channelGetConnect(okStatus, channelGet, record.getStructure());
+			return channelGet;
+		}
+
+		@Override
+		public ChannelPut createChannelPut(final ChannelPutRequester channelPutRequester,
+				PVStructure pvRequest) {
+			ChannelPut channelPut = new LoopbackRequest(this) {
+				@Override
+				public void put(PVStructure pvPutStructure, BitSet bitSet) {
+					LoopbackChannelProvider.this.put(pvPutStructure, bitSet);
+					channelPutRequester.putDone(okStatus, this);
+				}
+
+				@Override
+				public void get() {
+					channelPutRequester.getDone(okStatus, this, record, allChanged);
+				}
+			};
+			channelPutRequester.channelPutConnect(okStatus, channelPut, record.getStructure());
+			return channelPut;
+		}
+
+		@Override
+		public Monitor createMonitor(MonitorRequester monitorRequester,
+				PVStructure pvRequest) {
+			LoopbackMonitor monitor = new LoopbackMonitor(monitorRequester);
+			monitorRequester.monitorConnect(okStatus, monitor, record.getStructure());
+			return monitor;
+		}
+
+		@Override
+		public ChannelProcess createChannelProcess(
+				ChannelProcessRequester channelProcessRequester,
+				PVStructure pvRequest) {
+			channelProcessRequester.channelProcessConnect(notSupportedStatus, null);
+			return null;
+		}
+
+		@Override
+		public ChannelPutGet createChannelPutGet(
+				ChannelPutGetRequester channelPutGetRequester, PVStructure pvRequest) {
+			channelPutGetRequester.channelPutGetConnect(notSupportedStatus, null, null, null);
+			return null;
+		}
+
+		@Override
+		public ChannelRPC createChannelRPC(ChannelRPCRequester channelRPCRequester,
+				PVStructure pvRequest) {
+			channelRPCRequester.channelRPCConnect(notSupportedStatus, null);
+			return null;
+		}
+
+		@Override
+		public ChannelArray createChannelArray(
+				ChannelArrayRequester channelArrayRequester, PVStructure pvRequest) {
+			channelArrayRequester.channelArrayConnect(notSupportedStatus, null, null);
+			return null;
+		}
+
+		@Override
+		public String getRequesterName() {
+			return getChannelName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			// just delegate
+			channelRequester.message(message, messageType);
+		}
+	}
+
+	/**
+	 * Get and put request, locking the request locks the record
+	 * (the server holds the lock while serializing the record).
+	 */
+	private abstract class LoopbackRequest implements ChannelGet, ChannelPut {
+
+		private final Channel channel;
+
+		LoopbackRequest(Channel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public Channel getChannel() {
+			return channel;
+		}
+
+		@Override
+		public void put(PVStructure pvPutStructure, BitSet bitSet) {
+			throw new UnsupportedOperationException("put not supported");
+		}
+
+		@Override
+		public void cancel() {
+			// noop, requests are completed immediately
+		}
+
+		@Override
+		public void lastRequest() {
+			// noop
+		}
+
+		@Override
+		public void lock() {
+			recordLock.lock();
+		}
+
+		@Override
+		public void unlock() {
+			recordLock.unlock();
+		}
+
+		@Override
+		public void destroy() {
+			// noop
+		}
+	}
+
+	/**
+	 * Monitor with a fixed size queue. When the queue is full the changes are accumulated
+	 * and posted (with overrun bits set) as soon as an element is released.
+	 */
+	private class LoopbackMonitor implements Monitor {
+
+		private final MonitorRequester monitorRequester;
+		private final MonitorQueue queue;
+
+		private final BitSet pendingChanged = new BitSet(record.getNumberFields());
+		private final BitSet pendingOverrun = new BitSet(record.getNumberFields());
+		private boolean pending = false;
+		private boolean started = false;
+		private boolean notify = false;
+
+		LoopbackMonitor(MonitorRequester monitorRequester) {
+			this.monitorRequester = monitorRequester;
+
+			MonitorElement[] elements = new MonitorElement[MONITOR_QUEUE_SIZE];
+			for (int i = 0; i < elements.length; i++)
+				elements[i] = MonitorQueueFactory.createMonitorElement(
+						PVDataFactory.getPVDataCreate().createPVStructure(record.getStructure()));
+			queue = MonitorQueueFactory.create(elements);
+		}
+
+		// called with the record lock held
+		synchronized void post(BitSet changedBitSet) {
+			if (!started)
+				return;
+
+			if (pending)
+			{
+				pendingOverrun.or_and(pendingChanged, changedBitSet);
+				pendingChanged.or(changedBitSet);
+				return;
+			}
+
+			MonitorElement element = queue.getFree();
+			if (element == null)
+			{
+				pending = true;
+				pendingChanged.clear();
+				pendingChanged.or(changedBitSet);
+				pendingOverrun.clear();
+				return;
+			}
+
+			convert.copy(record, element.getPVStructure(), changedBitSet);
+			element.getChangedBitSet().clear();
+			element.getChangedBitSet().or(changedBitSet);
+			element.getOverrunBitSet().clear();
+			queue.setUsed(element);
+			notify = true;
+		}
+
+		void notifyRequester() {
+			synchronized (this) {
+				if (!notify)
+					return;
+				notify = false;
+			}
+			monitorRequester.monitorEvent(this);
+		}
+
+		@Override
+		public synchronized MonitorElement poll() {
+			return queue.getUsed();
+		}
+
+		@Override
+		public void release(MonitorElement monitorElement) {
+			recordLock.lock();
+			try {
+				synchronized (this) {
+					queue.releaseUsed(monitorElement);
+					if (!pending || !started)
+						return;
+
+					// post accumulated changes
+					pending = false;
+					MonitorElement element = queue.getFree();
+					convert.copy(record, element.getPVStructure(), pendingChanged);
+					element.getChangedBitSet().clear();
+					element.getChangedBitSet().or(pendingChanged);
+					element.getOverrunBitSet().clear();
+					element.getOverrunBitSet().or(pendingOverrun);
+					queue.setUsed(element);
+					notify = true;
+				}
+			} finally {
+				recordLock.unlock();
+			}
+			notifyRequester();
+		}
+
+		@Override
+		public Status start() {
+			recordLock.lock();
+			try {
+				synchronized (this) {
+					if (started)
+						return okStatus;
+					started = true;
+					queue.clear();
+					pending = false;
+				}
+				synchronized (monitors) {
+					monitors.add(this);
+				}
+				// initial update
+				post(allChanged);
+			} finally {
+				recordLock.unlock();
+			}
+			notifyRequester();
+			return okStatus;
+		}
+
+		@Override
+		public Status stop() {
+			synchronized (monitors) {
+				monitors.remove(this);
+			}
+			synchronized (this) {
+				started = false;
+			}
+			return okStatus;
+		}
+
+		@Override
+		public void destroy() {
+			stop();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvaccess;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.pvaccess.util.MPSCMailbox;
+import org.epics.pvaccess.util.Mailbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Codec send queue (<code>Mailbox</code> vs. <code>MPSCMailbox</code>) throughput:
+ * the benchmark thread is the (single) consumer, the producers put messages
+ * from background threads as fast as the (bounded) backlog allows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SendQueueBenchmark {
+
+	/**
+	 * Maximum number of messages put but not yet taken, keeps the queue bounded.
+	 */
+	private static final int MAX_OUTSTANDING = 10000;
+
+	private static final Object MESSAGE = new Object();
+
+	private interface SendQueue {
+		void put(Object o);
+		Object take() throws InterruptedException;
+	}
+
+	/**
+	 * Send queue implementation.
+	 */
+	@Param({"mailbox", "mpsc"})
+	public String queueType;
+
+	/**
+	 * Number of producer threads.
+	 */
+	@Param({"1", "8", "64"})
+	public int producers;
+
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private volatile boolean running;
+	private Thread[] producerThreads;
+	private SendQueue queue;
+
+	@Setup
+	public void setup() {
+		if ("mpsc".equals(queueType))
+		{
+			final MPSCMailbox<Object> mailbox = new MPSCMailbox<Object>();
+			queue = new SendQueue() {
+				@Override
+				public void put(Object o) {
+					mailbox.put(o);
+				}
+
+				@Override
+				public Object take() throws InterruptedException {
+					return mailbox.take(0);
+				}
+			};
+		}
+		else if ("mailbox".equals(queueType))
+		{
+			final Mailbox<Object> mailbox = new Mailbox<Object>();
+			queue = new SendQueue() {
+				@Override
+				public void put(Object o) {
+					mailbox.put(o);
+				}
+
+				@Override
+				public Object take() throws InterruptedException {
+					return mailbox.take(0);
+				}
+			};
+		}
+		else
+			throw new IllegalArgumentException("unsupported queue: " + queueType);
+
+		outstanding.set(0);
+		running = true;
+		producerThreads = new Thread[producers];
+		for (int i = 0; i < producers; i++)
+		{
+			producerThreads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (running)
+					{
+						// keep queue bounded, consumer is the one being measured
+						if (outstanding.get() >= MAX_OUTSTANDING)
+						{
+							Thread.yield();
+							continue;
+						}
+						outstanding.incrementAndGet();
+						queue.put(MESSAGE);
+					}
+				}
+			}, "producer-" + i);
+			producerThreads[i].setDaemon(true);
+			producerThreads[i].start();
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		running = false;
+		for (Thread producer : producerThreads)
+			producer.join(1000);
+	}
+
+	@Benchmark
+	public Object take() throws InterruptedException {
+		final Object message = queue.take();
+		outstanding.decrementAndGet();
+		return message;
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvdata;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pvdata.misc.BitSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>BitSet.serialize/deserialize</code>, e.g. changed and overrun bit sets of a monitor update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitSetSerializationBenchmark {
+
+	/**
+	 * Index of the highest bit set (i.e. number of fields of the structure).
+	 */
+	@Param({"1", "8", "64", "1024"})
+	public int bits;
+
+	/**
+	 * Every n-th bit is set.
+	 */
+	@Param({"1", "7"})
+	public int stride;
+
+	private BitSet bitSet;
+	private BitSet received;
+	private ByteBuffer buffer;
+	private ByteBuffer message;
+
+	@Setup
+	public void setup() {
+		bitSet = new BitSet(bits);
+		for (int i = bits - 1; i >= 0; i -= stride)
+			bitSet.set(i);
+		received = new BitSet(bits);
+
+		buffer = ByteBuffer.allocate(bits / 8 + 16);
+		message = ByteBuffer.allocate(buffer.capacity());
+		bitSet.serialize(message, BufferControl.INSTANCE);
+		message.flip();
+	}
+
+	@Benchmark
+	public int serialize() {
+		buffer.clear();
+		bitSet.serialize(buffer, BufferControl.INSTANCE);
+		return buffer.position();
+	}
+
+	@Benchmark
+	public BitSet deserialize() {
+		message.rewind();
+		received.deserialize(message, BufferControl.INSTANCE);
+		return received;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvdata;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.SerializableControl;
+
+/**
+ * (De)serialization control of a buffer that is large enough to hold the whole message,
+ * i.e. no flushing, no introspection cache. Measures the pure serialization code.
+ */
+public final class BufferControl implements SerializableControl, DeserializableControl {
+
+	private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+
+	public static final BufferControl INSTANCE = new BufferControl();
+
+	private BufferControl() {
+	}
+
+	@Override
+	public void flushSerializeBuffer() {
+		// noop
+	}
+
+	@Override
+	public void ensureBuffer(int size) {
+		// noop, buffer is large enough
+	}
+
+	@Override
+	public void alignBuffer(int alignment) {
+		// noop
+	}
+
+	@Override
+	public void cachedSerialize(Field field, ByteBuffer buffer) {
+		field.serialize(buffer, this);
+	}
+
+	@Override
+	public void ensureData(int size) {
+		// noop, all data is available
+	}
+
+	@Override
+	public void alignData(int alignment) {
+		// noop
+	}
+
+	@Override
+	public Field cachedDeserialize(ByteBuffer buffer) {
+		return fieldCreate.deserialize(buffer, this);
+	}
+}
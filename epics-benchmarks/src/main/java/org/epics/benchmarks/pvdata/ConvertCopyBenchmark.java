@@ -0,0 +1,77 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvdata;
+
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardPVFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>Convert.copy</code> of a NTScalarArray of doubles, whole structure vs. changed fields only
+ * (only <code>timeStamp.secondsPastEpoch</code> changes), as done by the monitor queues.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertCopyBenchmark {
+
+	private static final Convert convert = ConvertFactory.getConvert();
+
+	@Param({"1", "1000", "1000000"})
+	public int elements;
+
+	private PVStructure from;
+	private PVStructure to;
+	private PVLong seconds;
+	private BitSet changedBitSet;
+	private long counter;
+
+	@Setup
+	public void setup() {
+		from = StandardPVFieldFactory.getStandardPVField().scalarArray(ScalarType.pvDouble, "alarm,timeStamp");
+		((PVDoubleArray)from.getScalarArrayField("value", ScalarType.pvDouble)).put(0, elements, new double[elements], 0);
+		to = PVDataFactory.getPVDataCreate().createPVStructure(from);
+		seconds = from.getLongField("timeStamp.secondsPastEpoch");
+
+		changedBitSet = new BitSet(from.getNumberFields());
+		changedBitSet.set(seconds.getFieldOffset());
+	}
+
+	@Benchmark
+	public PVStructure copy() {
+		seconds.put(counter++);
+		convert.copy(from, to);
+		return to;
+	}
+
+	@Benchmark
+	public PVStructure copyChanged() {
+		seconds.put(counter++);
+		convert.copy(from, to, changedBitSet);
+		return to;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvdata;
+
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pvdata.factory.BaseScalar;
+import org.epics.pvdata.factory.BaseStructure;
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation of NTScalar records (with alarm, timeStamp, display and control),
+ * with (interned) introspection objects created by <code>FieldCreate</code>
+ * vs. each record with its own introspection tree (i.e. no interning).
+ * The last <code>records</code> records are kept alive, so that with <code>-prof gc</code>
+ * the allocation rate and GC load show the cost of the introspection trees the records retain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FieldInterningBenchmark {
+
+	private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+	private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+
+	/**
+	 * Create introspection objects through <code>FieldCreate</code> (interned) or directly.
+	 */
+	@Param({"true", "false"})
+	public boolean interning;
+
+	/**
+	 * Number of records kept alive.
+	 */
+	@Param({"100000"})
+	public int records;
+
+	private PVStructure[] retained;
+	private int next;
+
+	@Setup
+	public void setup() {
+		retained = new PVStructure[records];
+		next = 0;
+	}
+
+	private Field scalar(ScalarType scalarType)
+	{
+		return interning ? fieldCreate.createScalar(scalarType) : new BaseScalar(scalarType);
+	}
+
+	private Structure structure(String id, String[] fieldNames, Field[] fields)
+	{
+		return interning ? fieldCreate.createStructure(id, fieldNames, fields) : new BaseStructure(id, fieldNames, fields);
+	}
+
+	private Structure createNTScalar()
+	{
+		Structure alarm = structure("alarm_t",
+				new String[] { "severity", "status", "message" },
+				new Field[] { scalar(ScalarType.pvInt), scalar(ScalarType.pvInt), scalar(ScalarType.pvString) });
+		Structure timeStamp = structure("time_t",
+				new String[] { "secondsPastEpoch", "nanoseconds", "userTag" },
+				new Field[] { scalar(ScalarType.pvLong), scalar(ScalarType.pvInt), scalar(ScalarType.pvInt) });
+		Structure display = structure("display_t",
+				new String[] { "limitLow", "limitHigh", "description", "format", "units" },
+				new Field[] { scalar(ScalarType.pvDouble), scalar(ScalarType.pvDouble),
+							  scalar(ScalarType.pvString), scalar(ScalarType.pvString), scalar(ScalarType.pvString) });
+		Structure control = structure("control_t",
+				new String[] { "limitLow", "limitHigh", "minStep" },
+				new Field[] { scalar(ScalarType.pvDouble), scalar(ScalarType.pvDouble), scalar(ScalarType.pvDouble) });
+		return structure("epics:nt/NTScalar:1.0",
+				new String[] { "value", "descriptor", "alarm", "timeStamp", "display", "control" },
+				new Field[] { scalar(ScalarType.pvDouble), scalar(ScalarType.pvString),
+							  alarm, timeStamp, display, control });
+	}
+
+	@Benchmark
+	public PVStructure createRecord() {
+		final PVStructure pvStructure = pvDataCreate.createPVStructure(createNTScalar());
+		retained[next] = pvStructure;
+		next = (next + 1) % records;
+		return pvStructure;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvdata;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardPVFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>PVStructure.serialize/deserialize</code> of a NTScalar (<code>elements == 0</code>)
+ * or a NTScalarArray of doubles, whole structure and changed fields only (as sent by a monitor).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PVStructureSerializationBenchmark {
+
+	/**
+	 * Number of array elements, <code>0</code> for a scalar.
+	 */
+	@Param({"0", "1000", "100000"})
+	public int elements;
+
+	/**
+	 * Changed fields: <code>all</code>, <code>value</code> or <code>timeStamp</code>.
+	 */
+	@Param({"all", "value", "timeStamp"})
+	public String changed;
+
+	private PVStructure source;
+	private PVStructure target;
+	private BitSet changedBitSet;
+	private BitSet receivedBitSet;
+
+	private ByteBuffer buffer;
+	private ByteBuffer fullMessage;
+	private ByteBuffer changedMessage;
+
+	@Setup
+	public void setup() {
+		if (elements == 0)
+			source = StandardPVFieldFactory.getStandardPVField().scalar(ScalarType.pvDouble, "alarm,timeStamp");
+		else
+		{
+			source = StandardPVFieldFactory.getStandardPVField().scalarArray(ScalarType.pvDouble, "alarm,timeStamp");
+			final double[] values = new double[elements];
+			for (int i = 0; i < elements; i++)
+				values[i] = i;
+			((PVDoubleArray)source.getScalarArrayField("value", ScalarType.pvDouble)).put(0, elements, values, 0);
+		}
+		target = PVDataFactory.getPVDataCreate().createPVStructure(source.getStructure());
+
+		changedBitSet = new BitSet(source.getNumberFields());
+		receivedBitSet = new BitSet(source.getNumberFields());
+		if ("all".equals(changed))
+			changedBitSet.set(0);
+		else
+			changedBitSet.set(source.getSubField(changed).getFieldOffset());
+
+		buffer = ByteBuffer.allocate(source.getNumberFields() * 16 + elements * 8 + 1024);
+
+		fullMessage = ByteBuffer.allocate(buffer.capacity());
+		source.serialize(fullMessage, BufferControl.INSTANCE);
+		fullMessage.flip();
+
+		changedMessage = ByteBuffer.allocate(buffer.capacity());
+		changedBitSet.serialize(changedMessage, BufferControl.INSTANCE);
+		source.serialize(changedMessage, BufferControl.INSTANCE, changedBitSet);
+		changedMessage.flip();
+	}
+
+	@Benchmark
+	public int serialize() {
+		buffer.clear();
+		source.serialize(buffer, BufferControl.INSTANCE);
+		return buffer.position();
+	}
+
+	@Benchmark
+	public int serializeChanged() {
+		buffer.clear();
+		changedBitSet.serialize(buffer, BufferControl.INSTANCE);
+		source.serialize(buffer, BufferControl.INSTANCE, changedBitSet);
+		return buffer.position();
+	}
+
+	@Benchmark
+	public PVStructure deserialize() {
+		fullMessage.rewind();
+		target.deserialize(fullMessage, BufferControl.INSTANCE);
+		return target;
+	}
+
+	@Benchmark
+	public PVStructure deserializeChanged() {
+		changedMessage.rewind();
+		receivedBitSet.deserialize(changedMessage, BufferControl.INSTANCE);
+		target.deserialize(changedMessage, BufferControl.INSTANCE, receivedBitSet);
+		return target;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.pvdata;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pvdata.misc.SerializeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>SerializeHelper</code> string (de)serialization, e.g. channel names, field names, string values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeHelperBenchmark {
+
+	/**
+	 * String length in characters.
+	 */
+	@Param({"8", "64", "1024"})
+	public int length;
+
+	/**
+	 * ASCII only (single byte UTF-8) or with multi-byte characters.
+	 */
+	@Param({"true", "false"})
+	public boolean ascii;
+
+	private String value;
+	private ByteBuffer buffer;
+	private ByteBuffer message;
+
+	@Setup
+	public void setup() {
+		final StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			sb.append((!ascii && i % 8 == 7) ? 'µ' : (char)('a' + i % 26));
+		value = sb.toString();
+
+		buffer = ByteBuffer.allocate(SerializeHelper.getSerializedSize(value) + 16);
+		message = ByteBuffer.allocate(buffer.capacity());
+		SerializeHelper.serializeString(value, message, BufferControl.INSTANCE);
+		message.flip();
+	}
+
+	@Benchmark
+	public int serializeString() {
+		buffer.clear();
+		SerializeHelper.serializeString(value, buffer, BufferControl.INSTANCE);
+		return buffer.position();
+	}
+
+	@Benchmark
+	public String deserializeString() {
+		message.rewind();
+		return SerializeHelper.deserializeString(message, BufferControl.INSTANCE);
+	}
+
+	@Benchmark
+	public int serializedSize() {
+		return SerializeHelper.getSerializedSize(value);
+	}
+}
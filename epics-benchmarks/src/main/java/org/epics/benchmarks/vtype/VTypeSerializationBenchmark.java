@@ -0,0 +1,151 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.benchmarks.vtype;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.stats.Range;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VDoubleArray;
+import org.epics.vtype.VType;
+import org.epics.vtype.binary.VTypeBinaryReader;
+import org.epics.vtype.binary.VTypeBinaryWriter;
+import org.epics.vtype.gson.CustomGson;
+import org.epics.vtype.json.VTypeToJson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.Gson;
+
+/**
+ * Write and read of consecutive samples of a channel (VDouble or VDoubleArray)
+ * with vtype-binary, vtype-json (streaming) and vtype-gson. Time is per sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VTypeSerializationBenchmark {
+
+	private static final int SAMPLES = 100;
+
+	/**
+	 * Number of array elements, <code>0</code> for a scalar.
+	 */
+	@Param({"0", "1000"})
+	public int elements;
+
+	private final List<VType> samples = new ArrayList<VType>(SAMPLES);
+	private final ByteArrayOutputStream binaryOut = new ByteArrayOutputStream();
+	private byte[] binary;
+	private final List<String> json = new ArrayList<String>(SAMPLES);
+	private final List<String> gsonJson = new ArrayList<String>(SAMPLES);
+	private Gson gson;
+
+	@Setup
+	public void setup() throws IOException {
+		final Display display = Display.of(Range.of(0, 100), Range.of(5, 95), Range.of(10, 90), Range.of(0, 100),
+				"mm", Display.defaultNumberFormat(), "Position");
+		final Instant start = Instant.now();
+		for (int i = 0; i < SAMPLES; i++) {
+			final Time time = Time.of(start.plusMillis(i * 100));
+			if (elements == 0) {
+				samples.add(VDouble.of(i * 0.1, Alarm.none(), time, display));
+			} else {
+				final double[] values = new double[elements];
+				for (int j = 0; j < elements; j++)
+					values[j] = Math.sin(i + j * 0.01);
+				samples.add(VDoubleArray.of(ArrayDouble.of(values), Alarm.none(), time, display));
+			}
+		}
+
+		binaryWrite();
+		binary = binaryOut.toByteArray();
+
+		gson = CustomGson.getGson();
+		for (VType sample : samples) {
+			final StringWriter writer = new StringWriter();
+			VTypeToJson.toJson(sample, writer);
+			json.add(writer.toString());
+			gsonJson.add(gson.toJson(sample, VType.class));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public int binaryWrite() throws IOException {
+		binaryOut.reset();
+		final VTypeBinaryWriter writer = new VTypeBinaryWriter(binaryOut);
+		for (VType sample : samples)
+			writer.write(sample);
+		return binaryOut.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void binaryRead(Blackhole blackhole) throws IOException {
+		final VTypeBinaryReader reader = new VTypeBinaryReader(new ByteArrayInputStream(binary));
+		VType sample;
+		while ((sample = reader.read()) != null)
+			blackhole.consume(sample);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public int jsonWrite() {
+		final StringWriter writer = new StringWriter();
+		for (VType sample : samples)
+			VTypeToJson.toJson(sample, writer);
+		return writer.getBuffer().length();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void jsonRead(Blackhole blackhole) {
+		for (String sample : json)
+			blackhole.consume(VTypeToJson.toVType(new StringReader(sample)));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public int gsonWrite() {
+		int length = 0;
+		for (VType sample : samples)
+			length += gson.toJson(sample, VType.class).length();
+		return length;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void gsonRead(Blackhole blackhole) {
+		for (String sample : gsonJson)
+			blackhole.consume(gson.fromJson(sample, VType.class));
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.gpclient;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of an event delivered to one of many passive rate decouplers, with a shared
+ * timer wheel and with each decoupler scheduling directly on the executor.
+ * Events are delivered round-robin, every pv receives them faster than its max rate,
+ * so that a notification is always pending.
+ * The benchmark is in the gpclient package, since the rate decouplers and the timer wheel are not public.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateDecouplerBenchmark {
+
+	private static final Duration MAX_RATE = Duration.ofMillis(100);
+
+	/**
+	 * Number of pvs.
+	 */
+	@Param({"10000", "100000"})
+	public int pvs;
+
+	/**
+	 * Timer wheel tick in ms, <code>0</code> schedules each notification on the executor.
+	 */
+	@Param({"0", "1"})
+	public int tickMs;
+
+	private ScheduledThreadPoolExecutor executor;
+	private RateDecoupler[] decouplers;
+	private int next;
+
+	@Setup
+	public void setup() {
+		executor = new ScheduledThreadPoolExecutor(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		final TimerWheel wheel = new TimerWheel(executor, Duration.ofMillis(tickMs));
+
+		decouplers = new RateDecoupler[pvs];
+		for (int i = 0; i < pvs; i++)
+		{
+			final RateDecoupler[] decoupler = new RateDecoupler[1];
+			decoupler[0] = new PassiveRateDecoupler(wheel, MAX_RATE, new Consumer<PVEvent>() {
+				@Override
+				public void accept(PVEvent event) {
+					decoupler[0].readyForNextEvent();
+				}
+			}, null);
+			decoupler[0].start();
+			decouplers[i] = decoupler[0];
+		}
+		next = 0;
+	}
+
+	@TearDown
+	public void tearDown() {
+		for (RateDecoupler decoupler : decouplers)
+			decoupler.stop();
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public void event() {
+		decouplers[next].getUpdateListener().accept(PVEvent.valueEvent());
+		next = (next + 1) % pvs;
+	}
+}
@@ -79,7 +79,7 @@ public final class ArrayUByte extends ListUByte implements Serializable {
             if (index < 0 || index >= this.size)
                 throw new IndexOutOfBoundsException("Index: "+index+", Size: "+this.size);
         }
-        return array[index];
+        return array[startIndex + index];
     }
 
     @Override
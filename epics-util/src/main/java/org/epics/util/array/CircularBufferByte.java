@@ -0,0 +1,211 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.array;
+
+/**
+ * An implementation of a list on top of a circular buffer. The buffer
+ * will start at the initial capacity (default 10) and will continue
+ * to grow until the max capacity is reached. At that point, it will
+ * start to replace the oldest value with a newer one.
+ */
+public class CircularBufferByte extends ListByte {
+
+    private byte[] data;
+    private int startOffset;
+    private int endOffset;
+    private final int maxCapacity;
+    private boolean reachedMax;
+
+    /**
+     * Creates a new circular buffer with the given maximum capacity.
+     *
+     * @param maxCapacity maximum capacity
+     */
+    public CircularBufferByte(int maxCapacity) {
+        this(Math.min(10, maxCapacity), maxCapacity);
+    }
+
+    /**
+     * Creates a new circular buffer with the given initial and maximum
+     * capacity.
+     *
+     * @param initialCapacity initial capacity
+     * @param maxCapacity  maximum capacity
+     */
+    public CircularBufferByte(int initialCapacity, int maxCapacity) {
+        data = new byte[initialCapacity];
+        this.maxCapacity = maxCapacity;
+    }
+
+    private void resize() {
+        int oldSize = data.length;
+        int newSize = oldSize * 2;
+        if (newSize > maxCapacity) {
+            newSize = maxCapacity + 1;
+            reachedMax = true;
+        }
+        byte[] newData = new byte[newSize];
+        System.arraycopy(data, 0, newData, 0, oldSize);
+        data = newData;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public byte getByte(int index) {
+        index += startOffset;
+        if (index >= data.length) {
+            index -= data.length;
+        }
+        return data[index];
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int size() {
+        int size = endOffset - startOffset;
+        if (size < 0) {
+            size += data.length;
+        }
+        return size;
+    }
+
+    /**
+     * Adds a new value.
+     *
+     * @param value new value
+     */
+    public void addByte(byte value) {
+        data[endOffset] = value;
+        endOffset++;
+
+        // Grow the buffer if needed
+        if (endOffset == data.length && !reachedMax)
+            resize();
+
+        // Loop over and advance the start point if needed
+        if (endOffset == data.length) {
+            endOffset = 0;
+        }
+        if (endOffset == startOffset)
+            startOffset++;
+        if (startOffset == data.length)
+            startOffset = 0;
+    }
+
+    /**
+     * Adds all the values of the given list, in order. If the list wraps
+     * a {@code byte[]}, the values are copied in bulk.
+     *
+     * @param values new values
+     */
+    public void addAll(ListNumber values) {
+        UnsafeUnwrapper.Array<byte[]> array = UnsafeUnwrapper.wrappedByteArray(values);
+        if (array != null) {
+            addAll(array.array, array.startIndex, array.size);
+        } else {
+            for (int i = 0; i < values.size(); i++) {
+                addByte(values.getByte(i));
+            }
+        }
+    }
+
+    private void addAll(byte[] values, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        // Only the most recent values are kept
+        if (length > maxCapacity) {
+            offset += length - maxCapacity;
+            length = maxCapacity;
+        }
+        int newSize = Math.min(size() + length, maxCapacity);
+        while (!reachedMax && newSize >= data.length) {
+            resize();
+        }
+
+        // Copy up to the end of the array, then wrap around
+        int tail = Math.min(length, data.length - endOffset);
+        System.arraycopy(values, offset, data, endOffset, tail);
+        System.arraycopy(values, offset + tail, data, 0, length - tail);
+        endOffset += length;
+        if (endOffset >= data.length) {
+            endOffset -= data.length;
+        }
+        startOffset = endOffset - newSize;
+        if (startOffset < 0) {
+            startOffset += data.length;
+        }
+    }
+
+    /**
+     * The oldest values, up to the end of the internal array. Together with
+     * {@link #getSecondSegment() } it covers all the values in the buffer.
+     * <p>
+     * The segment is a read-only view of the internal array, not a copy:
+     * it must not be used after the buffer is modified.
+     *
+     * @return the first segment of values
+     */
+    public ArrayByte getFirstSegment() {
+        if (endOffset >= startOffset) {
+            return new ArrayByte(data, startOffset, endOffset - startOffset, true);
+        }
+        return new ArrayByte(data, startOffset, data.length - startOffset, true);
+    }
+
+    /**
+     * The most recent values that wrapped around to the start of the
+     * internal array, or an empty list if the buffer does not wrap.
+     * <p>
+     * The segment is a read-only view of the internal array, not a copy:
+     * it must not be used after the buffer is modified.
+     *
+     * @return the second segment of values
+     */
+    public ArrayByte getSecondSegment() {
+        if (endOffset >= startOffset) {
+            return new ArrayByte(data, 0, 0, true);
+        }
+        return new ArrayByte(data, 0, endOffset, true);
+    }
+
+    /**
+     * Replaces the most recently added value, e.g. to coalesce
+     * values when the buffer should not grow.
+     *
+     * @param value new value
+     * @throws IndexOutOfBoundsException if the buffer is empty
+     */
+    public void setLastByte(byte value) {
+        if (endOffset == startOffset)
+            throw new IndexOutOfBoundsException("Buffer is empty");
+        int index = endOffset - 1;
+        if (index < 0) {
+            index += data.length;
+        }
+        data[index] = value;
+    }
+
+    /**
+     * Removes all values from the buffer.
+     */
+    public void clear() {
+        startOffset = 0;
+        endOffset = 0;
+    }
+
+    /**
+     * The maximum capacity for this circular buffer.
+     *
+     * @return maximum capacity
+     */
+    public int getCurrentCapacity() {
+        return reachedMax ? maxCapacity : data.length;
+    }
+}
@@ -100,6 +100,100 @@ public class CircularBufferDouble extends ListDouble {
             startOffset = 0;
     }
 
+    /**
+     * Adds all the values of the given list, in order. If the list wraps
+     * a {@code double[]}, the values are copied in bulk.
+     *
+     * @param values new values
+     */
+    public void addAll(ListNumber values) {
+        UnsafeUnwrapper.Array<double[]> array = UnsafeUnwrapper.wrappedDoubleArray(values);
+        if (array != null) {
+            addAll(array.array, array.startIndex, array.size);
+        } else {
+            for (int i = 0; i < values.size(); i++) {
+                addDouble(values.getDouble(i));
+            }
+        }
+    }
+
+    private void addAll(double[] values, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        // Only the most recent values are kept
+        if (length > maxCapacity) {
+            offset += length - maxCapacity;
+            length = maxCapacity;
+        }
+        int newSize = Math.min(size() + length, maxCapacity);
+        while (!reachedMax && newSize >= data.length) {
+            resize();
+        }
+
+        // Copy up to the end of the array, then wrap around
+        int tail = Math.min(length, data.length - endOffset);
+        System.arraycopy(values, offset, data, endOffset, tail);
+        System.arraycopy(values, offset + tail, data, 0, length - tail);
+        endOffset += length;
+        if (endOffset >= data.length) {
+            endOffset -= data.length;
+        }
+        startOffset = endOffset - newSize;
+        if (startOffset < 0) {
+            startOffset += data.length;
+        }
+    }
+
+    /**
+     * The oldest values, up to the end of the internal array. Together with
+     * {@link #getSecondSegment() } it covers all the values in the buffer.
+     * <p>
+     * The segment is a read-only view of the internal array, not a copy:
+     * it must not be used after the buffer is modified.
+     *
+     * @return the first segment of values
+     */
+    public ArrayDouble getFirstSegment() {
+        if (endOffset >= startOffset) {
+            return new ArrayDouble(data, startOffset, endOffset - startOffset, true);
+        }
+        return new ArrayDouble(data, startOffset, data.length - startOffset, true);
+    }
+
+    /**
+     * The most recent values that wrapped around to the start of the
+     * internal array, or an empty list if the buffer does not wrap.
+     * <p>
+     * The segment is a read-only view of the internal array, not a copy:
+     * it must not be used after the buffer is modified.
+     *
+     * @return the second segment of values
+     */
+    public ArrayDouble getSecondSegment() {
+        if (endOffset >= startOffset) {
+            return new ArrayDouble(data, 0, 0, true);
+        }
+        return new ArrayDouble(data, 0, endOffset, true);
+    }
+
+    /**
+     * Replaces the most recently added value, e.g. to coalesce
+     * values when the buffer should not grow.
+     *
+     * @param value new value
+     * @throws IndexOutOfBoundsException if the buffer is empty
+     */
+    public void setLastDouble(double value) {
+        if (endOffset == startOffset)
+            throw new IndexOutOfBoundsException("Buffer is empty");
+        int index = endOffset - 1;
+        if (index < 0) {
+            index += data.length;
+        }
+        data[index] = value;
+    }
+
     /**
      * Removes all values from the buffer.
      */
@@ -0,0 +1,188 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.array;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A circular buffer of fixed capacity that can be read while another
+ * thread is adding values, e.g. the history of a channel kept by the
+ * thread that receives the updates and displayed by others.
+ * <p>
+ * Writes are serialized by a {@link StampedLock}. Reads are optimistic:
+ * the values are copied without locking and the copy is discarded if a
+ * write happened in the meantime, so that readers never delay the writer
+ * unless they repeatedly fail. The buffer is meant for a single writer,
+ * which should prefer {@link #addAll(org.epics.util.array.ListNumber) }
+ * to adding values one at a time.
+ */
+public class ConcurrentCircularBufferDouble {
+
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    private final StampedLock lock = new StampedLock();
+    private final double[] data;
+    private int endOffset;
+    private int size;
+
+    /**
+     * Creates a new circular buffer with the given capacity. The memory
+     * for all the values is allocated upfront.
+     *
+     * @param capacity maximum number of values
+     */
+    public ConcurrentCircularBufferDouble(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive (was " + capacity + ")");
+        }
+        data = new double[capacity];
+    }
+
+    /**
+     * Adds a new value, replacing the oldest one if the buffer is full.
+     *
+     * @param value new value
+     */
+    public void addDouble(double value) {
+        long stamp = lock.writeLock();
+        try {
+            data[endOffset] = value;
+            endOffset++;
+            if (endOffset == data.length) {
+                endOffset = 0;
+            }
+            if (size < data.length) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds all the values of the given list, in order, replacing the oldest
+     * ones if the buffer is full. If the list wraps a {@code double[]},
+     * the values are copied in bulk.
+     *
+     * @param values new values
+     */
+    public void addAll(ListNumber values) {
+        UnsafeUnwrapper.Array<double[]> array = UnsafeUnwrapper.wrappedDoubleArray(values);
+        double[] source;
+        int offset;
+        int length;
+        if (array != null) {
+            source = array.array;
+            offset = array.startIndex;
+            length = array.size;
+        } else {
+            // Read the values outside the lock
+            source = values.toArray(new double[values.size()]);
+            offset = 0;
+            length = source.length;
+        }
+        // Only the most recent values are kept
+        if (length > data.length) {
+            offset += length - data.length;
+            length = data.length;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            // Copy up to the end of the array, then wrap around
+            int tail = Math.min(length, data.length - endOffset);
+            System.arraycopy(source, offset, data, endOffset, tail);
+            System.arraycopy(source, offset + tail, data, 0, length - tail);
+            endOffset += length;
+            if (endOffset >= data.length) {
+                endOffset -= data.length;
+            }
+            size = Math.min(size + length, data.length);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all values from the buffer.
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            endOffset = 0;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * The number of values currently in the buffer.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int currentSize = size;
+        if (lock.validate(stamp)) {
+            return currentSize;
+        }
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The maximum number of values in the buffer.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return data.length;
+    }
+
+    /**
+     * A copy of the values currently in the buffer, from the oldest
+     * to the most recent.
+     *
+     * @return a copy of the values
+     */
+    public ArrayDouble snapshot() {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                double[] copy = copy();
+                if (lock.validate(stamp)) {
+                    return ArrayDouble.of(copy);
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return ArrayDouble.of(copy());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private double[] copy() {
+        // Fields may be inconsistent during an optimistic read:
+        // the indexes are bound to the array so that the copy does not fail
+        int end = Math.min(Math.max(endOffset, 0), data.length - 1);
+        int length = Math.min(Math.max(size, 0), data.length);
+        double[] copy = new double[length];
+        int start = end - length;
+        if (start >= 0) {
+            System.arraycopy(data, start, copy, 0, length);
+        } else {
+            System.arraycopy(data, start + data.length, copy, 0, -start);
+            System.arraycopy(data, 0, copy, -start, end);
+        }
+        return copy;
+    }
+}
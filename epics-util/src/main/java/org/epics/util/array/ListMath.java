@@ -4,12 +4,20 @@
  */
 package org.epics.util.array;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import static org.epics.util.array.CollectionNumbers.*;
 
 /**
  * Math operations defined on lists of numbers.
+ * <p>
+ * The element-wise operations return lazy views, computed at each
+ * {@code getDouble(int)}. Copying a view to an array (with
+ * {@link #materialize(ListNumber)}, {@code toArray(double[])} or
+ * {@link ArrayDouble#ArrayDouble(CollectionNumber)}) evaluates the whole chain
+ * of operations in a single pass, a block of elements at a time, with
+ * primitive loops on the arrays wrapped by the operands.
  *
  * @author carcassi
  * @author Mark Davis (NSCL/FRIB)
@@ -30,7 +38,7 @@ public class ListMath {
     public static ListDouble rescale(final ListNumber data, final double factor, final double offset) {
         if (factor == 1.0)
             return add(data, offset);
-        return new ListDouble() {
+        return new UnaryListDouble(data) {
 
             @Override
             public double getDouble(int index) {
@@ -38,8 +46,10 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return data.size();
+            void apply(double[] src, int srcPos, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = factor * src[srcPos + i] + offset;
+                }
             }
         };
     }
@@ -53,7 +63,7 @@ public class ListMath {
      * @return result[x] = numerator / data[x] + offset
      */
     public static ListDouble inverseRescale(final ListNumber data, final double numerator, final double offset) {
-        return new ListDouble() {
+        return new UnaryListDouble(data) {
 
             @Override
             public double getDouble(int index) {
@@ -61,8 +71,10 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return data.size();
+            void apply(double[] src, int srcPos, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = numerator / src[srcPos + i] + offset;
+                }
             }
         };
     }
@@ -75,7 +87,7 @@ public class ListMath {
      * @return result[x] = data[x] ** expon
      */
     public static ListDouble pow(final ListNumber data, final double expon) {
-        return new ListDouble() {
+        return new UnaryListDouble(data) {
 
             @Override
             public double getDouble(int index) {
@@ -83,8 +95,10 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return data.size();
+            void apply(double[] src, int srcPos, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = Math.pow(src[srcPos + i], expon);
+                }
             }
         };
     }
@@ -97,7 +111,7 @@ public class ListMath {
      * @return result[x] = base ** expons[x]
      */
     public static ListDouble pow(final double base, final ListNumber expons) {
-        return new ListDouble() {
+        return new UnaryListDouble(expons) {
 
             @Override
             public double getDouble(int index) {
@@ -105,8 +119,10 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return expons.size();
+            void apply(double[] src, int srcPos, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = Math.pow(base, src[srcPos + i]);
+                }
             }
         };
     }
@@ -119,7 +135,7 @@ public class ListMath {
      * @return result[x] = data[x] + offset
      */
     public static ListDouble add(final ListNumber data, final double offset) {
-        return new ListDouble() {
+        return new UnaryListDouble(data) {
 
             @Override
             public double getDouble(int index) {
@@ -127,8 +143,10 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return data.size();
+            void apply(double[] src, int srcPos, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src[srcPos + i] + offset;
+                }
             }
         };
     }
@@ -144,7 +162,7 @@ public class ListMath {
     public static ListDouble add(final ListNumber data1, final ListNumber data2) {
         if (data1.size() != data2.size())
             throw new IllegalArgumentException("Can't sum ListNumbers of different size (" + data1.size() + " - " + data2.size() + ")");
-        return new ListDouble() {
+        return new BinaryListDouble(data1, data2) {
 
             @Override
             public double getDouble(int index) {
@@ -152,8 +170,10 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return data1.size();
+            void apply(double[] src1, int srcPos1, double[] src2, int srcPos2, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src1[srcPos1 + i] + src2[srcPos2 + i];
+                }
             }
         };
     }
@@ -169,7 +189,7 @@ public class ListMath {
     public static ListDouble subtract(final ListNumber data1, final ListNumber data2) {
         if (data1.size() != data2.size())
             throw new IllegalArgumentException("Can't subtract ListNumbers of different size (" + data1.size() + " - " + data2.size() + ")");
-        return new ListDouble() {
+        return new BinaryListDouble(data1, data2) {
 
             @Override
             public double getDouble(int index) {
@@ -177,8 +197,10 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return data1.size();
+            void apply(double[] src1, int srcPos1, double[] src2, int srcPos2, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src1[srcPos1 + i] - src2[srcPos2 + i];
+                }
             }
         };
     }
@@ -196,7 +218,7 @@ public class ListMath {
             throw new IllegalArgumentException(
                         "Can't do element-wise mult on ListNumbers of different size ("
                      + data1.size() + " - " + data2.size() + ")");
-        return new ListDouble() {
+        return new BinaryListDouble(data1, data2) {
 
             @Override
             public double getDouble(int index) {
@@ -204,8 +226,10 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return data1.size();
+            void apply(double[] src1, int srcPos1, double[] src2, int srcPos2, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src1[srcPos1 + i] * src2[srcPos2 + i];
+                }
             }
         };
     }
@@ -223,7 +247,7 @@ public class ListMath {
             throw new IllegalArgumentException(
                         "Can't do element-wise mult on ListNumbers of different size ("
                      + data1.size() + " - " + data2.size() + ")");
-        return new ListDouble() {
+        return new BinaryListDouble(data1, data2) {
 
             @Override
             public double getDouble(int index) {
@@ -231,12 +255,27 @@ public class ListMath {
             }
 
             @Override
-            public int size() {
-                return data1.size();
+            void apply(double[] src1, int srcPos1, double[] src2, int srcPos2, double[] dest, int destPos, int n) {
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src1[srcPos1 + i] / src2[srcPos2 + i];
+                }
             }
         };
     }
 
+    /**
+     * Evaluates all the elements of the list into a new array. Chains of
+     * operations returned by this class are computed in a single pass, instead
+     * of element by element through the chain of views. Use this before
+     * reading the result of a chain more than once.
+     *
+     * @param data a list of numbers
+     * @return an unmodifiable list with the values of the given list
+     */
+    public static ArrayDouble materialize(ListNumber data) {
+        return unmodifiableListDouble(data.toArray(new double[data.size()]));
+    }
+
     /**
      * XXX: This is just a prototype
      * @param x real part
@@ -274,4 +313,197 @@ public class ListMath {
             return Arrays.<ListNumber>asList(unmodifiableList(toListDouble(resY)), unmodifiableList(toListDouble(resX)));
         }
     }
+
+    /**
+     * Number of elements computed at a time by the fused evaluation, so that
+     * the temporary blocks stay in the processor cache.
+     */
+    private static final int BLOCK_SIZE = 1024;
+
+    /**
+     * Result of an element-wise operation that can be evaluated a block of
+     * elements at a time.
+     */
+    private abstract static class FusedListDouble extends ListDouble {
+
+        /**
+         * Computes the elements from {@code from} to {@code from + n} into
+         * {@code dest}, starting at {@code destPos}.
+         */
+        abstract void evaluate(int from, int n, double[] dest, int destPos, Blocks blocks);
+
+        /**
+         * Whether any of the operands reads its elements directly from the given array.
+         */
+        abstract boolean reads(double[] array);
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T toArray(T array) {
+            if (!(array instanceof double[])) {
+                return CollectionNumbers.defaultToArray(this, array);
+            }
+            int size = size();
+            double[] result = ((double[]) array).length < size ? new double[size] : (double[]) array;
+            Blocks blocks = new Blocks();
+            if (result == array && reads(result)) {
+                // The destination is also an operand: each block is computed
+                // in a temporary block first, so that the operand is not
+                // overwritten before it is read
+                double[] block = blocks.take();
+                for (int from = 0; from < size; from += BLOCK_SIZE) {
+                    int n = Math.min(BLOCK_SIZE, size - from);
+                    evaluate(from, n, block, 0, blocks);
+                    System.arraycopy(block, 0, result, from, n);
+                }
+                blocks.release();
+                return (T) result;
+            }
+            for (int from = 0; from < size; from += BLOCK_SIZE) {
+                evaluate(from, Math.min(BLOCK_SIZE, size - from), result, from, blocks);
+            }
+            return (T) result;
+        }
+    }
+
+    private abstract static class UnaryListDouble extends FusedListDouble {
+
+        private final ListNumber data;
+
+        UnaryListDouble(ListNumber data) {
+            this.data = data;
+        }
+
+        abstract void apply(double[] src, int srcPos, double[] dest, int destPos, int n);
+
+        @Override
+        public int size() {
+            return data.size();
+        }
+
+        @Override
+        void evaluate(int from, int n, double[] dest, int destPos, Blocks blocks) {
+            UnsafeUnwrapper.Array<double[]> src = operand(data, from, n, dest, destPos, blocks);
+            apply(src.array, src.startIndex, dest, destPos, n);
+        }
+
+        @Override
+        boolean reads(double[] array) {
+            return operandReads(data, array);
+        }
+    }
+
+    private abstract static class BinaryListDouble extends FusedListDouble {
+
+        private final ListNumber data1;
+        private final ListNumber data2;
+
+        BinaryListDouble(ListNumber data1, ListNumber data2) {
+            this.data1 = data1;
+            this.data2 = data2;
+        }
+
+        abstract void apply(double[] src1, int srcPos1, double[] src2, int srcPos2, double[] dest, int destPos, int n);
+
+        @Override
+        public int size() {
+            return data1.size();
+        }
+
+        @Override
+        void evaluate(int from, int n, double[] dest, int destPos, Blocks blocks) {
+            UnsafeUnwrapper.Array<double[]> src1 = operand(data1, from, n, dest, destPos, blocks);
+            UnsafeUnwrapper.Array<double[]> src2 = operand(data2, from, n, blocks.take(), 0, blocks);
+            apply(src1.array, src1.startIndex, src2.array, src2.startIndex, dest, destPos, n);
+            blocks.release();
+        }
+
+        @Override
+        boolean reads(double[] array) {
+            return operandReads(data1, array) || operandReads(data2, array);
+        }
+    }
+
+    /**
+     * Temporary blocks, used as a stack while evaluating the operands.
+     */
+    private static final class Blocks {
+
+        private final List<double[]> blocks = new ArrayList<>();
+        private int depth;
+
+        double[] take() {
+            if (depth == blocks.size()) {
+                blocks.add(new double[BLOCK_SIZE]);
+            }
+            return blocks.get(depth++);
+        }
+
+        void release() {
+            depth--;
+        }
+    }
+
+    /**
+     * Whether the operand, or any of its operands, reads its elements
+     * directly from the given array.
+     */
+    private static boolean operandReads(ListNumber data, double[] array) {
+        if (data instanceof FusedListDouble) {
+            return ((FusedListDouble) data).reads(array);
+        }
+        UnsafeUnwrapper.Array<double[]> wrapped = UnsafeUnwrapper.wrappedDoubleArray(data);
+        return wrapped != null && wrapped.array == array;
+    }
+
+    /**
+     * Returns the array with the elements from {@code from} to {@code from + n}
+     * of the operand: the array wrapped by the operand, if any, or {@code dest}
+     * where the elements are computed or copied.
+     */
+    private static UnsafeUnwrapper.Array<double[]> operand(ListNumber data, int from, int n, double[] dest, int destPos, Blocks blocks) {
+        UnsafeUnwrapper.Array<double[]> doubles = UnsafeUnwrapper.wrappedDoubleArray(data);
+        if (doubles != null) {
+            return new UnsafeUnwrapper.Array<>(doubles.array, doubles.startIndex + from, n);
+        }
+
+        if (data instanceof FusedListDouble) {
+            ((FusedListDouble) data).evaluate(from, n, dest, destPos, blocks);
+        } else {
+            UnsafeUnwrapper.Array<?> wrapped = UnsafeUnwrapper.wrappedArray(data);
+            int srcPos = wrapped == null ? 0 : wrapped.startIndex + from;
+            if (wrapped != null && wrapped.array instanceof float[]) {
+                float[] src = (float[]) wrapped.array;
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src[srcPos + i];
+                }
+            } else if (wrapped != null && wrapped.array instanceof long[]) {
+                long[] src = (long[]) wrapped.array;
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src[srcPos + i];
+                }
+            } else if (wrapped != null && wrapped.array instanceof int[]) {
+                int[] src = (int[]) wrapped.array;
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src[srcPos + i];
+                }
+            } else if (wrapped != null && wrapped.array instanceof short[]) {
+                short[] src = (short[]) wrapped.array;
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src[srcPos + i];
+                }
+            } else if (wrapped != null && wrapped.array instanceof byte[]) {
+                byte[] src = (byte[]) wrapped.array;
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = src[srcPos + i];
+                }
+            } else {
+                // Unsigned types and other implementations
+                for (int i = 0; i < n; i++) {
+                    dest[destPos + i] = data.getDouble(from + i);
+                }
+            }
+        }
+        return new UnsafeUnwrapper.Array<>(dest, destPos, n);
+    }
 }
@@ -0,0 +1,324 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.stats;
+
+import java.util.Arrays;
+import org.epics.util.array.CollectionNumber;
+import org.epics.util.array.IteratorNumber;
+
+/**
+ * Statistics that are updated incrementally, one sample (or one collection of
+ * samples) at a time, without keeping the samples.
+ * <p>
+ * As for {@link Statistics}, NaN values are skipped. Average and standard
+ * deviation are updated with Welford's algorithm, so that precision is not
+ * lost on long running accumulations. If created with a relative accuracy,
+ * the accumulator also keeps a sketch of the distribution from which
+ * percentiles can be estimated: values are counted in buckets of
+ * exponentially increasing width, so that the estimate of a percentile
+ * is within the given relative accuracy of the actual value. The number of
+ * buckets grows with the logarithm of the ratio between the largest and the
+ * smallest magnitude seen.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class StatisticsAccumulator {
+
+    private long count;
+    private double min;
+    private double max;
+    private double average;
+    private double m2;
+
+    private final PercentileSketch sketch;
+
+    /**
+     * Creates an accumulator for minimum, maximum, average and standard
+     * deviation.
+     */
+    public StatisticsAccumulator() {
+        this.sketch = null;
+    }
+
+    /**
+     * Creates an accumulator that also estimates percentiles within the
+     * given relative accuracy.
+     *
+     * @param relativeAccuracy the relative accuracy of the percentiles (e.g. 0.01 for 1%)
+     */
+    public StatisticsAccumulator(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0.0 && relativeAccuracy < 1.0)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1 (was " + relativeAccuracy + ")");
+        }
+        this.sketch = new PercentileSketch(relativeAccuracy);
+    }
+
+    /**
+     * Adds a sample. NaN values are skipped.
+     *
+     * @param value the new sample
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            if (value > max)
+                max = value;
+            if (value < min)
+                min = value;
+        }
+        count++;
+        double delta = value - average;
+        average += delta / count;
+        m2 += delta * (value - average);
+        if (sketch != null) {
+            sketch.add(value);
+        }
+    }
+
+    /**
+     * Adds all the samples of the collection. NaN values are skipped.
+     * <p>
+     * If percentiles are not estimated, the statistics of the collection
+     * are calculated with {@link StatisticsUtil#parallelStatisticsOf(org.epics.util.array.CollectionNumber) }
+     * and then merged.
+     *
+     * @param data the new samples
+     */
+    public void addAll(CollectionNumber data) {
+        if (sketch != null) {
+            IteratorNumber iterator = data.iterator();
+            while (iterator.hasNext()) {
+                add(iterator.nextDouble());
+            }
+        } else {
+            addAll(StatisticsUtil.parallelStatisticsOf(data));
+        }
+    }
+
+    /**
+     * Merges the statistics of a set of samples that were not added
+     * to this accumulator. Percentiles, if estimated, are not updated and
+     * only reflect the samples that were added individually.
+     *
+     * @param stats the statistics to merge; can be null
+     */
+    public void addAll(Statistics stats) {
+        if (stats == null || stats.getCount() == 0) {
+            return;
+        }
+        if (count == 0) {
+            min = stats.getRange().getMinimum();
+            max = stats.getRange().getMaximum();
+        } else {
+            min = Math.min(min, stats.getRange().getMinimum());
+            max = Math.max(max, stats.getRange().getMaximum());
+        }
+        long newCount = count + stats.getCount();
+        double delta = stats.getAverage() - average;
+        m2 += stats.getStdDev() * stats.getStdDev() * stats.getCount()
+                + delta * delta * ((double) count * stats.getCount() / newCount);
+        average += delta * stats.getCount() / newCount;
+        count = newCount;
+    }
+
+    /**
+     * Removes all the samples.
+     */
+    public void reset() {
+        count = 0;
+        min = 0;
+        max = 0;
+        average = 0;
+        m2 = 0;
+        if (sketch != null) {
+            sketch.reset();
+        }
+    }
+
+    /**
+     * The number of samples (excluding NaN) added so far.
+     *
+     * @return the number of samples
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The minimum value, or NaN if no sample was added.
+     *
+     * @return the minimum
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * The maximum value, or NaN if no sample was added.
+     *
+     * @return the maximum
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * The average value, or NaN if no sample was added.
+     *
+     * @return the average
+     */
+    public double getAverage() {
+        return count == 0 ? Double.NaN : average;
+    }
+
+    /**
+     * The standard deviation, or NaN if no sample was added.
+     *
+     * @return the standard deviation
+     */
+    public double getStdDev() {
+        return count == 0 ? Double.NaN : Math.sqrt(m2 / count);
+    }
+
+    /**
+     * An estimate of the given percentile, or NaN if no sample was added.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the estimated value
+     * @throws IllegalStateException if the accumulator was not created to estimate percentiles
+     */
+    public double getPercentile(double percentile) {
+        if (sketch == null) {
+            throw new IllegalStateException("Accumulator was not created to estimate percentiles");
+        }
+        if (!(percentile >= 0.0 && percentile <= 100.0)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100 (was " + percentile + ")");
+        }
+        if (sketch.count == 0) {
+            return Double.NaN;
+        }
+        double value = sketch.valueAtRank((long) (percentile / 100.0 * (sketch.count - 1)));
+        return Math.min(max, Math.max(min, value));
+    }
+
+    /**
+     * A snapshot of the current statistics, or null if no sample was added.
+     * The count saturates at {@link Integer#MAX_VALUE}.
+     *
+     * @return the statistics
+     */
+    public Statistics getStatistics() {
+        if (count == 0) {
+            return null;
+        }
+        return new StatisticsUtil.StatisticsImpl(Range.of(min, max), (int) Math.min(count, Integer.MAX_VALUE), average, getStdDev());
+    }
+
+    /**
+     * Counts of values in buckets of exponentially increasing width, as
+     * in the DDSketch algorithm. Positive and negative values are counted
+     * in separate stores indexed by the logarithm of the magnitude.
+     */
+    private static class PercentileSketch {
+
+        private final double gamma;
+        private final double logGamma;
+        private final BucketStore positive = new BucketStore();
+        private final BucketStore negative = new BucketStore();
+        private long zeroCount;
+        long count;
+
+        PercentileSketch(double relativeAccuracy) {
+            gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+            logGamma = Math.log(gamma);
+        }
+
+        void add(double value) {
+            count++;
+            if (value >= Double.MIN_NORMAL) {
+                positive.add(index(value));
+            } else if (value <= -Double.MIN_NORMAL) {
+                negative.add(index(-value));
+            } else {
+                zeroCount++;
+            }
+        }
+
+        private int index(double magnitude) {
+            // Infinities are counted in the largest finite bucket
+            return (int) Math.ceil(Math.log(Math.min(magnitude, Double.MAX_VALUE)) / logGamma);
+        }
+
+        private double value(int index) {
+            return 2 * Math.pow(gamma, index) / (gamma + 1);
+        }
+
+        double valueAtRank(long rank) {
+            // Negative values from the largest magnitude
+            long total = 0;
+            for (int i = negative.counts.length - 1; i >= 0; i--) {
+                total += negative.counts[i];
+                if (total > rank) {
+                    return -value(i + negative.offset);
+                }
+            }
+            total += zeroCount;
+            if (total > rank) {
+                return 0.0;
+            }
+            for (int i = 0; i < positive.counts.length; i++) {
+                total += positive.counts[i];
+                if (total > rank) {
+                    return value(i + positive.offset);
+                }
+            }
+            return Double.NaN;
+        }
+
+        void reset() {
+            positive.reset();
+            negative.reset();
+            zeroCount = 0;
+            count = 0;
+        }
+    }
+
+    /**
+     * Dense counts for a contiguous range of bucket indexes, grown as needed.
+     */
+    private static class BucketStore {
+
+        private static final long[] EMPTY = new long[0];
+
+        long[] counts = EMPTY;
+        int offset;
+
+        void add(int index) {
+            if (counts.length == 0) {
+                counts = new long[16];
+                offset = index - 8;
+            } else if (index < offset) {
+                int newOffset = index - Math.max(counts.length / 2, 8);
+                long[] newCounts = new long[counts.length + offset - newOffset];
+                System.arraycopy(counts, 0, newCounts, offset - newOffset, counts.length);
+                counts = newCounts;
+                offset = newOffset;
+            } else if (index >= offset + counts.length) {
+                counts = Arrays.copyOf(counts, index - offset + 1 + Math.max(counts.length / 2, 8));
+            }
+            counts[index - offset]++;
+        }
+
+        void reset() {
+            counts = EMPTY;
+            offset = 0;
+        }
+    }
+}
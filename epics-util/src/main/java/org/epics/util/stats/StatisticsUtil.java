@@ -4,10 +4,14 @@
  */
 package org.epics.util.stats;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import org.epics.util.array.CollectionNumber;
 import org.epics.util.array.IteratorNumber;
+import org.epics.util.array.UnsafeUnwrapper;
 
 /**
  * Utility class to calculate statistical information.
@@ -16,7 +20,13 @@ import org.epics.util.array.IteratorNumber;
  */
 public class StatisticsUtil {
 
-    private static class StatisticsImpl extends Statistics {
+    /**
+     * Minimum number of elements of each chunk when calculating
+     * statistics in parallel.
+     */
+    static final int CHUNK_SIZE = 1 << 18;
+
+    static class StatisticsImpl extends Statistics {
 
         private final int count;
         private final Range range;
@@ -59,6 +69,11 @@ public class StatisticsUtil {
      * @return the calculated statistics
      */
     public static Statistics statisticsOf(CollectionNumber data) {
+        UnsafeUnwrapper.Array<?> array = UnsafeUnwrapper.wrappedArray(data);
+        if (array != null) {
+            return statisticsOf(array.array, array.startIndex, array.startIndex + array.size);
+        }
+
         IteratorNumber iterator = data.iterator();
         if (!iterator.hasNext()) {
             return null;
@@ -96,6 +111,236 @@ public class StatisticsUtil {
         return new StatisticsImpl(Range.of(min, max), count, average, stdDev);
     }
 
+    /**
+     * Calculates data statistics, excluding NaN values, splitting large
+     * arrays in chunks that are processed in parallel in the common
+     * fork/join pool. The statistics of the chunks are then aggregated
+     * as in {@link #statisticsOf(java.util.List)}.
+     * <p>
+     * Small collections, and collections that do not wrap a primitive array,
+     * are processed in the calling thread. The result may differ from
+     * {@link #statisticsOf(org.epics.util.array.CollectionNumber) } by
+     * rounding errors.
+     *
+     * @param data the data
+     * @return the calculated statistics
+     */
+    public static Statistics parallelStatisticsOf(CollectionNumber data) {
+        UnsafeUnwrapper.Array<?> array = UnsafeUnwrapper.wrappedArray(data);
+        if (array == null || array.size < 2 * CHUNK_SIZE) {
+            return statisticsOf(data);
+        }
+        return ForkJoinPool.commonPool().invoke(new StatisticsTask(array.array, array.startIndex, array.startIndex + array.size));
+    }
+
+    private static class StatisticsTask extends RecursiveTask<Statistics> {
+
+        private final Object array;
+        private final int from;
+        private final int to;
+
+        StatisticsTask(Object array, int from, int to) {
+            this.array = array;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Statistics compute() {
+            if (to - from < 2 * CHUNK_SIZE) {
+                return statisticsOf(array, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            StatisticsTask left = new StatisticsTask(array, from, middle);
+            left.fork();
+            Statistics right = new StatisticsTask(array, middle, to).compute();
+            return combine(left.join(), right);
+        }
+
+    }
+
+    private static Statistics combine(Statistics first, Statistics second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return statisticsOf(Arrays.asList(first, second));
+    }
+
+    private static Statistics statisticsOf(Object array, int from, int to) {
+        if (array instanceof double[]) {
+            return statisticsOf((double[]) array, from, to);
+        } else if (array instanceof float[]) {
+            return statisticsOf((float[]) array, from, to);
+        } else if (array instanceof long[]) {
+            return statisticsOf((long[]) array, from, to);
+        } else if (array instanceof int[]) {
+            return statisticsOf((int[]) array, from, to);
+        } else if (array instanceof short[]) {
+            return statisticsOf((short[]) array, from, to);
+        } else if (array instanceof byte[]) {
+            return statisticsOf((byte[]) array, from, to);
+        }
+        throw new IllegalArgumentException("Array " + array.getClass() + " not supported");
+    }
+
+    private static Statistics statisticsOf(double[] array, int from, int to) {
+        int index = from;
+        while (index < to && Double.isNaN(array[index])) {
+            index++;
+        }
+        if (index == to) {
+            return null;
+        }
+        double min = array[index];
+        double max = min;
+        double total = min;
+        double totalSquare = min*min;
+        int count = 1;
+        for (index++; index < to; index++) {
+            double value = array[index];
+            if (!Double.isNaN(value)) {
+                if (value > max)
+                    max = value;
+                if (value < min)
+                    min = value;
+                total += value;
+                totalSquare += value*value;
+                count++;
+            }
+        }
+
+        return statisticsOf(min, max, count, total, totalSquare);
+    }
+
+    private static Statistics statisticsOf(float[] array, int from, int to) {
+        int index = from;
+        while (index < to && Float.isNaN(array[index])) {
+            index++;
+        }
+        if (index == to) {
+            return null;
+        }
+        float min = array[index];
+        float max = min;
+        double total = min;
+        double totalSquare = total*total;
+        int count = 1;
+
+        for (index++; index < to; index++) {
+            float value = array[index];
+            if (!Float.isNaN(value)) {
+                if (value > max)
+                    max = value;
+                if (value < min)
+                    min = value;
+                total += value;
+                totalSquare += (double) value*value;
+                count++;
+            }
+        }
+
+        return statisticsOf(min, max, count, total, totalSquare);
+    }
+
+    private static Statistics statisticsOf(long[] array, int from, int to) {
+        if (from == to) {
+            return null;
+        }
+        long min = array[from];
+        long max = min;
+        double total = 0;
+        double totalSquare = 0;
+
+        for (int index = from; index < to; index++) {
+            long value = array[index];
+            if (value > max)
+                max = value;
+            if (value < min)
+                min = value;
+            total += value;
+            totalSquare += (double) value*value;
+        }
+
+        return statisticsOf(min, max, to - from, total, totalSquare);
+    }
+
+    private static Statistics statisticsOf(int[] array, int from, int to) {
+        if (from == to) {
+            return null;
+        }
+        int min = array[from];
+        int max = min;
+        double total = 0;
+        double totalSquare = 0;
+
+        for (int index = from; index < to; index++) {
+            int value = array[index];
+            if (value > max)
+                max = value;
+            if (value < min)
+                min = value;
+            total += value;
+            totalSquare += (double) value*value;
+        }
+
+        return statisticsOf(min, max, to - from, total, totalSquare);
+    }
+
+    private static Statistics statisticsOf(short[] array, int from, int to) {
+        if (from == to) {
+            return null;
+        }
+        short min = array[from];
+        short max = min;
+        double total = 0;
+        double totalSquare = 0;
+
+        for (int index = from; index < to; index++) {
+            short value = array[index];
+            if (value > max)
+                max = value;
+            if (value < min)
+                min = value;
+            total += value;
+            totalSquare += value*value;
+        }
+
+        return statisticsOf(min, max, to - from, total, totalSquare);
+    }
+
+    private static Statistics statisticsOf(byte[] array, int from, int to) {
+        if (from == to) {
+            return null;
+        }
+        byte min = array[from];
+        byte max = min;
+        double total = 0;
+        double totalSquare = 0;
+
+        for (int index = from; index < to; index++) {
+            byte value = array[index];
+            if (value > max)
+                max = value;
+            if (value < min)
+                min = value;
+            total += value;
+            totalSquare += value*value;
+        }
+
+        return statisticsOf(min, max, to - from, total, totalSquare);
+    }
+
+    private static Statistics statisticsOf(double min, double max, int count, double total, double totalSquare) {
+        double average = total/count;
+        // Rounding may make the variance slightly negative
+        double stdDev = Math.sqrt(Math.max(0.0, totalSquare / count - average * average));
+
+        return new StatisticsImpl(Range.of(min, max), count, average, stdDev);
+    }
+
     /**
      * Aggregates statistical information.
      *
@@ -131,7 +376,7 @@ public class StatisticsUtil {
         }
 
         double average = total/count;
-        double stdDev = Math.sqrt(totalSquare / count - average * average);
+        double stdDev = Math.sqrt(Math.max(0.0, totalSquare / count - average * average));
 
         return new StatisticsImpl(range, count, average, stdDev);
     }
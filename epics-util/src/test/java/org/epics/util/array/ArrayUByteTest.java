@@ -57,4 +57,11 @@ public class ArrayUByteTest extends FeatureTestListNumber {
         ListNumber list = ArrayUByte.of(new byte[] {-1, 0, 1});
         assertThat(list.toString(), equalTo("[255, 0, 1]"));
     }
+
+    @Test
+    public void subListGet() {
+        ArrayUByte list = ArrayUByte.of(new byte[] {-1, 0, 1, 2}).subList(1, 3);
+        assertThat(list.getByte(0), equalTo((byte) 0));
+        assertThat(list.getByte(1), equalTo((byte) 1));
+    }
 }
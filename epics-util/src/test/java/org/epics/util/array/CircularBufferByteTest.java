@@ -0,0 +1,197 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.array;
+
+import org.epics.util.array.CircularBufferByte;
+import org.epics.util.array.ListByte;
+import org.epics.util.array.ArrayByte;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import static org.epics.util.array.FeatureTestListNumber.testList;
+import static org.epics.util.array.FeatureTestCollectionNumber.testIterationForAllTypes;
+
+/**
+ *
+ */
+public class CircularBufferByteTest {
+
+    public CircularBufferByteTest() {
+    }
+
+    @Test
+    public void iteration1() {
+        CircularBufferByte coll = new CircularBufferByte(15);
+        for (int i = 0; i < 10; i++) {
+            coll.addByte((byte) 1);
+        }
+        testIterationForAllTypes(coll);
+        testList(coll);
+    }
+
+    @Test
+    public void add1() {
+        CircularBufferByte coll = new CircularBufferByte(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) 1);
+        }
+        assertThat(coll.size(), equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) 1);
+        }
+        assertThat(coll.size(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) 1);
+        }
+        assertThat(coll.size(), equalTo(10));
+    }
+
+    @Test
+    public void add2() {
+        CircularBufferByte coll = new CircularBufferByte(10);
+        for (int i = 0; i < 11; i++) {
+            coll.addByte((byte) i);
+        }
+        ListByte reference = CollectionNumbers.unmodifiableListByte(new byte[] {1,2,3,4,5,6,7,8,9,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add3() {
+        CircularBufferByte coll = new CircularBufferByte(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) i);
+        }
+        ListByte reference = CollectionNumbers.unmodifiableListByte(new byte[] {0,1,2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add4() {
+        CircularBufferByte coll = new CircularBufferByte(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) i);
+        }
+        ListByte reference = CollectionNumbers.unmodifiableListByte(new byte[] {2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add5() {
+        CircularBufferByte coll = new CircularBufferByte(25);
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) i);
+        }
+        assertThat(coll.size(), equalTo(5));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) i);
+        }
+        assertThat(coll.size(), equalTo(10));
+        assertThat(coll.getCurrentCapacity(), equalTo(20));
+        for (int i = 0; i < 10; i++) {
+            coll.addByte((byte) i);
+        }
+        assertThat(coll.size(), equalTo(20));
+        assertThat(coll.getCurrentCapacity(), equalTo(25));
+    }
+
+    @Test
+    public void clear1() {
+        CircularBufferByte coll = new CircularBufferByte(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) i);
+        }
+        coll.clear();
+        assertThat(coll.size(), equalTo(0));
+    }
+
+    @Test
+    public void setLast1() {
+        CircularBufferByte coll = new CircularBufferByte(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addByte((byte) i);
+        }
+        coll.setLastByte((byte) 10);
+        ListByte reference = CollectionNumbers.unmodifiableListByte(new byte[] {2,3,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setLast2() {
+        CircularBufferByte coll = new CircularBufferByte(3);
+        coll.setLastByte((byte) 10);
+    }
+
+    @Test
+    public void addAll1() {
+        CircularBufferByte coll = new CircularBufferByte(10);
+        coll.addAll(ArrayByte.of(new byte[] {0,1,2,3,4}));
+        coll.addAll(ArrayByte.of(new byte[] {5,6,7}));
+        ListByte reference = CollectionNumbers.unmodifiableListByte(new byte[] {0,1,2,3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        coll.addAll(ArrayByte.of(new byte[] {8,9,10,11}));
+        reference = CollectionNumbers.unmodifiableListByte(new byte[] {2,3,4,5,6,7,8,9,10,11});
+        assertThat(coll, equalTo(reference));
+        coll.addAll(ArrayByte.of(new byte[] {0,1,2,3,4,5,6,7,8,9,10,11,12,13,14}).subList(1, 14));
+        reference = CollectionNumbers.unmodifiableListByte(new byte[] {4,5,6,7,8,9,10,11,12,13});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void addAll2() {
+        // Bulk additions match additions one value at a time
+        int[] lengths = new int[] {0, 1, 3, 7, 2, 15, 4, 30, 5, 6, 1, 25, 9};
+        CircularBufferByte coll = new CircularBufferByte(2, 25);
+        CircularBufferByte reference = new CircularBufferByte(2, 25);
+        int n = 0;
+        for (int length : lengths) {
+            byte[] values = new byte[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (byte) (n % 100);
+                reference.addByte((byte) (n % 100));
+                n++;
+            }
+            coll.addAll(ArrayByte.of(values));
+            assertThat(coll, equalTo(reference));
+            assertThat(coll.getCurrentCapacity(), equalTo(reference.getCurrentCapacity()));
+        }
+
+        // Not backed by an array
+        CircularBufferByte other = new CircularBufferByte(10);
+        other.addAll(reference);
+        assertThat(other, equalTo(reference.subList(15, 25)));
+    }
+
+    @Test
+    public void segments1() {
+        CircularBufferByte coll = new CircularBufferByte(5);
+        assertThat(coll.getFirstSegment().size(), equalTo(0));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayByte.of(new byte[] {0,1,2}));
+        assertThat(coll.getFirstSegment(), equalTo((ListByte) CollectionNumbers.unmodifiableListByte(new byte[] {0,1,2})));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayByte.of(new byte[] {3,4,5,6,7}));
+        ListByte reference = CollectionNumbers.unmodifiableListByte(new byte[] {3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        ListByte first = coll.getFirstSegment();
+        ListByte second = coll.getSecondSegment();
+        assertThat(first.size() + second.size(), equalTo(5));
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(first.getByte(i), equalTo(reference.getByte(i)));
+        }
+        for (int i = 0; i < second.size(); i++) {
+            assertThat(second.getByte(i), equalTo(reference.getByte(first.size() + i)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void segments2() {
+        CircularBufferByte coll = new CircularBufferByte(5);
+        coll.addAll(ArrayByte.of(new byte[] {0,1,2}));
+        coll.getFirstSegment().setByte(0, (byte) 1);
+    }
+}
@@ -108,4 +108,85 @@ public class CircularBufferDoubleTest {
         coll.clear();
         assertThat(coll.size(), equalTo(0));
     }
+
+    @Test
+    public void setLast1() {
+        CircularBufferDouble coll = new CircularBufferDouble(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addDouble(i);
+        }
+        coll.setLastDouble(10);
+        ListDouble reference = CollectionNumbers.unmodifiableListDouble(new double[] {2,3,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void addAll1() {
+        CircularBufferDouble coll = new CircularBufferDouble(10);
+        coll.addAll(ArrayDouble.of(new double[] {0,1,2,3,4}));
+        coll.addAll(ArrayDouble.of(new double[] {5,6,7}));
+        ListDouble reference = CollectionNumbers.unmodifiableListDouble(new double[] {0,1,2,3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        coll.addAll(ArrayDouble.of(new double[] {8,9,10,11}));
+        reference = CollectionNumbers.unmodifiableListDouble(new double[] {2,3,4,5,6,7,8,9,10,11});
+        assertThat(coll, equalTo(reference));
+        coll.addAll(ArrayDouble.of(new double[] {0,1,2,3,4,5,6,7,8,9,10,11,12,13,14}).subList(1, 14));
+        reference = CollectionNumbers.unmodifiableListDouble(new double[] {4,5,6,7,8,9,10,11,12,13});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void addAll2() {
+        // Bulk additions match additions one value at a time
+        int[] lengths = new int[] {0, 1, 3, 7, 2, 15, 4, 30, 5, 6, 1, 25, 9};
+        CircularBufferDouble coll = new CircularBufferDouble(2, 25);
+        CircularBufferDouble reference = new CircularBufferDouble(2, 25);
+        int n = 0;
+        for (int length : lengths) {
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (double) (n % 100);
+                reference.addDouble((double) (n % 100));
+                n++;
+            }
+            coll.addAll(ArrayDouble.of(values));
+            assertThat(coll, equalTo(reference));
+            assertThat(coll.getCurrentCapacity(), equalTo(reference.getCurrentCapacity()));
+        }
+
+        // Not backed by an array
+        CircularBufferDouble other = new CircularBufferDouble(10);
+        other.addAll(reference);
+        assertThat(other, equalTo(reference.subList(15, 25)));
+    }
+
+    @Test
+    public void segments1() {
+        CircularBufferDouble coll = new CircularBufferDouble(5);
+        assertThat(coll.getFirstSegment().size(), equalTo(0));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayDouble.of(new double[] {0,1,2}));
+        assertThat(coll.getFirstSegment(), equalTo((ListDouble) CollectionNumbers.unmodifiableListDouble(new double[] {0,1,2})));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayDouble.of(new double[] {3,4,5,6,7}));
+        ListDouble reference = CollectionNumbers.unmodifiableListDouble(new double[] {3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        ListDouble first = coll.getFirstSegment();
+        ListDouble second = coll.getSecondSegment();
+        assertThat(first.size() + second.size(), equalTo(5));
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(first.getDouble(i), equalTo(reference.getDouble(i)));
+        }
+        for (int i = 0; i < second.size(); i++) {
+            assertThat(second.getDouble(i), equalTo(reference.getDouble(first.size() + i)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void segments2() {
+        CircularBufferDouble coll = new CircularBufferDouble(5);
+        coll.addAll(ArrayDouble.of(new double[] {0,1,2}));
+        coll.getFirstSegment().setDouble(0, (double) 1);
+    }
 }
@@ -0,0 +1,197 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.array;
+
+import org.epics.util.array.CircularBufferFloat;
+import org.epics.util.array.ListFloat;
+import org.epics.util.array.ArrayFloat;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import static org.epics.util.array.FeatureTestListNumber.testList;
+import static org.epics.util.array.FeatureTestCollectionNumber.testIterationForAllTypes;
+
+/**
+ *
+ */
+public class CircularBufferFloatTest {
+
+    public CircularBufferFloatTest() {
+    }
+
+    @Test
+    public void iteration1() {
+        CircularBufferFloat coll = new CircularBufferFloat(15);
+        for (int i = 0; i < 10; i++) {
+            coll.addFloat((float) 1);
+        }
+        testIterationForAllTypes(coll);
+        testList(coll);
+    }
+
+    @Test
+    public void add1() {
+        CircularBufferFloat coll = new CircularBufferFloat(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) 1);
+        }
+        assertThat(coll.size(), equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) 1);
+        }
+        assertThat(coll.size(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) 1);
+        }
+        assertThat(coll.size(), equalTo(10));
+    }
+
+    @Test
+    public void add2() {
+        CircularBufferFloat coll = new CircularBufferFloat(10);
+        for (int i = 0; i < 11; i++) {
+            coll.addFloat((float) i);
+        }
+        ListFloat reference = CollectionNumbers.unmodifiableListFloat(new float[] {1,2,3,4,5,6,7,8,9,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add3() {
+        CircularBufferFloat coll = new CircularBufferFloat(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) i);
+        }
+        ListFloat reference = CollectionNumbers.unmodifiableListFloat(new float[] {0,1,2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add4() {
+        CircularBufferFloat coll = new CircularBufferFloat(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) i);
+        }
+        ListFloat reference = CollectionNumbers.unmodifiableListFloat(new float[] {2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add5() {
+        CircularBufferFloat coll = new CircularBufferFloat(25);
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) i);
+        }
+        assertThat(coll.size(), equalTo(5));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) i);
+        }
+        assertThat(coll.size(), equalTo(10));
+        assertThat(coll.getCurrentCapacity(), equalTo(20));
+        for (int i = 0; i < 10; i++) {
+            coll.addFloat((float) i);
+        }
+        assertThat(coll.size(), equalTo(20));
+        assertThat(coll.getCurrentCapacity(), equalTo(25));
+    }
+
+    @Test
+    public void clear1() {
+        CircularBufferFloat coll = new CircularBufferFloat(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) i);
+        }
+        coll.clear();
+        assertThat(coll.size(), equalTo(0));
+    }
+
+    @Test
+    public void setLast1() {
+        CircularBufferFloat coll = new CircularBufferFloat(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addFloat((float) i);
+        }
+        coll.setLastFloat((float) 10);
+        ListFloat reference = CollectionNumbers.unmodifiableListFloat(new float[] {2,3,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setLast2() {
+        CircularBufferFloat coll = new CircularBufferFloat(3);
+        coll.setLastFloat((float) 10);
+    }
+
+    @Test
+    public void addAll1() {
+        CircularBufferFloat coll = new CircularBufferFloat(10);
+        coll.addAll(ArrayFloat.of(new float[] {0,1,2,3,4}));
+        coll.addAll(ArrayFloat.of(new float[] {5,6,7}));
+        ListFloat reference = CollectionNumbers.unmodifiableListFloat(new float[] {0,1,2,3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        coll.addAll(ArrayFloat.of(new float[] {8,9,10,11}));
+        reference = CollectionNumbers.unmodifiableListFloat(new float[] {2,3,4,5,6,7,8,9,10,11});
+        assertThat(coll, equalTo(reference));
+        coll.addAll(ArrayFloat.of(new float[] {0,1,2,3,4,5,6,7,8,9,10,11,12,13,14}).subList(1, 14));
+        reference = CollectionNumbers.unmodifiableListFloat(new float[] {4,5,6,7,8,9,10,11,12,13});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void addAll2() {
+        // Bulk additions match additions one value at a time
+        int[] lengths = new int[] {0, 1, 3, 7, 2, 15, 4, 30, 5, 6, 1, 25, 9};
+        CircularBufferFloat coll = new CircularBufferFloat(2, 25);
+        CircularBufferFloat reference = new CircularBufferFloat(2, 25);
+        int n = 0;
+        for (int length : lengths) {
+            float[] values = new float[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (float) (n % 100);
+                reference.addFloat((float) (n % 100));
+                n++;
+            }
+            coll.addAll(ArrayFloat.of(values));
+            assertThat(coll, equalTo(reference));
+            assertThat(coll.getCurrentCapacity(), equalTo(reference.getCurrentCapacity()));
+        }
+
+        // Not backed by an array
+        CircularBufferFloat other = new CircularBufferFloat(10);
+        other.addAll(reference);
+        assertThat(other, equalTo(reference.subList(15, 25)));
+    }
+
+    @Test
+    public void segments1() {
+        CircularBufferFloat coll = new CircularBufferFloat(5);
+        assertThat(coll.getFirstSegment().size(), equalTo(0));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayFloat.of(new float[] {0,1,2}));
+        assertThat(coll.getFirstSegment(), equalTo((ListFloat) CollectionNumbers.unmodifiableListFloat(new float[] {0,1,2})));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayFloat.of(new float[] {3,4,5,6,7}));
+        ListFloat reference = CollectionNumbers.unmodifiableListFloat(new float[] {3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        ListFloat first = coll.getFirstSegment();
+        ListFloat second = coll.getSecondSegment();
+        assertThat(first.size() + second.size(), equalTo(5));
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(first.getFloat(i), equalTo(reference.getFloat(i)));
+        }
+        for (int i = 0; i < second.size(); i++) {
+            assertThat(second.getFloat(i), equalTo(reference.getFloat(first.size() + i)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void segments2() {
+        CircularBufferFloat coll = new CircularBufferFloat(5);
+        coll.addAll(ArrayFloat.of(new float[] {0,1,2}));
+        coll.getFirstSegment().setFloat(0, (float) 1);
+    }
+}
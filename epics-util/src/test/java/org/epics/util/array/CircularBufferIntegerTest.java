@@ -0,0 +1,197 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.array;
+
+import org.epics.util.array.CircularBufferInteger;
+import org.epics.util.array.ListInteger;
+import org.epics.util.array.ArrayInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import static org.epics.util.array.FeatureTestListNumber.testList;
+import static org.epics.util.array.FeatureTestCollectionNumber.testIterationForAllTypes;
+
+/**
+ *
+ */
+public class CircularBufferIntegerTest {
+
+    public CircularBufferIntegerTest() {
+    }
+
+    @Test
+    public void iteration1() {
+        CircularBufferInteger coll = new CircularBufferInteger(15);
+        for (int i = 0; i < 10; i++) {
+            coll.addInt((int) 1);
+        }
+        testIterationForAllTypes(coll);
+        testList(coll);
+    }
+
+    @Test
+    public void add1() {
+        CircularBufferInteger coll = new CircularBufferInteger(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) 1);
+        }
+        assertThat(coll.size(), equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) 1);
+        }
+        assertThat(coll.size(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) 1);
+        }
+        assertThat(coll.size(), equalTo(10));
+    }
+
+    @Test
+    public void add2() {
+        CircularBufferInteger coll = new CircularBufferInteger(10);
+        for (int i = 0; i < 11; i++) {
+            coll.addInt((int) i);
+        }
+        ListInteger reference = CollectionNumbers.unmodifiableListInt(new int[] {1,2,3,4,5,6,7,8,9,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add3() {
+        CircularBufferInteger coll = new CircularBufferInteger(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) i);
+        }
+        ListInteger reference = CollectionNumbers.unmodifiableListInt(new int[] {0,1,2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add4() {
+        CircularBufferInteger coll = new CircularBufferInteger(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) i);
+        }
+        ListInteger reference = CollectionNumbers.unmodifiableListInt(new int[] {2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add5() {
+        CircularBufferInteger coll = new CircularBufferInteger(25);
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) i);
+        }
+        assertThat(coll.size(), equalTo(5));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) i);
+        }
+        assertThat(coll.size(), equalTo(10));
+        assertThat(coll.getCurrentCapacity(), equalTo(20));
+        for (int i = 0; i < 10; i++) {
+            coll.addInt((int) i);
+        }
+        assertThat(coll.size(), equalTo(20));
+        assertThat(coll.getCurrentCapacity(), equalTo(25));
+    }
+
+    @Test
+    public void clear1() {
+        CircularBufferInteger coll = new CircularBufferInteger(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) i);
+        }
+        coll.clear();
+        assertThat(coll.size(), equalTo(0));
+    }
+
+    @Test
+    public void setLast1() {
+        CircularBufferInteger coll = new CircularBufferInteger(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addInt((int) i);
+        }
+        coll.setLastInt((int) 10);
+        ListInteger reference = CollectionNumbers.unmodifiableListInt(new int[] {2,3,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setLast2() {
+        CircularBufferInteger coll = new CircularBufferInteger(3);
+        coll.setLastInt((int) 10);
+    }
+
+    @Test
+    public void addAll1() {
+        CircularBufferInteger coll = new CircularBufferInteger(10);
+        coll.addAll(ArrayInteger.of(new int[] {0,1,2,3,4}));
+        coll.addAll(ArrayInteger.of(new int[] {5,6,7}));
+        ListInteger reference = CollectionNumbers.unmodifiableListInt(new int[] {0,1,2,3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        coll.addAll(ArrayInteger.of(new int[] {8,9,10,11}));
+        reference = CollectionNumbers.unmodifiableListInt(new int[] {2,3,4,5,6,7,8,9,10,11});
+        assertThat(coll, equalTo(reference));
+        coll.addAll(ArrayInteger.of(new int[] {0,1,2,3,4,5,6,7,8,9,10,11,12,13,14}).subList(1, 14));
+        reference = CollectionNumbers.unmodifiableListInt(new int[] {4,5,6,7,8,9,10,11,12,13});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void addAll2() {
+        // Bulk additions match additions one value at a time
+        int[] lengths = new int[] {0, 1, 3, 7, 2, 15, 4, 30, 5, 6, 1, 25, 9};
+        CircularBufferInteger coll = new CircularBufferInteger(2, 25);
+        CircularBufferInteger reference = new CircularBufferInteger(2, 25);
+        int n = 0;
+        for (int length : lengths) {
+            int[] values = new int[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (int) (n % 100);
+                reference.addInt((int) (n % 100));
+                n++;
+            }
+            coll.addAll(ArrayInteger.of(values));
+            assertThat(coll, equalTo(reference));
+            assertThat(coll.getCurrentCapacity(), equalTo(reference.getCurrentCapacity()));
+        }
+
+        // Not backed by an array
+        CircularBufferInteger other = new CircularBufferInteger(10);
+        other.addAll(reference);
+        assertThat(other, equalTo(reference.subList(15, 25)));
+    }
+
+    @Test
+    public void segments1() {
+        CircularBufferInteger coll = new CircularBufferInteger(5);
+        assertThat(coll.getFirstSegment().size(), equalTo(0));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayInteger.of(new int[] {0,1,2}));
+        assertThat(coll.getFirstSegment(), equalTo((ListInteger) CollectionNumbers.unmodifiableListInt(new int[] {0,1,2})));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayInteger.of(new int[] {3,4,5,6,7}));
+        ListInteger reference = CollectionNumbers.unmodifiableListInt(new int[] {3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        ListInteger first = coll.getFirstSegment();
+        ListInteger second = coll.getSecondSegment();
+        assertThat(first.size() + second.size(), equalTo(5));
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(first.getInt(i), equalTo(reference.getInt(i)));
+        }
+        for (int i = 0; i < second.size(); i++) {
+            assertThat(second.getInt(i), equalTo(reference.getInt(first.size() + i)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void segments2() {
+        CircularBufferInteger coll = new CircularBufferInteger(5);
+        coll.addAll(ArrayInteger.of(new int[] {0,1,2}));
+        coll.getFirstSegment().setInt(0, (int) 1);
+    }
+}
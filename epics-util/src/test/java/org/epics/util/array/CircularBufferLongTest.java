@@ -0,0 +1,197 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.array;
+
+import org.epics.util.array.CircularBufferLong;
+import org.epics.util.array.ListLong;
+import org.epics.util.array.ArrayLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import static org.epics.util.array.FeatureTestListNumber.testList;
+import static org.epics.util.array.FeatureTestCollectionNumber.testIterationForAllTypes;
+
+/**
+ *
+ */
+public class CircularBufferLongTest {
+
+    public CircularBufferLongTest() {
+    }
+
+    @Test
+    public void iteration1() {
+        CircularBufferLong coll = new CircularBufferLong(15);
+        for (int i = 0; i < 10; i++) {
+            coll.addLong(1);
+        }
+        testIterationForAllTypes(coll);
+        testList(coll);
+    }
+
+    @Test
+    public void add1() {
+        CircularBufferLong coll = new CircularBufferLong(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(1);
+        }
+        assertThat(coll.size(), equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(1);
+        }
+        assertThat(coll.size(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(1);
+        }
+        assertThat(coll.size(), equalTo(10));
+    }
+
+    @Test
+    public void add2() {
+        CircularBufferLong coll = new CircularBufferLong(10);
+        for (int i = 0; i < 11; i++) {
+            coll.addLong(i);
+        }
+        ListLong reference = CollectionNumbers.unmodifiableListLong(new long[] {1,2,3,4,5,6,7,8,9,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add3() {
+        CircularBufferLong coll = new CircularBufferLong(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(i);
+        }
+        ListLong reference = CollectionNumbers.unmodifiableListLong(new long[] {0,1,2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add4() {
+        CircularBufferLong coll = new CircularBufferLong(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(i);
+        }
+        ListLong reference = CollectionNumbers.unmodifiableListLong(new long[] {2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add5() {
+        CircularBufferLong coll = new CircularBufferLong(25);
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(i);
+        }
+        assertThat(coll.size(), equalTo(5));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(i);
+        }
+        assertThat(coll.size(), equalTo(10));
+        assertThat(coll.getCurrentCapacity(), equalTo(20));
+        for (int i = 0; i < 10; i++) {
+            coll.addLong(i);
+        }
+        assertThat(coll.size(), equalTo(20));
+        assertThat(coll.getCurrentCapacity(), equalTo(25));
+    }
+
+    @Test
+    public void clear1() {
+        CircularBufferLong coll = new CircularBufferLong(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(i);
+        }
+        coll.clear();
+        assertThat(coll.size(), equalTo(0));
+    }
+
+    @Test
+    public void setLast1() {
+        CircularBufferLong coll = new CircularBufferLong(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addLong(i);
+        }
+        coll.setLastLong(10);
+        ListLong reference = CollectionNumbers.unmodifiableListLong(new long[] {2,3,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setLast2() {
+        CircularBufferLong coll = new CircularBufferLong(3);
+        coll.setLastLong(10);
+    }
+
+    @Test
+    public void addAll1() {
+        CircularBufferLong coll = new CircularBufferLong(10);
+        coll.addAll(ArrayLong.of(new long[] {0,1,2,3,4}));
+        coll.addAll(ArrayLong.of(new long[] {5,6,7}));
+        ListLong reference = CollectionNumbers.unmodifiableListLong(new long[] {0,1,2,3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        coll.addAll(ArrayLong.of(new long[] {8,9,10,11}));
+        reference = CollectionNumbers.unmodifiableListLong(new long[] {2,3,4,5,6,7,8,9,10,11});
+        assertThat(coll, equalTo(reference));
+        coll.addAll(ArrayLong.of(new long[] {0,1,2,3,4,5,6,7,8,9,10,11,12,13,14}).subList(1, 14));
+        reference = CollectionNumbers.unmodifiableListLong(new long[] {4,5,6,7,8,9,10,11,12,13});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void addAll2() {
+        // Bulk additions match additions one value at a time
+        int[] lengths = new int[] {0, 1, 3, 7, 2, 15, 4, 30, 5, 6, 1, 25, 9};
+        CircularBufferLong coll = new CircularBufferLong(2, 25);
+        CircularBufferLong reference = new CircularBufferLong(2, 25);
+        int n = 0;
+        for (int length : lengths) {
+            long[] values = new long[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (long) (n % 100);
+                reference.addLong((long) (n % 100));
+                n++;
+            }
+            coll.addAll(ArrayLong.of(values));
+            assertThat(coll, equalTo(reference));
+            assertThat(coll.getCurrentCapacity(), equalTo(reference.getCurrentCapacity()));
+        }
+
+        // Not backed by an array
+        CircularBufferLong other = new CircularBufferLong(10);
+        other.addAll(reference);
+        assertThat(other, equalTo(reference.subList(15, 25)));
+    }
+
+    @Test
+    public void segments1() {
+        CircularBufferLong coll = new CircularBufferLong(5);
+        assertThat(coll.getFirstSegment().size(), equalTo(0));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayLong.of(new long[] {0,1,2}));
+        assertThat(coll.getFirstSegment(), equalTo((ListLong) CollectionNumbers.unmodifiableListLong(new long[] {0,1,2})));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayLong.of(new long[] {3,4,5,6,7}));
+        ListLong reference = CollectionNumbers.unmodifiableListLong(new long[] {3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        ListLong first = coll.getFirstSegment();
+        ListLong second = coll.getSecondSegment();
+        assertThat(first.size() + second.size(), equalTo(5));
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(first.getLong(i), equalTo(reference.getLong(i)));
+        }
+        for (int i = 0; i < second.size(); i++) {
+            assertThat(second.getLong(i), equalTo(reference.getLong(first.size() + i)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void segments2() {
+        CircularBufferLong coll = new CircularBufferLong(5);
+        coll.addAll(ArrayLong.of(new long[] {0,1,2}));
+        coll.getFirstSegment().setLong(0, (long) 1);
+    }
+}
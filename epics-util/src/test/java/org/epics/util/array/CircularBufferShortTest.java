@@ -0,0 +1,197 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.array;
+
+import org.epics.util.array.CircularBufferShort;
+import org.epics.util.array.ListShort;
+import org.epics.util.array.ArrayShort;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import static org.epics.util.array.FeatureTestListNumber.testList;
+import static org.epics.util.array.FeatureTestCollectionNumber.testIterationForAllTypes;
+
+/**
+ *
+ */
+public class CircularBufferShortTest {
+
+    public CircularBufferShortTest() {
+    }
+
+    @Test
+    public void iteration1() {
+        CircularBufferShort coll = new CircularBufferShort(15);
+        for (int i = 0; i < 10; i++) {
+            coll.addShort((short) 1);
+        }
+        testIterationForAllTypes(coll);
+        testList(coll);
+    }
+
+    @Test
+    public void add1() {
+        CircularBufferShort coll = new CircularBufferShort(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) 1);
+        }
+        assertThat(coll.size(), equalTo(5));
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) 1);
+        }
+        assertThat(coll.size(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) 1);
+        }
+        assertThat(coll.size(), equalTo(10));
+    }
+
+    @Test
+    public void add2() {
+        CircularBufferShort coll = new CircularBufferShort(10);
+        for (int i = 0; i < 11; i++) {
+            coll.addShort((short) i);
+        }
+        ListShort reference = CollectionNumbers.unmodifiableListShort(new short[] {1,2,3,4,5,6,7,8,9,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add3() {
+        CircularBufferShort coll = new CircularBufferShort(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) i);
+        }
+        ListShort reference = CollectionNumbers.unmodifiableListShort(new short[] {0,1,2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add4() {
+        CircularBufferShort coll = new CircularBufferShort(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) i);
+        }
+        ListShort reference = CollectionNumbers.unmodifiableListShort(new short[] {2,3,4});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void add5() {
+        CircularBufferShort coll = new CircularBufferShort(25);
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) i);
+        }
+        assertThat(coll.size(), equalTo(5));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) i);
+        }
+        assertThat(coll.size(), equalTo(10));
+        assertThat(coll.getCurrentCapacity(), equalTo(20));
+        for (int i = 0; i < 10; i++) {
+            coll.addShort((short) i);
+        }
+        assertThat(coll.size(), equalTo(20));
+        assertThat(coll.getCurrentCapacity(), equalTo(25));
+    }
+
+    @Test
+    public void clear1() {
+        CircularBufferShort coll = new CircularBufferShort(10);
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) i);
+        }
+        coll.clear();
+        assertThat(coll.size(), equalTo(0));
+    }
+
+    @Test
+    public void setLast1() {
+        CircularBufferShort coll = new CircularBufferShort(3);
+        for (int i = 0; i < 5; i++) {
+            coll.addShort((short) i);
+        }
+        coll.setLastShort((short) 10);
+        ListShort reference = CollectionNumbers.unmodifiableListShort(new short[] {2,3,10});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setLast2() {
+        CircularBufferShort coll = new CircularBufferShort(3);
+        coll.setLastShort((short) 10);
+    }
+
+    @Test
+    public void addAll1() {
+        CircularBufferShort coll = new CircularBufferShort(10);
+        coll.addAll(ArrayShort.of(new short[] {0,1,2,3,4}));
+        coll.addAll(ArrayShort.of(new short[] {5,6,7}));
+        ListShort reference = CollectionNumbers.unmodifiableListShort(new short[] {0,1,2,3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        assertThat(coll.getCurrentCapacity(), equalTo(10));
+        coll.addAll(ArrayShort.of(new short[] {8,9,10,11}));
+        reference = CollectionNumbers.unmodifiableListShort(new short[] {2,3,4,5,6,7,8,9,10,11});
+        assertThat(coll, equalTo(reference));
+        coll.addAll(ArrayShort.of(new short[] {0,1,2,3,4,5,6,7,8,9,10,11,12,13,14}).subList(1, 14));
+        reference = CollectionNumbers.unmodifiableListShort(new short[] {4,5,6,7,8,9,10,11,12,13});
+        assertThat(coll, equalTo(reference));
+    }
+
+    @Test
+    public void addAll2() {
+        // Bulk additions match additions one value at a time
+        int[] lengths = new int[] {0, 1, 3, 7, 2, 15, 4, 30, 5, 6, 1, 25, 9};
+        CircularBufferShort coll = new CircularBufferShort(2, 25);
+        CircularBufferShort reference = new CircularBufferShort(2, 25);
+        int n = 0;
+        for (int length : lengths) {
+            short[] values = new short[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (short) (n % 100);
+                reference.addShort((short) (n % 100));
+                n++;
+            }
+            coll.addAll(ArrayShort.of(values));
+            assertThat(coll, equalTo(reference));
+            assertThat(coll.getCurrentCapacity(), equalTo(reference.getCurrentCapacity()));
+        }
+
+        // Not backed by an array
+        CircularBufferShort other = new CircularBufferShort(10);
+        other.addAll(reference);
+        assertThat(other, equalTo(reference.subList(15, 25)));
+    }
+
+    @Test
+    public void segments1() {
+        CircularBufferShort coll = new CircularBufferShort(5);
+        assertThat(coll.getFirstSegment().size(), equalTo(0));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayShort.of(new short[] {0,1,2}));
+        assertThat(coll.getFirstSegment(), equalTo((ListShort) CollectionNumbers.unmodifiableListShort(new short[] {0,1,2})));
+        assertThat(coll.getSecondSegment().size(), equalTo(0));
+        coll.addAll(ArrayShort.of(new short[] {3,4,5,6,7}));
+        ListShort reference = CollectionNumbers.unmodifiableListShort(new short[] {3,4,5,6,7});
+        assertThat(coll, equalTo(reference));
+        ListShort first = coll.getFirstSegment();
+        ListShort second = coll.getSecondSegment();
+        assertThat(first.size() + second.size(), equalTo(5));
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(first.getShort(i), equalTo(reference.getShort(i)));
+        }
+        for (int i = 0; i < second.size(); i++) {
+            assertThat(second.getShort(i), equalTo(reference.getShort(first.size() + i)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void segments2() {
+        CircularBufferShort coll = new CircularBufferShort(5);
+        coll.addAll(ArrayShort.of(new short[] {0,1,2}));
+        coll.getFirstSegment().setShort(0, (short) 1);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.array;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class ConcurrentCircularBufferDoubleTest {
+
+    @Test
+    public void add1() {
+        ConcurrentCircularBufferDouble coll = new ConcurrentCircularBufferDouble(3);
+        assertThat(coll.size(), equalTo(0));
+        assertThat(coll.snapshot(), equalTo(ArrayDouble.of()));
+        for (int i = 0; i < 5; i++) {
+            coll.addDouble(i);
+        }
+        assertThat(coll.size(), equalTo(3));
+        assertThat(coll.getCapacity(), equalTo(3));
+        assertThat(coll.snapshot(), equalTo(ArrayDouble.of(2, 3, 4)));
+    }
+
+    @Test
+    public void addAll1() {
+        ConcurrentCircularBufferDouble coll = new ConcurrentCircularBufferDouble(10);
+        coll.addAll(ArrayDouble.of(0, 1, 2, 3, 4, 5, 6, 7));
+        assertThat(coll.snapshot(), equalTo(ArrayDouble.of(0, 1, 2, 3, 4, 5, 6, 7)));
+        coll.addAll(ArrayInteger.of(8, 9, 10, 11));
+        assertThat(coll.snapshot(), equalTo(ArrayDouble.of(2, 3, 4, 5, 6, 7, 8, 9, 10, 11)));
+        coll.addAll(ArrayDouble.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14).subList(1, 14));
+        assertThat(coll.snapshot(), equalTo(ArrayDouble.of(4, 5, 6, 7, 8, 9, 10, 11, 12, 13)));
+        assertThat(coll.size(), equalTo(10));
+    }
+
+    @Test
+    public void clear1() {
+        ConcurrentCircularBufferDouble coll = new ConcurrentCircularBufferDouble(10);
+        coll.addAll(ArrayDouble.of(0, 1, 2));
+        coll.clear();
+        assertThat(coll.size(), equalTo(0));
+        coll.addDouble(5);
+        assertThat(coll.snapshot(), equalTo(ArrayDouble.of(5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacity1() {
+        new ConcurrentCircularBufferDouble(0);
+    }
+
+    @Test
+    public void concurrentRead1() throws Exception {
+        // The writer adds increasing values: each snapshot must be a sequence
+        // of consecutive values
+        final ConcurrentCircularBufferDouble coll = new ConcurrentCircularBufferDouble(1000);
+        final AtomicReference<String> error = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            double[] block = new double[7];
+            int next = 0;
+            for (int i = 0; i < 20000; i++) {
+                if (i % 2 == 0) {
+                    coll.addDouble(next++);
+                } else {
+                    for (int j = 0; j < block.length; j++) {
+                        block[j] = next++;
+                    }
+                    coll.addAll(ArrayDouble.of(block));
+                }
+            }
+        });
+        Thread reader = new Thread(() -> {
+            while (writer.isAlive()) {
+                ArrayDouble snapshot = coll.snapshot();
+                for (int i = 1; i < snapshot.size(); i++) {
+                    if (snapshot.getDouble(i) != snapshot.getDouble(i - 1) + 1) {
+                        error.set("Inconsistent snapshot at " + i + ": " + snapshot);
+                        return;
+                    }
+                }
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        assertThat(error.get(), nullValue());
+        assertThat(coll.size(), equalTo(1000));
+        assertThat(coll.snapshot().getDouble(999), equalTo(79999.0));
+    }
+}
@@ -40,6 +40,60 @@ public class ListMathTest {
         assertThat(summed, equalTo(unmodifiableListDouble(0, 0, 0, 0, 0, 0)));
     }
 
+    @Test
+    public void materializeChain() {
+        double[] values = new double[5000];
+        int[] ints = new int[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 0.25 + 1;
+            ints[i] = i - 2500;
+        }
+        ListNumber doubles = ArrayDouble.of(values).subList(1000, 4500);
+        ListNumber integers = unmodifiableListInt(ints).subList(0, 3500);
+        ListNumber ubytes = toListUByte(new byte[3500]);
+        ListDouble chain = ListMath.divide(
+                ListMath.subtract(ListMath.rescale(doubles, 2.0, 1.0), ListMath.pow(ListMath.add(integers, 0.5), 2)),
+                ListMath.add(ListMath.multiply(doubles, ListMath.add(ubytes, 1.0)), ListMath.inverseRescale(doubles, 3.0, 0.0)));
+
+        ArrayDouble result = ListMath.materialize(chain);
+        assertThat(result.size(), equalTo(3500));
+        for (int i = 0; i < result.size(); i++) {
+            assertThat(result.getDouble(i), equalTo(chain.getDouble(i)));
+        }
+        assertThat(new ArrayDouble(chain), equalTo(result));
+    }
+
+    @Test
+    public void materializeToArray() {
+        ListDouble rescaled = ListMath.rescale(unmodifiableListFloat(1, 2, 3), 2.0, 0.0);
+        double[] array = new double[4];
+        assertThat(rescaled.toArray(array), sameInstance(array));
+        assertThat(array, equalTo(new double[] {2, 4, 6, 0}));
+        assertThat(rescaled.toArray(new int[0]), equalTo(new int[] {2, 4, 6}));
+        assertThat(ListMath.materialize(ListMath.pow(2.0, unmodifiableListLong(0, 1, 10))), equalTo(unmodifiableListDouble(1, 2, 1024)));
+    }
+
+    @Test
+    public void materializeToOperandArray() {
+        // Destination is an operand, also read by the block evaluated first
+        double[] a = new double[3000];
+        double[] y = new double[3000];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i;
+            y[i] = 2 * i;
+        }
+        ListDouble sum = ListMath.add(ListMath.rescale(ArrayDouble.of(y), 2.0, 0.0), ArrayDouble.of(a));
+        assertThat(sum.toArray(a), sameInstance(a));
+        for (int i = 0; i < a.length; i++) {
+            assertThat(a[i], equalTo(5.0 * i));
+        }
+
+        // Operand is a view of the destination, shifted by one element
+        double[] b = new double[] {1, 2, 3, 4, 5};
+        ListMath.multiply(ListMath.add(ArrayDouble.of(b).subList(1, 5), 0.0), ArrayDouble.of(b).subList(0, 4)).toArray(b);
+        assertThat(b, equalTo(new double[] {2, 6, 12, 20, 5}));
+    }
+
     @Test
     public void dft1() {
         ListDouble x = unmodifiableListDouble(0, 1.0, 0, -1.0, 0, 1, 0, -1);
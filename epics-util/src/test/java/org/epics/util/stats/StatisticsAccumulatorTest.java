@@ -0,0 +1,146 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.util.stats;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class StatisticsAccumulatorTest {
+
+    @Test
+    public void empty() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(0.01);
+        assertThat(accumulator.getCount(), equalTo(0L));
+        assertThat(accumulator.getMin(), equalTo(Double.NaN));
+        assertThat(accumulator.getMax(), equalTo(Double.NaN));
+        assertThat(accumulator.getAverage(), equalTo(Double.NaN));
+        assertThat(accumulator.getStdDev(), equalTo(Double.NaN));
+        assertThat(accumulator.getPercentile(50), equalTo(Double.NaN));
+        assertThat(accumulator.getStatistics(), nullValue());
+        accumulator.add(Double.NaN);
+        assertThat(accumulator.getCount(), equalTo(0L));
+    }
+
+    @Test
+    public void add1() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator();
+        for (double value : new double[] {1, 3, 5, Double.NaN, -1, 7}) {
+            accumulator.add(value);
+        }
+        assertThat(accumulator.getCount(), equalTo(5L));
+        assertThat(accumulator.getMin(), equalTo(-1.0));
+        assertThat(accumulator.getMax(), equalTo(7.0));
+        assertThat(accumulator.getAverage(), equalTo(3.0));
+        assertThat(accumulator.getStdDev(), closeTo(2.8284271247461903, 1e-15));
+
+        Statistics stats = accumulator.getStatistics();
+        assertThat(stats.getCount(), equalTo(5));
+        assertThat(stats.getRange(), equalTo(Range.of(-1, 7)));
+        assertThat(stats.getAverage(), equalTo(3.0));
+        assertThat(stats.getStdDev(), closeTo(2.8284271247461903, 1e-15));
+    }
+
+    @Test
+    public void add2() {
+        // Large offset with small variation does not lose precision
+        StatisticsAccumulator accumulator = new StatisticsAccumulator();
+        for (int i = 0; i < 1000; i++) {
+            accumulator.add(1e9 + (i % 2 == 0 ? 1 : -1));
+        }
+        assertThat(accumulator.getAverage(), equalTo(1e9));
+        assertThat(accumulator.getStdDev(), closeTo(1.0, 1e-9));
+    }
+
+    @Test
+    public void addAll1() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator();
+        accumulator.addAll(ArrayDouble.of(1, 3, 5));
+        accumulator.addAll(ArrayDouble.of(Double.NaN));
+        accumulator.addAll(ArrayInteger.of(-1, 7));
+        assertThat(accumulator.getCount(), equalTo(5L));
+        assertThat(accumulator.getMin(), equalTo(-1.0));
+        assertThat(accumulator.getMax(), equalTo(7.0));
+        assertThat(accumulator.getAverage(), equalTo(3.0));
+        assertThat(accumulator.getStdDev(), closeTo(2.8284271247461903, 1e-15));
+    }
+
+    @Test
+    public void addAll2() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator();
+        accumulator.add(0);
+        accumulator.addAll(StatisticsUtil.statisticsOf(ArrayDouble.of(1, 2, 3, 4)));
+        accumulator.addAll(StatisticsUtil.statisticsOf(ArrayDouble.of(5, 6, 7, 8, 9)));
+        accumulator.addAll((Statistics) null);
+        assertThat(accumulator.getCount(), equalTo(10L));
+        assertThat(accumulator.getMin(), equalTo(0.0));
+        assertThat(accumulator.getMax(), equalTo(9.0));
+        assertThat(accumulator.getAverage(), closeTo(4.5, 1e-15));
+        assertThat(accumulator.getStdDev(), closeTo(2.8722813232690143, 1e-15));
+    }
+
+    @Test
+    public void reset() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(0.01);
+        accumulator.addAll(ArrayDouble.of(100, 200));
+        accumulator.reset();
+        accumulator.addAll(ArrayDouble.of(1, 3, 5, -1, 7));
+        assertThat(accumulator.getCount(), equalTo(5L));
+        assertThat(accumulator.getMin(), equalTo(-1.0));
+        assertThat(accumulator.getMax(), equalTo(7.0));
+        assertThat(accumulator.getAverage(), equalTo(3.0));
+        assertThat(accumulator.getPercentile(100), equalTo(7.0));
+    }
+
+    @Test
+    public void percentile1() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(0.01);
+        for (int i = 1; i <= 1000; i++) {
+            accumulator.add(i);
+        }
+        assertThat(accumulator.getPercentile(0), equalTo(1.0));
+        assertThat(accumulator.getPercentile(50), closeTo(500, 5));
+        assertThat(accumulator.getPercentile(90), closeTo(900, 9));
+        assertThat(accumulator.getPercentile(99), closeTo(990, 9.9));
+        assertThat(accumulator.getPercentile(100), equalTo(1000.0));
+    }
+
+    @Test
+    public void percentile2() {
+        // Negative values, zeros and a wide dynamic range
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(0.01);
+        Random random = new Random(1);
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            double value = i % 10 == 0 ? 0.0 : Math.exp(random.nextGaussian() * 5);
+            values[i] = i % 3 == 0 ? -value : value;
+            accumulator.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {1, 10, 25, 50, 75, 90, 99}) {
+            double expected = values[(int) (percentile / 100 * (values.length - 1))];
+            assertThat(accumulator.getPercentile(percentile), closeTo(expected, Math.abs(expected) * 0.01 + 1e-12));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void percentileNotEstimated() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator();
+        accumulator.add(1);
+        accumulator.getPercentile(50);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidAccuracy() {
+        new StatisticsAccumulator(0);
+    }
+}
@@ -7,10 +7,18 @@ package org.epics.util.stats;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import org.epics.util.array.ArrayByte;
 import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayLong;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.ArrayUByte;
+import org.epics.util.array.CollectionNumber;
+import org.epics.util.array.ListDouble;
 import org.junit.Test;
 import static org.junit.Assert.*;
-import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.Matchers.*;
 
 
 /**
@@ -73,4 +81,96 @@ public class StatisticsUtilTest {
         assertThat(stats.getRange().getMaximum(), equalTo(7.0));
         assertThat(stats.getCount(), equalTo(5));
     }
+
+    @Test
+    public void statisticsOf6() {
+        Statistics stats = StatisticsUtil.statisticsOf(ArrayDouble.of(Double.NaN, Double.NaN));
+        assertThat(stats, nullValue());
+        stats = StatisticsUtil.statisticsOf(ArrayDouble.of(0, Double.NaN, Double.NaN, 0).subList(1, 3));
+        assertThat(stats, nullValue());
+        stats = StatisticsUtil.statisticsOf(ArrayInteger.of());
+        assertThat(stats, nullValue());
+    }
+
+    @Test
+    public void statisticsOf7() {
+        // Same statistics for all primitive types, wrapped or not
+        List<CollectionNumber> data = Arrays.<CollectionNumber>asList(
+                ArrayFloat.of(1, 3, 5, Float.NaN, -1, 7),
+                ArrayLong.of(1, 3, 5, -1, 7),
+                ArrayInteger.of(1, 3, 5, -1, 7),
+                ArrayShort.of((short) 1, (short) 3, (short) 5, (short) -1, (short) 7),
+                ArrayByte.of((byte) 1, (byte) 3, (byte) 5, (byte) -1, (byte) 7),
+                ArrayDouble.of(100, 1, 3, 5, -1, 7, 100).subList(1, 6),
+                new ListDouble() {
+                    @Override
+                    public double getDouble(int index) {
+                        return new double[] {1, 3, 5, -1, 7}[index];
+                    }
+
+                    @Override
+                    public int size() {
+                        return 5;
+                    }
+                });
+        for (CollectionNumber collection : data) {
+            Statistics stats = StatisticsUtil.statisticsOf(collection);
+            assertThat(stats.getAverage(), equalTo(3.0));
+            assertThat(stats.getStdDev(), equalTo(2.8284271247461903));
+            assertThat(stats.getRange().getMinimum(), equalTo(-1.0));
+            assertThat(stats.getRange().getMaximum(), equalTo(7.0));
+            assertThat(stats.getCount(), equalTo(5));
+        }
+    }
+
+    @Test
+    public void statisticsOf8() {
+        // Unsigned values are not unwrapped
+        Statistics stats = StatisticsUtil.statisticsOf(ArrayUByte.of((byte) 255, (byte) 1));
+        assertThat(stats.getAverage(), equalTo(128.0));
+        assertThat(stats.getRange().getMinimum(), equalTo(1.0));
+        assertThat(stats.getRange().getMaximum(), equalTo(255.0));
+    }
+
+    @Test
+    public void parallelStatisticsOf1() {
+        Statistics stats = StatisticsUtil.parallelStatisticsOf(ArrayDouble.of(1, 3, 5, Double.NaN, -1, 7));
+        assertThat(stats.getAverage(), equalTo(3.0));
+        assertThat(stats.getStdDev(), equalTo(2.8284271247461903));
+        assertThat(stats.getCount(), equalTo(5));
+    }
+
+    @Test
+    public void parallelStatisticsOf2() {
+        int size = 4_000_000;
+        double[] data = new double[size + 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = Math.sin(i * 0.001) * 10 + 5;
+        }
+        // A whole chunk of NaNs, and the extremes in different chunks
+        Arrays.fill(data, 1_000_000, 1_000_000 + StatisticsUtil.CHUNK_SIZE * 2, Double.NaN);
+        data[10] = -100;
+        data[size - 10] = 100;
+        ArrayDouble array = ArrayDouble.of(data).subList(1, size + 1);
+        Statistics expected = StatisticsUtil.statisticsOf(array);
+        Statistics stats = StatisticsUtil.parallelStatisticsOf(array);
+        assertThat(stats.getCount(), equalTo(size - StatisticsUtil.CHUNK_SIZE * 2));
+        assertThat(stats.getCount(), equalTo(expected.getCount()));
+        assertThat(stats.getRange().getMinimum(), equalTo(-100.0));
+        assertThat(stats.getRange().getMaximum(), equalTo(100.0));
+        assertThat(stats.getAverage(), closeTo(expected.getAverage(), 1e-9));
+        assertThat(stats.getStdDev(), closeTo(expected.getStdDev(), 1e-9));
+    }
+
+    @Test
+    public void parallelStatisticsOf3() {
+        double[] data = new double[StatisticsUtil.CHUNK_SIZE * 4];
+        Arrays.fill(data, Double.NaN);
+        assertThat(StatisticsUtil.parallelStatisticsOf(ArrayDouble.of(data)), nullValue());
+        data[data.length - 1] = 2.5;
+        Statistics stats = StatisticsUtil.parallelStatisticsOf(ArrayDouble.of(data));
+        assertThat(stats.getAverage(), equalTo(2.5));
+        assertThat(stats.getStdDev(), equalTo(0.0));
+        assertThat(stats.getCount(), equalTo(1));
+    }
 }
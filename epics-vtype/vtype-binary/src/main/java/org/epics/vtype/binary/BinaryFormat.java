@@ -0,0 +1,152 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.vtype.binary;
+
+import org.epics.util.array.ListByte;
+import org.epics.util.array.ListDouble;
+import org.epics.util.array.ListFloat;
+import org.epics.util.array.ListInteger;
+import org.epics.util.array.ListLong;
+import org.epics.util.array.ListNumber;
+import org.epics.util.array.ListShort;
+import org.epics.util.array.ListUByte;
+import org.epics.util.array.ListUInteger;
+import org.epics.util.array.ListULong;
+import org.epics.util.array.ListUShort;
+
+/**
+ * Constants of the binary encoding, shared by the writer and the reader.
+ * <p>
+ * A stream starts with the {@link #MAGIC} bytes and the {@link #VERSION}.
+ * Each sample that follows is the unsigned varint length of the sample,
+ * the type tag, the metadata flags, the metadata that is not deduplicated
+ * and the value. Fixed size numbers are big endian.
+ */
+class BinaryFormat {
+
+    private BinaryFormat() {
+        // Constants only
+    }
+
+    /**
+     * First bytes of a stream.
+     */
+    static final byte[] MAGIC = {'V', 'T', 'B'};
+
+    /**
+     * Version of the encoding, written after the magic bytes.
+     */
+    static final int VERSION = 1;
+
+    // Element types, used for scalars, arrays and table columns
+    static final int BYTE = 1;
+    static final int UBYTE = 2;
+    static final int SHORT = 3;
+    static final int USHORT = 4;
+    static final int INT = 5;
+    static final int UINT = 6;
+    static final int LONG = 7;
+    static final int ULONG = 8;
+    static final int FLOAT = 9;
+    static final int DOUBLE = 10;
+    static final int BOOLEAN = 11;
+    static final int STRING = 12;
+    static final int ENUM = 13;
+    static final int INSTANT = 14;
+
+    /**
+     * Added to the element type for arrays.
+     */
+    static final int ARRAY = 0x20;
+
+    // Types that are not scalars or arrays
+    static final int TABLE = 0x40;
+    static final int IMAGE = 0x41;
+    static final int STATISTICS = 0x42;
+
+    // Metadata flags
+    /**
+     * Alarm is the same as the one of the previous sample, and is omitted.
+     */
+    static final int ALARM_SAME = 0x01;
+    /**
+     * Timestamp is written in full, instead of as a delta from the previous one.
+     */
+    static final int TIME_FULL = 0x02;
+    /**
+     * Time is not valid.
+     */
+    static final int TIME_INVALID = 0x04;
+    /**
+     * Time has a user tag.
+     */
+    static final int TIME_USER_TAG = 0x08;
+    /**
+     * Display (or enum display) is the same as the one of the previous sample, and is omitted.
+     */
+    static final int DISPLAY_SAME = 0x10;
+
+    // Number formats of the display
+    static final int FORMAT_DEFAULT = 0;
+    static final int FORMAT_PATTERN = 1;
+
+    /**
+     * The element type of a list of numbers.
+     *
+     * @param list a list of numbers
+     * @return the element type
+     */
+    static int elementType(ListNumber list) {
+        if (list instanceof ListDouble) {
+            return DOUBLE;
+        } else if (list instanceof ListFloat) {
+            return FLOAT;
+        } else if (list instanceof ListULong) {
+            return ULONG;
+        } else if (list instanceof ListLong) {
+            return LONG;
+        } else if (list instanceof ListUInteger) {
+            return UINT;
+        } else if (list instanceof ListInteger) {
+            return INT;
+        } else if (list instanceof ListUShort) {
+            return USHORT;
+        } else if (list instanceof ListShort) {
+            return SHORT;
+        } else if (list instanceof ListUByte) {
+            return UBYTE;
+        } else if (list instanceof ListByte) {
+            return BYTE;
+        }
+        throw new UnsupportedOperationException("List " + list.getClass() + " not supported");
+    }
+
+    /**
+     * The size in bytes of a numeric element type.
+     *
+     * @param elementType a numeric element type
+     * @return the size in bytes
+     */
+    static int elementSize(int elementType) {
+        switch (elementType) {
+            case BYTE:
+            case UBYTE:
+                return 1;
+            case SHORT:
+            case USHORT:
+                return 2;
+            case INT:
+            case UINT:
+            case FLOAT:
+                return 4;
+            case LONG:
+            case ULONG:
+            case DOUBLE:
+                return 8;
+            default:
+                throw new IllegalArgumentException("Element type " + elementType + " is not numeric");
+        }
+    }
+}
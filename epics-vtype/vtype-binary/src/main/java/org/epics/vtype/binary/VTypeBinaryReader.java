@@ -0,0 +1,564 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.vtype.binary;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.epics.util.array.ArrayBoolean;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListBoolean;
+import org.epics.util.array.ListInteger;
+import org.epics.util.array.ListNumber;
+import org.epics.util.number.UByte;
+import org.epics.util.number.UInteger;
+import org.epics.util.number.ULong;
+import org.epics.util.number.UShort;
+import org.epics.util.stats.Range;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VBoolean;
+import org.epics.vtype.VBooleanArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VEnumArray;
+import org.epics.vtype.VImage;
+import org.epics.vtype.VImageDataType;
+import org.epics.vtype.VImageType;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VStringArray;
+import org.epics.vtype.VTable;
+import org.epics.vtype.VType;
+
+import static org.epics.vtype.binary.BinaryFormat.*;
+
+/**
+ * Reads a stream of vTypes written by {@link VTypeBinaryWriter}.
+ * <p>
+ * Metadata that the writer omitted because equal to the one of the
+ * previous sample is taken from the previous sample, so that consecutive
+ * samples share the same alarm and display instances.
+ * <p>
+ * The stream is read a few bytes at a time, so it should be buffered.
+ * The reader is not thread safe.
+ */
+public class VTypeBinaryReader implements Closeable {
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+    private static final AlarmStatus[] STATUSES = AlarmStatus.values();
+    private static final VImageDataType[] IMAGE_DATA_TYPES = VImageDataType.values();
+    private static final VImageType[] IMAGE_TYPES = VImageType.values();
+
+    private final InputStream in;
+    private byte[] bytes = new byte[4096];
+    private ByteBuffer buffer;
+    private boolean headerRead;
+    private int flags;
+
+    private Alarm lastAlarm;
+    private Instant lastTimestamp = Instant.EPOCH;
+    private Display lastDisplay;
+    private EnumDisplay lastEnumDisplay;
+
+    /**
+     * Creates a new reader. The header of the stream is read with
+     * the first sample.
+     *
+     * @param in the input stream
+     */
+    public VTypeBinaryReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next vType from the stream.
+     *
+     * @return the next vType, or null at the end of the stream
+     * @throws IOException if the stream could not be read or is not valid
+     */
+    public VType read() throws IOException {
+        if (!headerRead) {
+            if (!readHeader()) {
+                return null;
+            }
+            headerRead = true;
+        }
+
+        int length = readLength();
+        if (length < 0) {
+            return null;
+        }
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        readFully(bytes, length);
+        buffer = ByteBuffer.wrap(bytes, 0, length);
+
+        try {
+            VType vType = decode();
+            if (buffer.hasRemaining()) {
+                throw new IOException("Sample has " + buffer.remaining() + " unexpected trailing bytes");
+            }
+            return vType;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("Malformed sample", ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readHeader() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return false;
+        }
+        byte[] header = new byte[MAGIC.length];
+        header[0] = (byte) first;
+        readFully(header, 1, MAGIC.length - 1);
+        if (!Arrays.equals(MAGIC, header)) {
+            throw new IOException("Not a binary vType stream");
+        }
+        int version = in.read();
+        if (version < 0) {
+            throw new EOFException();
+        }
+        if (version > VERSION) {
+            throw new IOException("Unsupported binary vType version " + version);
+        }
+        return true;
+    }
+
+    private int readLength() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Invalid sample length");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Invalid sample length");
+    }
+
+    private void readFully(byte[] array, int length) throws IOException {
+        readFully(array, 0, length);
+    }
+
+    private void readFully(byte[] array, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = in.read(array, offset, length);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private VType decode() throws IOException {
+        int type = buffer.get() & 0xFF;
+        flags = buffer.get() & 0xFF;
+        switch (type) {
+            case TABLE:
+                return getTable();
+            case IMAGE:
+                return getImage();
+            case STATISTICS:
+                return getStatistics();
+            case STRING: {
+                Alarm alarm = getAlarm();
+                Time time = getTime();
+                return VString.of(getString(), alarm, time);
+            }
+            case STRING | ARRAY: {
+                Alarm alarm = getAlarm();
+                Time time = getTime();
+                ListInteger sizes = getSizes();
+                return VStringArray.of(getStrings(), sizes, alarm, time);
+            }
+            case BOOLEAN: {
+                Alarm alarm = getAlarm();
+                Time time = getTime();
+                return VBoolean.of(buffer.get() != 0, alarm, time);
+            }
+            case BOOLEAN | ARRAY: {
+                Alarm alarm = getAlarm();
+                Time time = getTime();
+                return VBooleanArray.of(getBooleans(), alarm, time);
+            }
+            case ENUM: {
+                Alarm alarm = getAlarm();
+                Time time = getTime();
+                EnumDisplay enumDisplay = getEnumDisplay();
+                return VEnum.of(unzigzag(getVarint()), enumDisplay, alarm, time);
+            }
+            case ENUM | ARRAY: {
+                Alarm alarm = getAlarm();
+                Time time = getTime();
+                EnumDisplay enumDisplay = getEnumDisplay();
+                int[] indexes = new int[getCount()];
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = unzigzag(getVarint());
+                }
+                return VEnumArray.of(ArrayInteger.of(indexes), enumDisplay, alarm, time);
+            }
+            default:
+                if (type >= BYTE && type <= DOUBLE) {
+                    Alarm alarm = getAlarm();
+                    Time time = getTime();
+                    Display display = getDisplay();
+                    return VNumber.of(getNumber(type), alarm, time, display);
+                } else if (type >= (BYTE | ARRAY) && type <= (DOUBLE | ARRAY)) {
+                    Alarm alarm = getAlarm();
+                    Time time = getTime();
+                    Display display = getDisplay();
+                    ListInteger sizes = getSizes();
+                    return VNumberArray.of(getElements(type & ~ARRAY), sizes, alarm, time, display);
+                }
+                throw new IOException("Unsupported type " + type);
+        }
+    }
+
+    private VTable getTable() throws IOException {
+        int columnCount = getCount();
+        List<Class<?>> types = new ArrayList<>(columnCount);
+        List<String> names = new ArrayList<>(columnCount);
+        List<Object> values = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            names.add(getString());
+            int type = buffer.get() & 0xFF;
+            switch (type) {
+                case BOOLEAN:
+                    types.add(boolean.class);
+                    values.add(getBooleans());
+                    break;
+                case STRING:
+                    types.add(String.class);
+                    values.add(getStrings());
+                    break;
+                case INSTANT:
+                    types.add(Instant.class);
+                    values.add(getInstants());
+                    break;
+                default:
+                    types.add(columnType(type));
+                    values.add(getElements(type));
+            }
+        }
+        return VTable.of(types, names, values);
+    }
+
+    private static Class<?> columnType(int elementType) throws IOException {
+        switch (elementType) {
+            case DOUBLE:
+                return double.class;
+            case FLOAT:
+                return float.class;
+            case LONG:
+            case ULONG:
+                return long.class;
+            case INT:
+            case UINT:
+                return int.class;
+            case SHORT:
+            case USHORT:
+                return short.class;
+            case BYTE:
+            case UBYTE:
+                return byte.class;
+            default:
+                throw new IOException("Unsupported column type " + elementType);
+        }
+    }
+
+    private VImage getImage() {
+        Alarm alarm = getAlarm();
+        Time time = getTime();
+        int height = getVarint();
+        int width = getVarint();
+        int xOffset = unzigzag(getVarint());
+        int yOffset = unzigzag(getVarint());
+        int reversed = buffer.get();
+        VImageDataType dataType = IMAGE_DATA_TYPES[buffer.get()];
+        VImageType imageType = IMAGE_TYPES[buffer.get()];
+        ListNumber data = getElements(buffer.get());
+        return VImage.of(height, width, xOffset, yOffset, (reversed & 1) != 0, (reversed & 2) != 0,
+                data, dataType, imageType, alarm, time);
+    }
+
+    private VStatistics getStatistics() {
+        Alarm alarm = getAlarm();
+        Time time = getTime();
+        Display display = getDisplay();
+        double average = buffer.getDouble();
+        double stdDev = buffer.getDouble();
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        return VStatistics.of(average, stdDev, min, max, getVarint(), alarm, time, display);
+    }
+
+    private Alarm getAlarm() {
+        if ((flags & ALARM_SAME) != 0) {
+            return previous(lastAlarm);
+        }
+        AlarmSeverity severity = SEVERITIES[buffer.get()];
+        AlarmStatus status = STATUSES[buffer.get()];
+        lastAlarm = Alarm.of(severity, status, getString());
+        return lastAlarm;
+    }
+
+    private Time getTime() {
+        Instant timestamp;
+        if ((flags & TIME_FULL) != 0) {
+            timestamp = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        } else {
+            timestamp = lastTimestamp.plusNanos(unzigzag(getVarlong()));
+        }
+        Integer userTag = null;
+        if ((flags & TIME_USER_TAG) != 0) {
+            userTag = unzigzag(getVarint());
+        }
+        lastTimestamp = timestamp;
+        return Time.of(timestamp, userTag, (flags & TIME_INVALID) == 0);
+    }
+
+    private Display getDisplay() {
+        if ((flags & DISPLAY_SAME) != 0) {
+            return previous(lastDisplay);
+        }
+        Range displayRange = getRange();
+        Range alarmRange = getRange();
+        Range warningRange = getRange();
+        Range controlRange = getRange();
+        String unit = getString();
+        NumberFormat format;
+        if (buffer.get() == FORMAT_PATTERN) {
+            format = new DecimalFormat(getString());
+        } else {
+            format = Display.defaultNumberFormat();
+        }
+        lastDisplay = Display.of(displayRange, alarmRange, warningRange, controlRange, unit, format, getString());
+        return lastDisplay;
+    }
+
+    private Range getRange() {
+        double first = buffer.getDouble();
+        double second = buffer.getDouble();
+        return Range.of(first, second);
+    }
+
+    private EnumDisplay getEnumDisplay() {
+        if ((flags & DISPLAY_SAME) != 0) {
+            return previous(lastEnumDisplay);
+        }
+        lastEnumDisplay = EnumDisplay.of(getStrings());
+        return lastEnumDisplay;
+    }
+
+    private static <T> T previous(T metadata) {
+        if (metadata == null) {
+            throw new IllegalArgumentException("No previous sample to take the metadata from");
+        }
+        return metadata;
+    }
+
+    private ListInteger getSizes() {
+        int[] sizes = new int[getCount()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = getVarint();
+        }
+        return ArrayInteger.of(sizes);
+    }
+
+    private Number getNumber(int type) {
+        switch (type) {
+            case DOUBLE:
+                return buffer.getDouble();
+            case FLOAT:
+                return buffer.getFloat();
+            case LONG:
+                return buffer.getLong();
+            case ULONG:
+                return new ULong(buffer.getLong());
+            case INT:
+                return buffer.getInt();
+            case UINT:
+                return new UInteger(buffer.getInt());
+            case SHORT:
+                return buffer.getShort();
+            case USHORT:
+                return new UShort(buffer.getShort());
+            case BYTE:
+                return buffer.get();
+            default:
+                return new UByte(buffer.get());
+        }
+    }
+
+    private ListNumber getElements(int type) {
+        int size = getCount();
+        int length = size * elementSize(type);
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        ListNumber list;
+        switch (type) {
+            case DOUBLE: {
+                double[] array = new double[size];
+                buffer.asDoubleBuffer().get(array);
+                list = CollectionNumbers.unmodifiableListDouble(array);
+                break;
+            }
+            case FLOAT: {
+                float[] array = new float[size];
+                buffer.asFloatBuffer().get(array);
+                list = CollectionNumbers.unmodifiableListFloat(array);
+                break;
+            }
+            case LONG:
+            case ULONG: {
+                long[] array = new long[size];
+                buffer.asLongBuffer().get(array);
+                list = type == LONG ? CollectionNumbers.unmodifiableListLong(array) : CollectionNumbers.unmodifiableListULong(array);
+                break;
+            }
+            case INT:
+            case UINT: {
+                int[] array = new int[size];
+                buffer.asIntBuffer().get(array);
+                list = type == INT ? CollectionNumbers.unmodifiableListInt(array) : CollectionNumbers.unmodifiableListUInt(array);
+                break;
+            }
+            case SHORT:
+            case USHORT: {
+                short[] array = new short[size];
+                buffer.asShortBuffer().get(array);
+                list = type == SHORT ? CollectionNumbers.unmodifiableListShort(array) : CollectionNumbers.unmodifiableListUShort(array);
+                break;
+            }
+            default: {
+                byte[] array = new byte[size];
+                buffer.duplicate().get(array);
+                list = type == BYTE ? CollectionNumbers.unmodifiableListByte(array) : CollectionNumbers.unmodifiableListUByte(array);
+            }
+        }
+        buffer.position(buffer.position() + length);
+        return list;
+    }
+
+    private ListBoolean getBooleans() {
+        boolean[] array = new boolean[getCount()];
+        int bits = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (i % 8 == 0) {
+                bits = buffer.get();
+            }
+            array[i] = (bits & (1 << (i % 8))) != 0;
+        }
+        return ArrayBoolean.of(array);
+    }
+
+    private List<Instant> getInstants() {
+        int size = getCount();
+        List<Instant> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private List<String> getStrings() {
+        int size = getCount();
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(getString());
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private String getString() {
+        int length = getVarint() - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private int getCount() {
+        int count = getVarint();
+        // Each element takes at least a bit: do not allocate for corrupted counts
+        if (count < 0 || count > buffer.remaining() * 8L) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private int getVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint");
+    }
+
+    private long getVarlong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7FL) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varlong");
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,540 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.vtype.binary;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.List;
+import org.epics.util.array.ListBoolean;
+import org.epics.util.array.ListInteger;
+import org.epics.util.array.ListNumber;
+import org.epics.util.number.UByte;
+import org.epics.util.number.UInteger;
+import org.epics.util.number.ULong;
+import org.epics.util.number.UShort;
+import org.epics.util.stats.Range;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VBoolean;
+import org.epics.vtype.VBooleanArray;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VEnumArray;
+import org.epics.vtype.VImage;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VStatistics;
+import org.epics.vtype.VString;
+import org.epics.vtype.VStringArray;
+import org.epics.vtype.VTable;
+import org.epics.vtype.VType;
+
+import static org.epics.vtype.binary.BinaryFormat.*;
+
+/**
+ * Writes a stream of vTypes in the compact binary encoding, to be read back
+ * by {@link VTypeBinaryReader}.
+ * <p>
+ * The writer remembers the metadata of the previous sample: an alarm,
+ * display or enum display equal to the previous one is not written again,
+ * and timestamps are written as the difference from the previous one.
+ * A stream of samples from the same channel is therefore not much larger
+ * than its values.
+ * <p>
+ * Each sample is written to the output stream with a single call, so the
+ * stream does not need to be buffered. The writer is not thread safe.
+ */
+public class VTypeBinaryWriter implements Flushable, Closeable {
+
+    // Room for the length of the sample, written once the sample is encoded
+    private static final int LENGTH_BYTES = 5;
+
+    // Larger differences would overflow when converted to nanoseconds
+    private static final long MAX_DELTA_SECONDS = 1L << 32;
+
+    private final OutputStream out;
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    private boolean headerWritten;
+    private int flagsPosition;
+
+    private Alarm lastAlarm;
+    private Instant lastTimestamp = Instant.EPOCH;
+    private Display lastDisplay;
+    private EnumDisplay lastEnumDisplay;
+
+    /**
+     * Creates a new writer. The header of the stream is written with
+     * the first sample.
+     *
+     * @param out the output stream
+     */
+    public VTypeBinaryWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the given vType to the stream.
+     *
+     * @param vType a vType
+     * @throws IOException if the stream could not be written
+     */
+    public void write(VType vType) throws IOException {
+        if (!headerWritten) {
+            out.write(MAGIC);
+            out.write(VERSION);
+            headerWritten = true;
+        }
+
+        buffer.clear();
+        buffer.position(LENGTH_BYTES);
+        encode(vType);
+
+        int length = buffer.position() - LENGTH_BYTES;
+        int start = LENGTH_BYTES - varintSize(length);
+        buffer.position(start);
+        putVarint(length);
+        out.write(buffer.array(), start, LENGTH_BYTES + length - start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void encode(VType vType) {
+        if (vType instanceof VNumber) {
+            encode((VNumber) vType);
+        } else if (vType instanceof VNumberArray) {
+            encode((VNumberArray) vType);
+        } else if (vType instanceof VString) {
+            encode((VString) vType);
+        } else if (vType instanceof VStringArray) {
+            encode((VStringArray) vType);
+        } else if (vType instanceof VBoolean) {
+            encode((VBoolean) vType);
+        } else if (vType instanceof VBooleanArray) {
+            encode((VBooleanArray) vType);
+        } else if (vType instanceof VEnum) {
+            encode((VEnum) vType);
+        } else if (vType instanceof VEnumArray) {
+            encode((VEnumArray) vType);
+        } else if (vType instanceof VStatistics) {
+            encode((VStatistics) vType);
+        } else if (vType instanceof VImage) {
+            encode((VImage) vType);
+        } else if (vType instanceof VTable) {
+            encode((VTable) vType);
+        } else {
+            throw new UnsupportedOperationException("Type " + vType.getClass().getName() + " not supported");
+        }
+    }
+
+    private void encode(VNumber vNumber) {
+        Number value = vNumber.getValue();
+        int type = valueType(value);
+        putHeader(type, vNumber.getAlarm(), vNumber.getTime());
+        putDisplay(vNumber.getDisplay());
+        ensure(8);
+        switch (type) {
+            case DOUBLE:
+                buffer.putDouble(value.doubleValue());
+                break;
+            case FLOAT:
+                buffer.putFloat(value.floatValue());
+                break;
+            case LONG:
+            case ULONG:
+                buffer.putLong(value.longValue());
+                break;
+            default:
+                // Truncation keeps the bits of the unsigned types
+                putInteger(type, value.intValue());
+        }
+    }
+
+    private void encode(VNumberArray vNumberArray) {
+        ListNumber data = vNumberArray.getData();
+        putHeader(elementType(data) | ARRAY, vNumberArray.getAlarm(), vNumberArray.getTime());
+        putDisplay(vNumberArray.getDisplay());
+        putSizes(vNumberArray.getSizes());
+        putElements(data);
+    }
+
+    private void encode(VString vString) {
+        putHeader(STRING, vString.getAlarm(), vString.getTime());
+        putString(vString.getValue());
+    }
+
+    private void encode(VStringArray vStringArray) {
+        putHeader(STRING | ARRAY, vStringArray.getAlarm(), vStringArray.getTime());
+        putSizes(vStringArray.getSizes());
+        putStrings(vStringArray.getData());
+    }
+
+    private void encode(VBoolean vBoolean) {
+        putHeader(BOOLEAN, vBoolean.getAlarm(), vBoolean.getTime());
+        ensure(1);
+        buffer.put((byte) (vBoolean.getValue() ? 1 : 0));
+    }
+
+    private void encode(VBooleanArray vBooleanArray) {
+        putHeader(BOOLEAN | ARRAY, vBooleanArray.getAlarm(), vBooleanArray.getTime());
+        putBooleans(vBooleanArray.getData());
+    }
+
+    private void encode(VEnum vEnum) {
+        putHeader(ENUM, vEnum.getAlarm(), vEnum.getTime());
+        putEnumDisplay(vEnum.getDisplay());
+        putVarint(zigzag(vEnum.getIndex()));
+    }
+
+    private void encode(VEnumArray vEnumArray) {
+        putHeader(ENUM | ARRAY, vEnumArray.getAlarm(), vEnumArray.getTime());
+        putEnumDisplay(vEnumArray.getDisplay());
+        ListNumber indexes = vEnumArray.getIndexes();
+        putVarint(indexes.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            putVarint(zigzag(indexes.getInt(i)));
+        }
+    }
+
+    private void encode(VStatistics vStatistics) {
+        putHeader(STATISTICS, vStatistics.getAlarm(), vStatistics.getTime());
+        putDisplay(vStatistics.getDisplay());
+        ensure(32);
+        buffer.putDouble(vStatistics.getAverage());
+        buffer.putDouble(vStatistics.getStdDev());
+        buffer.putDouble(vStatistics.getMin());
+        buffer.putDouble(vStatistics.getMax());
+        putVarint(vStatistics.getNSamples());
+    }
+
+    private void encode(VImage vImage) {
+        putHeader(IMAGE, vImage.getAlarm(), vImage.getTime());
+        putVarint(vImage.getHeight());
+        putVarint(vImage.getWidth());
+        putVarint(zigzag(vImage.getXOffset()));
+        putVarint(zigzag(vImage.getYOffset()));
+        ensure(4);
+        buffer.put((byte) ((vImage.isXReversed() ? 1 : 0) | (vImage.isYReversed() ? 2 : 0)));
+        buffer.put((byte) vImage.getDataType().ordinal());
+        buffer.put((byte) vImage.getVImageType().ordinal());
+        ListNumber data = vImage.getData();
+        buffer.put((byte) elementType(data));
+        putElements(data);
+    }
+
+    private void encode(VTable vTable) {
+        // Tables have no metadata
+        ensure(2);
+        buffer.put((byte) TABLE);
+        buffer.put((byte) 0);
+        int columnCount = vTable.getColumnCount();
+        putVarint(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            putString(vTable.getColumnName(i));
+            Object data = vTable.getColumnData(i);
+            ensure(1);
+            if (data instanceof ListNumber) {
+                buffer.put((byte) elementType((ListNumber) data));
+                putElements((ListNumber) data);
+            } else if (data instanceof ListBoolean) {
+                buffer.put((byte) BOOLEAN);
+                putBooleans((ListBoolean) data);
+            } else if (data instanceof List && Instant.class.equals(vTable.getColumnType(i))) {
+                buffer.put((byte) INSTANT);
+                putInstants((List<?>) data);
+            } else if (data instanceof List) {
+                buffer.put((byte) STRING);
+                putStrings((List<?>) data);
+            } else {
+                throw new UnsupportedOperationException("Column " + vTable.getColumnName(i) + " of type " + vTable.getColumnType(i) + " not supported");
+            }
+        }
+    }
+
+    private static int valueType(Number value) {
+        if (value instanceof Double) {
+            return DOUBLE;
+        } else if (value instanceof Float) {
+            return FLOAT;
+        } else if (value instanceof ULong) {
+            return ULONG;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof UInteger) {
+            return UINT;
+        } else if (value instanceof Integer) {
+            return INT;
+        } else if (value instanceof UShort) {
+            return USHORT;
+        } else if (value instanceof Short) {
+            return SHORT;
+        } else if (value instanceof UByte) {
+            return UBYTE;
+        } else if (value instanceof Byte) {
+            return BYTE;
+        }
+        throw new UnsupportedOperationException("Class " + value.getClass() + " not supported");
+    }
+
+    private void putHeader(int type, Alarm alarm, Time time) {
+        ensure(2);
+        buffer.put((byte) type);
+        flagsPosition = buffer.position();
+        buffer.put((byte) 0);
+        putAlarm(alarm);
+        putTime(time);
+    }
+
+    private void setFlag(int flag) {
+        buffer.put(flagsPosition, (byte) (buffer.get(flagsPosition) | flag));
+    }
+
+    private void putAlarm(Alarm alarm) {
+        if (alarm.equals(lastAlarm)) {
+            setFlag(ALARM_SAME);
+            return;
+        }
+        ensure(2);
+        buffer.put((byte) alarm.getSeverity().ordinal());
+        buffer.put((byte) alarm.getStatus().ordinal());
+        putString(alarm.getName());
+        lastAlarm = alarm;
+    }
+
+    private void putTime(Time time) {
+        Instant timestamp = time.getTimestamp();
+        long deltaSeconds = timestamp.getEpochSecond() - lastTimestamp.getEpochSecond();
+        if (Math.abs(deltaSeconds) < MAX_DELTA_SECONDS) {
+            putVarlong(zigzag(deltaSeconds * 1_000_000_000L + timestamp.getNano() - lastTimestamp.getNano()));
+        } else {
+            setFlag(TIME_FULL);
+            ensure(12);
+            buffer.putLong(timestamp.getEpochSecond());
+            buffer.putInt(timestamp.getNano());
+        }
+        if (!time.isValid()) {
+            setFlag(TIME_INVALID);
+        }
+        if (time.getUserTag() != null) {
+            setFlag(TIME_USER_TAG);
+            putVarint(zigzag(time.getUserTag()));
+        }
+        lastTimestamp = timestamp;
+    }
+
+    private void putDisplay(Display display) {
+        if (display == lastDisplay || display.equals(lastDisplay)) {
+            setFlag(DISPLAY_SAME);
+            return;
+        }
+        putRange(display.getDisplayRange());
+        putRange(display.getAlarmRange());
+        putRange(display.getWarningRange());
+        putRange(display.getControlRange());
+        putString(display.getUnit());
+        NumberFormat format = display.getFormat();
+        ensure(1);
+        if (format instanceof DecimalFormat && format != Display.defaultNumberFormat()) {
+            buffer.put((byte) FORMAT_PATTERN);
+            putString(((DecimalFormat) format).toPattern());
+        } else {
+            // Other formats cannot be encoded, the reader uses the default
+            buffer.put((byte) FORMAT_DEFAULT);
+        }
+        putString(display.getDescription());
+        lastDisplay = display;
+    }
+
+    private void putRange(Range range) {
+        ensure(16);
+        // Reversed ranges are created by passing the bounds in reverse
+        if (range.isReversed()) {
+            buffer.putDouble(range.getMaximum());
+            buffer.putDouble(range.getMinimum());
+        } else {
+            buffer.putDouble(range.getMinimum());
+            buffer.putDouble(range.getMaximum());
+        }
+    }
+
+    private void putEnumDisplay(EnumDisplay enumDisplay) {
+        if (enumDisplay == lastEnumDisplay || enumDisplay.equals(lastEnumDisplay)) {
+            setFlag(DISPLAY_SAME);
+            return;
+        }
+        putStrings(enumDisplay.getChoices());
+        lastEnumDisplay = enumDisplay;
+    }
+
+    private void putSizes(ListInteger sizes) {
+        putVarint(sizes.size());
+        for (int i = 0; i < sizes.size(); i++) {
+            putVarint(sizes.getInt(i));
+        }
+    }
+
+    private void putElements(ListNumber list) {
+        int type = elementType(list);
+        int size = list.size();
+        putVarint(size);
+        ensure(size * elementSize(type));
+        switch (type) {
+            case DOUBLE:
+                for (int i = 0; i < size; i++) {
+                    buffer.putDouble(list.getDouble(i));
+                }
+                break;
+            case FLOAT:
+                for (int i = 0; i < size; i++) {
+                    buffer.putFloat(list.getFloat(i));
+                }
+                break;
+            case LONG:
+            case ULONG:
+                for (int i = 0; i < size; i++) {
+                    buffer.putLong(list.getLong(i));
+                }
+                break;
+            case INT:
+            case UINT:
+                for (int i = 0; i < size; i++) {
+                    buffer.putInt(list.getInt(i));
+                }
+                break;
+            case SHORT:
+            case USHORT:
+                for (int i = 0; i < size; i++) {
+                    buffer.putShort(list.getShort(i));
+                }
+                break;
+            default:
+                for (int i = 0; i < size; i++) {
+                    buffer.put(list.getByte(i));
+                }
+        }
+    }
+
+    private void putInteger(int type, int value) {
+        switch (type) {
+            case INT:
+            case UINT:
+                buffer.putInt(value);
+                break;
+            case SHORT:
+            case USHORT:
+                buffer.putShort((short) value);
+                break;
+            default:
+                buffer.put((byte) value);
+        }
+    }
+
+    private void putBooleans(ListBoolean list) {
+        int size = list.size();
+        putVarint(size);
+        ensure((size + 7) / 8);
+        int bits = 0;
+        for (int i = 0; i < size; i++) {
+            if (list.getBoolean(i)) {
+                bits |= 1 << (i % 8);
+            }
+            if (i % 8 == 7) {
+                buffer.put((byte) bits);
+                bits = 0;
+            }
+        }
+        if (size % 8 != 0) {
+            buffer.put((byte) bits);
+        }
+    }
+
+    private void putInstants(List<?> list) {
+        putVarint(list.size());
+        ensure(list.size() * 12);
+        for (Object element : list) {
+            Instant instant = (Instant) element;
+            buffer.putLong(instant.getEpochSecond());
+            buffer.putInt(instant.getNano());
+        }
+    }
+
+    private void putStrings(List<?> list) {
+        putVarint(list.size());
+        for (Object element : list) {
+            putString(element == null ? null : element.toString());
+        }
+    }
+
+    private void putString(String value) {
+        // Length is shifted by one, so that zero is null
+        if (value == null) {
+            putVarint(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length + 1);
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void putVarint(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void putVarlong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            newBuffer.put(buffer);
+            buffer = newBuffer;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.vtype.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.epics.vtype.VType;
+
+/**
+ * Utility to serialize and de-serialize single vTypes to and from the
+ * compact binary encoding.
+ * <p>
+ * Each array contains a complete stream, so no metadata is shared between
+ * values. To store or send many samples, use {@link VTypeBinaryWriter} and
+ * {@link VTypeBinaryReader} on a stream, which only write the metadata
+ * when it changes.
+ */
+public class VTypeToBinary {
+
+    private VTypeToBinary() {
+        // Utility class
+    }
+
+    /**
+     * Converts the given vType to bytes.
+     *
+     * @param vType a vType
+     * @return the binary encoding of the vType
+     */
+    public static byte[] toBytes(VType vType) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            new VTypeBinaryWriter(out).write(vType);
+        } catch (IOException ex) {
+            // Cannot happen on a byte array
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Converts the given bytes to a vType.
+     *
+     * @param bytes the binary encoding of a vType
+     * @return the corresponding vType
+     * @throws IOException if the bytes are not a valid encoding
+     */
+    public static VType toVType(byte[] bytes) throws IOException {
+        VType vType = new VTypeBinaryReader(new ByteArrayInputStream(bytes)).read();
+        if (vType == null) {
+            throw new IOException("No vType in the given bytes");
+        }
+        return vType;
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+/**
+ * Provides a compact binary serialization of vTypes.
+ */
+package org.epics.vtype.binary;
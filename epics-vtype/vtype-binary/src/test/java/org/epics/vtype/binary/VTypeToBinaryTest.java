@@ -0,0 +1,210 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.vtype.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.util.*;
+
+import org.epics.util.array.*;
+import org.epics.util.number.UByte;
+import org.epics.util.number.UInteger;
+import org.epics.util.number.ULong;
+import org.epics.util.number.UShort;
+import org.epics.util.stats.Range;
+import org.epics.vtype.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class VTypeToBinaryTest {
+
+    private final Alarm alarm = Alarm.of(AlarmSeverity.MINOR, AlarmStatus.DB, "LOW");
+    private final Time time = Time.of(Instant.ofEpochSecond(1354719441, 521786982));
+    private final Display display = Display.of(Range.of(0.0, 10.0), Range.of(-10.0, 20.0), Range.of(8.0, 2.0), Range.undefined(), "m", new DecimalFormat("0.00"), "Position");
+
+    public static VType roundTrip(VType value) throws IOException {
+        return VTypeToBinary.toVType(VTypeToBinary.toBytes(value));
+    }
+
+    @Test
+    public void scalars() throws IOException {
+        List<VType> values = Arrays.<VType>asList(
+                VDouble.of(3.14, alarm, time, display),
+                VDouble.of(Double.NaN, alarm, time, Display.none()),
+                VFloat.of(Float.NEGATIVE_INFINITY, alarm, time, display),
+                VLong.of(Long.MIN_VALUE, alarm, time, display),
+                VULong.of(new ULong(-1L), alarm, time, display),
+                VInt.of(-42, alarm, time, display),
+                VUInt.of(new UInteger(-1), alarm, time, display),
+                VShort.of((short) -7, alarm, time, display),
+                VUShort.of(new UShort((short) -1), alarm, time, display),
+                VByte.of((byte) -1, alarm, time, display),
+                VUByte.of(new UByte((byte) 200), alarm, time, display),
+                VString.of("Hello, \u00b5", alarm, time),
+                VString.of("", Alarm.none(), time),
+                VBoolean.of(true, alarm, time),
+                VEnum.of(1, EnumDisplay.of("One", "Two", "Three"), alarm, time));
+        for (VType value : values) {
+            assertThat(roundTrip(value), equalTo(value));
+        }
+    }
+
+    @Test
+    public void arrays() throws IOException {
+        List<VType> values = Arrays.<VType>asList(
+                VDoubleArray.of(ArrayDouble.of(0, 0.1, Double.NaN, -1e300), alarm, time, display),
+                VNumberArray.of(ArrayDouble.of(1, 2, 3, 4, 5, 6), ArrayInteger.of(2, 3), alarm, time, display),
+                VFloatArray.of(ArrayFloat.of(1.5f, -2.5f), alarm, time, display),
+                VLongArray.of(ArrayLong.of(Long.MAX_VALUE, 0), alarm, time, display),
+                VULongArray.of(ArrayULong.of(-1L, 1L), alarm, time, display),
+                VIntArray.of(ArrayInteger.of(1, -1, Integer.MAX_VALUE), alarm, time, display),
+                VUIntArray.of(ArrayUInteger.of(-1, 2), alarm, time, display),
+                VShortArray.of(ArrayShort.of((short) 1, (short) -1), alarm, time, display),
+                VUShortArray.of(ArrayUShort.of((short) -1), alarm, time, display),
+                VByteArray.of(ArrayByte.of((byte) 1, (byte) -128), alarm, time, display),
+                VUByteArray.of(ArrayUByte.of((byte) 255, (byte) 0), alarm, time, display),
+                VDoubleArray.of(ArrayDouble.of(), alarm, time, display),
+                VStringArray.of(Arrays.asList("A", null, ""), alarm, time),
+                VStatistics.of(1.5, 0.25, -1, 4, 100, alarm, time, display));
+        for (VType value : values) {
+            assertThat(roundTrip(value), equalTo(value));
+        }
+    }
+
+    @Test
+    public void booleanArray() throws IOException {
+        boolean[] data = new boolean[19];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i % 3 == 0;
+        }
+        VBooleanArray value = VBooleanArray.of(ArrayBoolean.of(data), alarm, time);
+        VBooleanArray result = (VBooleanArray) roundTrip(value);
+        assertThat(result.getData(), equalTo(value.getData()));
+        assertThat(result.getAlarm(), equalTo(alarm));
+        assertThat(result.getTime(), equalTo(time));
+    }
+
+    @Test
+    public void enumArray() throws IOException {
+        VEnumArray value = VEnumArray.of(ArrayInteger.of(2, 0, 1), EnumDisplay.of("A", "B", "C"), alarm, time);
+        VEnumArray result = (VEnumArray) roundTrip(value);
+        assertThat(result.getData(), equalTo(Arrays.asList("C", "A", "B")));
+        assertThat(result.getDisplay(), equalTo(value.getDisplay()));
+        assertThat(result.getAlarm(), equalTo(alarm));
+        assertThat(result.getTime(), equalTo(time));
+    }
+
+    @Test
+    public void image() throws IOException {
+        VImage value = VImage.of(2, 3, 1, -1, true, false, ArrayUShort.of(new short[]{1, 2, 3, 4, 5, -1}),
+                VImageDataType.pvUShort, VImageType.TYPE_MONO, alarm, time);
+        VImage result = (VImage) roundTrip(value);
+        assertThat(result, equalTo(value));
+        assertThat(result.isXReversed(), equalTo(true));
+        assertThat(result.isYReversed(), equalTo(false));
+    }
+
+    @Test
+    public void table() throws IOException {
+        List<Instant> instants = Arrays.asList(Instant.ofEpochSecond(0, 1), Instant.ofEpochSecond(1500000000));
+        VTable value = VTable.of(Arrays.<Class<?>>asList(double.class, String.class, boolean.class, Instant.class, int.class),
+                Arrays.asList("Value", "Name", "Flag", "Time", "Count"),
+                Arrays.<Object>asList(ArrayDouble.of(1.5, 2.5), Arrays.asList("a", "b"), ArrayBoolean.of(true, false), instants, ArrayUInteger.of(-1, 3)));
+        VTable result = (VTable) roundTrip(value);
+        assertThat(result.getColumnCount(), equalTo(5));
+        assertThat(result.getRowCount(), equalTo(2));
+        for (int i = 0; i < value.getColumnCount(); i++) {
+            assertThat(result.getColumnName(i), equalTo(value.getColumnName(i)));
+            assertThat(result.getColumnType(i), equalTo((Object) value.getColumnType(i)));
+            assertThat(result.getColumnData(i), equalTo(value.getColumnData(i)));
+        }
+    }
+
+    @Test
+    public void time() throws IOException {
+        List<Time> times = Arrays.asList(
+                Time.of(Instant.ofEpochSecond(1354719441, 521786982), 42, true),
+                Time.of(Instant.ofEpochSecond(1354719441, 521786982), -5, false),
+                Time.of(Instant.ofEpochSecond(-1, 999999999)),
+                Time.of(Instant.MAX),
+                Time.of(Instant.MIN));
+        for (Time t : times) {
+            VInt value = VInt.of(1, alarm, t, display);
+            assertThat(roundTrip(value), equalTo((VType) value));
+        }
+    }
+
+    @Test
+    public void stream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VTypeBinaryWriter writer = new VTypeBinaryWriter(out);
+        List<VType> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Time sampleTime = Time.of(Instant.ofEpochSecond(1354719441 + i / 10, (i % 10) * 100_000_000));
+            values.add(VDouble.of(i * 0.5, i < 500 ? alarm : Alarm.none(), sampleTime, display));
+        }
+        values.add(VString.of("Interleaved", alarm, time));
+        values.add(VDouble.of(1.0, alarm, time, Display.none()));
+        for (VType value : values) {
+            writer.write(value);
+        }
+        writer.close();
+
+        // Metadata is only written when it changes
+        byte[] bytes = out.toByteArray();
+        assertThat(bytes.length, lessThan(values.size() * 16));
+        assertThat(bytes.length * 5, lessThan(VTypeToBinary.toBytes(values.get(0)).length * values.size()));
+
+        VTypeBinaryReader reader = new VTypeBinaryReader(new ByteArrayInputStream(bytes));
+        List<VType> result = new ArrayList<>();
+        VType value;
+        while ((value = reader.read()) != null) {
+            result.add(value);
+        }
+        assertThat(result, equalTo(values));
+        assertThat(((VDouble) result.get(1)).getDisplay(), sameInstance(((VDouble) result.get(0)).getDisplay()));
+        assertThat(reader.read(), nullValue());
+    }
+
+    @Test
+    public void emptyStream() throws IOException {
+        VTypeBinaryReader reader = new VTypeBinaryReader(new ByteArrayInputStream(new byte[0]));
+        assertThat(reader.read(), nullValue());
+    }
+
+    @Test(expected = IOException.class)
+    public void notBinaryVType() throws IOException {
+        VTypeToBinary.toVType("{\"type\"}".getBytes());
+    }
+
+    @Test(expected = IOException.class)
+    public void unsupportedVersion() throws IOException {
+        byte[] bytes = VTypeToBinary.toBytes(VString.of("A", alarm, time));
+        bytes[3] = 2;
+        VTypeToBinary.toVType(bytes);
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncated() throws IOException {
+        byte[] bytes = VTypeToBinary.toBytes(VDouble.of(3.14, alarm, time, display));
+        VTypeToBinary.toVType(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void corrupted() throws IOException {
+        byte[] bytes = VTypeToBinary.toBytes(VString.of("A", alarm, time));
+        // Metadata that refers to a previous sample
+        bytes[6] = 1;
+        VTypeToBinary.toVType(bytes);
+    }
+}
@@ -0,0 +1,675 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.vtype.json;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import org.epics.util.array.ArrayBoolean;
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.ArrayLong;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.ArrayUByte;
+import org.epics.util.array.ArrayUInteger;
+import org.epics.util.array.ArrayULong;
+import org.epics.util.array.ArrayUShort;
+import org.epics.util.array.ListNumber;
+import org.epics.util.number.UByte;
+import org.epics.util.number.UInteger;
+import org.epics.util.number.ULong;
+import org.epics.util.number.UShort;
+import org.epics.util.stats.Range;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.AlarmStatus;
+import org.epics.vtype.Display;
+import org.epics.vtype.EnumDisplay;
+import org.epics.vtype.Time;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VStringArray;
+import org.epics.vtype.VTable;
+import org.epics.vtype.VType;
+
+/**
+ * Reads a vType directly from a {@link JsonParser}, accepting the same
+ * JSON as {@link VTypeToJsonV1} without building the object tree.
+ * Numeric arrays are parsed straight into primitive arrays. This works best
+ * if the type comes before the value, as written by {@link JsonVTypeWriter}:
+ * otherwise the array tokens are kept until the type is known.
+ * <p>
+ * A reader is used for a single value.
+ */
+class JsonVTypeReader {
+
+    /**
+     * Source of parser events, either the parser itself or recorded events.
+     */
+    private interface Tokens {
+
+        Event next();
+
+        String getString();
+    }
+
+    /**
+     * The events of an array read before its element type was known.
+     */
+    private static class RecordedTokens implements Tokens {
+
+        private Event[] events = new Event[16];
+        private String[] strings = new String[16];
+        private int size;
+        private int index;
+
+        private void add(Event event, String string) {
+            if (size == events.length) {
+                events = Arrays.copyOf(events, size * 2);
+                strings = Arrays.copyOf(strings, size * 2);
+            }
+            events[size] = event;
+            strings[size] = string;
+            size++;
+        }
+
+        @Override
+        public Event next() {
+            if (index == size) {
+                throw new JsonException("Unexpected end of array");
+            }
+            return events[index++];
+        }
+
+        @Override
+        public String getString() {
+            return strings[index - 1];
+        }
+    }
+
+    private final JsonParser parser;
+    private final Tokens parserTokens;
+
+    private String typeName;
+    // text of a scalar, the elements of an array or the recorded array
+    private Object value;
+    private Alarm alarm;
+    private Time time;
+    private Display display;
+    private List<String> labels;
+    private int columnCount;
+    private List<String> columnNames;
+    private List<String> columnTypes;
+
+    JsonVTypeReader(final JsonParser parser) {
+        this.parser = parser;
+        this.parserTokens = new Tokens() {
+            @Override
+            public Event next() {
+                return parser.next();
+            }
+
+            @Override
+            public String getString() {
+                return parser.getString();
+            }
+        };
+    }
+
+    /**
+     * Reads the next JSON object from the parser.
+     *
+     * @return the vType
+     */
+    VType read() {
+        expect(parser.next(), Event.START_OBJECT);
+        Event event;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            expect(event, Event.KEY_NAME);
+            String key = parser.getString();
+            event = parser.next();
+            switch (key) {
+                case "type":
+                    readType(event);
+                    break;
+                case "value":
+                    readValue(event);
+                    break;
+                case "alarm":
+                    readAlarm(event);
+                    break;
+                case "time":
+                    readTime(event);
+                    break;
+                case "display":
+                    readDisplay(event);
+                    break;
+                case "enum":
+                    readEnum(event);
+                    break;
+                case "columnCount":
+                    columnCount = (int) toLong(event, parserTokens);
+                    break;
+                case "columnNames":
+                    expect(event, Event.START_ARRAY);
+                    columnNames = readStrings(parserTokens);
+                    break;
+                case "columnTypes":
+                    expect(event, Event.START_ARRAY);
+                    columnTypes = readStrings(parserTokens);
+                    break;
+                default:
+                    skip(event, parserTokens);
+            }
+        }
+        return build();
+    }
+
+    private static void expect(Event event, Event expected) {
+        if (event != expected) {
+            throw new JsonException("Expected " + expected + " but was " + event);
+        }
+    }
+
+    private static void skip(Event event, Tokens tokens) {
+        if (event != Event.START_OBJECT && event != Event.START_ARRAY) {
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            switch (tokens.next()) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void readType(Event event) {
+        expect(event, Event.START_OBJECT);
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            String key = parser.getString();
+            event = parser.next();
+            if ("name".equals(key)) {
+                typeName = parser.getString();
+            } else {
+                skip(event, parserTokens);
+            }
+        }
+    }
+
+    private void readValue(Event event) {
+        switch (event) {
+            case START_ARRAY:
+                if ("VTable".equals(typeName) && columnTypes != null) {
+                    value = readColumns(parserTokens);
+                } else if (typeName != null && !"VTable".equals(typeName)) {
+                    value = readArray(parserTokens, arrayElementType(typeName));
+                } else {
+                    value = record();
+                }
+                break;
+            case VALUE_STRING:
+            case VALUE_NUMBER:
+                value = parser.getString();
+                break;
+            case VALUE_NULL:
+                value = null;
+                break;
+            default:
+                throw new JsonException("Unexpected value " + event);
+        }
+    }
+
+    private RecordedTokens record() {
+        RecordedTokens recorded = new RecordedTokens();
+        int depth = 1;
+        while (depth > 0) {
+            Event event = parser.next();
+            switch (event) {
+                case START_ARRAY:
+                case START_OBJECT:
+                    depth++;
+                    recorded.add(event, null);
+                    break;
+                case END_ARRAY:
+                case END_OBJECT:
+                    depth--;
+                    recorded.add(event, null);
+                    break;
+                case KEY_NAME:
+                case VALUE_STRING:
+                case VALUE_NUMBER:
+                    recorded.add(event, parser.getString());
+                    break;
+                default:
+                    recorded.add(event, null);
+            }
+        }
+        return recorded;
+    }
+
+    private void readAlarm(Event event) {
+        expect(event, Event.START_OBJECT);
+        String severity = null;
+        String status = null;
+        String name = null;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            String key = parser.getString();
+            event = parser.next();
+            switch (key) {
+                case "severity":
+                    severity = parser.getString();
+                    break;
+                case "status":
+                    status = parser.getString();
+                    break;
+                case "name":
+                    name = parser.getString();
+                    break;
+                default:
+                    skip(event, parserTokens);
+            }
+        }
+        alarm = Alarm.of(AlarmSeverity.valueOf(severity), AlarmStatus.valueOf(status), name);
+    }
+
+    private void readTime(Event event) {
+        expect(event, Event.START_OBJECT);
+        long unixSec = 0;
+        long nanoSec = 0;
+        Integer userTag = null;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            String key = parser.getString();
+            event = parser.next();
+            switch (key) {
+                case "unixSec":
+                    unixSec = toLong(event, parserTokens);
+                    break;
+                case "nanoSec":
+                    nanoSec = toLong(event, parserTokens);
+                    break;
+                case "userTag":
+                    if (event != Event.VALUE_NULL) {
+                        userTag = (int) toLong(event, parserTokens);
+                    }
+                    break;
+                default:
+                    skip(event, parserTokens);
+            }
+        }
+        time = Time.of(Instant.ofEpochSecond(unixSec, nanoSec), userTag, true);
+    }
+
+    private void readDisplay(Event event) {
+        expect(event, Event.START_OBJECT);
+        double lowAlarm = Double.NaN, highAlarm = Double.NaN;
+        double lowDisplay = Double.NaN, highDisplay = Double.NaN;
+        double lowWarning = Double.NaN, highWarning = Double.NaN;
+        double lowControl = Double.NaN, highControl = Double.NaN;
+        String units = Display.defaultUnits();
+        String description = null;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            String key = parser.getString();
+            event = parser.next();
+            switch (key) {
+                case "lowAlarm":
+                    lowAlarm = toDouble(event, parserTokens);
+                    break;
+                case "highAlarm":
+                    highAlarm = toDouble(event, parserTokens);
+                    break;
+                case "lowDisplay":
+                    lowDisplay = toDouble(event, parserTokens);
+                    break;
+                case "highDisplay":
+                    highDisplay = toDouble(event, parserTokens);
+                    break;
+                case "lowWarning":
+                    lowWarning = toDouble(event, parserTokens);
+                    break;
+                case "highWarning":
+                    highWarning = toDouble(event, parserTokens);
+                    break;
+                case "lowControl":
+                    lowControl = toDouble(event, parserTokens);
+                    break;
+                case "highControl":
+                    highControl = toDouble(event, parserTokens);
+                    break;
+                case "units":
+                    units = parser.getString();
+                    break;
+                case "description":
+                    description = event == Event.VALUE_NULL ? null : parser.getString();
+                    break;
+                default:
+                    skip(event, parserTokens);
+            }
+        }
+        display = Display.of(Range.of(lowDisplay, highDisplay), Range.of(lowAlarm, highAlarm),
+                Range.of(lowWarning, highWarning), Range.of(lowControl, highControl),
+                units, new DecimalFormat(), description);
+    }
+
+    private void readEnum(Event event) {
+        expect(event, Event.START_OBJECT);
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            String key = parser.getString();
+            event = parser.next();
+            if ("labels".equals(key)) {
+                expect(event, Event.START_ARRAY);
+                labels = readStrings(parserTokens);
+            } else {
+                skip(event, parserTokens);
+            }
+        }
+    }
+
+    private List<Object> readColumns(Tokens tokens) {
+        List<Object> columns = new ArrayList<>();
+        Event event;
+        int i = 0;
+        while ((event = tokens.next()) != Event.END_ARRAY) {
+            expect(event, Event.START_ARRAY);
+            String columnType = i < columnTypes.size() ? columnTypes.get(i) : null;
+            if (columnType == null || VTypeToJsonV1.getClass(columnType) == null) {
+                skip(event, tokens);
+                columns.add(Collections.emptyList());
+            } else {
+                columns.add(readArray(tokens, columnType));
+            }
+            i++;
+        }
+        return columns;
+    }
+
+    /**
+     * The element type, as used for table columns, of the given array type name.
+     */
+    private static String arrayElementType(String typeName) {
+        switch (typeName) {
+            case "VDoubleArray":
+                return "double";
+            case "VFloatArray":
+                return "float";
+            case "VULongArray":
+                return "ulong";
+            case "VLongArray":
+                return "long";
+            case "VUIntArray":
+                return "uint";
+            case "VIntArray":
+                return "int";
+            case "VUShortArray":
+                return "ushort";
+            case "VShortArray":
+                return "short";
+            case "VUByteArray":
+                return "ubyte";
+            case "VByteArray":
+                return "byte";
+            case "VStringArray":
+                return "string";
+            default:
+                throw new UnsupportedOperationException("Not implemented yet");
+        }
+    }
+
+    /**
+     * Reads the elements of an array, the start of the array was already read.
+     *
+     * @param tokens the events
+     * @param elementType the element type name, as used for table columns
+     * @return a ListNumber, ListBoolean or List of Strings
+     */
+    private static Object readArray(Tokens tokens, String elementType) {
+        Event event;
+        int n = 0;
+        switch (elementType) {
+            case "double": {
+                double[] values = new double[16];
+                while ((event = tokens.next()) != Event.END_ARRAY) {
+                    if (n == values.length) {
+                        values = Arrays.copyOf(values, n * 2);
+                    }
+                    values[n++] = toDouble(event, tokens);
+                }
+                return ArrayDouble.of(Arrays.copyOf(values, n));
+            }
+            case "float": {
+                float[] values = new float[16];
+                while ((event = tokens.next()) != Event.END_ARRAY) {
+                    if (n == values.length) {
+                        values = Arrays.copyOf(values, n * 2);
+                    }
+                    values[n++] = (float) toDouble(event, tokens);
+                }
+                return ArrayFloat.of(Arrays.copyOf(values, n));
+            }
+            case "long":
+            case "ulong": {
+                long[] values = new long[16];
+                while ((event = tokens.next()) != Event.END_ARRAY) {
+                    if (n == values.length) {
+                        values = Arrays.copyOf(values, n * 2);
+                    }
+                    values[n++] = toLong(event, tokens);
+                }
+                values = Arrays.copyOf(values, n);
+                return "long".equals(elementType) ? ArrayLong.of(values) : ArrayULong.of(values);
+            }
+            case "int":
+            case "uint": {
+                int[] values = new int[16];
+                while ((event = tokens.next()) != Event.END_ARRAY) {
+                    if (n == values.length) {
+                        values = Arrays.copyOf(values, n * 2);
+                    }
+                    values[n++] = (int) toLong(event, tokens);
+                }
+                values = Arrays.copyOf(values, n);
+                return "int".equals(elementType) ? ArrayInteger.of(values) : ArrayUInteger.of(values);
+            }
+            case "short":
+            case "ushort": {
+                short[] values = new short[16];
+                while ((event = tokens.next()) != Event.END_ARRAY) {
+                    if (n == values.length) {
+                        values = Arrays.copyOf(values, n * 2);
+                    }
+                    values[n++] = (short) toLong(event, tokens);
+                }
+                values = Arrays.copyOf(values, n);
+                return "short".equals(elementType) ? ArrayShort.of(values) : ArrayUShort.of(values);
+            }
+            case "byte":
+            case "ubyte": {
+                byte[] values = new byte[16];
+                while ((event = tokens.next()) != Event.END_ARRAY) {
+                    if (n == values.length) {
+                        values = Arrays.copyOf(values, n * 2);
+                    }
+                    values[n++] = (byte) toLong(event, tokens);
+                }
+                values = Arrays.copyOf(values, n);
+                return "byte".equals(elementType) ? ArrayByte.of(values) : ArrayUByte.of(values);
+            }
+            case "bool": {
+                boolean[] values = new boolean[16];
+                while ((event = tokens.next()) != Event.END_ARRAY) {
+                    if (n == values.length) {
+                        values = Arrays.copyOf(values, n * 2);
+                    }
+                    if (event != Event.VALUE_TRUE && event != Event.VALUE_FALSE) {
+                        throw new JsonException("Expected boolean but was " + event);
+                    }
+                    values[n++] = event == Event.VALUE_TRUE;
+                }
+                return ArrayBoolean.of(Arrays.copyOf(values, n));
+            }
+            case "string":
+                return readStrings(tokens);
+            default:
+                throw new UnsupportedOperationException("Not implemented yet");
+        }
+    }
+
+    private static List<String> readStrings(Tokens tokens) {
+        List<String> strings = new ArrayList<>();
+        Event event;
+        while ((event = tokens.next()) != Event.END_ARRAY) {
+            expect(event, Event.VALUE_STRING);
+            strings.add(tokens.getString());
+        }
+        return strings;
+    }
+
+    private static double toDouble(Event event, Tokens tokens) {
+        switch (event) {
+            case VALUE_NUMBER:
+            case VALUE_STRING:
+                // Also parses NaN and infinities, written as strings
+                return Double.parseDouble(tokens.getString());
+            case VALUE_NULL:
+                return Double.NaN;
+            default:
+                throw new JsonException("Expected number but was " + event);
+        }
+    }
+
+    private static long toLong(Event event, Tokens tokens) {
+        if (event != Event.VALUE_NUMBER) {
+            throw new JsonException("Expected number but was " + event);
+        }
+        return toLong(tokens.getString());
+    }
+
+    private static long toLong(String text) {
+        if (text.length() < 19) {
+            boolean integral = true;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    integral = false;
+                    break;
+                }
+            }
+            if (integral) {
+                return Long.parseLong(text);
+            }
+        }
+        // Large values wrap around, as needed for unsigned longs
+        return new BigDecimal(text).longValue();
+    }
+
+    private Object resolveArray(String elementType) {
+        if (value instanceof RecordedTokens) {
+            RecordedTokens recorded = (RecordedTokens) value;
+            if ("VTable".equals(typeName)) {
+                if (columnTypes == null) {
+                    throw new JsonException("Missing columnTypes");
+                }
+                return readColumns(recorded);
+            }
+            return readArray(recorded, elementType);
+        }
+        return value;
+    }
+
+    private VType build() {
+        if (typeName == null) {
+            throw new JsonException("Missing type");
+        }
+        if (alarm == null) {
+            alarm = Alarm.none();
+        }
+        if (time == null) {
+            time = Time.nowInvalid();
+        }
+        if (display == null) {
+            display = Display.none();
+        }
+        String text = value instanceof String ? (String) value : null;
+        switch (typeName) {
+            case "VDouble":
+                return VNumber.of(Double.parseDouble(text), alarm, time, display);
+            case "VFloat":
+                return VNumber.of((float) Double.parseDouble(text), alarm, time, display);
+            case "VULong":
+                return VNumber.of(new ULong(toLong(text)), alarm, time, display);
+            case "VLong":
+                return VNumber.of(toLong(text), alarm, time, display);
+            case "VUInt":
+                return VNumber.of(new UInteger((int) toLong(text)), alarm, time, display);
+            case "VInt":
+                return VNumber.of((int) toLong(text), alarm, time, display);
+            case "VUShort":
+                return VNumber.of(new UShort((short) toLong(text)), alarm, time, display);
+            case "VShort":
+                return VNumber.of((short) toLong(text), alarm, time, display);
+            case "VUByte":
+                return VNumber.of(new UByte((byte) toLong(text)), alarm, time, display);
+            case "VByte":
+                return VNumber.of((byte) toLong(text), alarm, time, display);
+            case "VDoubleArray":
+            case "VFloatArray":
+            case "VULongArray":
+            case "VLongArray":
+            case "VUIntArray":
+            case "VIntArray":
+            case "VUShortArray":
+            case "VShortArray":
+            case "VUByteArray":
+            case "VByteArray":
+                return VNumberArray.of((ListNumber) resolveArray(arrayElementType(typeName)), alarm, time, display);
+            case "VString":
+                return VString.of(text, alarm, time);
+            case "VStringArray":
+                @SuppressWarnings("unchecked")
+                List<String> strings = (List<String>) resolveArray("string");
+                return VStringArray.of(strings, alarm, time);
+            case "VEnum":
+                return VEnum.of((int) toLong(text), EnumDisplay.of(labels), alarm, time);
+            case "VTable":
+                return buildTable();
+            default:
+                throw new UnsupportedOperationException("Not implemented yet");
+        }
+    }
+
+    private VTable buildTable() {
+        @SuppressWarnings("unchecked")
+        List<Object> columns = (List<Object>) resolveArray(null);
+        List<Class<?>> types = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            names.add(columnNames.get(i));
+            Class<?> clazz = VTypeToJsonV1.getClass(columnTypes.get(i));
+            types.add(clazz);
+            values.add(clazz == null ? Collections.emptyList() : columns.get(i));
+        }
+        return VTable.of(types, names, values);
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.vtype.json;
+
+import java.util.List;
+import javax.json.stream.JsonGenerator;
+import org.epics.util.array.ListBoolean;
+import org.epics.util.array.ListByte;
+import org.epics.util.array.ListFloat;
+import org.epics.util.array.ListInteger;
+import org.epics.util.array.ListLong;
+import org.epics.util.array.ListNumber;
+import org.epics.util.array.ListShort;
+import org.epics.util.array.ListUByte;
+import org.epics.util.array.ListUInteger;
+import org.epics.util.array.ListULong;
+import org.epics.util.array.ListUShort;
+import org.epics.util.number.UByte;
+import org.epics.util.number.UInteger;
+import org.epics.util.number.ULong;
+import org.epics.util.number.UShort;
+import org.epics.util.number.UnsignedConversions;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VStringArray;
+import org.epics.vtype.VTable;
+import org.epics.vtype.VType;
+
+/**
+ * Writes vTypes directly to a {@link JsonGenerator}, producing the same
+ * JSON as {@link VTypeToJsonV1} without building the object tree.
+ * Array elements are written straight from the lists, without boxing.
+ */
+class JsonVTypeWriter {
+
+    private final JsonGenerator generator;
+
+    JsonVTypeWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    void write(VType vType) {
+        if (vType instanceof VNumber) {
+            write((VNumber) vType);
+        } else if (vType instanceof VNumberArray) {
+            write((VNumberArray) vType);
+        } else if (vType instanceof VString) {
+            write((VString) vType);
+        } else if (vType instanceof VStringArray) {
+            write((VStringArray) vType);
+        } else if (vType instanceof VEnum) {
+            write((VEnum) vType);
+        } else if (vType instanceof VTable) {
+            write((VTable) vType);
+        } else {
+            throw new UnsupportedOperationException("Not implemented yet");
+        }
+    }
+
+    void write(VNumber vNumber) {
+        generator.writeStartObject();
+        writeType(vNumber);
+        writeNumber("value", vNumber.getValue());
+        writeAlarm(vNumber.getAlarm());
+        writeTime(vNumber.getTime());
+        writeDisplay(vNumber.getDisplay());
+        generator.writeEnd();
+    }
+
+    void write(VNumberArray vNumberArray) {
+        generator.writeStartObject();
+        writeType(vNumberArray);
+        generator.writeStartArray("value");
+        writeElements(vNumberArray.getData());
+        generator.writeEnd();
+        writeAlarm(vNumberArray.getAlarm());
+        writeTime(vNumberArray.getTime());
+        writeDisplay(vNumberArray.getDisplay());
+        generator.writeEnd();
+    }
+
+    void write(VString vString) {
+        generator.writeStartObject();
+        writeType(vString);
+        generator.write("value", vString.getValue());
+        writeAlarm(vString.getAlarm());
+        writeTime(vString.getTime());
+        generator.writeEnd();
+    }
+
+    void write(VStringArray vStringArray) {
+        generator.writeStartObject();
+        writeType(vStringArray);
+        writeListString("value", vStringArray.getData());
+        writeAlarm(vStringArray.getAlarm());
+        writeTime(vStringArray.getTime());
+        generator.writeEnd();
+    }
+
+    void write(VEnum vEnum) {
+        generator.writeStartObject();
+        writeType(vEnum);
+        generator.write("value", vEnum.getIndex());
+        writeAlarm(vEnum.getAlarm());
+        writeTime(vEnum.getTime());
+        generator.writeStartObject("enum");
+        writeListString("labels", vEnum.getDisplay().getChoices());
+        generator.writeEnd();
+        generator.writeEnd();
+    }
+
+    void write(VTable vTable) {
+        int columnCount = vTable.getColumnCount();
+        generator.writeStartObject();
+        writeType(vTable);
+        generator.write("columnCount", columnCount);
+        generator.writeStartArray("columnNames");
+        for (int i = 0; i < columnCount; i++) {
+            generator.write(vTable.getColumnName(i));
+        }
+        generator.writeEnd();
+        generator.writeStartArray("columnTypes");
+        for (int i = 0; i < columnCount; i++) {
+            generator.write(VTypeToJsonV1.getVTableDataType(vTable.getColumnData(i)));
+        }
+        generator.writeEnd();
+        generator.writeStartArray("value");
+        for (int i = 0; i < columnCount; i++) {
+            generator.writeStartArray();
+            writeColumn(vTable.getColumnData(i));
+            generator.writeEnd();
+        }
+        generator.writeEnd();
+        generator.writeEnd();
+    }
+
+    private void writeType(VType vType) {
+        generator.writeStartObject("type")
+                .write("name", VType.typeOf(vType).getSimpleName())
+                .write("version", 1)
+                .writeEnd();
+    }
+
+    private void writeAlarm(Alarm alarm) {
+        generator.writeStartObject("alarm")
+                .write("severity", alarm.getSeverity().toString())
+                .write("status", alarm.getStatus().toString())
+                .write("name", alarm.getName())
+                .writeEnd();
+    }
+
+    private void writeTime(Time time) {
+        generator.writeStartObject("time")
+                .write("unixSec", time.getTimestamp().getEpochSecond())
+                .write("nanoSec", time.getTimestamp().getNano());
+        if (time.getUserTag() != null) {
+            generator.write("userTag", time.getUserTag());
+        }
+        generator.writeEnd();
+    }
+
+    private void writeDisplay(Display display) {
+        generator.writeStartObject("display");
+        writeIgnoreNaNAndInfinity("lowAlarm", display.getAlarmRange().getMinimum());
+        writeIgnoreNaNAndInfinity("highAlarm", display.getAlarmRange().getMaximum());
+        writeIgnoreNaNAndInfinity("lowDisplay", display.getDisplayRange().getMinimum());
+        writeIgnoreNaNAndInfinity("highDisplay", display.getDisplayRange().getMaximum());
+        writeIgnoreNaNAndInfinity("lowWarning", display.getWarningRange().getMinimum());
+        writeIgnoreNaNAndInfinity("highWarning", display.getWarningRange().getMaximum());
+        generator.write("units", display.getUnit());
+        if (display.getDescription() != null) {
+            generator.write("description", display.getDescription());
+        }
+        generator.writeEnd();
+    }
+
+    private void writeIgnoreNaNAndInfinity(String name, double value) {
+        if (Double.isFinite(value)) {
+            generator.write(name, value);
+        }
+    }
+
+    private void writeNumber(String name, Number value) {
+        if (value instanceof Double || value instanceof Float) {
+            double doubleValue = value.doubleValue();
+            if (Double.isFinite(doubleValue)) {
+                generator.write(name, doubleValue);
+            } else {
+                generator.write(name, nonFiniteString(doubleValue));
+            }
+        } else if (value instanceof Integer || value instanceof UShort || value instanceof Short || value instanceof UByte || value instanceof Byte) {
+            generator.write(name, value.intValue());
+        } else if (value instanceof Long || value instanceof UInteger) {
+            generator.write(name, value.longValue());
+        } else if (value instanceof ULong) {
+            generator.write(name, ((ULong) value).bigIntegerValue());
+        } else {
+            throw new UnsupportedOperationException("Class " + value.getClass() + " not supported");
+        }
+    }
+
+    private static String nonFiniteString(double value) {
+        if (Double.isNaN(value)) {
+            return VTypeJsonMapper.NAN;
+        } else if (value > 0) {
+            return VTypeJsonMapper.POS_INF;
+        } else {
+            return VTypeJsonMapper.NEG_INF;
+        }
+    }
+
+    /**
+     * Writes the elements of the list in the current array.
+     *
+     * @param list a list of numbers
+     */
+    void writeElements(ListNumber list) {
+        int size = list.size();
+        if (list instanceof ListInteger || list instanceof ListUShort || list instanceof ListShort || list instanceof ListUByte || list instanceof ListByte) {
+            for (int i = 0; i < size; i++) {
+                generator.write(list.getInt(i));
+            }
+        } else if (list instanceof ListLong || list instanceof ListUInteger) {
+            for (int i = 0; i < size; i++) {
+                generator.write(list.getLong(i));
+            }
+        } else if (list instanceof ListULong) {
+            for (int i = 0; i < size; i++) {
+                generator.write(UnsignedConversions.toBigInteger(list.getLong(i)));
+            }
+        } else if (list instanceof ListFloat) {
+            for (int i = 0; i < size; i++) {
+                // Widened to double, as done by the object tree
+                double value = list.getFloat(i);
+                if (Double.isFinite(value)) {
+                    generator.write(value);
+                } else {
+                    generator.write(nonFiniteString(value));
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                double value = list.getDouble(i);
+                if (Double.isFinite(value)) {
+                    generator.write(value);
+                } else {
+                    generator.write(nonFiniteString(value));
+                }
+            }
+        }
+    }
+
+    private void writeListString(String name, List<String> list) {
+        generator.writeStartArray(name);
+        writeStrings(list);
+        generator.writeEnd();
+    }
+
+    private void writeStrings(List<?> list) {
+        for (Object element : list) {
+            // TODO: Not clear how to handle nulls. Converting them to empty strings.
+            generator.write(element == null ? "" : element.toString());
+        }
+    }
+
+    private void writeColumn(Object data) {
+        if (data instanceof ListNumber) {
+            writeElements((ListNumber) data);
+        } else if (data instanceof ListBoolean) {
+            ListBoolean list = (ListBoolean) data;
+            for (int i = 0; i < list.size(); i++) {
+                generator.write(list.getBoolean(i));
+            }
+        } else if (data instanceof List) {
+            writeStrings((List<?>) data);
+        }
+    }
+}
@@ -4,18 +4,33 @@
  */
 package org.epics.vtype.json;
 
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collections;
+import javax.json.Json;
 import javax.json.JsonObject;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
 import org.epics.vtype.VType;
 
 /**
  * Utility to serialize and de-serialize vTypes to and from JSON objects.
  * These methods convert vTypes to and from standard JSONP objects. One
  * can then use the standard library to serialize/de-serialize text streams.
+ * <p>
+ * The methods taking a generator, parser or character stream read and write
+ * the same JSON directly, without building the JSONP object tree. These
+ * are preferable when converting many values or large arrays.
  * 
  * @author carcassi
  */
 public class VTypeToJson {
 
+    private static final JsonGeneratorFactory generatorFactory = Json.createGeneratorFactory(Collections.<String, Object>emptyMap());
+    private static final JsonParserFactory parserFactory = Json.createParserFactory(Collections.<String, Object>emptyMap());
+
     /**
      * Converts the given JsonObject to a vType.
      * 
@@ -35,4 +50,52 @@ public class VTypeToJson {
     public static JsonObject toJson(VType vType) {
         return VTypeToJsonV1.toJson(vType);
     }
+
+    /**
+     * Reads the next JSON object from the parser and converts it to a vType.
+     * The parser can be positioned within a larger document, e.g. an
+     * array of values.
+     * 
+     * @param parser a JSON parser
+     * @return the corresponding vType
+     */
+    public static VType toVType(JsonParser parser) {
+        return new JsonVTypeReader(parser).read();
+    }
+
+    /**
+     * Reads a JSON object from the stream and converts it to a vType.
+     * The stream is not closed.
+     * 
+     * @param reader a character stream
+     * @return the corresponding vType
+     */
+    public static VType toVType(Reader reader) {
+        return toVType(parserFactory.createParser(reader));
+    }
+
+    /**
+     * Writes the given vType to the generator, as a JSON object.
+     * The generator can be within a larger document, e.g. an
+     * array of values.
+     * 
+     * @param vType a vType
+     * @param generator a JSON generator
+     */
+    public static void toJson(VType vType, JsonGenerator generator) {
+        new JsonVTypeWriter(generator).write(vType);
+    }
+
+    /**
+     * Writes the given vType to the stream, as a JSON object.
+     * The stream is flushed, but not closed.
+     * 
+     * @param vType a vType
+     * @param writer a character stream
+     */
+    public static void toJson(VType vType, Writer writer) {
+        JsonGenerator generator = generatorFactory.createGenerator(writer);
+        toJson(vType, generator);
+        generator.flush();
+    }
 }
@@ -7,7 +7,11 @@ package org.epics.vtype.json;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.time.Instant;
 import java.util.*;
@@ -16,6 +20,7 @@ import javax.json.JsonObject;
 import javax.json.JsonReader;
 import javax.json.JsonWriter;
 import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonParser;
 
 import org.epics.util.array.*;
 import org.epics.util.number.UByte;
@@ -43,6 +48,9 @@ public class VTypeToJsonTest {
     public static void testSerialization(VType value, String expectedJsonFileName) {
         JsonObject json = VTypeToJson.toJson(value);
         
+        // The streaming writer must produce the same JSON
+        assertThat(readJson(toJsonString(value)), equalTo(json));
+
         boolean success = false;
         try {
             JsonObject reference = loadJson(expectedJsonFileName + ".json");
@@ -69,6 +77,24 @@ public class VTypeToJsonTest {
     public static void testDeserialization(String jsonFileName, VType expected) {
         VType actual = VTypeToJson.toVType(loadJson(jsonFileName + ".json"));
         assertThat(actual, equalTo(expected));
+
+        try (Reader reader = new InputStreamReader(VTypeToJsonTest.class.getResourceAsStream(jsonFileName + ".json"), StandardCharsets.UTF_8)) {
+            assertThat(VTypeToJson.toVType(reader), equalTo(expected));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    public static String toJsonString(VType value) {
+        StringWriter writer = new StringWriter();
+        VTypeToJson.toJson(value, writer);
+        return writer.toString();
+    }
+
+    public static JsonObject readJson(String json) {
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            return reader.readObject();
+        }
     }
     
     public static JsonObject loadJson(String jsonFile) {
@@ -429,6 +455,16 @@ public class VTypeToJsonTest {
             assertEquals(vTable.getColumnData(i), deserialized.getColumnData(i));
         }
 
+        // Same with the streaming writer and reader
+        assertThat(readJson(toJsonString(vTable)), equalTo(jsonObject));
+        VTable streamed = (VTable) VTypeToJson.toVType(new StringReader(toJsonString(vTable)));
+        assertEquals(vTable.getColumnCount(), streamed.getColumnCount());
+        for(int i = 0; i < streamed.getColumnCount(); i++){
+            assertEquals(vTable.getColumnName(i), streamed.getColumnName(i));
+            assertEquals(vTable.getColumnType(i), streamed.getColumnType(i));
+            assertEquals(vTable.getColumnData(i), streamed.getColumnData(i));
+        }
+
         // Compare data array lengths and elements
         ArrayBoolean deserializedBoolValues = (ArrayBoolean) deserialized.getColumnData(0);
         boolean[] deserializedBools = new boolean[deserializedBoolValues.size()];
@@ -497,4 +533,33 @@ public class VTypeToJsonTest {
         deserializedEmptyLongValues.toArray(deserializedEmptyLongs);
         assertArrayEquals(emptyLongs, deserializedEmptyLongs);
     }
+
+    @Test
+    public void streamingValueBeforeType() {
+        VType value = VTypeToJson.toVType(new StringReader("{\"value\":[1,2.5,\"NaN\"],\"extra\":{\"a\":[1,{\"b\":2}]},"
+                + "\"type\":{\"name\":\"VDoubleArray\",\"version\":1},"
+                + "\"alarm\":{\"severity\":\"NONE\",\"status\":\"NONE\",\"name\":\"None\"},"
+                + "\"time\":{\"unixSec\":0,\"nanoSec\":0},\"display\":{\"units\":\"\"}}"));
+        assertThat(value, equalTo(VDoubleArray.of(ArrayDouble.of(1, 2.5, Double.NaN), Alarm.none(), Time.of(Instant.ofEpochSecond(0, 0)), Display.none())));
+    }
+
+    @Test
+    public void streamingMultipleValues() {
+        VDouble value1 = VDouble.of(Double.NaN, Alarm.none(), Time.of(Instant.ofEpochSecond(0, 0)), Display.none());
+        VDoubleArray value2 = VDoubleArray.of(ArrayDouble.of(1, Double.POSITIVE_INFINITY), Alarm.none(), Time.of(Instant.ofEpochSecond(1, 0)), Display.none());
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = Json.createGenerator(writer)) {
+            generator.writeStartArray();
+            VTypeToJson.toJson(value1, generator);
+            VTypeToJson.toJson(value2, generator);
+            generator.writeEnd();
+        }
+
+        try (JsonParser parser = Json.createParser(new StringReader(writer.toString()))) {
+            assertThat(parser.next(), equalTo(JsonParser.Event.START_ARRAY));
+            assertThat(VTypeToJson.toVType(parser), equalTo((VType) value1));
+            assertThat(VTypeToJson.toVType(parser), equalTo((VType) value2));
+            assertThat(parser.next(), equalTo(JsonParser.Event.END_ARRAY));
+        }
+    }
 }
@@ -84,15 +84,26 @@ abstract public class CATypeAdapter implements DataSourceTypeAdapter<CAConnectio
 
     @Override
     public void updateCache(ReadCollector cache, CAConnectionPayload connection, CAMessagePayload message) {
-        Channel channel = connection.getChannel();
+        Object value = convert(connection, message);
+        if (value != NO_UPDATE)
+            cache.updateValue(value);
+    }
+
+    @Override
+    public boolean isConversionShared() {
+        // values do not depend on the cache, the same value can be given to all readers
+        return true;
+    }
+
+    @Override
+    public Object convert(CAConnectionPayload connection, CAMessagePayload message) {
         // If metadata is required and not present, no update
         if (epicsMetaType != null && message.getMetadata() == null)
-            return;
+            return NO_UPDATE;
         // If value is not present, no update
         if (message.getEvent() == null)
-            return;
-        cache.updateValue(createValue(message.getEvent().getDBR(), message.getMetadata(), connection));
-        return;
+            return NO_UPDATE;
+        return createValue(message.getEvent().getDBR(), message.getMetadata(), connection);
     }
 
     /**
@@ -6,8 +6,6 @@ package org.epics.gpclient;
 
 import java.time.Duration;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -20,31 +18,54 @@ import java.util.function.Consumer;
  */
 class ActiveRateDecoupler extends RateDecoupler {
     
-    private volatile ScheduledFuture<?> scanTaskHandle;
+    private volatile TimerWheel.Timeout scanTaskHandle;
+    private volatile boolean started;
 
     public ActiveRateDecoupler(ScheduledExecutorService scannerExecutor,
             Duration maxDuration, Consumer<PVEvent> listener, Consumer<Exception> exceptionHandler) {
         super(scannerExecutor, maxDuration, listener, exceptionHandler);
     }
 
-    @Override
-    void onStart() {
-        scanTaskHandle = getScannerExecutor().scheduleWithFixedDelay(new Runnable() {
+    public ActiveRateDecoupler(TimerWheel timerWheel,
+            Duration maxDuration, Consumer<PVEvent> listener, Consumer<Exception> exceptionHandler) {
+        super(timerWheel, maxDuration, listener, exceptionHandler);
+    }
+    
+    // Fixed delay scan: the next scan is scheduled on the wheel after
+    // the current one is done
+    private final Runnable scanTask = new Runnable() {
 
-            @Override
-            public void run() {
-                if (!isStopped() && !isPaused() && !isEventProcessing()) {
+        @Override
+        public void run() {
+            if (isStopped()) {
+                return;
+            }
+            try {
+                if (!isPaused() && !isEventProcessing()) {
                     PVEvent event = PVEvent.readConnectionValueEvent();
                     sendDesiredRateEvent(event);
                 }
+            } finally {
+                if (!isStopped()) {
+                    scanTaskHandle = getTimerWheel().schedule(this, getMaxDuration());
+                }
             }
-        }, 0, getMaxDuration().toNanos(), TimeUnit.NANOSECONDS);
+        }
+    };
+
+    @Override
+    void onStart() {
+        started = true;
+        getScannerExecutor().execute(scanTask);
     }
 
     @Override
     void onStop() {
-        if (scanTaskHandle != null) {
-            scanTaskHandle.cancel(false);
+        if (started) {
+            TimerWheel.Timeout handle = scanTaskHandle;
+            if (handle != null) {
+                handle.cancel();
+            }
             scanTaskHandle = null;
         } else {
             throw new IllegalStateException("Scan was never started");
@@ -4,57 +4,133 @@
  */
 package org.epics.gpclient;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
 /**
  * A collector that queues all the values.
+ * <p>
+ * By default the queue is unbounded. If a maximum size is given, the values
+ * that do not fit are handled according to the {@link QueueOverflowPolicy}.
  *
  * @param <T> the type stored in the collector
  * @author carcassi
  */
 class AllValuesCollector<T> extends ReadCollector<T, List<T>> {
     
-    private List<T> currentValues = new ArrayList<>();
+    private final int maxSize;
+    private final QueueOverflowPolicy overflowPolicy;
+    private ArrayDeque<T> currentValues;
+    private boolean overflowNotified = false;
+    private long overflowCount = 0;
 
     public AllValuesCollector(Class<T> type) {
+        this(type, Integer.MAX_VALUE, QueueOverflowPolicy.DROP_OLDEST);
+    }
+
+    public AllValuesCollector(Class<T> type, int maxSize, QueueOverflowPolicy overflowPolicy) {
         super(type);
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be at least 1 (was " + maxSize + ")");
+        }
+        if (overflowPolicy == null) {
+            throw new NullPointerException("Overflow policy can't be null");
+        }
+        this.maxSize = maxSize;
+        this.overflowPolicy = overflowPolicy;
+        this.currentValues = new ArrayDeque<>(Math.min(maxSize, 16));
     }
 
     @Override
     public List<T> getValue() {
+        ArrayDeque<T> values;
         synchronized (lock) {
-            List<T> values = currentValues;
-            currentValues = new ArrayList<>();
-            return values;
+            overflowNotified = false;
+            if (currentValues.isEmpty()) {
+                return new ArrayList<>();
+            }
+            // Detach the queue, so that it can be copied without holding the lock
+            values = currentValues;
+            currentValues = new ArrayDeque<>(Math.min(maxSize, 16));
+        }
+        return new ArrayList<>(values);
+    }
+
+    /**
+     * Adds the value to the queue. Must be called holding the lock.
+     * 
+     * @param newValue the new value
+     * @return the error to notify; null if none
+     */
+    private Exception add(T newValue) {
+        if (currentValues.size() < maxSize) {
+            currentValues.add(newValue);
+            return null;
+        }
+        
+        overflowCount++;
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                currentValues.pollFirst();
+                currentValues.add(newValue);
+                return null;
+            case COALESCE:
+                currentValues.pollLast();
+                currentValues.add(newValue);
+                return null;
+            default:
+                if (overflowNotified) {
+                    return null;
+                }
+                overflowNotified = true;
+                return new QueueOverflowException("Queue full (" + maxSize + " values): new values are discarded until the queue is read");
         }
     }
 
     @Override
     public void updateValue(T newValue) {
         Consumer<PVEvent> listener;
+        Exception error;
         synchronized (lock) {
-            currentValues.add(newValue);
+            error = add(newValue);
             listener = collectorListener;
         }
         // Run the task without holding the lock
         if (listener != null) {
-            listener.accept(PVEvent.valueEvent());
+            listener.accept(error == null ? PVEvent.valueEvent() : PVEvent.exceptionEvent(error));
         }
     }
 
     @Override
     public void updateValueAndConnection(T newValue, boolean newConnection) {
         Consumer<PVEvent> listener;
+        Exception error;
         synchronized (lock) {
-            currentValues.add(newValue);
+            error = add(newValue);
             connection = newConnection;
             listener = collectorListener;
         }
         // Run the task without holding the lock
         if (listener != null) {
-            listener.accept(PVEvent.readConnectionValueEvent());
+            PVEvent event = PVEvent.readConnectionValueEvent();
+            if (error != null) {
+                event = event.addEvent(PVEvent.exceptionEvent(error));
+            }
+            listener.accept(event);
+        }
+    }
+
+    /**
+     * The number of values that did not fit in the queue since the
+     * collector was created.
+     * 
+     * @return the number of overflows
+     */
+    long getOverflowCount() {
+        synchronized (lock) {
+            return overflowCount;
         }
     }
     
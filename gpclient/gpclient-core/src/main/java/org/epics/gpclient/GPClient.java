@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import org.epics.gpclient.datasource.DataSourceProvider;
+import org.epics.vtype.VNumber;
 import org.epics.vtype.VType;
 
 /**
@@ -122,6 +123,42 @@ public class GPClient {
         return new AllValuesCollector<>(readType);
     }
 
+    /**
+     * Return all the values queued from the last update, keeping at most
+     * the given number of values.
+     * <p>
+     * In case of data bursts (i.e. data coming in at rate faster than the
+     * reader can handle) this strategy will combine the notifications and
+     * return all the values that fit in the queue. The values that do not
+     * fit are handled according to the overflow policy, so that memory
+     * stays bounded regardless of the rate of the channel.
+     * 
+     * @param <R> the type to read
+     * @param readType the type to read
+     * @param maxSize the maximum number of values queued
+     * @param overflowPolicy what to do with new values when the queue is full
+     * @return the caching strategy
+     */
+    public static <R> ReadCollector<R, List<R>> queueAllValues(Class<R> readType, int maxSize, QueueOverflowPolicy overflowPolicy) {
+        return new AllValuesCollector<>(readType, maxSize, overflowPolicy);
+    }
+
+    /**
+     * Return all the numeric samples queued from the last update, keeping
+     * at most the given number of samples.
+     * <p>
+     * Same as {@link #queueAllValues(java.lang.Class, int, org.epics.gpclient.QueueOverflowPolicy) },
+     * but values and timestamps are stored in primitive arrays, which
+     * avoids retaining one object per sample on high rate channels.
+     * 
+     * @param maxSize the maximum number of samples queued
+     * @param overflowPolicy what to do with new samples when the queue is full
+     * @return the caching strategy
+     */
+    public static ReadCollector<VNumber, NumberSamples> queueAllNumbers(int maxSize, QueueOverflowPolicy overflowPolicy) {
+        return new NumberValuesCollector(maxSize, overflowPolicy);
+    }
+
     /**
      * A write buffer for the the given type.
      * 
@@ -20,6 +20,7 @@ public class GPClientConfiguration {
     DataSource defaultDataSource;
     ScheduledExecutorService dataProcessingThreadPool;
     Duration defaultMaxRate;
+    int parallelDispatchMinReaders;
     
     /**
      * Sets the default executor on which all notifications are going to be posted.
@@ -70,6 +71,23 @@ public class GPClientConfiguration {
         return this;
     }
     
+    /**
+     * Enables the parallel dispatch of the messages of channels with at
+     * least the given number of readers. The readers are then updated
+     * by multiple tasks on the data processing thread pool, instead of only
+     * on the thread that receives the message. By default, it is disabled.
+     *
+     * @param minReaders the minimum number of readers of a channel for the dispatch to be parallel
+     * @return this configuration
+     */
+    public GPClientConfiguration parallelDispatch(int minReaders) {
+        if (minReaders < 1) {
+            throw new IllegalArgumentException("Minimum number of readers must be positive (was " + minReaders + ")");
+        }
+        this.parallelDispatchMinReaders = minReaders;
+        return this;
+    }
+    
     private void validateConfiguration() {
         
     }
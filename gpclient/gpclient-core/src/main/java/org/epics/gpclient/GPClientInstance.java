@@ -27,15 +27,20 @@ import static org.epics.gpclient.GPClient.*;
 public class GPClientInstance {
     
     final ScheduledExecutorService dataProcessingThreadPool;
+    final TimerWheel scannerTimerWheel;
     final DataSource defaultDataSource;
     final Duration defaultMaxRate;
     final Executor defaultNotificationExecutor;
 
     GPClientInstance(GPClientConfiguration config) {
         this.dataProcessingThreadPool = config.dataProcessingThreadPool;
+        this.scannerTimerWheel = new TimerWheel(dataProcessingThreadPool);
         this.defaultDataSource = config.defaultDataSource;
         this.defaultMaxRate = config.defaultMaxRate;
         this.defaultNotificationExecutor = config.defaultNotificationExecutor;
+        if (config.parallelDispatchMinReaders > 0) {
+            this.defaultDataSource.setParallelDispatch(dataProcessingThreadPool, config.parallelDispatchMinReaders);
+        }
     }
     
     /**
@@ -0,0 +1,69 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import org.epics.util.array.ListDouble;
+import org.epics.util.array.ListLong;
+import org.epics.vtype.VNumber;
+
+/**
+ * The numeric samples queued by a channel since the last read, stored
+ * as primitive arrays. The alarm and display of the samples can be
+ * taken from the latest value.
+ */
+public final class NumberSamples {
+    
+    private final ListDouble values;
+    private final ListLong timestamps;
+    private final VNumber lastValue;
+    private final long overflowCount;
+
+    NumberSamples(ListDouble values, ListLong timestamps, VNumber lastValue, long overflowCount) {
+        this.values = values;
+        this.timestamps = timestamps;
+        this.lastValue = lastValue;
+        this.overflowCount = overflowCount;
+    }
+
+    /**
+     * The values of the samples, oldest first.
+     * 
+     * @return the values; can't be null
+     */
+    public ListDouble getValues() {
+        return values;
+    }
+
+    /**
+     * The timestamps of the samples, in nanoseconds from the epoch
+     * (1970-01-01T00:00:00Z). Same size as the values.
+     * 
+     * @return the timestamps; can't be null
+     */
+    public ListLong getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * The latest value received, which may have already been returned
+     * in a previous read.
+     * 
+     * @return the latest value; null if no value was received
+     */
+    public VNumber getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * The number of samples that did not fit in the queue since the
+     * collector was created (see {@link QueueOverflowPolicy}).
+     * 
+     * @return the number of samples lost or coalesced
+     */
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+    
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+import org.epics.util.array.CircularBufferDouble;
+import org.epics.util.array.CircularBufferLong;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.vtype.VNumber;
+
+/**
+ * A bounded collector that queues numeric values in primitive circular
+ * buffers, so that no object is retained per sample. Only the latest
+ * value is kept as a {@link VNumber}, for alarm and display.
+ */
+class NumberValuesCollector extends ReadCollector<VNumber, NumberSamples> {
+    
+    private final int maxSize;
+    private final QueueOverflowPolicy overflowPolicy;
+    private CircularBufferDouble values;
+    private CircularBufferLong timestamps;
+    private VNumber lastValue;
+    private boolean overflowNotified = false;
+    private long overflowCount = 0;
+
+    public NumberValuesCollector(int maxSize, QueueOverflowPolicy overflowPolicy) {
+        super(VNumber.class);
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be at least 1 (was " + maxSize + ")");
+        }
+        if (overflowPolicy == null) {
+            throw new NullPointerException("Overflow policy can't be null");
+        }
+        this.maxSize = maxSize;
+        this.overflowPolicy = overflowPolicy;
+        this.values = new CircularBufferDouble(maxSize);
+        this.timestamps = new CircularBufferLong(maxSize);
+    }
+
+    @Override
+    public NumberSamples getValue() {
+        CircularBufferDouble oldValues;
+        CircularBufferLong oldTimestamps;
+        VNumber latest;
+        long overflows;
+        synchronized (lock) {
+            overflowNotified = false;
+            latest = lastValue;
+            overflows = overflowCount;
+            if (values.size() == 0) {
+                return new NumberSamples(CollectionNumbers.unmodifiableListDouble(new double[0]),
+                        CollectionNumbers.unmodifiableListLong(new long[0]), latest, overflows);
+            }
+            // Detach the buffers, so that they can be copied without holding the lock
+            oldValues = values;
+            oldTimestamps = timestamps;
+            values = new CircularBufferDouble(maxSize);
+            timestamps = new CircularBufferLong(maxSize);
+        }
+        double[] newValues = new double[oldValues.size()];
+        long[] newTimestamps = new long[oldTimestamps.size()];
+        CollectionNumbers.arrayCopy(oldValues, newValues, 0);
+        CollectionNumbers.arrayCopy(oldTimestamps, newTimestamps, 0);
+        return new NumberSamples(CollectionNumbers.unmodifiableListDouble(newValues),
+                CollectionNumbers.unmodifiableListLong(newTimestamps), latest, overflows);
+    }
+    
+    private static long toEpochNanos(Instant timestamp) {
+        return timestamp.getEpochSecond() * 1000000000L + timestamp.getNano();
+    }
+
+    /**
+     * Adds the value to the buffers. Must be called holding the lock.
+     * 
+     * @param newValue the new value
+     * @return the error to notify; null if none
+     */
+    private Exception add(VNumber newValue) {
+        // A null value (e.g. on disconnect) is not a sample
+        if (newValue == null) {
+            return null;
+        }
+        
+        lastValue = newValue;
+        double value = newValue.getValue().doubleValue();
+        long timestamp = toEpochNanos(newValue.getTime().getTimestamp());
+        if (values.size() < maxSize) {
+            values.addDouble(value);
+            timestamps.addLong(timestamp);
+            return null;
+        }
+        
+        overflowCount++;
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                // Full circular buffers replace the oldest value
+                values.addDouble(value);
+                timestamps.addLong(timestamp);
+                return null;
+            case COALESCE:
+                values.setLastDouble(value);
+                timestamps.setLastLong(timestamp);
+                return null;
+            default:
+                if (overflowNotified) {
+                    return null;
+                }
+                overflowNotified = true;
+                return new QueueOverflowException("Queue full (" + maxSize + " samples): new samples are discarded until the queue is read");
+        }
+    }
+
+    @Override
+    public void updateValue(VNumber newValue) {
+        Consumer<PVEvent> listener;
+        Exception error;
+        synchronized (lock) {
+            error = add(newValue);
+            listener = collectorListener;
+        }
+        // Run the task without holding the lock
+        if (listener != null) {
+            listener.accept(error == null ? PVEvent.valueEvent() : PVEvent.exceptionEvent(error));
+        }
+    }
+
+    @Override
+    public void updateValueAndConnection(VNumber newValue, boolean newConnection) {
+        Consumer<PVEvent> listener;
+        Exception error;
+        synchronized (lock) {
+            error = add(newValue);
+            connection = newConnection;
+            listener = collectorListener;
+        }
+        // Run the task without holding the lock
+        if (listener != null) {
+            PVEvent event = PVEvent.readConnectionValueEvent();
+            if (error != null) {
+                event = event.addEvent(PVEvent.exceptionEvent(error));
+            }
+            listener.accept(event);
+        }
+    }
+    
+}
@@ -53,6 +53,7 @@ public class PVDirector<R, W> {
     final Executor notificationExecutor;
     /** Executor used to scan the connection/exception queues */
     final ScheduledExecutorService scannerExecutor;
+    final TimerWheel scannerTimerWheel;
     /** PVReader to update during the notification */
     private final WeakReference<PVImpl<R, W>> pvRef;
     /** Function for the new value */
@@ -245,6 +246,7 @@ public class PVDirector<R, W> {
         }
         this.notificationExecutor = pvConf.notificationExecutor;
         this.scannerExecutor = pvConf.gpClient.dataProcessingThreadPool;
+        this.scannerTimerWheel = pvConf.gpClient.scannerTimerWheel;
         this.dataSource = pvConf.dataSource;
         this.maxRate = pvConf.maxRate;
         if (pvConf.connectionTimeout != null) {
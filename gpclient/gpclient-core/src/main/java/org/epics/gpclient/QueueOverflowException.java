@@ -0,0 +1,32 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+/**
+ * Exception notified when a bounded queue collector, using the
+ * {@link QueueOverflowPolicy#FAIL_FAST} policy, had to discard values.
+ */
+public class QueueOverflowException extends RuntimeException {
+
+    /**
+     * Creates a new exception with the given message.
+     * 
+     * @param message the message
+     */
+    public QueueOverflowException(String message) {
+        super(message);
+    }
+
+    /**
+     * Creates a new exception with the given message and cause.
+     * 
+     * @param message the message
+     * @param cause the cause
+     */
+    public QueueOverflowException(String message, Throwable cause) {
+        super(message, cause);
+    }
+    
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+/**
+ * What a bounded queue collector does with a new value when the queue
+ * is already full (i.e. the reader is slower than the channel).
+ * <p>
+ * Whatever the policy, each value that does not fit is counted as an
+ * overflow. The overflow count is cumulative: it is the number of overflows
+ * since the collector was created, and it is not reset when the queue is read.
+ */
+public enum QueueOverflowPolicy {
+
+    /**
+     * The oldest value in the queue is discarded to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new value replaces the latest value in the queue.
+     */
+    COALESCE,
+
+    /**
+     * The new value is discarded and a {@link QueueOverflowException} is
+     * notified, once until the queue is read again.
+     */
+    FAIL_FAST
+
+}
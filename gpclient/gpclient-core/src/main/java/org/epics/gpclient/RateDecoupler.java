@@ -21,7 +21,7 @@ abstract class RateDecoupler {
     private static final Logger log = Logger.getLogger(RateDecoupler.class.getName());
     private final Consumer<PVEvent> listener;
     private final Consumer<Exception> exceptionHandler;
-    private final ScheduledExecutorService scannerExecutor;
+    private final TimerWheel timerWheel;
     private final Duration maxDuration;
     
     protected final Object lock = new Object();
@@ -31,7 +31,8 @@ abstract class RateDecoupler {
 
     /**
      * Creates a new rate decoupler that will send the events to the
-     * given listener.
+     * given listener. The delayed scanner tasks are scheduled on a timer wheel
+     * used only by this decoupler.
      * 
      * @param scannerExecutor executor for the scanner tasks
      * @param maxDuration max interval between notifications
@@ -40,14 +41,33 @@ abstract class RateDecoupler {
      */
     public RateDecoupler(ScheduledExecutorService scannerExecutor, Duration maxDuration,
             Consumer<PVEvent> listener, Consumer<Exception> exceptionHandler) {
+        this(new TimerWheel(scannerExecutor), maxDuration, listener, exceptionHandler);
+    }
+
+    /**
+     * Creates a new rate decoupler that will send the events to the
+     * given listener.
+     * 
+     * @param timerWheel timer wheel, typically shared by all the decouplers,
+     * for the delayed scanner tasks
+     * @param maxDuration max interval between notifications
+     * @param listener the event callback
+     * @param exceptionHandler the exception handler
+     */
+    public RateDecoupler(TimerWheel timerWheel, Duration maxDuration,
+            Consumer<PVEvent> listener, Consumer<Exception> exceptionHandler) {
         this.listener = listener;
         this.exceptionHandler = exceptionHandler;
-        this.scannerExecutor = scannerExecutor;
+        this.timerWheel = timerWheel;
         this.maxDuration = maxDuration;
     }
 
     public ScheduledExecutorService getScannerExecutor() {
-        return scannerExecutor;
+        return timerWheel.getExecutor();
+    }
+
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
     }
 
     public Duration getMaxDuration() {
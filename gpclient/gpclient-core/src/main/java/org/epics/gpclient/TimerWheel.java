@@ -0,0 +1,246 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timer wheel that schedules delayed tasks on top of a
+ * {@link ScheduledExecutorService}, so that many pvs can share a single
+ * periodic task instead of scheduling one future each.
+ * <p>
+ * The time is divided in ticks. All the tasks due in the same tick are
+ * dispatched together, in batches, on the executor. A task is executed
+ * at most one tick after its delay has elapsed. The periodic task only
+ * runs while there are tasks scheduled.
+ * <p>
+ * A wheel with a zero tick does not coalesce: each task is scheduled
+ * directly on the executor.
+ */
+class TimerWheel {
+
+    private static final Logger log = Logger.getLogger(TimerWheel.class.getName());
+
+    // Number of buckets, must be a power of two
+    private static final int WHEEL_SIZE = 512;
+    // Maximum number of due tasks executed by a single executor task
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * A task scheduled in the wheel.
+     */
+    final class Timeout {
+
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> future;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancels the task, if it was not executed yet.
+         */
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> currentFuture = future;
+            if (currentFuture != null) {
+                currentFuture.cancel(false);
+            }
+        }
+
+        /**
+         * Whether the task was cancelled.
+         *
+         * @return true if cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+    }
+
+    private final ScheduledExecutorService executor;
+    private final long tickNanos;
+    private final Object lock = new Object();
+    private final List<Timeout>[] buckets;
+    private long startNanos;
+    private long currentTick;
+    private int pending;
+    private ScheduledFuture<?> tickTask;
+    private long dispatchCount;
+
+    /**
+     * Creates a new timer wheel with a 1 ms tick.
+     *
+     * @param executor the executor for the periodic task and for the due tasks
+     */
+    TimerWheel(ScheduledExecutorService executor) {
+        this(executor, Duration.ofMillis(1));
+    }
+
+    /**
+     * Creates a new timer wheel.
+     *
+     * @param executor the executor for the periodic task and for the due tasks
+     * @param tick the resolution of the wheel; zero to schedule each task on the executor
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(ScheduledExecutorService executor, Duration tick) {
+        if (executor == null) {
+            throw new NullPointerException("Executor can't be null");
+        }
+        if (tick.isNegative()) {
+            throw new IllegalArgumentException("Tick can't be negative (was " + tick + ")");
+        }
+        this.executor = executor;
+        this.tickNanos = tick.toNanos();
+        this.buckets = new List[WHEEL_SIZE];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+    }
+
+    /**
+     * The executor on which the tasks are run.
+     *
+     * @return the executor
+     */
+    ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Schedules the task to run after the given delay.
+     *
+     * @param task the task
+     * @param delay the delay
+     * @return the handle to cancel the task
+     */
+    Timeout schedule(Runnable task, Duration delay) {
+        long delayNanos = delay.toNanos();
+        if (tickNanos == 0) {
+            Timeout timeout = new Timeout(task, 0);
+            timeout.future = executor.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+            return timeout;
+        }
+
+        synchronized (lock) {
+            long now = System.nanoTime();
+            if (tickTask == null) {
+                // Restart the clock
+                startNanos = now;
+                currentTick = 0;
+                tickTask = executor.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+            }
+
+            // Round up, so that the task is never executed early
+            long deadlineTick = Math.max(currentTick + 1, (now - startNanos + Math.max(0, delayNanos) + tickNanos - 1) / tickNanos);
+            Timeout timeout = new Timeout(task, deadlineTick);
+            buckets[(int) (deadlineTick & (WHEEL_SIZE - 1))].add(timeout);
+            pending++;
+            return timeout;
+        }
+    }
+
+    private void tick() {
+        List<Timeout> due = new ArrayList<>();
+        synchronized (lock) {
+            long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+            // If the executor was late, catch up on all the ticks missed
+            // (each bucket needs to be visited only once)
+            long nTicks = Math.min(targetTick - currentTick, WHEEL_SIZE);
+            for (long i = 1; i <= nTicks; i++) {
+                List<Timeout> bucket = buckets[(int) ((currentTick + i) & (WHEEL_SIZE - 1))];
+                // Compact the bucket, keeping the timeouts of later rounds
+                int kept = 0;
+                for (int n = 0; n < bucket.size(); n++) {
+                    Timeout timeout = bucket.get(n);
+                    if (timeout.deadlineTick <= targetTick) {
+                        pending--;
+                        if (!timeout.cancelled) {
+                            due.add(timeout);
+                        }
+                    } else {
+                        bucket.set(kept, timeout);
+                        kept++;
+                    }
+                }
+                bucket.subList(kept, bucket.size()).clear();
+            }
+            currentTick = Math.max(currentTick, targetTick);
+
+            if (pending == 0 && tickTask != null) {
+                tickTask.cancel(false);
+                tickTask = null;
+            }
+            if (!due.isEmpty()) {
+                dispatchCount++;
+            }
+        }
+
+        // One dispatch for all the tasks due: the first batch runs on
+        // this thread, the others on the executor
+        for (int start = BATCH_SIZE; start < due.size(); start += BATCH_SIZE) {
+            final List<Timeout> batch = due.subList(start, Math.min(due.size(), start + BATCH_SIZE));
+            try {
+                executor.execute(() -> run(batch));
+            } catch (RejectedExecutionException ex) {
+                run(batch);
+            }
+        }
+        run(due.subList(0, Math.min(due.size(), BATCH_SIZE)));
+    }
+
+    private static void run(List<Timeout> batch) {
+        for (Timeout timeout : batch) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            try {
+                timeout.task.run();
+            } catch (RuntimeException ex) {
+                // A failing task should not prevent the others in the batch from running
+                log.log(Level.WARNING, "Timer task " + timeout.task + " failed", ex);
+            }
+        }
+    }
+
+    /**
+     * The number of tasks currently scheduled, including the cancelled ones
+     * that were not removed yet.
+     *
+     * @return the number of tasks scheduled
+     */
+    int getPendingCount() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    /**
+     * The number of times tasks were dispatched, i.e. the number of ticks
+     * in which at least one task was due.
+     *
+     * @return the number of dispatches
+     */
+    long getDispatchCount() {
+        synchronized (lock) {
+            return dispatchCount;
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ package org.epics.gpclient.datasource;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -180,6 +181,9 @@ public class CompositeDataSource extends DataSource {
                 if (dataSource == null) {
                     throw new IllegalStateException("DataSourceProvider '" + name + delimiter + "' did not create a valid datasource.");
                 }
+                if (getDispatchExecutor() != null) {
+                    dataSource.setParallelDispatch(getDispatchExecutor(), getParallelDispatchMinReaders());
+                }
                 dataSources.put(name, dataSource);
                 log.log(Level.CONFIG, "Created instance for data source {0} ({1})", new Object[]{name, dataSource.getClass().getSimpleName()});
             }
@@ -232,6 +236,21 @@ public class CompositeDataSource extends DataSource {
         throw new UnsupportedOperationException("Composite data source can't create channels directly.");
     }
 
+    /**
+     * Enables the parallel dispatch of messages in all DataSources that are
+     * registered in the composite.
+     * 
+     * @param executor the executor for the dispatch tasks; null to disable parallel dispatch
+     * @param minReaders the minimum number of readers for which the dispatch is parallel
+     */
+    @Override
+    public void setParallelDispatch(Executor executor, int minReaders) {
+        super.setParallelDispatch(executor, minReaders);
+        for (DataSource dataSource : dataSources.values()) {
+            dataSource.setParallelDispatch(executor, minReaders);
+        }
+    }
+
     /**
      * Closes all DataSources that are registered in the composite.
      */
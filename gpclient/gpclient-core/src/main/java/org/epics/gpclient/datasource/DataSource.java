@@ -32,7 +32,8 @@ public abstract class DataSource {
 
     private static final Logger log = Logger.getLogger(DataSource.class.getName());
 
-    // Keeps track of the currently created channels
+    // Keeps track of the currently created channels; the concurrent map
+    // is internally striped, so lookups never block each other
     private final Map<String, ChannelHandler> usedChannels = new ConcurrentHashMap<String, ChannelHandler>();
 
     /**
@@ -48,11 +49,56 @@ public abstract class DataSource {
             channel = createChannel(channelName);
             if (channel == null)
                 return null;
-            usedChannels.put(channelHandlerRegisterName(channelName, channel), channel);
+            // If another thread registered the same handler first, use that one
+            ChannelHandler registered = usedChannels.putIfAbsent(channelHandlerRegisterName(channelName, channel), channel);
+            if (registered != null) {
+                channel = registered;
+            } else {
+                applyParallelDispatch(channel);
+            }
         }
         return channel;
     }
     
+    // Parallel dispatch of messages to readers; disabled if the executor is null
+    private volatile Executor dispatchExecutor;
+    private volatile int parallelDispatchMinReaders;
+    
+    private void applyParallelDispatch(ChannelHandler channel) {
+        if (channel instanceof MultiplexedChannelHandler) {
+            ((MultiplexedChannelHandler<?, ?>) channel).setParallelDispatch(dispatchExecutor, parallelDispatchMinReaders);
+        }
+    }
+    
+    /**
+     * Enables the parallel dispatch of messages for the channels with many
+     * readers. The readers of a channel handler based on {@link MultiplexedChannelHandler}
+     * that has at least the given number of readers are updated by multiple
+     * tasks on the given executor. By default, messages are dispatched on the
+     * thread that receives them.
+     * 
+     * @param executor the executor for the dispatch tasks; null to disable parallel dispatch
+     * @param minReaders the minimum number of readers for which the dispatch is parallel
+     */
+    public void setParallelDispatch(Executor executor, int minReaders) {
+        if (minReaders < 1) {
+            throw new IllegalArgumentException("Minimum number of readers must be positive (was " + minReaders + ")");
+        }
+        this.parallelDispatchMinReaders = minReaders;
+        this.dispatchExecutor = executor;
+        for (ChannelHandler channel : usedChannels.values()) {
+            applyParallelDispatch(channel);
+        }
+    }
+    
+    Executor getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+    
+    int getParallelDispatchMinReaders() {
+        return parallelDispatchMinReaders;
+    }
+    
     /**
      * Returns the lookup name to use to find the channel handler in
      * the cache. By default, it returns the channel name itself.
@@ -100,9 +146,10 @@ public abstract class DataSource {
     protected final ExecutorService exec = Executors.newSingleThreadExecutor(namedPool("PVMgr " + getClass().getSimpleName() + " Worker "));
     
     // Keeps track of the recipes that were opened with
-    // this data source.
-    private final Set<ReadSubscription> readSubscriptions = Collections.synchronizedSet(new HashSet<>());
-    private final Set<WriteSubscription> writeSubscriptions = Collections.synchronizedSet(new HashSet<>());
+    // this data source. Concurrent sets, so that opening and closing
+    // subscriptions does not serialize on a single lock.
+    private final Set<ReadSubscription> readSubscriptions = ConcurrentHashMap.newKeySet();
+    private final Set<WriteSubscription> writeSubscriptions = ConcurrentHashMap.newKeySet();
 
     private final ProcessingQueue<ReadSubscription> startReadQueue = new ProcessingQueue<>(exec, new Consumer<List<ReadSubscription>>() {
         @Override
@@ -17,6 +17,13 @@ import org.epics.gpclient.ReadCollector;
  */
 public interface DataSourceTypeAdapter<ConnectionPayload, MessagePayload> {
     
+    /**
+     * Returned by {@link #convert(java.lang.Object, java.lang.Object) } when
+     * the message should not update the caches. Any other value, null
+     * included, is given to the caches as is.
+     */
+    static final Object NO_UPDATE = new Object();
+    
     /**
      * Determines whether the converter can take values from the channel
      * described by the connection payload and transform them in a 
@@ -49,4 +56,43 @@ public interface DataSourceTypeAdapter<ConnectionPayload, MessagePayload> {
      * @param message the payload of each message
      */
     void updateCache(ReadCollector<?, ?> cache, ConnectionPayload connection, MessagePayload message);
+    
+    /**
+     * Whether the value created from a message depends only on the connection
+     * and message payloads (i.e. not on the cache) and can be shared. If true,
+     * a multiplexed channel calls {@link #convert(java.lang.Object, java.lang.Object) }
+     * once per message and gives the same value to all the caches that use this
+     * adapter, instead of calling {@link #updateCache(org.epics.gpclient.ReadCollector, java.lang.Object, java.lang.Object) }
+     * for each of them.
+     * <p>
+     * Adapters that return true must implement {@link #convert(java.lang.Object, java.lang.Object) },
+     * and their {@link #updateCache(org.epics.gpclient.ReadCollector, java.lang.Object, java.lang.Object) }
+     * must give the caches the same values, so that readers get the same
+     * updates whichever path is used.
+     * <p>
+     * By default, it returns false.
+     * 
+     * @return true if the converted value can be shared across caches
+     */
+    default boolean isConversionShared() {
+        return false;
+    }
+    
+    /**
+     * Converts the message to the value to be written in the caches. Only
+     * used if {@link #isConversionShared() } returns true, in which case
+     * the value must be immutable.
+     * <p>
+     * This method is required only by adapters that return true from
+     * {@link #isConversionShared() }: since multiplexed channels never call it
+     * otherwise, the default implementation throws an
+     * UnsupportedOperationException.
+     * 
+     * @param connection the connection information
+     * @param message the payload of each message
+     * @return the new value, possibly null; {@link #NO_UPDATE} if the caches should not be updated
+     */
+    default Object convert(ConnectionPayload connection, MessagePayload message) {
+        throw new UnsupportedOperationException("Shared conversion not supported by " + getClass().getSimpleName());
+    }
 }
@@ -4,8 +4,16 @@
  */
 package org.epics.gpclient.datasource;
 
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -39,6 +47,16 @@ import org.epics.gpclient.WriteCollector;
  * message payload never leave this handler, only value types created by the
  * type adapters</li>
  * </ul>
+ * <p>
+ * Messages are dispatched to the readers without holding the lock of the
+ * handler, so that adding and removing readers does not wait for the
+ * type adapters, and vice-versa. Messages are dispatched by one thread at
+ * a time, in the order they were processed, so that each reader receives
+ * all of them in order even if they come from different threads. Type adapters that support shared conversion (see
+ * {@link DataSourceTypeAdapter#isConversionShared() }) convert each message
+ * once for all the readers that use them. The readers of channels with
+ * many readers can also be updated in parallel (see
+ * {@link DataSource#setParallelDispatch(java.util.concurrent.Executor, int) }).
  *
  * @param <ConnectionPayload> type of the payload for the connection
  * @param <MessagePayload> type of the payload for each message
@@ -53,16 +71,76 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
     private boolean connected = false;
     private boolean writeConnected = false;
     private MessagePayload lastMessage;
+    private long lastMessageId = 0;
+    // Messages waiting to be dispatched, and whether a thread is dispatching them
+    private final ArrayDeque<Message> pendingMessages = new ArrayDeque<>();
+    private boolean dispatching = false;
     private ConnectionPayload connectionPayload;
     private Map<ReadCollector, MonitorHandler> readers = new ConcurrentHashMap<>();
+    // Copy-on-write, so that messages can be dispatched without holding the lock
+    private final List<MonitorHandler> monitors = new CopyOnWriteArrayList<>();
     private Map<WriteCollector, Consumer<WriteCollector.WriteRequest<?>>> writers = new ConcurrentHashMap<>();
     private boolean processMessageOnDisconnect = true;
     private boolean processMessageOnReconnect = true;
+    private volatile Executor dispatchExecutor;
+    private volatile int parallelDispatchMinReaders;
+    
+    // Minimum number of readers updated by each task of a parallel dispatch
+    private static final int MIN_READERS_PER_TASK = 16;
+    
+    /**
+     * A message being dispatched to the readers, with the values already
+     * converted by the type adapters that support shared conversion.
+     */
+    private class Message {
+        
+        private final MessagePayload payload;
+        private final ConnectionPayload connection;
+        private final long id;
+        private final Map<DataSourceTypeAdapter<ConnectionPayload, MessagePayload>, Object> convertedValues = new IdentityHashMap<>();
+
+        public Message(MessagePayload payload, ConnectionPayload connection, long id) {
+            this.payload = payload;
+            this.connection = connection;
+            this.id = id;
+        }
+        
+        public synchronized Object convert(DataSourceTypeAdapter<ConnectionPayload, MessagePayload> typeAdapter) {
+            Object value;
+            if (convertedValues.containsKey(typeAdapter)) {
+                value = convertedValues.get(typeAdapter);
+            } else {
+                try {
+                    value = typeAdapter.convert(connection, payload);
+                } catch (RuntimeException ex) {
+                    value = new ConversionError(ex);
+                }
+                convertedValues.put(typeAdapter, value);
+            }
+            
+            // Each reader is notified of the conversion error
+            if (value instanceof ConversionError) {
+                throw ((ConversionError) value).error;
+            }
+            return value;
+        }
+    }
+    
+    private static class ConversionError {
+        
+        private final RuntimeException error;
+
+        public ConversionError(RuntimeException error) {
+            this.error = error;
+        }
+    }
     
     private class MonitorHandler {
 
         private final ReadCollector subscription;
         private DataSourceTypeAdapter<ConnectionPayload, MessagePayload> typeAdapter;
+        private long lastMessageId = 0;
+        private boolean closed = false;
 
         public MonitorHandler(ReadCollector subscription) {
             this.subscription = subscription;
@@ -72,19 +150,38 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
             subscription.updateConnection(connection);;
         }
 
-        public final void processValue(MessagePayload payload) {
+        @SuppressWarnings("unchecked")
+        public final synchronized void processValue(Message message) {
+            // Messages are dispatched in order: skip only the ones older
+            // than the last message given to a reader added while they
+            // were pending, and the ones arriving after the reader was removed
+            if (closed || message.id <= lastMessageId)
+                return;
+            lastMessageId = message.id;
+            
             if (typeAdapter == null)
                 return;
             
             // Lock the collector and prepare the new value.
             try {
-                typeAdapter.updateCache(subscription, getConnectionPayload(), payload);
+                if (typeAdapter.isConversionShared()) {
+                    Object value = message.convert(typeAdapter);
+                    if (value != DataSourceTypeAdapter.NO_UPDATE) {
+                        subscription.updateValue(value);
+                    }
+                } else {
+                    typeAdapter.updateCache(subscription, message.connection, message.payload);
+                }
             } catch (RuntimeException e) {
                 subscription.notifyError(e);
             }
         }
         
-        public final void findTypeAdapter() {
+        public final synchronized void close() {
+            closed = true;
+        }
+        
+        public final synchronized void findTypeAdapter() {
             if (getConnectionPayload() == null) {
                 typeAdapter = null;
             } else {
@@ -124,7 +221,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
     }
     
     private void reportConnectionStatus(boolean connected) {
-        for (MonitorHandler monitor : readers.values()) {
+        for (MonitorHandler monitor : monitors) {
             monitor.processConnection(connected);
         }
     }
@@ -168,7 +265,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
         setConnected(isConnected(connectionPayload));
         setWriteConnected(isWriteConnected(connectionPayload));
         
-        for (MonitorHandler monitor : readers.values()) {
+        for (MonitorHandler monitor : monitors) {
             monitor.findTypeAdapter();
         }
         
@@ -259,6 +356,7 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
         readUsageCounter++;
         MonitorHandler monitor = new MonitorHandler(subscription);
         readers.put(subscription, monitor);
+        monitors.add(monitor);
         monitor.findTypeAdapter();
         guardedConnect();
         if (getUsageCounter() > 1) {
@@ -266,14 +364,18 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
                 monitor.processConnection(isConnected());
             }
             if (lastMessage != null) {
-                monitor.processValue(lastMessage);
+                monitor.processValue(new Message(lastMessage, connectionPayload, lastMessageId));
             }
         } 
     }
 
     @Override
     protected synchronized void removeReader(ReadCollector subscription) {
-        readers.remove(subscription);
+        MonitorHandler monitor = readers.remove(subscription);
+        if (monitor != null) {
+            monitors.remove(monitor);
+            monitor.close();
+        }
         readUsageCounter--;
         guardedDisconnect();
     }
@@ -354,19 +456,125 @@ public abstract class MultiplexedChannelHandler<ConnectionPayload, MessagePayloa
      * a new value needs to be processed. The handler will take care of
      * using the correct {@link DataSourceTypeAdapter}
      * for each read monitor that was setup.
+     * <p>
+     * The lock of the handler is held only to queue the message: the
+     * type adapters run outside of the lock, on the calling thread or, if
+     * parallel dispatch is enabled, also on the dispatch executor. If no
+     * other thread is dispatching messages for this channel, this returns
+     * after all the readers have been updated. Otherwise, the message is
+     * handed over to the thread already dispatching, which updates the readers
+     * after the messages queued before it.
      * 
      * @param payload the payload of for this type of channel
      */
-    protected synchronized final void processMessage(MessagePayload payload) {
+    protected final void processMessage(MessagePayload payload) {
         if (log.isLoggable(Level.FINEST)) {
             log.log(Level.FINEST, "processMessage for channel {0} messagePayload {1}", new Object[]{getChannelName(), payload});
         }
         
-        lastMessage = payload;
-        for (MonitorHandler monitor : readers.values()) {
-            monitor.processValue(payload);
+        synchronized (this) {
+            lastMessage = payload;
+            pendingMessages.add(new Message(payload, connectionPayload, ++lastMessageId));
+            if (dispatching) {
+                return;
+            }
+            dispatching = true;
+        }
+        
+        boolean completed = false;
+        try {
+            while (true) {
+                Message message;
+                synchronized (this) {
+                    message = pendingMessages.poll();
+                    if (message == null) {
+                        dispatching = false;
+                        completed = true;
+                        return;
+                    }
+                }
+                dispatch(message);
+            }
+        } finally {
+            if (!completed) {
+                // Let the next message restart the dispatch
+                synchronized (this) {
+                    dispatching = false;
+                }
+            }
         }
     }
+    
+    private void dispatch(Message message) {
+        Executor executor = dispatchExecutor;
+        if (executor != null && monitors.size() >= parallelDispatchMinReaders) {
+            dispatchParallel(executor, monitors.toArray(), message);
+        } else {
+            for (MonitorHandler monitor : monitors) {
+                monitor.processValue(message);
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void dispatchParallel(Executor executor, final Object[] monitors, final Message message) {
+        final int nTasks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                monitors.length / MIN_READERS_PER_TASK));
+        final int readersPerTask = (monitors.length + nTasks - 1) / nTasks;
+        final AtomicInteger nextTask = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(nTasks);
+        
+        // The calling thread also takes tasks, so that all of them are
+        // processed even if the executor is busy or rejects them
+        Runnable worker = () -> {
+            int task;
+            while ((task = nextTask.getAndIncrement()) < nTasks) {
+                try {
+                    int end = Math.min(monitors.length, (task + 1) * readersPerTask);
+                    for (int i = task * readersPerTask; i < end; i++) {
+                        ((MonitorHandler) monitors[i]).processValue(message);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        
+        for (int i = 1; i < nTasks; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException ex) {
+                break;
+            }
+        }
+        worker.run();
+        
+        // Wait for the tasks taken by the executor, so that the next
+        // message is not dispatched before this one
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Enables parallel dispatch of the messages for this channel.
+     * 
+     * @param executor the executor used to update the readers in parallel; null to disable
+     * @param minReaders the minimum number of readers to dispatch in parallel
+     */
+    final void setParallelDispatch(Executor executor, int minReaders) {
+        this.parallelDispatchMinReaders = minReaders;
+        this.dispatchExecutor = executor;
+    }
 
     private void guardedConnect() {
         if (getUsageCounter() == 1) {
@@ -0,0 +1,196 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.epics.gpclient.datasource.MultiplexedChannelHandler;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class AllValuesCollectorTest {
+
+    public AllValuesCollectorTest() {
+    }
+    
+    static int overflowErrors(List<PVEvent> events) {
+        int count = 0;
+        for (PVEvent event : events) {
+            if (event.getException() instanceof QueueOverflowException) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void unbounded1() {
+        PVEventRecorder recorder = new PVEventRecorder();
+        AllValuesCollector<Integer> coll = new AllValuesCollector<>(Integer.class);
+        coll.setUpdateListener(recorder);
+        
+        for (int i = 0; i < 100; i++) {
+            coll.updateValue(i);
+        }
+        
+        assertThat(recorder.getEvents().size(), equalTo(100));
+        assertThat(coll.getValue().size(), equalTo(100));
+        assertThat(coll.getValue(), equalTo(Collections.<Integer>emptyList()));
+        assertThat(coll.getOverflowCount(), equalTo(0L));
+    }
+
+    @Test
+    public void dropOldest1() {
+        AllValuesCollector<Integer> coll = new AllValuesCollector<>(Integer.class, 3, QueueOverflowPolicy.DROP_OLDEST);
+        
+        for (int i = 0; i < 5; i++) {
+            coll.updateValue(i);
+        }
+        
+        assertThat(coll.getValue(), equalTo(Arrays.asList(2, 3, 4)));
+        assertThat(coll.getOverflowCount(), equalTo(2L));
+        coll.updateValue(5);
+        assertThat(coll.getValue(), equalTo(Arrays.asList(5)));
+    }
+
+    @Test
+    public void coalesce1() {
+        AllValuesCollector<Integer> coll = new AllValuesCollector<>(Integer.class, 3, QueueOverflowPolicy.COALESCE);
+        
+        for (int i = 0; i < 5; i++) {
+            coll.updateValue(i);
+        }
+        
+        assertThat(coll.getValue(), equalTo(Arrays.asList(0, 1, 4)));
+        assertThat(coll.getOverflowCount(), equalTo(2L));
+    }
+
+    @Test
+    public void failFast1() {
+        PVEventRecorder recorder = new PVEventRecorder();
+        AllValuesCollector<Integer> coll = new AllValuesCollector<>(Integer.class, 2, QueueOverflowPolicy.FAIL_FAST);
+        coll.setUpdateListener(recorder);
+        
+        for (int i = 0; i < 5; i++) {
+            coll.updateValue(i);
+        }
+        
+        // Error notified only once until the queue is read
+        assertThat(recorder.getEvents().size(), equalTo(5));
+        assertThat(overflowErrors(recorder.getEvents()), equalTo(1));
+        assertThat(coll.getValue(), equalTo(Arrays.asList(0, 1)));
+        assertThat(coll.getOverflowCount(), equalTo(3L));
+        
+        coll.updateValue(5);
+        coll.updateValue(6);
+        coll.updateValue(7);
+        assertThat(overflowErrors(recorder.getEvents()), equalTo(2));
+        assertThat(coll.getValue(), equalTo(Arrays.asList(5, 6)));
+    }
+
+    @Test
+    public void updateValueAndConnection1() {
+        PVEventRecorder recorder = new PVEventRecorder();
+        AllValuesCollector<Integer> coll = new AllValuesCollector<>(Integer.class, 1, QueueOverflowPolicy.FAIL_FAST);
+        coll.setUpdateListener(recorder);
+        
+        coll.updateValueAndConnection(0, true);
+        coll.updateValueAndConnection(1, false);
+        
+        assertThat(recorder.getEvents().get(0), equalTo(PVEvent.readConnectionValueEvent()));
+        PVEvent event = recorder.getEvents().get(1);
+        assertThat(event.isType(PVEvent.Type.READ_CONNECTION), equalTo(true));
+        assertThat(event.getException(), instanceOf(QueueOverflowException.class));
+        assertThat(coll.getConnection(), equalTo(false));
+        assertThat(coll.getValue(), equalTo(Arrays.asList(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxSize1() {
+        new AllValuesCollector<>(Integer.class, 0, QueueOverflowPolicy.DROP_OLDEST);
+    }
+
+    private static class WritableChannelHandler extends MultiplexedChannelHandler<Object, Integer> {
+
+        public WritableChannelHandler(String channelName) {
+            super(channelName);
+        }
+
+        @Override
+        protected void connect() {
+            processConnection(new Object());
+        }
+
+        @Override
+        protected void disconnect() {
+        }
+
+        @Override
+        protected void write(Object newValue) {
+            processMessage((Integer) newValue);
+        }
+
+        void read(ReadCollector<?, ?> collector) {
+            addReader(collector);
+        }
+
+        void send(Integer value) {
+            write(value);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentWriters1() throws Exception {
+        final WritableChannelHandler handler = new WritableChannelHandler("test");
+        AllValuesCollector<Integer> first = (AllValuesCollector<Integer>) GPClient.queueAllValues(Integer.class);
+        AllValuesCollector<Integer> second = (AllValuesCollector<Integer>) GPClient.queueAllValues(Integer.class);
+        handler.read(first);
+        handler.read(second);
+
+        final int nWriters = 8;
+        final int count = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int n = 0; n < nWriters; n++) {
+            final int writer = n;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    handler.send(writer * count + i);
+                }
+            });
+            thread.start();
+            writers.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+
+        // No value is lost, and each writer's values arrive in order
+        List<Integer> values = first.getValue();
+        assertThat(values.size(), equalTo(nWriters * count));
+        int[] next = new int[nWriters];
+        for (Integer value : values) {
+            int writer = value / count;
+            assertThat(value % count, equalTo(next[writer]));
+            next[writer]++;
+        }
+        // All the readers see the same order
+        assertThat(second.getValue(), equalTo(values));
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.time.Instant;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.vtype.Alarm;
+import org.epics.vtype.Display;
+import org.epics.vtype.Time;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VNumber;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import static org.epics.gpclient.AllValuesCollectorTest.overflowErrors;
+
+/**
+ *
+ */
+public class NumberValuesCollectorTest {
+
+    public NumberValuesCollectorTest() {
+    }
+    
+    private static VNumber sample(int i) {
+        return VDouble.of(i, Alarm.none(), Time.of(Instant.ofEpochSecond(100, i)), Display.none());
+    }
+    
+    private static void update(NumberValuesCollector coll, int from, int to) {
+        for (int i = from; i < to; i++) {
+            coll.updateValue(sample(i));
+        }
+    }
+
+    @Test
+    public void getValue1() {
+        PVEventRecorder recorder = new PVEventRecorder();
+        NumberValuesCollector coll = new NumberValuesCollector(10, QueueOverflowPolicy.DROP_OLDEST);
+        coll.setUpdateListener(recorder);
+        
+        update(coll, 0, 3);
+        
+        assertThat(recorder.getEvents().size(), equalTo(3));
+        NumberSamples samples = coll.getValue();
+        assertThat(samples.getValues(), equalTo(CollectionNumbers.toListDouble(0, 1, 2)));
+        assertThat(samples.getTimestamps(), equalTo(CollectionNumbers.toListLong(100000000000L, 100000000001L, 100000000002L)));
+        assertThat(samples.getLastValue(), equalTo(sample(2)));
+        assertThat(samples.getOverflowCount(), equalTo(0L));
+        
+        samples = coll.getValue();
+        assertThat(samples.getValues().size(), equalTo(0));
+        assertThat(samples.getTimestamps().size(), equalTo(0));
+        assertThat(samples.getLastValue(), equalTo(sample(2)));
+    }
+
+    @Test
+    public void dropOldest1() {
+        NumberValuesCollector coll = new NumberValuesCollector(3, QueueOverflowPolicy.DROP_OLDEST);
+        
+        update(coll, 0, 50);
+        
+        NumberSamples samples = coll.getValue();
+        assertThat(samples.getValues(), equalTo(CollectionNumbers.toListDouble(47, 48, 49)));
+        assertThat(samples.getTimestamps(), equalTo(CollectionNumbers.toListLong(100000000047L, 100000000048L, 100000000049L)));
+        assertThat(samples.getOverflowCount(), equalTo(47L));
+    }
+
+    @Test
+    public void coalesce1() {
+        NumberValuesCollector coll = new NumberValuesCollector(3, QueueOverflowPolicy.COALESCE);
+        
+        update(coll, 0, 50);
+        
+        NumberSamples samples = coll.getValue();
+        assertThat(samples.getValues(), equalTo(CollectionNumbers.toListDouble(0, 1, 49)));
+        assertThat(samples.getTimestamps(), equalTo(CollectionNumbers.toListLong(100000000000L, 100000000001L, 100000000049L)));
+        assertThat(samples.getOverflowCount(), equalTo(47L));
+    }
+
+    @Test
+    public void failFast1() {
+        PVEventRecorder recorder = new PVEventRecorder();
+        NumberValuesCollector coll = new NumberValuesCollector(3, QueueOverflowPolicy.FAIL_FAST);
+        coll.setUpdateListener(recorder);
+        
+        update(coll, 0, 50);
+        
+        assertThat(overflowErrors(recorder.getEvents()), equalTo(1));
+        NumberSamples samples = coll.getValue();
+        assertThat(samples.getValues(), equalTo(CollectionNumbers.toListDouble(0, 1, 2)));
+        assertThat(samples.getLastValue(), equalTo(sample(49)));
+        assertThat(samples.getOverflowCount(), equalTo(47L));
+        
+        update(coll, 50, 54);
+        assertThat(overflowErrors(recorder.getEvents()), equalTo(2));
+        samples = coll.getValue();
+        assertThat(samples.getValues(), equalTo(CollectionNumbers.toListDouble(50, 51, 52)));
+        // Cumulative, not reset by the reads
+        assertThat(samples.getOverflowCount(), equalTo(48L));
+        assertThat(coll.getValue().getOverflowCount(), equalTo(48L));
+    }
+
+    @Test
+    public void updateValueAndConnection1() {
+        PVEventRecorder recorder = new PVEventRecorder();
+        NumberValuesCollector coll = new NumberValuesCollector(3, QueueOverflowPolicy.DROP_OLDEST);
+        coll.setUpdateListener(recorder);
+        
+        coll.updateValueAndConnection(sample(0), true);
+        coll.updateValueAndConnection(null, false);
+        
+        assertThat(recorder.getEvents().size(), equalTo(2));
+        assertThat(coll.getConnection(), equalTo(false));
+        assertThat(coll.getValue().getValues(), equalTo(CollectionNumbers.toListDouble(0)));
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+import org.epics.util.concurrent.Executors;
+
+/**
+ *
+ */
+public class TimerWheelTest {
+    
+    static ScheduledExecutorService executor = java.util.concurrent.Executors.newScheduledThreadPool(2, Executors.namedPool("test"));
+    
+    @AfterClass
+    public static void closeExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void schedule1() throws Exception {
+        TimerWheel wheel = new TimerWheel(executor);
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(latch::countDown, Duration.ofMillis(50));
+        
+        assertThat(latch.await(1, TimeUnit.SECONDS), equalTo(true));
+        // Never early
+        assertThat(System.nanoTime() - start, greaterThanOrEqualTo(Duration.ofMillis(50).toNanos()));
+        assertThat(wheel.getPendingCount(), equalTo(0));
+    }
+
+    @Test
+    public void schedule2() throws Exception {
+        // Delay longer than a round of the wheel
+        TimerWheel wheel = new TimerWheel(executor, Duration.ofMillis(1));
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(latch::countDown, Duration.ofMillis(700));
+        
+        Thread.sleep(600);
+        assertThat(latch.getCount(), equalTo(1L));
+        assertThat(latch.await(1, TimeUnit.SECONDS), equalTo(true));
+        assertThat(System.nanoTime() - start, greaterThanOrEqualTo(Duration.ofMillis(700).toNanos()));
+    }
+
+    @Test
+    public void coalesce1() throws Exception {
+        // All the tasks due in the same tick are dispatched together
+        TimerWheel wheel = new TimerWheel(executor, Duration.ofMillis(50));
+        int nTasks = 1000;
+        CountDownLatch latch = new CountDownLatch(nTasks);
+        for (int i = 0; i < nTasks; i++) {
+            wheel.schedule(latch::countDown, Duration.ofMillis(10));
+        }
+        
+        assertThat(latch.await(1, TimeUnit.SECONDS), equalTo(true));
+        assertThat(wheel.getDispatchCount(), equalTo(1L));
+    }
+
+    @Test
+    public void cancel1() throws Exception {
+        TimerWheel wheel = new TimerWheel(executor);
+        AtomicInteger counter = new AtomicInteger();
+        TimerWheel.Timeout timeout = wheel.schedule(counter::incrementAndGet, Duration.ofMillis(20));
+        wheel.schedule(counter::incrementAndGet, Duration.ofMillis(20));
+        timeout.cancel();
+        
+        Thread.sleep(100);
+        assertThat(timeout.isCancelled(), equalTo(true));
+        assertThat(counter.get(), equalTo(1));
+        assertThat(wheel.getPendingCount(), equalTo(0));
+    }
+
+    @Test
+    public void failingTask1() throws Exception {
+        TimerWheel wheel = new TimerWheel(executor);
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(() -> {throw new RuntimeException("Expected failure");}, Duration.ofMillis(10));
+        wheel.schedule(latch::countDown, Duration.ofMillis(10));
+        
+        assertThat(latch.await(1, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    @Test
+    public void noCoalescing1() throws Exception {
+        TimerWheel wheel = new TimerWheel(executor, Duration.ZERO);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        wheel.schedule(counter::incrementAndGet, Duration.ofMillis(20)).cancel();
+        wheel.schedule(latch::countDown, Duration.ofMillis(20));
+        
+        assertThat(latch.await(1, TimeUnit.SECONDS), equalTo(true));
+        assertThat(counter.get(), equalTo(0));
+        assertThat(wheel.getPendingCount(), equalTo(0));
+    }
+}
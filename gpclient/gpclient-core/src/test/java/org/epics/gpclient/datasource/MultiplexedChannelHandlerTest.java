@@ -0,0 +1,277 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.datasource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.epics.gpclient.ReadCollector;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class MultiplexedChannelHandlerTest {
+
+    public MultiplexedChannelHandlerTest() {
+    }
+    
+    private static class CountingTypeAdapter implements DataSourceTypeAdapter<Object, Integer> {
+        
+        private final AtomicInteger conversions = new AtomicInteger();
+        private final boolean shared;
+
+        public CountingTypeAdapter() {
+            this(true);
+        }
+
+        public CountingTypeAdapter(boolean shared) {
+            this.shared = shared;
+        }
+
+        @Override
+        public boolean match(ReadCollector<?, ?> cache, Object connection) {
+            return true;
+        }
+
+        @Override
+        public Object getSubscriptionParameter(ReadCollector<?, ?> cache, Object connection) {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void updateCache(ReadCollector cache, Object connection, Integer message) {
+            Object value = convert(connection, message);
+            if (value != NO_UPDATE) {
+                cache.updateValue(value);
+            }
+        }
+
+        @Override
+        public boolean isConversionShared() {
+            return shared;
+        }
+
+        @Override
+        public Object convert(Object connection, Integer message) {
+            conversions.incrementAndGet();
+            if (message == Integer.MAX_VALUE) {
+                return NO_UPDATE;
+            }
+            if (message == Integer.MIN_VALUE) {
+                return null;
+            }
+            if (message < 0) {
+                throw new IllegalArgumentException("Negative value");
+            }
+            return message;
+        }
+    }
+    
+    private static class TestChannelHandler extends MultiplexedChannelHandler<Object, Integer> {
+        
+        private final DataSourceTypeAdapter<Object, Integer> typeAdapter;
+
+        public TestChannelHandler(String channelName) {
+            this(channelName, null);
+        }
+
+        public TestChannelHandler(String channelName, DataSourceTypeAdapter<Object, Integer> typeAdapter) {
+            super(channelName);
+            this.typeAdapter = typeAdapter;
+        }
+
+        @Override
+        protected DataSourceTypeAdapter<Object, Integer> findTypeAdapter(ReadCollector<?, ?> cache, Object connection) {
+            if (typeAdapter != null) {
+                return typeAdapter;
+            }
+            return super.findTypeAdapter(cache, connection);
+        }
+
+        @Override
+        protected void connect() {
+            processConnection(new Object());
+        }
+
+        @Override
+        protected void disconnect() {
+        }
+        
+        void send(Integer value) {
+            processMessage(value);
+        }
+    }
+    
+    private static class ValueRecorder extends ReadCollector<Integer, List<Integer>> {
+        
+        private final List<Integer> values = new ArrayList<>();
+        private final List<Exception> errors = new ArrayList<>();
+
+        public ValueRecorder() {
+            super(Integer.class);
+        }
+
+        @Override
+        protected List<Integer> getValue() {
+            synchronized (lock) {
+                return new ArrayList<>(values);
+            }
+        }
+
+        @Override
+        public void updateValue(Integer value) {
+            synchronized (lock) {
+                values.add(value);
+            }
+        }
+
+        @Override
+        public void updateValueAndConnection(Integer value, boolean newConnection) {
+            updateValue(value);
+        }
+
+        @Override
+        public void notifyError(Exception error) {
+            synchronized (lock) {
+                errors.add(error);
+            }
+        }
+    }
+
+    @Test
+    public void addReader1() {
+        TestChannelHandler handler = new TestChannelHandler("test");
+        ValueRecorder first = new ValueRecorder();
+        ValueRecorder second = new ValueRecorder();
+        
+        handler.addReader(first);
+        handler.send(1);
+        handler.addReader(second);
+        handler.send(2);
+        handler.removeReader(first);
+        handler.send(3);
+        
+        assertThat(first.getValue(), equalTo(Arrays.asList(1, 2)));
+        assertThat(second.getValue(), equalTo(Arrays.asList(1, 2, 3)));
+        assertThat(handler.getReadUsageCounter(), equalTo(1));
+    }
+
+    @Test
+    public void subscriptionChurn1() throws Exception {
+        final TestChannelHandler handler = new TestChannelHandler("test");
+        final ValueRecorder steady = new ValueRecorder();
+        handler.addReader(steady);
+        
+        final AtomicBoolean done = new AtomicBoolean();
+        final List<ValueRecorder> churned = new ArrayList<>();
+        Thread churn = new Thread(() -> {
+            while (!done.get()) {
+                ValueRecorder reader = new ValueRecorder();
+                handler.addReader(reader);
+                Thread.yield();
+                handler.removeReader(reader);
+                churned.add(reader);
+            }
+        });
+        churn.start();
+        
+        final int count = 100000;
+        for (int i = 0; i < count; i++) {
+            handler.send(i);
+        }
+        done.set(true);
+        churn.join();
+        
+        assertThat(steady.getValue().size(), equalTo(count));
+        assertThat(handler.getReadUsageCounter(), equalTo(1));
+        // Every reader gets the values in order, without repetitions
+        for (ValueRecorder reader : churned) {
+            List<Integer> values = reader.getValue();
+            for (int i = 1; i < values.size(); i++) {
+                assertThat(values.get(i), greaterThan(values.get(i - 1)));
+            }
+        }
+    }
+
+    @Test
+    public void sharedConversion1() {
+        CountingTypeAdapter typeAdapter = new CountingTypeAdapter();
+        TestChannelHandler handler = new TestChannelHandler("test", typeAdapter);
+        List<ValueRecorder> readers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ValueRecorder reader = new ValueRecorder();
+            handler.addReader(reader);
+            readers.add(reader);
+        }
+        
+        handler.send(1);
+        handler.send(-1);
+        handler.send(2);
+        
+        // One conversion per message, regardless of the number of readers
+        assertThat(typeAdapter.conversions.get(), equalTo(3));
+        for (ValueRecorder reader : readers) {
+            assertThat(reader.getValue(), equalTo(Arrays.asList(1, 2)));
+            assertThat(reader.errors.size(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void sharedConversion2() {
+        // Shared and per-reader paths give the same updates: null is
+        // a value, NO_UPDATE skips the message
+        for (boolean shared : new boolean[] {true, false}) {
+            TestChannelHandler handler = new TestChannelHandler("test", new CountingTypeAdapter(shared));
+            ValueRecorder reader = new ValueRecorder();
+            handler.addReader(reader);
+            
+            handler.send(1);
+            handler.send(Integer.MIN_VALUE);
+            handler.send(Integer.MAX_VALUE);
+            handler.send(2);
+            
+            assertThat(reader.getValue(), equalTo(Arrays.asList(1, null, 2)));
+        }
+    }
+
+    @Test
+    public void parallelDispatch1() throws Exception {
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            CountingTypeAdapter typeAdapter = new CountingTypeAdapter();
+            TestChannelHandler handler = new TestChannelHandler("test", typeAdapter);
+            handler.setParallelDispatch(exec, 10);
+            List<ValueRecorder> readers = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                ValueRecorder reader = new ValueRecorder();
+                handler.addReader(reader);
+                readers.add(reader);
+            }
+
+            final int count = 1000;
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                handler.send(i);
+                expected.add(i);
+            }
+
+            // processMessage returns only when all readers were updated
+            assertThat(typeAdapter.conversions.get(), equalTo(count));
+            for (ValueRecorder reader : readers) {
+                assertThat(reader.getValue(), equalTo(expected));
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+}
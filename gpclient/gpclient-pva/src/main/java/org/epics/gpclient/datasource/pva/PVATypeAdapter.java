@@ -167,6 +167,24 @@ abstract class PVATypeAdapter implements DataSourceTypeAdapter<PVAConnectionPayl
     @Override
     @SuppressWarnings("unchecked")
     public void updateCache(@SuppressWarnings("rawtypes") ReadCollector cache, PVAConnectionPayload connection, PVStructure message) {
+        cache.updateValue(convert(connection, message));
+    }
+
+    @Override
+    public boolean isConversionShared() {
+        // values do not depend on the cache, the same value can be given to all readers
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns null if the message does not match the expected type: as
+     * {@link #updateCache(org.epics.gpclient.ReadCollector, org.epics.gpclient.datasource.pva.PVAConnectionPayload, org.epics.pvdata.pv.PVStructure) },
+     * the readers are given null.
+     */
+    @Override
+    public Object convert(PVAConnectionPayload connection, PVStructure message) {
 
     	PVField valueField = null;
     	String extractFieldName = connection.extractFieldName;
@@ -180,8 +198,7 @@ abstract class PVATypeAdapter implements DataSourceTypeAdapter<PVAConnectionPayl
   
     	}
     	
-        Object value = createValue(message, valueField, !connection.connected);
-        cache.updateValue(value);
+        return createValue(message, valueField, !connection.connected);
     }
 
     /**
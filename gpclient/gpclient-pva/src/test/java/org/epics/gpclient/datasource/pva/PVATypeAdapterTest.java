@@ -0,0 +1,130 @@
+/**
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE.TXT included with the distribution.
+ */
+package org.epics.gpclient.datasource.pva;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.epics.gpclient.ReadCollector;
+import org.epics.gpclient.datasource.DataSourceTypeAdapter;
+import org.epics.gpclient.datasource.MultiplexedChannelHandler;
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+import org.epics.vtype.VDouble;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class PVATypeAdapterTest {
+
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+
+    private static final Structure doubleType = fieldCreate.createStructure("epics:nt/NTScalar:1.0",
+            new String[] {"value"}, new Field[] {fieldCreate.createScalar(ScalarType.pvDouble)});
+
+    // Same ID, but the value does not match the type of the adapter
+    private static final Structure mismatchType = fieldCreate.createStructure("epics:nt/NTScalar:1.0",
+            new String[] {"value"}, new Field[] {fieldCreate.createScalarArray(ScalarType.pvDouble)});
+
+    private static PVStructure doubleMessage(double value) {
+        PVStructure message = PVDataFactory.getPVDataCreate().createPVStructure(doubleType);
+        message.getDoubleField("value").put(value);
+        return message;
+    }
+
+    private static class TestChannelHandler extends MultiplexedChannelHandler<PVAConnectionPayload, PVStructure> {
+
+        public TestChannelHandler() {
+            super("test");
+        }
+
+        @Override
+        protected DataSourceTypeAdapter<PVAConnectionPayload, PVStructure> findTypeAdapter(ReadCollector<?, ?> cache, PVAConnectionPayload connection) {
+            return PVAVTypeAdapterSet.vDoubleAdapter;
+        }
+
+        @Override
+        protected void connect() {
+            processConnection(new PVAConnectionPayload(doubleType, true, null));
+        }
+
+        @Override
+        protected void disconnect() {
+        }
+
+        void add(ReadCollector<?, ?> reader) {
+            addReader(reader);
+        }
+
+        void send(PVStructure message) {
+            processMessage(message);
+        }
+    }
+
+    private static class ValueRecorder extends ReadCollector<Object, List<Object>> {
+
+        private final List<Object> values = new ArrayList<>();
+
+        public ValueRecorder() {
+            super(Object.class);
+        }
+
+        @Override
+        protected List<Object> getValue() {
+            synchronized (lock) {
+                return new ArrayList<>(values);
+            }
+        }
+
+        @Override
+        public void updateValue(Object value) {
+            synchronized (lock) {
+                values.add(value);
+            }
+        }
+
+        @Override
+        public void updateValueAndConnection(Object value, boolean newConnection) {
+            updateValue(value);
+        }
+    }
+
+    @Test
+    public void typeMismatch1() {
+        // Per-reader path: a mismatching message gives null to the reader
+        PVAConnectionPayload connection = new PVAConnectionPayload(doubleType, true, null);
+        PVStructure mismatch = PVDataFactory.getPVDataCreate().createPVStructure(mismatchType);
+        ValueRecorder reader = new ValueRecorder();
+        PVAVTypeAdapterSet.vDoubleAdapter.updateCache(reader, connection, mismatch);
+        assertThat(reader.getValue(), equalTo(Arrays.asList((Object) null)));
+
+        // Shared conversion gives the same value
+        assertThat(PVAVTypeAdapterSet.vDoubleAdapter.convert(connection, mismatch), nullValue());
+    }
+
+    @Test
+    public void typeMismatch2() {
+        // Shared path of the channel handler: same updates as the per-reader path
+        TestChannelHandler handler = new TestChannelHandler();
+        ValueRecorder reader = new ValueRecorder();
+        handler.add(reader);
+
+        handler.send(doubleMessage(3.0));
+        handler.send(PVDataFactory.getPVDataCreate().createPVStructure(mismatchType));
+
+        List<Object> values = reader.getValue();
+        assertThat(values.size(), equalTo(2));
+        assertThat(((VDouble) values.get(0)).getValue(), equalTo(3.0));
+        assertThat(values.get(1), nullValue());
+    }
+}
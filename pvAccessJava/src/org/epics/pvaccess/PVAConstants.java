@@ -112,4 +112,16 @@ public interface PVAConstants {
 	 * (0 - none, 1 - debug, 2 - more debug, 3 - dump messages)
      */
     public static final String PVACCESS_DEBUG = "EPICS_PVA_DEBUG";
+
+    /**
+     * String value of the configuration property key to run receive and send loops
+     * of blocking TCP transports on virtual threads (Java 21+), default is <code>false</code>.
+     */
+    public static final String PVACCESS_VIRTUAL_THREADS = "EPICS_PVA_VIRTUAL_THREADS";
+
+    /**
+     * String value of the configuration property key of the introspection cache size,
+     * default is <code>0</code> (disabled). The cache is not used when pvData interns introspection objects.
+     */
+    public static final String PVACCESS_INTROSPECTION_CACHE_SIZE = "EPICS_PVA_INTROSPECTION_CACHE_SIZE";
 }
@@ -15,6 +15,8 @@
 package org.epics.pvaccess.client.impl.remote;
 
 import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.epics.pvaccess.PVFactory;
@@ -23,6 +25,7 @@ import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
 import org.epics.pvdata.factory.ConvertFactory;
 import org.epics.pvdata.misc.BitSet;
 import org.epics.pvdata.misc.BitSetUtil;
@@ -198,6 +201,13 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	    private Structure lastStructure = null;
 	    private MonitorQueue monitorQueue = null;
 	    
+	    /**
+	     * Per element, fields changed since the element's data was last brought up-to-date,
+	     * i.e. fields that need to be copied when the element is reused.
+	     * NOTE: this requires clients not to modify data of the polled elements (see <code>Monitor.poll()</code>).
+	     */
+	    private final Map<MonitorElement, BitSet> staleBitSets = new IdentityHashMap<MonitorElement, BitSet>();
+	    
 	    private final Object monitorSync = new Object();
 	    
 	    private boolean needToReleaseFirst = false;
@@ -236,11 +246,14 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 				if (lastStructure == null || !lastStructure.equals(structure))
 				{
 		    		MonitorElement[] monitorElements = new MonitorElement[queueSize];
+		    		staleBitSets.clear();
 		            for(int i=0; i<queueSize; i++) {
 		                PVStructure pvNew = pvDataCreate.createPVStructure(structure);
 		                monitorElements[i] = MonitorQueueFactory.createMonitorElement(pvNew);
+		                staleBitSets.put(monitorElements[i], new BitSet(pvNew.getNumberFields()));
 		            }
 		            monitorQueue = MonitorQueueFactory.create(monitorElements);
+		            monitorElement = null;
 		            lastStructure = structure;
 				}
 			}
@@ -278,7 +291,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	            	{
 	            		// take new, put current in use
 	    				final PVStructure pvStructure = monitorElement.getPVStructure();
-			            convert.copy(pvStructure, newElement.getPVStructure());
+			            updateNext(monitorElement, newElement);
 
 			            bitSetUtil.compress(monitorElement.getChangedBitSet(), pvStructure);
 			            bitSetUtil.compress(monitorElement.getOverrunBitSet(), pvStructure);
@@ -306,6 +319,10 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	            // special treatment if in overrun state
 	            if (overrunInProgress)
 	            {
+	            	final ContextMetrics metrics = context.getMetrics();
+	            	if (metrics != null)
+	            		metrics.monitorOverrun();
+	            	
 	            	// lazy init
 	            	if (bitSet1 == null) bitSet1 = new BitSet(changedBitSet.size());
 	            	if (bitSet2 == null) bitSet2 = new BitSet(overrunBitSet.size());
@@ -313,6 +330,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	            	bitSet1.deserialize(payloadBuffer, transport);
 					pvStructure.deserialize(payloadBuffer, transport, bitSet1);
 					bitSet2.deserialize(payloadBuffer, transport);
+					markStale(bitSet1);
 
 					// OR local overrun
 					// TODO this does not work perfectly if bitSet is compressed !!!
@@ -331,6 +349,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		            changedBitSet.deserialize(payloadBuffer, transport);
 					pvStructure.deserialize(payloadBuffer, transport, changedBitSet);
 					overrunBitSet.deserialize(payloadBuffer, transport);
+					markStale(changedBitSet);
 	            }
 	            
 				// prepare next free (if any)
@@ -348,7 +367,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		            overrunInProgress = false;
 	            }
 	            
-	            convert.copy(pvStructure, newElement.getPVStructure());
+	            updateNext(monitorElement, newElement);
      
 	            monitorQueue.setUsed(monitorElement);
 
@@ -358,6 +377,34 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
         	callback.monitorEvent(this);
 		}
 
+		/**
+		 * Mark fields changed in the current element as stale in all the other elements.
+		 * @param changedBitSet changed fields.
+		 */
+		private void markStale(BitSet changedBitSet)
+		{
+			for (Map.Entry<MonitorElement, BitSet> entry : staleBitSets.entrySet())
+				if (entry.getKey() != monitorElement)
+					entry.getValue().or(changedBitSet);
+		}
+		
+		/**
+		 * Bring the element that is to become current up-to-date,
+		 * only fields changed since the element was last current are copied
+		 * (e.g. large arrays are not copied if only timeStamp changes).
+		 * @param currentElement current element, holding the latest data.
+		 * @param newElement next current element.
+		 */
+		private void updateNext(MonitorElement currentElement, MonitorElement newElement)
+		{
+			final BitSet staleBitSet = staleBitSets.get(newElement);
+			if (staleBitSet.nextSetBit(0) >= 0)
+			{
+				convert.copy(currentElement.getPVStructure(), newElement.getPVStructure(), staleBitSet);
+				staleBitSet.clear();
+			}
+		}
+		
 		@Override
 		public MonitorElement poll()
 		{
@@ -381,7 +428,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 	            	{
 	            		// take new, put current in use
 	    				final PVStructure pvStructure = monitorElement.getPVStructure();
-			            convert.copy(pvStructure, newElement.getPVStructure());
+			            updateNext(monitorElement, newElement);
 
 			            bitSetUtil.compress(monitorElement.getChangedBitSet(), pvStructure);
 			            bitSetUtil.compress(monitorElement.getOverrunBitSet(), pvStructure);
@@ -486,8 +533,12 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 		{
 			synchronized (monitorSync) {
 				overrunInProgress = false;
+				final MonitorElement lastElement = monitorElement;
 	            monitorQueue.clear();
 	            monitorElement = monitorQueue.getFree();
+	            // keep the last received data (updates are incremental)
+	            if (lastElement != null && lastElement != monitorElement)
+	            	updateNext(lastElement, monitorElement);
 	            needToReleaseFirst = false;
 			}
 			return okStatus;
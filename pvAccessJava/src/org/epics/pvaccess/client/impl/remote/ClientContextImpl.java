@@ -27,7 +27,6 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -50,13 +49,18 @@ import org.epics.pvaccess.client.impl.remote.search.SimpleChannelSearchManagerIm
 import org.epics.pvaccess.client.impl.remote.tcp.BlockingClientTCPTransport;
 import org.epics.pvaccess.client.impl.remote.tcp.BlockingTCPConnector;
 import org.epics.pvaccess.client.impl.remote.tcp.BlockingTCPConnector.TransportFactory;
+import org.epics.pvaccess.client.impl.remote.tcp.NonBlockingClientTCPTransport;
 import org.epics.pvaccess.impl.remote.ConnectionException;
 import org.epics.pvaccess.impl.remote.Context;
+import org.epics.pvaccess.impl.remote.IntrospectionCache;
 import org.epics.pvaccess.impl.remote.ProtocolType;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportClient;
 import org.epics.pvaccess.impl.remote.TransportRegistry;
-import org.epics.pvaccess.impl.remote.io.impl.PollerImpl;
+import org.epics.pvaccess.impl.remote.io.impl.PollerPool;
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
+import org.epics.pvaccess.impl.remote.metrics.MetricsRegistry;
+import org.epics.pvaccess.impl.remote.metrics.MetricsRegistryFactory;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
 import org.epics.pvaccess.impl.remote.request.ResponseRequest;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPConnector;
@@ -65,11 +69,13 @@ import org.epics.pvaccess.impl.remote.utils.GUID;
 import org.epics.pvaccess.plugins.SecurityPlugin;
 import org.epics.pvaccess.plugins.impl.client.CAClientSecurityPlugin;
 import org.epics.pvaccess.util.InetAddressUtil;
+import org.epics.pvaccess.util.VirtualThreadSupport;
 import org.epics.pvaccess.util.configuration.Configuration;
 import org.epics.pvaccess.util.configuration.ConfigurationProvider;
 import org.epics.pvaccess.util.configuration.impl.ConfigurationFactory;
 import org.epics.pvaccess.util.logging.ConsoleLogHandler;
 import org.epics.pvaccess.util.sync.NamedLockPattern;
+import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.factory.StatusFactory;
 import org.epics.pvdata.misc.ThreadPriority;
 import org.epics.pvdata.misc.Timer;
@@ -174,6 +180,58 @@ public class ClientContextImpl implements Context {
 	 */
 	protected int receiveBufferSize = PVAConstants.MAX_TCP_RECV;
 
+	/**
+	 * Maximum (average) number of search frames (datagrams) sent per second.
+	 */
+	protected int searchMaxFramesPerSecond = 200;
+
+	/**
+	 * Maximum number of search frames sent back-to-back (burst), before the rate limit applies.
+	 */
+	protected int searchMaxFramesBurst = 10;
+
+	/**
+	 * Number of poller (reactor) threads serving non-blocking TCP transports,
+	 * <code>0</code> uses blocking transports (two threads per transport),
+	 * negative value means one poller per available processor.
+	 */
+	protected int pollerThreads = 0;
+
+	/**
+	 * Run receive and send loops of blocking transports on virtual threads (if supported by the JVM).
+	 */
+	protected boolean virtualThreads = false;
+
+	/**
+	 * Max. number of cached received introspection interfaces, <code>0</code> disables the cache.
+	 */
+	protected int introspectionCacheSize = 0;
+
+	/**
+	 * Cache of received introspection interfaces, <code>null</code> if disabled.
+	 */
+	protected IntrospectionCache introspectionCache = null;
+
+	/**
+	 * Enable runtime metrics (<code>getMetrics()</code>).
+	 */
+	protected boolean metricsEnabled = false;
+
+	/**
+	 * Metrics registry name, see <code>MetricsRegistryFactory.getRegistry()</code>.
+	 */
+	protected String metricsRegistryName = MetricsRegistryFactory.JMX;
+
+	/**
+	 * Runtime metrics, <code>null</code> if disabled.
+	 */
+	protected ContextMetrics metrics = null;
+
+	/**
+	 * Registry the metrics are published to, <code>null</code> if none.
+	 */
+	private MetricsRegistry metricsRegistry = null;
+
 	/**
 	 * Timer.
 	 */
@@ -201,6 +259,11 @@ public class ClientContextImpl implements Context {
 	 */
 	protected BlockingTCPConnector connector = null;
 
+	/**
+	 * Pollers serving non-blocking TCP transports, <code>null</code> if blocking transports are used.
+	 */
+	protected PollerPool pollerPool = null;
+
 	/**
 	 * PVA transport (virtual circuit) registry. This registry contains all active
 	 * transports - connections to PVA servers.
@@ -335,6 +398,13 @@ public class ClientContextImpl implements Context {
 		beaconPeriod = config.getPropertyAsFloat("EPICS_PVA_BEACON_PERIOD", beaconPeriod);
 		broadcastPort = config.getPropertyAsInteger("EPICS_PVA_BROADCAST_PORT", broadcastPort);
 		receiveBufferSize = config.getPropertyAsInteger("EPICS_PVA_MAX_ARRAY_BYTES", receiveBufferSize);
+		searchMaxFramesPerSecond = Math.max(1, config.getPropertyAsInteger("EPICS_PVA_SEARCH_MAX_FRAMES_PER_SECOND", searchMaxFramesPerSecond));
+		searchMaxFramesBurst = Math.max(1, config.getPropertyAsInteger("EPICS_PVA_SEARCH_MAX_FRAMES_BURST", searchMaxFramesBurst));
+		pollerThreads = config.getPropertyAsInteger("EPICS_PVA_POLLER_THREADS", pollerThreads);
+		virtualThreads = config.getPropertyAsBoolean(PVAConstants.PVACCESS_VIRTUAL_THREADS, virtualThreads);
+		introspectionCacheSize = Math.max(0, config.getPropertyAsInteger(PVAConstants.PVACCESS_INTROSPECTION_CACHE_SIZE, introspectionCacheSize));
+		metricsEnabled = config.getPropertyAsBoolean("EPICS_PVA_METRICS", metricsEnabled);
+		metricsRegistryName = config.getPropertyAsString("EPICS_PVA_METRICS_REGISTRY", metricsRegistryName);
 	}
 
 	/**
@@ -375,16 +445,40 @@ public class ClientContextImpl implements Context {
 
 	}
 
-	// TODO remove
-	final AtomicBoolean pollerInitialized = new AtomicBoolean();
-	PollerImpl poller;
-
 	/**
 	 * @throws PVAException
 	 */
 	private void internalInitialize() throws PVAException {
 
+		if (metricsEnabled)
+			initializeMetrics();
+
+		if (virtualThreads && !VirtualThreadSupport.isAvailable())
+		{
+			logger.warning("Virtual threads are not supported by this JVM, " + PVAConstants.PVACCESS_VIRTUAL_THREADS + " ignored.");
+			virtualThreads = false;
+		}
+
+		if (introspectionCacheSize > 0)
+		{
+			if (FieldFactory.isInterning())
+				logger.warning("Introspection interfaces are interned by pvData, " + PVAConstants.PVACCESS_INTROSPECTION_CACHE_SIZE + " ignored.");
+			else
+				introspectionCache = new IntrospectionCache(introspectionCacheSize);
+		}
+
 		timer = TimerFactory.create("pvAccess-client timer", ThreadPriority.lower);
+
+		if (pollerThreads != 0) {
+			try {
+				pollerPool = new PollerPool("pvAccess-client poller-", pollerThreads,
+						PollerPool.AssignmentPolicy.LEAST_LOADED);
+			} catch (IOException ioex) {
+				throw new PVAException("Failed to create poller pool.", ioex);
+			}
+			pollerPool.start();
+		}
+
 		TransportFactory transportFactory = new TransportFactory() {
 
 			@Override
@@ -392,6 +486,10 @@ public class ClientContextImpl implements Context {
 					int receiveBufferSize, TransportClient client, short transportRevision, float heartbeatInterval,
 					short priority) {
 				try {
+					if (pollerPool != null)
+						return new NonBlockingClientTCPTransport(context, pollerPool.getPoller(), channel,
+								responseHandler, receiveBufferSize, client, transportRevision, heartbeatInterval,
+								priority);
 					return new BlockingClientTCPTransport(context, channel, responseHandler, receiveBufferSize, client,
 							transportRevision, heartbeatInterval, priority);
 				} catch (SocketException e) {
@@ -483,6 +581,28 @@ public class ClientContextImpl implements Context {
 		}
 	}
 
+	/**
+	 * Create metrics and publish them to the configured registry.
+	 */
+	private void initializeMetrics() {
+		metrics = new ContextMetrics("client") {
+			@Override
+			public long getSearchRetryCount() {
+				final ChannelSearchManager searchManager = channelSearchManager;
+				return (searchManager instanceof SimpleChannelSearchManagerImpl) ?
+						((SimpleChannelSearchManagerImpl)searchManager).getSearchRetryCount() : 0;
+			}
+		};
+
+		try {
+			metricsRegistry = MetricsRegistryFactory.getRegistry(metricsRegistryName);
+			if (metricsRegistry != null)
+				metricsRegistry.register(metrics);
+		} catch (IllegalArgumentException iae) {
+			logger.log(Level.WARNING, "Metrics will not be published.", iae);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -539,6 +659,12 @@ public class ClientContextImpl implements Context {
 			}
 		}
 
+		if (pollerPool != null)
+			pollerPool.shutdown();
+
+		if (metricsRegistry != null)
+			metricsRegistry.unregister(metrics);
+
 	}
 
     /**
@@ -682,6 +808,16 @@ public class ClientContextImpl implements Context {
 		out.println("BEACON_PERIOD : " + beaconPeriod);
 		out.println("BROADCAST_PORT : " + broadcastPort);
 		out.println("RCV_BUFFER_SIZE : " + receiveBufferSize);
+		out.println("SEARCH_MAX_FRAMES_PER_SECOND : " + searchMaxFramesPerSecond);
+		out.println("SEARCH_MAX_FRAMES_BURST : " + searchMaxFramesBurst);
+		out.println("POLLER_THREADS : " + pollerThreads);
+		out.println("VIRTUAL_THREADS : " + virtualThreads);
+		out.println("INTROSPECTION_CACHE_SIZE : " + (introspectionCache != null ? introspectionCacheSize : 0));
+		out.println("METRICS : " + metricsEnabled);
+		if (metricsEnabled)
+			out.println("METRICS_REGISTRY : " + metricsRegistryName);
+		if (metrics != null)
+			metrics.printInfo(out);
 		// out.println("EVENT_DISPATCHER: " + eventDispatcher);
 		out.print("STATE : ");
 		switch (state) {
@@ -767,6 +903,30 @@ public class ClientContextImpl implements Context {
 		return debugLevel;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.Context#getMetrics()
+	 */
+	@Override
+	public ContextMetrics getMetrics() {
+		return metrics;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.Context#isVirtualThreadsEnabled()
+	 */
+	@Override
+	public boolean isVirtualThreadsEnabled() {
+		return virtualThreads;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.Context#getIntrospectionCache()
+	 */
+	@Override
+	public IntrospectionCache getIntrospectionCache() {
+		return introspectionCache;
+	}
+
 	/**
 	 * Get receive buffer size (max size of payload).
 	 * 
@@ -776,6 +936,24 @@ public class ClientContextImpl implements Context {
 		return receiveBufferSize;
 	}
 
+	/**
+	 * Get maximum (average) number of search frames sent per second.
+	 * 
+	 * @return search frame rate limit.
+	 */
+	public int getSearchMaxFramesPerSecond() {
+		return searchMaxFramesPerSecond;
+	}
+
+	/**
+	 * Get maximum number of search frames sent back-to-back.
+	 * 
+	 * @return search frame burst limit.
+	 */
+	public int getSearchMaxFramesBurst() {
+		return searchMaxFramesBurst;
+	}
+
 	/**
 	 * Get broadcast port.
 	 * 
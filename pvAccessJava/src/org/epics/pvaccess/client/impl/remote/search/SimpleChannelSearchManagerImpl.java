@@ -18,11 +18,13 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.epics.pvaccess.PVAConstants;
 import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
@@ -39,6 +41,13 @@ import org.epics.pvdata.pv.Field;
 
 
 /**
+ * Channel search manager.
+ * All the search requests are sent by a dedicated search thread, either immediately
+ * (coalesced) after registration or periodically (with back-off), packing as many
+ * channel names as fit in one datagram. Sending is rate-limited (token bucket),
+ * each frame is sent to every destination so that every destination receives at most
+ * <code>EPICS_PVA_SEARCH_MAX_FRAMES_PER_SECOND</code> search datagrams per second
+ * (after a burst of <code>EPICS_PVA_SEARCH_MAX_FRAMES_BURST</code> frames).
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $Id$
  */
@@ -65,16 +74,38 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 	private final ByteBuffer sendBuffer;
 	
     /**
-     * Set of registered channels.
+     * Registered (not yet found) channels, indexed by channel ID.
      */
-    private final Map<Integer, SearchInstance> channels = 
-    		Collections.synchronizedMap(new HashMap<Integer, SearchInstance>());
+    private final Map<Integer, SearchInstance> channels = new ConcurrentHashMap<Integer, SearchInstance>();
     
-    private final ArrayList<SearchInstance> immediateSearch = new ArrayList<SearchInstance>(128);
+    /**
+     * Channels to be searched immediately (batched by the search thread).
+     */
+    private final Queue<SearchInstance> immediateSearch = new ConcurrentLinkedQueue<SearchInstance>();
+    
+    /**
+     * Search thread wake-up signal, also guards <code>periodicSearchPending</code>.
+     */
+    private final Object searchSignal = new Object();
+    private boolean periodicSearchPending = false;
+    
+    private final Thread searchThread;
     
     private final TimerNode timerNode;
     private long lastTimeSent = 0;
     
+    private final TokenBucket frameRateLimiter;
+    
+    // statistics
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong searchesSent = new AtomicLong();
+    private final AtomicLong searchRetries = new AtomicLong();
+    private final AtomicLong responses = new AtomicLong();
+    private volatile double framesPerSecond = 0.0;
+    private volatile long lastFrameTime = 0;
+    private long rateIntervalStart = 0;
+    private int rateIntervalFrames = 0;
+    
     // 225ms +/- 25ms random
     private static final double ATOMIC_PERIOD = 0.225;
     private static final int PERIOD_JITTER_MS = 25;
@@ -87,6 +118,9 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 	{
 		this.context = context;
 
+		// rate limit, defaults give the same average rate as former bursts of 10 frames every 50ms
+		frameRateLimiter = new TokenBucket(context.getSearchMaxFramesPerSecond(), context.getSearchMaxFramesBurst());
+
 		// set search response address
 		InetSocketAddress responseSocketAddress = context.getSearchTransport().getRemoteAddress();
 		responsePort = (short)responseSocketAddress.getPort();
@@ -101,7 +135,8 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 		timerNode = TimerFactory.createNode(this);
 		context.getTimer().schedulePeriodic(timerNode, period, period);
 		
-		new Thread(this, "pvAccess immediate-search").start();
+		searchThread = new Thread(this, "pvAccess search");
+		searchThread.start();
 	}
 
 	public void run()
@@ -110,32 +145,44 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 		{
 			try
 			{
-				synchronized (immediateSearch) {
-					try {
-						// wait if empty
-						if (immediateSearch.size() == 0)
-							immediateSearch.wait();
-						
-						if (canceled)
-							return;
-						
-						// coalescence...
-						Thread.sleep(10);
-					} catch (InterruptedException e) {
-						// noop
-					}
+				boolean periodic;
+				synchronized (searchSignal) {
+					// wait if nothing to do
+					while (!canceled && !periodicSearchPending && immediateSearch.isEmpty())
+						searchSignal.wait();
+					
+					periodic = periodicSearchPending;
+					periodicSearchPending = false;
 				}
 				
-				SearchInstance[] sis;
-				synchronized (immediateSearch) {
-					if (immediateSearch.size() == 0)
-						return;
-					sis = new SearchInstance[immediateSearch.size()];
-					immediateSearch.toArray(sis);
+				if (canceled)
+					return;
+
+				if (periodic)
+				{
+					// all registered channels are searched, immediate ones included
 					immediateSearch.clear();
+					send(channels.values());
 				}
+				else
+				{
+					// coalescence... (no lock is held, registration is not blocked)
+					Thread.sleep(10);
+
+					ArrayList<SearchInstance> sis = new ArrayList<SearchInstance>();
+					SearchInstance si;
+					while ((si = immediateSearch.poll()) != null)
+					{
+						// skip already found (unregistered) channels
+						if (channels.get(si.getChannelID()) == si)
+							sis.add(si);
+					}
 					
-				send(sis);
+					send(sis);
+				}
+			}
+			catch (InterruptedException ie) {
+				// noop, canceled
 			}
 			catch (Exception th)
 			{
@@ -155,9 +202,11 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 		canceled = true;
 		
 		// wake-up
-		synchronized (immediateSearch) {
-			immediateSearch.notifyAll();
-		}		
+		synchronized (searchSignal) {
+			searchSignal.notifyAll();
+		}
+		// might be waiting for the rate limiter
+		searchThread.interrupt();
 		
 		timerNode.cancel();
 	}
@@ -200,19 +249,43 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 	
 	/**
 	 * Flush send buffer.
+	 * Called only by the search thread, blocks if send rate limit is reached.
+	 * @throws InterruptedException if search thread is interrupted (canceled).
 	 */
-	private synchronized void flushSendBuffer()
+	private void flushSendBuffer() throws InterruptedException
 	{
+		frameRateLimiter.acquire();
+		
+		final long now = System.currentTimeMillis();
+		framesSent.incrementAndGet();
+		lastFrameTime = now;
+		rateIntervalFrames++;
+		if (now - rateIntervalStart >= 1000)
+		{
+			framesPerSecond = (rateIntervalStart == 0) ? rateIntervalFrames : rateIntervalFrames * 1000.0 / (now - rateIntervalStart);
+			rateIntervalStart = now;
+			rateIntervalFrames = 0;
+		}
 		
 		sendBuffer.put(CAST_POSITION, (byte)0x80);	// unicast, no reply required
-		context.getSearchTransport().send(sendBuffer, InetAddressType.UNICAST);
+		sendFrame(sendBuffer, InetAddressType.UNICAST);
 		
 		sendBuffer.put(CAST_POSITION, (byte)0x00);	// b/m-cast, no reply required
-		context.getSearchTransport().send(sendBuffer, InetAddressType.BROADCAST_MULTICAST);
+		sendFrame(sendBuffer, InetAddressType.BROADCAST_MULTICAST);
 		
 		initializeSendBuffer();
 	}
 	
+	/**
+	 * Send a search frame via search transport.
+	 * @param frame the frame (search message).
+	 * @param target type of destination addresses.
+	 */
+	protected void sendFrame(ByteBuffer frame, InetAddressType target)
+	{
+		context.getSearchTransport().send(frame, target);
+	}
+	
 	private static final TransportSendControl mockTransportSendControl = new TransportSendControl() {
 
 		@Override
@@ -265,8 +338,7 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 			return false;
 		
 		final String name = si.getChannelName();
-		// not nice... 
-		final int addedPayloadSize = Integer.SIZE/Byte.SIZE + (1 + Integer.SIZE/Byte.SIZE + name.length()); 
+		final int addedPayloadSize = Integer.SIZE/Byte.SIZE + SerializeHelper.getSerializedSize(name);
 		
 		if (requestMessage.remaining() < addedPayloadSize)
 			return false;
@@ -285,8 +357,9 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 	 * @param channel 
 	 * @param allowNewFrame flag indicating if new search request message is allowed to be put in new frame.
 	 * @return <code>true</code> if new frame was sent.
+	 * @throws InterruptedException if search thread is interrupted (canceled).
 	 */
-	private synchronized boolean generateSearchRequestMessage(SearchInstance channel, boolean allowNewFrame, boolean flush)
+	private boolean generateSearchRequestMessage(SearchInstance channel, boolean allowNewFrame, boolean flush) throws InterruptedException
 	{
 		boolean success = generateSearchRequestMessage(channel, sendBuffer, mockTransportSendControl);
 		// buffer full, flush
@@ -312,9 +385,47 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 	 * @return number of registered channels.
 	 */
 	public int registeredCount() {
-		synchronized (channels) {
-			return channels.size();
-		}
+		return channels.size();
+	}
+	
+	/**
+	 * Get number of search frames (datagrams) sent, each frame is sent to every destination.
+	 * @return number of frames sent.
+	 */
+	public long getFramesSentCount() {
+		return framesSent.get();
+	}
+	
+	/**
+	 * Get search frame send rate, measured over last second.
+	 * @return frames sent per second.
+	 */
+	public double getFramesSentPerSecond() {
+		return (System.currentTimeMillis() - lastFrameTime > 2000) ? 0.0 : framesPerSecond;
+	}
+	
+	/**
+	 * Get number of channel search requests sent (one frame contains many of them).
+	 * @return number of search requests sent.
+	 */
+	public long getSearchesSentCount() {
+		return searchesSent.get();
+	}
+	
+	/**
+	 * Get number of channel search requests sent for channels already searched for before (not found yet).
+	 * @return number of repeated search requests.
+	 */
+	public long getSearchRetryCount() {
+		return searchRetries.get();
+	}
+	
+	/**
+	 * Get number of search responses received.
+	 * @return number of responses.
+	 */
+	public long getResponseCount() {
+		return responses.get();
 	}
 
 	public void register(SearchInstance channel)
@@ -332,18 +443,14 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 		if (canceled)
 			return;
 
-		synchronized (channels)
-		{
-			// overrided if already registered
-			channels.put(channel.getChannelID(), channel);
-			channel.getUserValue().set(penalize ? MAX_FALLBACK_COUNT_VALUE : DEFAULT_COUNT_VALUE);
-		}
+		// overrided if already registered
+		channel.getUserValue().set(penalize ? MAX_FALLBACK_COUNT_VALUE : DEFAULT_COUNT_VALUE);
+		channels.put(channel.getChannelID(), channel);
 
 		// put to immediate, batched list
-		synchronized (immediateSearch) {
-			immediateSearch.add(channel);
-			if (immediateSearch.size() == 1) 
-				immediateSearch.notify();
+		immediateSearch.add(channel);
+		synchronized (searchSignal) {
+			searchSignal.notify();
 		}
 	}
 
@@ -354,10 +461,7 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 	 */
 	public void unregister(SearchInstance channel)
 	{
-		synchronized (channels)
-		{
-			channels.remove(channel.getChannelID());
-		}
+		channels.remove(channel.getChannelID());
 	}
 	
 	/**
@@ -370,11 +474,10 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 	 */
 	public void searchResponse(GUID guid, int cid, int seqNo, byte minorRevision, InetSocketAddress serverAddress)
 	{
+		responses.incrementAndGet();
+		
 		// first remove
-		SearchInstance si;
-		synchronized (channels) {
-			si = (SearchInstance)channels.remove(cid);
-		}
+		SearchInstance si = channels.remove(cid);
 		
 		if (si == null) {
 			// minor hack to enable duplicate reports
@@ -418,10 +521,8 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 //			for (SearchInstance si : sis)
 //				si.getUserValue().set(BOOST_VALUE);
 //		}
-        synchronized (channels) {
-            for (SearchInstance searchInstance : channels.values()) {
-                searchInstance.getUserValue().set(BOOST_VALUE);
-            }
+        for (SearchInstance searchInstance : channels.values()) {
+            searchInstance.getUserValue().set(BOOST_VALUE);
         }
 	}
 	
@@ -437,22 +538,13 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 			lastTimeSent = now;
 		}
 
-		try 
-		{
-			SearchInstance[] sis;
-			synchronized (channels) {
-				if (channels.size() == 0)
-					return;
-				sis = new SearchInstance[channels.size()];
-				channels.values().toArray(sis);
-			}
-			
-			send(sis);
-		}
-		catch (Throwable th)
-		{
-			// should never happen, be we are careful and verbose
-			th.printStackTrace();
+		if (channels.isEmpty())
+			return;
+		
+		// sent by the search thread, timer (and beacon handler) must not be blocked by rate limiting
+		synchronized (searchSignal) {
+			periodicSearchPending = true;
+			searchSignal.notify();
 		}
 	}
 
@@ -461,16 +553,10 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 	  return ((x > 0) && (x & (x - 1)) == 0);
 	}
 	
-	private static final int MAX_FRAMES_AT_ONCE = 10;
-	private static final int DELAY_BETWEEN_FRAMES_MS = 50;
-	
-	private void send(SearchInstance[] sis) throws InterruptedException
+	private void send(Iterable<SearchInstance> sis) throws InterruptedException
 	{
-		if (sis.length == 0)
-			return;
-
 		int count = 0;
-		int frameSent = 0;
+		int retries = 0;
 		for (SearchInstance si : sis)
 		{
 			
@@ -488,18 +574,18 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 				continue;
 
 			count++;
+			if (countValue != DEFAULT_COUNT_VALUE)
+				retries++;
 			
-			if (generateSearchRequestMessage(si, true, false))
-				frameSent++;
-			if (frameSent == MAX_FRAMES_AT_ONCE) 
-			{
-				Thread.sleep(DELAY_BETWEEN_FRAMES_MS);
-				frameSent = 0; 
-			}
+			generateSearchRequestMessage(si, true, false);
 		}
 		
 		if (count > 0)
+		{
+			searchesSent.addAndGet(count);
+			searchRetries.addAndGet(retries);
 			flushSendBuffer();
+		}
 	}
 	
 	@Override
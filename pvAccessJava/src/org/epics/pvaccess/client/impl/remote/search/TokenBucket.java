@@ -0,0 +1,71 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.client.impl.remote.search;
+
+/**
+ * Token bucket rate limiter, tokens are refilled at a constant rate up to the burst size.
+ * Not thread-safe, it is meant to be used by one (e.g. search) thread.
+ */
+public class TokenBucket {
+	private final double tokensPerNs;
+	private final double capacity;
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * Create a full bucket.
+	 * @param ratePerSecond number of tokens refilled per second.
+	 * @param burst maximum number of tokens.
+	 */
+	public TokenBucket(int ratePerSecond, int burst) {
+		if (ratePerSecond <= 0 || burst <= 0)
+			throw new IllegalArgumentException("ratePerSecond and burst must be positive");
+		tokensPerNs = ratePerSecond / 1e9;
+		capacity = burst;
+		tokens = burst;
+		lastRefill = nanoTime();
+	}
+
+	/**
+	 * Get current time.
+	 * @return current time in nanoseconds, see <code>System.nanoTime()</code>.
+	 */
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+
+	private void refill() {
+		final long now = nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNs);
+		lastRefill = now;
+	}
+
+	/**
+	 * Take a token if available.
+	 * @return <code>true</code> if a token was taken.
+	 */
+	public boolean tryAcquire() {
+		refill();
+		if (tokens >= 1.0)
+		{
+			tokens -= 1.0;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Take a token, wait until one is available.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public void acquire() throws InterruptedException {
+		while (!tryAcquire())
+		{
+			final long waitNs = (long)Math.ceil((1.0 - tokens) / tokensPerNs);
+			Thread.sleep(waitNs / 1000000, (int)(waitNs % 1000000));
+		}
+	}
+}
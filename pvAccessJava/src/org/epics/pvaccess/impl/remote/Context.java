@@ -16,6 +16,7 @@ package org.epics.pvaccess.impl.remote;
 
 import java.util.Map;
 
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
 import org.epics.pvaccess.plugins.SecurityPlugin;
 import org.epics.pvaccess.util.logging.LoggerProvider;
 import org.epics.pvdata.misc.Timer;
@@ -52,4 +53,22 @@ public interface Context extends LoggerProvider {
 	 */
 	public int getDebugLevel();
 
+	/**
+	 * Get runtime metrics.
+	 * @return metrics, <code>null</code> if metrics are disabled.
+	 */
+	public ContextMetrics getMetrics();
+
+	/**
+	 * Check if blocking transports run their receive and send loops on virtual threads.
+	 * @return <code>true</code> if virtual threads are used.
+	 */
+	public boolean isVirtualThreadsEnabled();
+
+	/**
+	 * Get cache of introspection interfaces received by the transports of this context.
+	 * @return the cache, <code>null</code> if disabled.
+	 */
+	public IntrospectionCache getIntrospectionCache();
+
 }
@@ -0,0 +1,368 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Server-side credit window (flow control) of a pipeline monitor, wraps any provider <code>Monitor</code>.
+ * The client advertises its free queue slots (credits); an element is returned by <code>poll()</code>
+ * only if there is a credit left. Updates that arrive while there are no credits are handled
+ * according to the <code>OverflowPolicy</code>.
+ * Provider monitors implementing <code>PipelineMonitor</code> also get queue status reports forwarded.
+ * NOTE: only fields marked in the changed bit set of the provider's elements are expected to be valid.
+ */
+public class CreditWindowMonitor implements PipelineMonitor {
+
+	/**
+	 * What to do with the updates that cannot be sent (no credits left).
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Updates are buffered (backlog), when the backlog is full the oldest two updates are squashed,
+		 * i.e. the oldest update is dropped as a separate message (its changes are merged into the next one).
+		 */
+		DROP_OLDEST,
+		/**
+		 * Updates are buffered (backlog), when the backlog is full new updates are squashed into the latest one.
+		 */
+		SQUASH_LATEST,
+		/**
+		 * Provider elements are not polled, i.e. provider's queue fills up and its own overrun handling applies.
+		 */
+		BLOCK_PROVIDER
+	}
+
+	private static final Convert convert = ConvertFactory.getConvert();
+
+	private final MonitorRequester requester;
+	private final OverflowPolicy policy;
+	private final int backlogSize;
+
+	private Monitor monitor = null;
+	private OverflowPolicy activePolicy;
+
+	private int credits;
+	private boolean stalled = false;
+
+	// provider's updates that will never be polled as separate elements, since the last takeDroppedCount()
+	private int droppedCount = 0;
+
+	private final ArrayDeque<MonitorElement> freeElements;
+	private final ArrayDeque<MonitorElement> backlog;
+	private final Map<MonitorElement, MonitorElement> ownElements = new IdentityHashMap<MonitorElement, MonitorElement>();
+
+	// statistics
+	private int maxBacklog = 0;
+	private long overflowCount = 0;
+	private long creditStallCount = 0;
+
+	/**
+	 * Create a credit window.
+	 * @param requester requester to be notified (<code>monitorEvent</code>) when credits are received.
+	 * @param initialCredits initial number of credits, i.e. client's queue size.
+	 * @param policy overflow policy.
+	 * @param backlogSize maximum number of buffered updates (at least 2), not used by <code>BLOCK_PROVIDER</code> policy.
+	 */
+	public CreditWindowMonitor(MonitorRequester requester, int initialCredits, OverflowPolicy policy, int backlogSize) {
+		this.requester = requester;
+		this.credits = initialCredits;
+		this.policy = policy;
+		this.activePolicy = policy;
+		this.backlogSize = Math.max(2, backlogSize);
+		freeElements = new ArrayDeque<MonitorElement>(this.backlogSize);
+		backlog = new ArrayDeque<MonitorElement>(this.backlogSize);
+	}
+
+	/**
+	 * Set provider's monitor (on monitor connect).
+	 * @param monitor provider's monitor.
+	 * @param structure monitored structure, <code>null</code> if not known (no buffering is possible then).
+	 */
+	public void connect(Monitor monitor, Structure structure) {
+		int currentCredits;
+		synchronized (this) {
+			this.monitor = monitor;
+
+			freeElements.clear();
+			backlog.clear();
+			ownElements.clear();
+
+			if (structure == null)
+				activePolicy = OverflowPolicy.BLOCK_PROVIDER;
+			else
+			{
+				activePolicy = policy;
+				if (activePolicy != OverflowPolicy.BLOCK_PROVIDER)
+				{
+					for (int i = 0; i < backlogSize; i++)
+					{
+						MonitorElement element = MonitorQueueFactory.createMonitorElement(
+								PVFactory.getPVDataCreate().createPVStructure(structure));
+						freeElements.add(element);
+						ownElements.put(element, element);
+					}
+				}
+			}
+			currentCredits = credits;
+		}
+
+		if (monitor instanceof PipelineMonitor)
+			((PipelineMonitor)monitor).reportRemoteQueueStatus(currentCredits);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.PipelineMonitor#reportRemoteQueueStatus(int)
+	 */
+	@Override
+	public void reportRemoteQueueStatus(int freeElements) {
+		final Monitor monitor;
+		final boolean resume;
+		synchronized (this) {
+			credits += freeElements;
+			monitor = this.monitor;
+			// resume only if there was something not sent
+			resume = stalled && monitor != null;
+			stalled = false;
+		}
+
+		if (monitor instanceof PipelineMonitor)
+			((PipelineMonitor)monitor).reportRemoteQueueStatus(freeElements);
+
+		if (resume)
+			requester.monitorEvent(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.Monitor#poll()
+	 */
+	@Override
+	public synchronized MonitorElement poll() {
+		if (monitor == null)
+			return null;
+
+		if (credits <= 0)
+		{
+			creditStallCount++;
+			stalled = true;
+			if (activePolicy != OverflowPolicy.BLOCK_PROVIDER)
+				drain();
+			return null;
+		}
+
+		// backlog first (older), then directly from the provider (no copy)
+		MonitorElement element = backlog.pollFirst();
+		if (element == null)
+			element = monitor.poll();
+
+		if (element != null)
+			credits--;
+		return element;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.Monitor#release(org.epics.pvdata.monitor.MonitorElement)
+	 */
+	@Override
+	public synchronized void release(MonitorElement monitorElement) {
+		if (ownElements.containsKey(monitorElement))
+			freeElements.add(monitorElement);
+		else if (monitor != null)
+			monitor.release(monitorElement);
+	}
+
+	/**
+	 * Move provider's elements to the backlog, so that provider is not blocked.
+	 */
+	private void drain() {
+		MonitorElement element;
+		while ((element = monitor.poll()) != null)
+		{
+			try
+			{
+				MonitorElement target = freeElements.pollFirst();
+				if (target != null)
+				{
+					copy(element, target);
+					backlog.addLast(target);
+					maxBacklog = Math.max(maxBacklog, backlog.size());
+					continue;
+				}
+
+				// backlog full
+				overflowCount++;
+				droppedCount++;
+				if (activePolicy == OverflowPolicy.DROP_OLDEST && backlog.size() >= 2)
+				{
+					MonitorElement oldest = backlog.pollFirst();
+					MonitorElement next = backlog.pollFirst();
+					squash(oldest, next);
+					backlog.addFirst(oldest);
+
+					copy(element, next);
+					backlog.addLast(next);
+				}
+				else
+				{
+					// NOTE: non-empty since backlogSize >= 2 and at most one element is being sent
+					squash(backlog.peekLast(), element);
+				}
+			}
+			finally
+			{
+				monitor.release(element);
+			}
+		}
+	}
+
+	private static void copy(MonitorElement from, MonitorElement to) {
+		final BitSet changedBitSet = from.getChangedBitSet();
+		convert.copy(from.getPVStructure(), to.getPVStructure(), changedBitSet);
+
+		final BitSet toChangedBitSet = to.getChangedBitSet();
+		toChangedBitSet.clear();
+		toChangedBitSet.or(changedBitSet);
+
+		final BitSet toOverrunBitSet = to.getOverrunBitSet();
+		toOverrunBitSet.clear();
+		toOverrunBitSet.or(from.getOverrunBitSet());
+	}
+
+	/**
+	 * Squash newer update into an older one.
+	 * @param older update to be squashed into.
+	 * @param newer newer update.
+	 */
+	private static void squash(MonitorElement older, MonitorElement newer) {
+		final BitSet newerChangedBitSet = newer.getChangedBitSet();
+		convert.copy(newer.getPVStructure(), older.getPVStructure(), newerChangedBitSet);
+
+		final BitSet overrunBitSet = older.getOverrunBitSet();
+		overrunBitSet.or(newer.getOverrunBitSet());
+		overrunBitSet.or_and(older.getChangedBitSet(), newerChangedBitSet);
+		older.getChangedBitSet().or(newerChangedBitSet);
+	}
+
+	/**
+	 * Discard all the buffered updates, e.g. on (re)start not to send stale updates.
+	 */
+	public synchronized void clearBacklog() {
+		droppedCount += backlog.size();
+		while (!backlog.isEmpty())
+			freeElements.add(backlog.pollFirst());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.Monitor#start()
+	 */
+	@Override
+	public Status start() {
+		clearBacklog();
+		final Monitor monitor;
+		synchronized (this) {
+			monitor = this.monitor;
+		}
+		return (monitor != null) ? monitor.start() : PVFactory.getStatusCreate().getStatusOK();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.monitor.Monitor#stop()
+	 */
+	@Override
+	public Status stop() {
+		final Monitor monitor;
+		synchronized (this) {
+			monitor = this.monitor;
+		}
+		return (monitor != null) ? monitor.stop() : PVFactory.getStatusCreate().getStatusOK();
+	}
+
+	/**
+	 * Destroy the window, provider's monitor is not destroyed (it is owned by its creator).
+	 * @see org.epics.pvdata.misc.Destroyable#destroy()
+	 */
+	@Override
+	public synchronized void destroy() {
+		monitor = null;
+		backlog.clear();
+		freeElements.clear();
+		ownElements.clear();
+	}
+
+	/**
+	 * Get overflow policy in use.
+	 * @return overflow policy.
+	 */
+	public synchronized OverflowPolicy getOverflowPolicy() {
+		return activePolicy;
+	}
+
+	/**
+	 * Get number of credits left, i.e. free client queue slots.
+	 * @return number of credits.
+	 */
+	public synchronized int getCredits() {
+		return credits;
+	}
+
+	/**
+	 * Get number of buffered updates.
+	 * @return backlog size.
+	 */
+	public synchronized int getBacklog() {
+		return backlog.size();
+	}
+
+	/**
+	 * Get maximum number of buffered updates reached.
+	 * @return maximum backlog size.
+	 */
+	public synchronized int getMaxBacklog() {
+		return maxBacklog;
+	}
+
+	/**
+	 * Get number of updates squashed (or dropped) because the backlog was full.
+	 * @return overflow count.
+	 */
+	public synchronized long getOverflowCount() {
+		return overflowCount;
+	}
+
+	/**
+	 * Get and reset number of provider's updates dropped since the last call,
+	 * i.e. squashed into another update (backlog full) or discarded with the backlog.
+	 * Each of them was reported by a <code>monitorEvent</code> call, but will never be returned by <code>poll()</code>.
+	 * Updates moved to the backlog are not counted, they are returned by <code>poll()</code> when credits are received.
+	 * @return number of dropped updates.
+	 */
+	public synchronized int takeDroppedCount() {
+		final int count = droppedCount;
+		droppedCount = 0;
+		return count;
+	}
+
+	/**
+	 * Get number of polls that returned nothing because there were no credits left.
+	 * @return credit stall count.
+	 */
+	public synchronized long getCreditStallCount() {
+		return creditStallCount;
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.epics.pvaccess.impl.remote.metrics.TransportMetrics;
+import org.epics.pvdata.pv.Field;
+
+/**
+ * Bounded (LRU) cache of introspection interfaces received by the transports of a context.
+ * Equal (by content) introspection interfaces are resolved to the same instance,
+ * also after transports are recreated (e.g. reconnect after a server restart).
+ * Optional, enabled by the <code>EPICS_PVA_INTROSPECTION_CACHE_SIZE</code> context configuration property
+ * and only used when pvData does not intern introspection objects (which already gives the same instance).
+ * This class is thread safe.
+ */
+public final class IntrospectionCache {
+
+	private final int maxSize;
+	private final Map<Field, Field> cache;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * Constructor.
+	 * @param maxSize max. number of cached introspection interfaces, <code>0</code> disables the cache.
+	 */
+	public IntrospectionCache(final int maxSize)
+	{
+		this.maxSize = Math.max(0, maxSize);
+		this.cache = new LinkedHashMap<Field, Field>(16, 0.75f, true) {
+			private static final long serialVersionUID = -3718599563011546290L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Field, Field> eldest) {
+				if (size() > IntrospectionCache.this.maxSize)
+				{
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Get cached instance equal to the given introspection interface, or cache the given one.
+	 * @param field introspection interface, can be <code>null</code>.
+	 * @return cached instance (or <code>field</code>).
+	 */
+	public Field intern(Field field)
+	{
+		return intern(field, null);
+	}
+
+	/**
+	 * Get cached instance equal to the given introspection interface, or cache the given one,
+	 * also counting the hit (or miss) to the metrics of the transport that received the interface.
+	 * @param field introspection interface, can be <code>null</code>.
+	 * @param metrics transport metrics, can be <code>null</code>.
+	 * @return cached instance (or <code>field</code>).
+	 */
+	public Field intern(Field field, TransportMetrics metrics)
+	{
+		if (field == null || maxSize == 0)
+			return field;
+
+		Field cached;
+		synchronized (cache) {
+			cached = cache.get(field);
+			if (cached != null)
+				hits++;
+			else
+			{
+				misses++;
+				cache.put(field, field);
+			}
+		}
+
+		if (metrics != null)
+		{
+			if (cached != null)
+				metrics.introspectionCacheHit();
+			else
+				metrics.introspectionCacheMiss();
+		}
+		return (cached != null) ? cached : field;
+	}
+
+	/**
+	 * Get max. number of cached introspection interfaces.
+	 * @return max. size.
+	 */
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	/**
+	 * Get number of cached introspection interfaces.
+	 * @return size.
+	 */
+	public int getSize()
+	{
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Get number of cache hits.
+	 * @return number of hits.
+	 */
+	public long getHitCount()
+	{
+		synchronized (cache) {
+			return hits;
+		}
+	}
+
+	/**
+	 * Get number of cache misses.
+	 * @return number of misses.
+	 */
+	public long getMissCount()
+	{
+		synchronized (cache) {
+			return misses;
+		}
+	}
+
+	/**
+	 * Get number of evicted (least recently used) introspection interfaces.
+	 * @return number of evictions.
+	 */
+	public long getEvictionCount()
+	{
+		synchronized (cache) {
+			return evictions;
+		}
+	}
+
+	/**
+	 * Clear the cache and its statistics.
+	 */
+	public void clear()
+	{
+		synchronized (cache) {
+			cache.clear();
+			hits = misses = evictions = 0;
+		}
+	}
+}
@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.impl.remote.metrics.TransportMetrics;
 import org.epics.pvaccess.util.BooleanHolder;
 import org.epics.pvdata.pv.DeserializableControl;
 import org.epics.pvdata.pv.Field;
@@ -38,13 +39,39 @@ public final class IntrospectionRegistry {
 
 	protected Map<Short, Field> registry = 
 			new HashMap<>();
+	protected Map<Field, Short> outgoingKeys = 
+			new HashMap<>();
 	protected short pointer;
 	
+	protected IntrospectionCache cache = null;
+	
+	protected TransportMetrics metrics = null;
+	
 	public IntrospectionRegistry()
 	{
 		reset();
 	}
 	
+	/**
+	 * Set metrics of the transport using this registry, to count introspection cache hits and misses.
+	 * Must be called before the transport is started.
+	 * @param metrics transport metrics, <code>null</code> to disable.
+	 */
+	public void setMetrics(TransportMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Set cache used to resolve received introspection interfaces to shared instances.
+	 * Must be called before the transport is started.
+	 * @param cache introspection cache, <code>null</code> to disable.
+	 */
+	public void setCache(IntrospectionCache cache)
+	{
+		this.cache = cache;
+	}
+	
 	/**
 	 * Reset registry, i.e. must be done when transport is changed (server restarted).
 	 */
@@ -52,6 +79,7 @@ public final class IntrospectionRegistry {
 	{
 		pointer = 1;
 		registry.clear();
+		outgoingKeys.clear();
 	}
 	/**
 	 * Get introspection interface for given ID.
@@ -73,11 +101,6 @@ public final class IntrospectionRegistry {
 		registry.put(id, field);
 	}
 
-	/**
-	 * Private helper variable (optimization).
-	 */
-	private Short shortHolder = Short.valueOf((short)0);
-	
 	/**
 	 * Register introspection interface and get it's ID. Always OUTGOING.
 	 * If it is already registered only preassigned ID is returned.
@@ -87,16 +110,20 @@ public final class IntrospectionRegistry {
 	 */
 	public short registerIntrospectionInterface(Field field, BooleanHolder existing)
 	{
-		Field potentiallyExistingField = registry.get(shortHolder);
-		if(potentiallyExistingField != null && potentiallyExistingField.equals(field)) {
+		final Short existingKey = outgoingKeys.get(field);
+		if (existingKey != null) {
 			existing.value = true;
-			return shortHolder;
+			return existingKey;
 		}
 		else
 		{
 			existing.value = false;
 			final short key = pointer++;
-			registry.put(key, field);
+			// key space wraps around, drop the reverse mapping of the overwritten field
+			final Field previousField = registry.put(key, field);
+			if (previousField != null)
+				outgoingKeys.remove(previousField);
+			outgoingKeys.put(field, key);
 			return key;
 		}
 	}
@@ -150,6 +177,11 @@ public final class IntrospectionRegistry {
 
 	static final FieldCreate fieldCreate = PVFactory.getFieldCreate();
 	
+	private Field intern(Field field)
+	{
+		return (cache != null) ? cache.intern(field, metrics) : field;
+	}
+	
 	public final Field deserialize(ByteBuffer buffer, DeserializableControl control) {
 
 		control.ensureData(1);
@@ -170,7 +202,7 @@ public final class IntrospectionRegistry {
 		{
 			control.ensureData(Short.SIZE/Byte.SIZE);
 			final short key = buffer.getShort();
-			final Field field = fieldCreate.deserialize(buffer, control);
+			final Field field = intern(fieldCreate.deserialize(buffer, control));
 			registerIntrospectionInterface(key, field);
 			return field;
 		}
@@ -178,7 +210,13 @@ public final class IntrospectionRegistry {
 		{
 			// return typeCode back
 			buffer.position(pos);
-			return fieldCreate.deserialize(buffer, control);
+			final Field field = fieldCreate.deserialize(buffer, control);
+			// do not cache scalars, scalarArrays (see serialize)
+			if (field.getType() != Type.scalar &&
+				field.getType() != Type.scalarArray)
+				return intern(field);
+			else
+				return field;
 		}
 	}
 
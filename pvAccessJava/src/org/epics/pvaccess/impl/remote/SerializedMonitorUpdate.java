@@ -0,0 +1,153 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.SerializableControl;
+
+/**
+ * Monitor update serialized once and shared among all its subscribers.
+ * Encoding is done lazily (once per byte order) on first use; introspection data
+ * (e.g. variant union values) is always encoded in full, therefore encoding does not depend
+ * on a transport and can be copied to any of them.
+ * NOTE: update data must not be changed once this instance is handed to pvAccess.
+ */
+public final class SerializedMonitorUpdate {
+
+	private static final int ENCODE_BUFFER_SIZE = 16*1024;
+
+	private final PVStructure pvStructure;
+	private final BitSet changedBitSet;
+	private final BitSet overrunBitSet;
+
+	private volatile ByteBuffer bigEndianEncoding;
+	private volatile ByteBuffer littleEndianEncoding;
+
+	/**
+	 * Constructor.
+	 * @param pvStructure update data.
+	 * @param changedBitSet changed bit-set.
+	 * @param overrunBitSet overrun bit-set.
+	 */
+	public SerializedMonitorUpdate(PVStructure pvStructure, BitSet changedBitSet, BitSet overrunBitSet)
+	{
+		this.pvStructure = pvStructure;
+		this.changedBitSet = changedBitSet;
+		this.overrunBitSet = overrunBitSet;
+	}
+
+	/**
+	 * Get encoded update (changed bit-set, changed data and overrun bit-set).
+	 * @param byteOrder byte order of the encoding.
+	 * @return read-only buffer, its position and limit can be freely changed by the caller.
+	 */
+	public ByteBuffer getEncoding(ByteOrder byteOrder)
+	{
+		final boolean bigEndian = (byteOrder == ByteOrder.BIG_ENDIAN);
+		ByteBuffer encoding = bigEndian ? bigEndianEncoding : littleEndianEncoding;
+		if (encoding == null)
+		{
+			synchronized (this) {
+				encoding = bigEndian ? bigEndianEncoding : littleEndianEncoding;
+				if (encoding == null)
+				{
+					encoding = encode(byteOrder).asReadOnlyBuffer();
+					if (bigEndian)
+						bigEndianEncoding = encoding;
+					else
+						littleEndianEncoding = encoding;
+				}
+			}
+		}
+		return encoding.duplicate();
+	}
+
+	/**
+	 * Copy encoded update to the buffer, flushing it via control when full.
+	 * @param buffer serialization buffer.
+	 * @param control serialization control.
+	 */
+	public void serialize(ByteBuffer buffer, SerializableControl control)
+	{
+		final ByteBuffer encoding = getEncoding(buffer.order());
+		final int limit = encoding.limit();
+		while (encoding.hasRemaining())
+		{
+			final int bytesToCopy = Math.min(buffer.remaining(), encoding.remaining());
+			if (bytesToCopy == 0)
+			{
+				control.flushSerializeBuffer();
+				continue;
+			}
+			encoding.limit(encoding.position() + bytesToCopy);
+			buffer.put(encoding);
+			encoding.limit(limit);
+		}
+	}
+
+	private ByteBuffer encode(ByteOrder byteOrder)
+	{
+		final Encoder encoder = new Encoder(byteOrder);
+		final ByteBuffer buffer = encoder.buffer;
+		changedBitSet.serialize(buffer, encoder);
+		pvStructure.serialize(buffer, encoder, changedBitSet);
+		overrunBitSet.serialize(buffer, encoder);
+		encoder.flushSerializeBuffer();
+		return ByteBuffer.wrap(encoder.data, 0, encoder.size).slice().order(byteOrder);
+	}
+
+	/**
+	 * Serialization control that collects flushed data into a growing array.
+	 */
+	private static final class Encoder implements SerializableControl {
+
+		final ByteBuffer buffer;
+		byte[] data = new byte[ENCODE_BUFFER_SIZE];
+		int size = 0;
+
+		Encoder(ByteOrder byteOrder)
+		{
+			buffer = ByteBuffer.allocate(ENCODE_BUFFER_SIZE).order(byteOrder);
+		}
+
+		@Override
+		public void flushSerializeBuffer() {
+			buffer.flip();
+			final int bytes = buffer.remaining();
+			if (size + bytes > data.length)
+				data = Arrays.copyOf(data, Math.max(data.length * 2, size + bytes));
+			buffer.get(data, size, bytes);
+			size += bytes;
+			buffer.clear();
+		}
+
+		@Override
+		public void ensureBuffer(int size) {
+			if (buffer.remaining() < size)
+				flushSerializeBuffer();
+		}
+
+		@Override
+		public void alignBuffer(int alignment) {
+			// data is position independent, encoding is never aligned
+		}
+
+		@Override
+		public void cachedSerialize(Field field, ByteBuffer buffer) {
+			// full description w/o ID, valid for every transport
+			if (field == null)
+				SerializationHelper.serializeNullField(buffer, this);
+			else
+				field.serialize(buffer, this);
+		}
+	}
+}
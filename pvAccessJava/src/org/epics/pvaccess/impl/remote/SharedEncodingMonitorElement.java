@@ -0,0 +1,25 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote;
+
+import org.epics.pvdata.monitor.MonitorElement;
+
+/**
+ * Shared encoding monitor element support API (optional).
+ * Providers that deliver the same update to many monitors created with an equal pvRequest
+ * can return the same <code>SerializedMonitorUpdate</code> instance from all the elements
+ * carrying that update; pvAccess then serializes the update only once and copies the
+ * encoded bytes to every subscriber.
+ */
+public interface SharedEncodingMonitorElement extends MonitorElement {
+
+	/**
+	 * Get the (shared) serialized form of this element.
+	 * @return serialized update, <code>null</code> to serialize the element as usual.
+	 */
+	SerializedMonitorUpdate getSerializedMonitorUpdate();
+
+}
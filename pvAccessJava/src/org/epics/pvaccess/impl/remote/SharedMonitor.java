@@ -0,0 +1,530 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Status.StatusType;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Server-side monitor fan-out, one provider <code>Monitor</code> serves all the monitors
+ * of a channel created with an equal pvRequest (subscribers).
+ * Every provider update is copied once into an immutable snapshot that is queued to all the
+ * started subscribers as a <code>SharedEncodingMonitorElement</code>, i.e. it is serialized only once
+ * regardless of the number of subscribers. Each subscriber has its own bounded queue,
+ * when it is full the oldest two updates are squashed (the squashed update is serialized separately).
+ * The provider monitor is created on the channel of one of the subscribers, if that channel goes away
+ * it is re-created on the channel of another subscriber.
+ * NOTE: to be used only with providers that serve the same data to all the clients.
+ */
+public class SharedMonitor {
+
+	private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
+	private static final Convert convert = ConvertFactory.getConvert();
+
+	/**
+	 * Create a monitor that shares the provider's monitor with all the other monitors
+	 * of the same channel created with an equal pvRequest.
+	 * @param registry shared monitors, keyed by provider name, channel name and pvRequest.
+	 * @param channel channel to monitor.
+	 * @param requester monitor requester.
+	 * @param pvRequest pvRequest.
+	 * @param queueSize maximum number of updates queued per subscriber (at least 2).
+	 * @return (subscriber) monitor.
+	 */
+	public static Monitor createMonitor(Map<String, SharedMonitor> registry, Channel channel,
+			MonitorRequester requester, PVStructure pvRequest, int queueSize)
+	{
+		final String key = channel.getProvider().getProviderName() + '\n' + channel.getChannelName() + '\n' + pvRequest;
+		while (true)
+		{
+			SharedMonitor sharedMonitor;
+			synchronized (registry) {
+				sharedMonitor = registry.get(key);
+				if (sharedMonitor == null)
+				{
+					sharedMonitor = new SharedMonitor(registry, key, pvRequest, queueSize);
+					registry.put(key, sharedMonitor);
+				}
+			}
+
+			// null if destroyed in the meantime
+			final Monitor monitor = sharedMonitor.subscribe(channel, requester);
+			if (monitor != null)
+				return monitor;
+		}
+	}
+
+	private final Map<String, SharedMonitor> registry;
+	private final String key;
+	private final PVStructure pvRequest;
+	private final int queueSize;
+
+	private final List<Subscriber> subscribers = new ArrayList<Subscriber>();
+	private Upstream upstream = null;
+	private boolean upstreamStarted = false;
+	private boolean destroyed = false;
+
+	private Status status = null;
+	private Structure structure = null;
+
+	// current (accumulated) value, given to subscribers started later
+	private PVStructure current = null;
+	private final BitSet currentBitSet = new BitSet();
+
+	private SharedMonitor(Map<String, SharedMonitor> registry, String key, PVStructure pvRequest, int queueSize) {
+		this.registry = registry;
+		this.key = key;
+		this.pvRequest = pvRequest;
+		this.queueSize = Math.max(2, queueSize);
+	}
+
+	/**
+	 * Provider's update, shared by all the subscribers.
+	 */
+	private static final class SharedElement implements SharedEncodingMonitorElement {
+		private final PVStructure pvStructure;
+		private final BitSet changedBitSet;
+		private final BitSet overrunBitSet;
+		private final SerializedMonitorUpdate serializedUpdate;
+
+		SharedElement(PVStructure pvStructure, BitSet changedBitSet, BitSet overrunBitSet, boolean shared) {
+			this.pvStructure = pvStructure;
+			this.changedBitSet = changedBitSet;
+			this.overrunBitSet = overrunBitSet;
+			this.serializedUpdate = (shared && changedBitSet != null) ?
+					new SerializedMonitorUpdate(pvStructure, changedBitSet, overrunBitSet) : null;
+		}
+
+		@Override
+		public PVStructure getPVStructure() {
+			return pvStructure;
+		}
+
+		@Override
+		public BitSet getChangedBitSet() {
+			return changedBitSet;
+		}
+
+		@Override
+		public BitSet getOverrunBitSet() {
+			return overrunBitSet;
+		}
+
+		@Override
+		public SerializedMonitorUpdate getSerializedMonitorUpdate() {
+			return serializedUpdate;
+		}
+	}
+
+	/**
+	 * Monitor handed to the requester of each (client) monitor.
+	 */
+	private class Subscriber implements Monitor {
+		private final Channel channel;
+		private final MonitorRequester requester;
+		private final ArrayDeque<SharedElement> queue;
+		private boolean connected = false;
+		private boolean started = false;
+
+		Subscriber(Channel channel, MonitorRequester requester) {
+			this.channel = channel;
+			this.requester = requester;
+			this.queue = new ArrayDeque<SharedElement>(queueSize);
+		}
+
+		/**
+		 * Queue an update, must be called holding the shared monitor lock.
+		 * @param element update to queue.
+		 * @return <code>true</code> if the queue was empty.
+		 */
+		boolean add(SharedElement element) {
+			if (queue.size() >= queueSize)
+			{
+				final SharedElement older = queue.pollFirst();
+				final SharedElement newer = queue.pollFirst();
+				queue.addFirst(squash(older, newer));
+			}
+			queue.addLast(element);
+			return queue.size() == 1;
+		}
+
+		@Override
+		public MonitorElement poll() {
+			synchronized (SharedMonitor.this) {
+				return queue.pollFirst();
+			}
+		}
+
+		@Override
+		public void release(MonitorElement monitorElement) {
+			// snapshots are immutable, nothing to recycle
+		}
+
+		@Override
+		public Status start() {
+			return startSubscriber(this);
+		}
+
+		@Override
+		public Status stop() {
+			return stopSubscriber(this);
+		}
+
+		@Override
+		public void destroy() {
+			destroySubscriber(this);
+		}
+	}
+
+	/**
+	 * Requester of the provider's monitor, a new one is created for every provider monitor.
+	 */
+	private class Upstream implements MonitorRequester {
+		private final Channel channel;
+		private Monitor monitor = null;
+
+		Upstream(Channel channel) {
+			this.channel = channel;
+		}
+
+		void create() {
+			try {
+				channel.createMonitor(this, pvRequest);
+			} catch (Throwable th) {
+				// simply cannot trust code above
+				upstreamConnect(this, PVFactory.getStatusCreate().createStatus(StatusType.FATAL,
+						"Unexpected exception caught: " + th.getMessage(), th), null, null);
+			}
+		}
+
+		@Override
+		public String getRequesterName() {
+			return "shared monitor of " + channel.getChannelName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			for (Subscriber subscriber : getSubscribers())
+				subscriber.requester.message(message, messageType);
+		}
+
+		@Override
+		public void monitorConnect(Status status, Monitor monitor, Structure structure) {
+			upstreamConnect(this, status, monitor, structure);
+		}
+
+		@Override
+		public void monitorEvent(Monitor monitor) {
+			upstreamEvent(this, monitor);
+		}
+
+		@Override
+		public void unlisten(Monitor monitor) {
+			synchronized (SharedMonitor.this) {
+				if (this != upstream)
+					return;
+			}
+			for (Subscriber subscriber : getSubscribers())
+				subscriber.requester.unlisten(subscriber);
+		}
+	}
+
+	private synchronized Subscriber[] getSubscribers() {
+		return subscribers.toArray(new Subscriber[subscribers.size()]);
+	}
+
+	/**
+	 * Add a subscriber.
+	 * @param channel channel of the subscriber.
+	 * @param requester monitor requester.
+	 * @return subscriber's monitor, <code>null</code> if this shared monitor was already destroyed.
+	 */
+	private Monitor subscribe(Channel channel, MonitorRequester requester) {
+		final Subscriber subscriber = new Subscriber(channel, requester);
+		Upstream newUpstream = null;
+		Status connectStatus = null;
+		Structure connectStructure = null;
+		synchronized (this) {
+			if (destroyed)
+				return null;
+
+			subscribers.add(subscriber);
+			if (upstream == null)
+				upstream = newUpstream = new Upstream(channel);
+			else if (status != null)
+			{
+				subscriber.connected = true;
+				connectStatus = status;
+				connectStructure = structure;
+			}
+		}
+
+		// a new subscriber is notified by upstreamConnect()
+		if (newUpstream != null)
+			newUpstream.create();
+		else if (connectStatus != null)
+			requester.monitorConnect(connectStatus, subscriber, connectStructure);
+
+		return subscriber;
+	}
+
+	private void upstreamConnect(Upstream source, Status status, Monitor monitor, Structure structure) {
+		final List<Subscriber> connect = new ArrayList<Subscriber>();
+		final List<Subscriber> unlisten = new ArrayList<Subscriber>();
+		boolean start = false;
+		synchronized (this) {
+			if (source != upstream)
+				return;
+
+			source.monitor = monitor;
+			if (status.isSuccess())
+			{
+				if (current == null || !structure.equals(this.structure))
+				{
+					current = pvDataCreate.createPVStructure(structure);
+					currentBitSet.clear();
+				}
+				this.status = status;
+				this.structure = structure;
+				start = upstreamStarted;
+			}
+			else
+			{
+				// failed, new subscribers will create a new shared monitor
+				if (this.status == null)
+					this.status = status;
+				remove();
+			}
+
+			for (Subscriber subscriber : subscribers)
+			{
+				if (!subscriber.connected)
+				{
+					subscriber.connected = true;
+					connect.add(subscriber);
+				}
+				else if (!status.isSuccess())
+					unlisten.add(subscriber);
+			}
+		}
+
+		for (Subscriber subscriber : connect)
+			subscriber.requester.monitorConnect(status, status.isSuccess() ? subscriber : null, structure);
+		for (Subscriber subscriber : unlisten)
+			subscriber.requester.unlisten(subscriber);
+
+		// re-created provider monitor
+		if (start)
+			monitor.start();
+	}
+
+	private void upstreamEvent(Upstream source, Monitor monitor) {
+		final List<Subscriber> notify = new ArrayList<Subscriber>();
+		synchronized (this) {
+			if (source != upstream || current == null)
+				return;
+
+			MonitorElement element;
+			while ((element = monitor.poll()) != null)
+			{
+				try
+				{
+					final SharedElement sharedElement = snapshot(element);
+					for (Subscriber subscriber : subscribers)
+						if (subscriber.started && subscriber.add(sharedElement) && !notify.contains(subscriber))
+							notify.add(subscriber);
+				}
+				finally
+				{
+					monitor.release(element);
+				}
+			}
+		}
+
+		for (Subscriber subscriber : notify)
+			subscriber.requester.monitorEvent(subscriber);
+	}
+
+	/**
+	 * Copy provider's update, must be called holding the lock.
+	 * @param element provider's element.
+	 * @return (immutable) shared copy.
+	 */
+	private SharedElement snapshot(MonitorElement element) {
+		final BitSet changedBitSet = element.getChangedBitSet();
+		if (changedBitSet == null)
+			return new SharedElement(null, null, null, false);
+
+		final PVStructure pvStructure = pvDataCreate.createPVStructure(structure);
+		convert.copy(element.getPVStructure(), pvStructure, changedBitSet);
+		convert.copy(element.getPVStructure(), current, changedBitSet);
+		currentBitSet.or(changedBitSet);
+
+		return new SharedElement(pvStructure, (BitSet)changedBitSet.clone(),
+				(BitSet)element.getOverrunBitSet().clone(), true);
+	}
+
+	/**
+	 * Squash newer update into (a copy of) an older one, must be called holding the lock.
+	 * @param older older update.
+	 * @param newer newer update.
+	 * @return squashed update, not shared.
+	 */
+	private SharedElement squash(SharedElement older, SharedElement newer) {
+		if (older.changedBitSet == null || newer.changedBitSet == null)
+			return newer;
+
+		final PVStructure pvStructure = pvDataCreate.createPVStructure(structure);
+		convert.copy(older.pvStructure, pvStructure, older.changedBitSet);
+		convert.copy(newer.pvStructure, pvStructure, newer.changedBitSet);
+
+		final BitSet changedBitSet = (BitSet)older.changedBitSet.clone();
+		changedBitSet.or(newer.changedBitSet);
+
+		final BitSet overrunBitSet = (BitSet)older.overrunBitSet.clone();
+		overrunBitSet.or(newer.overrunBitSet);
+		overrunBitSet.or_and(older.changedBitSet, newer.changedBitSet);
+
+		return new SharedElement(pvStructure, changedBitSet, overrunBitSet, false);
+	}
+
+	private Status startSubscriber(Subscriber subscriber) {
+		Monitor monitor = null;
+		boolean notify = false;
+		synchronized (this) {
+			if (subscriber.started || destroyed)
+				return PVFactory.getStatusCreate().getStatusOK();
+			subscriber.started = true;
+			subscriber.queue.clear();
+
+			if (!upstreamStarted)
+			{
+				// if not yet connected, started on connect
+				upstreamStarted = true;
+				monitor = upstream.monitor;
+			}
+			else if (current != null && !currentBitSet.isEmpty())
+			{
+				// provider already started, give the current value
+				final PVStructure pvStructure = pvDataCreate.createPVStructure(structure);
+				convert.copy(current, pvStructure, currentBitSet);
+				notify = subscriber.add(new SharedElement(pvStructure, (BitSet)currentBitSet.clone(),
+						new BitSet(currentBitSet.size()), false));
+			}
+		}
+
+		if (notify)
+			subscriber.requester.monitorEvent(subscriber);
+
+		return (monitor != null) ? monitor.start() : PVFactory.getStatusCreate().getStatusOK();
+	}
+
+	private Status stopSubscriber(Subscriber subscriber) {
+		final Monitor monitor;
+		synchronized (this) {
+			if (!subscriber.started)
+				return PVFactory.getStatusCreate().getStatusOK();
+			subscriber.started = false;
+			subscriber.queue.clear();
+
+			monitor = stopUpstreamIfIdle();
+		}
+
+		return (monitor != null) ? monitor.stop() : PVFactory.getStatusCreate().getStatusOK();
+	}
+
+	/**
+	 * Stop provider's monitor if there is no started subscriber, must be called holding the lock.
+	 * @return monitor to stop (outside the lock), <code>null</code> if none.
+	 */
+	private Monitor stopUpstreamIfIdle() {
+		if (!upstreamStarted || upstream == null)
+			return null;
+		for (Subscriber subscriber : subscribers)
+			if (subscriber.started)
+				return null;
+		upstreamStarted = false;
+		return upstream.monitor;
+	}
+
+	private void destroySubscriber(Subscriber subscriber) {
+		Monitor toDestroy = null;
+		Monitor toStop = null;
+		Upstream newUpstream = null;
+		synchronized (this) {
+			if (!subscribers.remove(subscriber))
+				return;
+			subscriber.started = false;
+			subscriber.queue.clear();
+
+			if (subscribers.isEmpty())
+			{
+				if (upstream != null)
+					toDestroy = upstream.monitor;
+				upstream = null;
+				remove();
+			}
+			else if (!destroyed && upstream != null && subscriber.channel == upstream.channel && !hasChannel(upstream.channel))
+			{
+				// provider's monitor belongs to the subscriber's channel (that is going away), re-create it
+				toDestroy = upstream.monitor;
+				upstream = newUpstream = new Upstream(subscribers.get(0).channel);
+			}
+			else
+				toStop = stopUpstreamIfIdle();
+		}
+
+		if (toStop != null)
+			toStop.stop();
+		if (toDestroy != null)
+			toDestroy.destroy();
+		if (newUpstream != null)
+			newUpstream.create();
+	}
+
+	private boolean hasChannel(Channel channel) {
+		for (Subscriber subscriber : subscribers)
+			if (subscriber.channel == channel)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Remove from the registry, must be called holding the lock.
+	 */
+	private void remove() {
+		destroyed = true;
+		synchronized (registry) {
+			if (registry.get(key) == this)
+				registry.remove(key);
+		}
+	}
+
+	/**
+	 * Get number of subscribers.
+	 * @return number of subscribers.
+	 */
+	public synchronized int getSubscriberCount() {
+		return subscribers.size();
+	}
+}
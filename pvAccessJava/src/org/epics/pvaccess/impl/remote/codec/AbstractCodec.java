@@ -5,7 +5,9 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,7 +15,10 @@ import java.util.logging.Logger;
 import org.epics.pvaccess.PVAConstants;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
-import org.epics.pvaccess.util.Mailbox;
+import org.epics.pvaccess.impl.remote.metrics.TransportMetrics;
+import org.epics.pvaccess.util.MPSCMailbox;
+import org.epics.pvdata.pv.DirectDeserializableControl;
+import org.epics.pvdata.pv.DirectSerializableControl;
 
 // NOTE: non-blocking
 // NOTE: not good to have readPollOne() and writePollOne() in parallel
@@ -26,7 +31,8 @@ import org.epics.pvaccess.util.Mailbox;
 // processRead -> ensureData -> pollOne -> processWrite -> enusreBuffer -> flush -> buffer full -> poolOne... same story as above
 
 public abstract class AbstractCodec
-	implements ReadableByteChannel, WritableByteChannel, TransportSendControl {
+	implements ReadableByteChannel, WritableByteChannel, ScatteringByteChannel, GatheringByteChannel, TransportSendControl,
+			   DirectSerializableControl, DirectDeserializableControl {
 
 	protected final Logger logger;
 	
@@ -39,6 +45,14 @@ public abstract class AbstractCodec
 	static public final int MAX_ENSURE_DATA_SIZE = MAX_ENSURE_SIZE/2;
 	static public final int MAX_ENSURE_BUFFER_SIZE = MAX_ENSURE_SIZE;
 
+	// smaller data is copied via send/receive buffer
+	static public final int MIN_DIRECT_TRANSFER_SIZE = 64*1024;
+
+	// scatter/gather buffers of direct transfers, references are cleared after use
+	private final ByteBuffer[] scatterBuffers = new ByteBuffer[2];
+	private final ByteBuffer[] gatherBuffers = new ByteBuffer[3];
+	private final ByteBuffer paddingBuffer;
+
 	protected final ByteBuffer socketBuffer;
 	
 	public enum ReadMode { NORMAL, SPLIT, SEGMENTED };
@@ -54,6 +68,17 @@ public abstract class AbstractCodec
 	private int storedLimit;
 
 	private int startPosition;
+
+	/**
+	 * Transport metrics, <code>null</code> if metrics are disabled.
+	 * NOTE: to be set before the transport is started.
+	 */
+	protected TransportMetrics metrics = null;
+
+	/**
+	 * Time (<code>System.nanoTime()</code>) of the last read from the socket, updated only if metrics are enabled.
+	 */
+	private long lastReceiveTime = 0;
 	
 	public AbstractCodec(boolean serverFlag, ByteBuffer receiveBuffer, ByteBuffer sendBuffer,
 			int socketSendBufferSize, boolean blockingProcessQueue, Logger logger)
@@ -85,6 +110,23 @@ public abstract class AbstractCodec
 		this.socketSendBufferSize = socketSendBufferSize;
 		this.blockingProcessQueue = blockingProcessQueue;
 		this.logger = logger;
+		this.paddingBuffer = ByteBuffer.wrap(PADDING_BYTES);
+	}
+
+	/**
+	 * Set transport metrics, must be called before the transport is started.
+	 * @param metrics transport metrics, <code>null</code> to disable.
+	 */
+	public void setMetrics(TransportMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Get transport metrics.
+	 * @return transport metrics, <code>null</code> if disabled.
+	 */
+	public TransportMetrics getMetrics() {
+		return metrics;
 	}
 	
 
@@ -184,6 +226,9 @@ public abstract class AbstractCodec
 					{
 						// handle response					
 						processApplicationMessage();
+						
+						if (metrics != null)
+							metrics.messageProcessed(lastReceiveTime);
 					}
 					/*
 					catch (Throwable th) {
@@ -337,6 +382,11 @@ public abstract class AbstractCodec
 				close();
 				throw new ConnectionClosedException("bytesRead < 0");
 			}
+			else if (bytesRead > 0 && metrics != null)
+			{
+				metrics.bytesReceived(bytesRead);
+				lastReceiveTime = System.nanoTime();
+			}
 			// non-blocking IO support
 			else if (bytesRead == 0)
 			{
@@ -469,6 +519,83 @@ public abstract class AbstractCodec
 	}
 
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.DirectDeserializableControl#directDeserialize(java.nio.ByteBuffer, java.nio.ByteBuffer)
+	 */
+	@Override
+	public boolean directDeserialize(ByteBuffer existingBuffer, ByteBuffer data) {
+		if (existingBuffer != socketBuffer || readMode != ReadMode.NORMAL)
+			return false;
+
+		final int dataSize = data.remaining();
+		final int bufferedBytes = socketBuffer.remaining();
+		if (dataSize - bufferedBytes < MIN_DIRECT_TRANSFER_SIZE)
+			return false;
+		
+		// all the data must be part of the current message (segment) payload
+		final int payloadLeft = storedPayloadSize - (socketBuffer.position() - storedPosition);
+		if (payloadLeft < dataSize)
+			return false;
+		
+		// consume what was already read, i.e. the rest of the buffer
+		data.put(socketBuffer);
+
+		// buffer is empty, reposition it to preserve alignment as if data was read through it
+		final int newPosition = MAX_ENSURE_SIZE + (socketBuffer.position() + data.remaining()) % PVAConstants.PVA_ALIGNMENT;
+		socketBuffer.limit(socketBuffer.capacity());
+		socketBuffer.position(newPosition);
+
+		// read the rest directly from the channel (scattering read),
+		// whatever follows the data (e.g. next message) is read to the buffer
+		scatterBuffers[0] = data;
+		scatterBuffers[1] = socketBuffer;
+		ReadMode storedMode = readMode; readMode = ReadMode.SPLIT;
+		try
+		{
+			while (data.hasRemaining())
+			{
+				final long bytesRead = this.read(scatterBuffers);
+				if (bytesRead < 0)
+				{
+					close();
+					throw new ConnectionClosedException("bytesRead < 0");
+				}
+				else if (bytesRead > 0 && metrics != null)
+				{
+					metrics.bytesReceived(bytesRead);
+					lastReceiveTime = System.nanoTime();
+				}
+				// non-blocking IO support
+				else if (bytesRead == 0)
+					this.readPollOne();
+			}
+		}
+		catch (IOException ex) {
+			try {
+				close();
+			} catch (IOException iex) {
+				// noop, best-effort close
+			}
+			throw new ConnectionClosedException("Failed to read data directly.", ex);
+		}
+		finally
+		{
+			readMode = storedMode;
+			scatterBuffers[0] = null;
+			scatterBuffers[1] = null;
+		}
+		
+		// set pointers (aka flip), buffer contains data read ahead (if any)
+		socketBuffer.limit(socketBuffer.position());
+		socketBuffer.position(newPosition);
+		storedPayloadSize = payloadLeft - dataSize;
+		storedPosition = newPosition;
+		storedLimit = socketBuffer.limit();
+		socketBuffer.limit(Math.min(storedPosition + storedPayloadSize, storedLimit));
+		
+		return true;
+	}
+
 	public static final int alignedValue(int value, int alignment)
 	{
 		final int k = (alignment - 1);
@@ -536,7 +663,7 @@ public abstract class AbstractCodec
 	 */
 	protected long totalBytesSent = 0;
 
-	protected final Mailbox<TransportSender> sendQueue = new Mailbox<TransportSender>();
+	protected final MPSCMailbox<TransportSender> sendQueue = new MPSCMailbox<TransportSender>();
 	protected final boolean blockingProcessQueue;
 
 	private Thread senderThread = null;
@@ -588,6 +715,9 @@ public abstract class AbstractCodec
 		sendBuffer.put(command);	// command
 		sendBuffer.putInt(0);		// temporary zero payload
 		
+		if (metrics != null)
+			metrics.messageSent();
+		
 		// apply offset
 		if (nextMessagePayloadOffset > 0)
 			sendBuffer.position(sendBuffer.position() + nextMessagePayloadOffset);
@@ -728,6 +858,56 @@ public abstract class AbstractCodec
 			startMessage(lastSegmentedMessageCommand, 0);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.DirectSerializableControl#directSerialize(java.nio.ByteBuffer, java.nio.ByteBuffer)
+	 */
+	@Override
+	public boolean directSerialize(ByteBuffer existingBuffer, ByteBuffer data) {
+		if (existingBuffer != sendBuffer || lastMessageStartPosition < 0 ||
+			data.remaining() < MIN_DIRECT_TRANSFER_SIZE)
+			return false;
+
+		// send already serialized part as a segment,
+		// this also starts a new segment (puts its header to the buffer)
+		flush(false);
+		
+		// new segment contains only (already applied alignment offset and) data
+		final int payloadSize = sendBuffer.position() - lastMessageStartPosition - PVAConstants.PVA_MESSAGE_HEADER_SIZE + data.remaining();
+		sendBuffer.putInt(lastMessageStartPosition + (Short.SIZE/Byte.SIZE + 2), payloadSize);
+		final int paddingSize = alignedValue(payloadSize, PVAConstants.PVA_ALIGNMENT) - payloadSize;
+		
+		sendBuffer.flip();
+		paddingBuffer.limit(paddingSize);
+		paddingBuffer.position(0);
+		// header, data and padding with a single (gathering) write
+		gatherBuffers[0] = sendBuffer;
+		gatherBuffers[1] = data;
+		gatherBuffers[2] = paddingBuffer;
+		try {
+			send(gatherBuffers);
+		} catch (IOException e) {
+			try {
+				if (isOpen())
+					close();
+			} catch (IOException iex) {
+				// noop, best-effort close
+			}
+			throw new ConnectionClosedException("Failed to send buffer.", e);
+		} finally {
+			gatherBuffers[0] = null;
+			gatherBuffers[1] = null;
+			gatherBuffers[2] = null;
+		}
+		sendBuffer.clear();
+		
+		// continue with next segment
+		lastMessageStartPosition = -1;
+		nextMessagePayloadOffset = payloadSize % PVAConstants.PVA_ALIGNMENT;
+		startMessage(lastSegmentedMessageCommand, 0);
+		
+		return true;
+	}
+
 	public enum WriteMode { PROCESS_SEND_QUEUE, WAIT_FOR_READY_SIGNAL };
 	protected WriteMode writeMode = WriteMode.PROCESS_SEND_QUEUE;
 	protected boolean writeOpReady = false;
@@ -799,6 +979,8 @@ public abstract class AbstractCodec
         		continue;
         	}
 			totalBytesSent += bytesSent;
+			if (metrics != null)
+				metrics.bytesSent(bytesSent);
 			
         	// readjust limit
     		if (bytesToSend == maxBytesToSend)
@@ -814,6 +996,127 @@ public abstract class AbstractCodec
 //System.out.println("Sent, position " + buffer.position() + " of total " + limit + " bytes.");
         }
 	}
+
+	/**
+	 * Send buffers through the transport, using gathering writes.
+	 * NOTE: TCP sent buffer/sending has to be synchronized (not done by this method).
+	 * @param buffers	buffers to be sent, in order
+	 * @throws IOException IO exception rethrown. 
+	 */
+	protected void send(ByteBuffer[] buffers) throws IOException
+	{
+		// limit sending, see send(ByteBuffer)
+		final int maxBytesToSend = Math.min(socketSendBufferSize, remoteTransportSocketReceiveBufferSize) / 2;
+
+		int tries = 0;
+		int first = 0;
+		while (true)
+		{
+			while (first < buffers.length && !buffers[first].hasRemaining())
+				first++;
+			if (first == buffers.length)
+				break;
+
+			// find the last buffer to be (partially) sent
+			int last = first;
+			int bytesToSend = 0;
+			int storedLimit = -1;
+			for (; last < buffers.length; last++)
+			{
+				final ByteBuffer buffer = buffers[last];
+				final int remaining = buffer.remaining();
+				if (remaining > maxBytesToSend - bytesToSend)
+				{
+					storedLimit = buffer.limit();
+					buffer.limit(buffer.position() + (maxBytesToSend - bytesToSend));
+					last++;
+					break;
+				}
+				bytesToSend += remaining;
+			}
+
+			final long bytesSent;
+			try {
+				bytesSent = this.write(buffers, first, last - first);
+			} finally {
+				if (storedLimit >= 0)
+					buffers[last - 1].limit(storedLimit);
+			}
+
+			if (bytesSent < 0)
+			{
+				// connection lost
+				close();
+				throw new ConnectionClosedException("bytesSent < 0");
+			}
+			else if (bytesSent == 0)
+			{
+				sendBufferFull(tries++);
+				continue;
+			}
+			totalBytesSent += bytesSent;
+			if (metrics != null)
+				metrics.bytesSent(bytesSent);
+			tries = 0;
+		}
+	}
+
+	/**
+	 * Gathering write, writes buffers one by one until a buffer is not written completely.
+	 * Channel based implementations should override it to use a single (gathering) write.
+	 * @see java.nio.channels.GatheringByteChannel#write(java.nio.ByteBuffer[], int, int)
+	 */
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		long bytesWritten = 0;
+		for (int i = offset; i < offset + length; i++)
+		{
+			final ByteBuffer src = srcs[i];
+			if (!src.hasRemaining())
+				continue;
+
+			final int count = this.write(src);
+			if (count < 0)
+				return (bytesWritten == 0) ? -1 : bytesWritten;
+			bytesWritten += count;
+			if (src.hasRemaining())
+				break;
+		}
+		return bytesWritten;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.GatheringByteChannel#write(java.nio.ByteBuffer[])
+	 */
+	@Override
+	public final long write(ByteBuffer[] srcs) throws IOException {
+		return write(srcs, 0, srcs.length);
+	}
+
+	/**
+	 * Scattering read, reads only to the first buffer with remaining space (no read-ahead),
+	 * since a subsequent read could block.
+	 * Channel based implementations should override it to use a single (scattering) read.
+	 * @see java.nio.channels.ScatteringByteChannel#read(java.nio.ByteBuffer[], int, int)
+	 */
+	@Override
+	public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+		for (int i = offset; i < offset + length; i++)
+		{
+			final ByteBuffer dst = dsts[i];
+			if (dst.hasRemaining())
+				return this.read(dst);
+		}
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.ScatteringByteChannel#read(java.nio.ByteBuffer[])
+	 */
+	@Override
+	public final long read(ByteBuffer[] dsts) throws IOException {
+		return read(dsts, 0, dsts.length);
+	}
 	
 	/*
 	// sendBufferFull for non-blocking
@@ -858,6 +1161,9 @@ public abstract class AbstractCodec
 						return;
 				}
 				
+				if (metrics != null)
+					metrics.senderDequeued();
+				
 				processSender(sender);
 			}
 		}
@@ -874,9 +1180,13 @@ public abstract class AbstractCodec
 	public final void clearSendQueue()
 	{
 		sendQueue.clear();
+		if (metrics != null)
+			metrics.sendQueueCleared();
 	}
 
 	public final void enqueueSendRequest(TransportSender sender) {
+		if (metrics != null)
+			metrics.senderEnqueued();
 		sendQueue.put(sender);
 		scheduleSend();
 	}
@@ -9,15 +9,37 @@ import java.util.logging.Logger;
 import org.epics.pvaccess.PVAConstants;
 import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
 import org.epics.pvaccess.impl.remote.codec.ConnectionClosedException;
+import org.epics.pvaccess.util.VirtualThreadSupport;
 
 // TODO check if send thread is terminated
 
-// NOTE: supports 2 threads per connection (receive and send)
+// NOTE: supports 2 threads per connection (receive and send),
+// virtual threads are used if enabled via setVirtualThreads() (and supported by the JVM)
 public abstract class BlockingAbstractCodec extends AbstractCodec {
 
 	// TODO not via config
 	private final boolean debug = Integer.getInteger(PVAConstants.PVACCESS_DEBUG, 0) >= 3;
 
+	// run receive and send loops on virtual threads, if supported
+	private volatile boolean virtualThreads = false;
+	
+	/**
+	 * Run receive and send loops on virtual threads, to be set before <code>start()</code>.
+	 * Ignored if virtual threads are not supported by the JVM.
+	 * @param virtualThreads <code>true</code> to use virtual threads.
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads && VirtualThreadSupport.isAvailable();
+	}
+	
+	/**
+	 * Check if receive and send loops run on virtual threads.
+	 * @return <code>true</code> if virtual threads are used.
+	 */
+	public boolean isUsingVirtualThreads() {
+		return virtualThreads;
+	}
+
 	private final AtomicBoolean isOpen = new AtomicBoolean(true);
 
 	public BlockingAbstractCodec(boolean serverFlag, ByteBuffer receiveBuffer, ByteBuffer sendBuffer,
@@ -95,20 +117,20 @@ public abstract class BlockingAbstractCodec extends AbstractCodec {
 	
 	public void start()
 	{
-		readThread = new Thread(new Runnable() {
+		readThread = VirtualThreadSupport.newThread(new Runnable() {
 			@Override
 			public void run() {
 				receiveThread();
 			}
-		}, "receiveThread");
+		}, "receiveThread", virtualThreads);
 		readThread.start();
 		
-		sendThread = new Thread(new Runnable() {
+		sendThread = VirtualThreadSupport.newThread(new Runnable() {
 			@Override
 			public void run() {
 				sendThread();
 			}
-		}, "sendThread");
+		}, "sendThread", virtualThreads);
 		sendThread.start();
 		
 	}
@@ -42,6 +42,18 @@ public abstract class BlockingDatagramAbstractCodec extends BlockingAbstractCode
 		return channel.write(src);
 	}
 
+	@Override
+	public boolean directSerialize(ByteBuffer existingBuffer, ByteBuffer data) {
+		// datagram is a message, no direct transfer possible
+		return false;
+	}
+
+	@Override
+	public boolean directDeserialize(ByteBuffer existingBuffer, ByteBuffer data) {
+		// datagram is a message, no direct transfer possible
+		return false;
+	}
+
 	@Override
 	void internalDestroy() {
 		if (channel.isOpen())
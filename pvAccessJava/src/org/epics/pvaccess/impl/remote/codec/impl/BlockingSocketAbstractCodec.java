@@ -39,6 +39,16 @@ public abstract class BlockingSocketAbstractCodec extends BlockingAbstractCodec
 	public int write(ByteBuffer src) throws IOException {
 		return channel.write(src);
 	}
+
+	@Override
+	public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+		return channel.read(dsts, offset, length);
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		return channel.write(srcs, offset, length);
+	}
 	
 	@Override
 	protected void internalDestroy() {
@@ -2,11 +2,14 @@ package org.epics.pvaccess.impl.remote.codec.impl;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
+import org.epics.pvaccess.impl.remote.codec.ConnectionClosedException;
 import org.epics.pvaccess.impl.remote.io.PollEvents;
 import org.epics.pvaccess.impl.remote.io.Poller;
 
@@ -35,6 +38,10 @@ public abstract class NonBlockingAbstractCodec extends AbstractCodec implements
 		setSenderThread();
 		this.key = key;
 		ready();
+		
+		// requests enqueued before the registration
+		if (!sendQueue.isEmpty())
+			scheduleSend();
 	}
 
 	/* (non-Javadoc)
@@ -42,11 +49,19 @@ public abstract class NonBlockingAbstractCodec extends AbstractCodec implements
 	 */
 	@Override
 	public void pollNotify(SelectionKey key) throws IOException {
-		if (key.isReadable())
-			processRead();
-		// TODO use a flag, go here immediately... avoid setting WRITE selection key
-		if (key.isWritable())	// TODO else?
-			processWrite();
+		// an exception must not escape to the poller, it serves other transports too
+		try {
+			if (key.isReadable())
+				processRead();
+			// TODO use a flag, go here immediately... avoid setting WRITE selection key
+			if (key.isWritable())	// TODO else?
+				processWrite();
+		} catch (ConnectionClosedException cce) {
+			// noop
+		} catch (IOException e) {
+			logger.log(Level.FINER, "IO exception caught while processing poll event.", e);
+			close();
+		}
 	}
 
 	@Override
@@ -70,13 +85,38 @@ public abstract class NonBlockingAbstractCodec extends AbstractCodec implements
 	@Override
 	public void scheduleSend() {
 		//System.out.println("scheduleSend");
-		key.interestOps(SelectionKey.OP_WRITE);	// TODO allow read?
+		// not yet registered, ready() will schedule the send
+		final SelectionKey key = this.key;
+		if (key == null || !key.isValid())
+			return;
+		
+		try {
+			if ((key.interestOps() & SelectionKey.OP_WRITE) == 0)
+			{
+				key.interestOps(SelectionKey.OP_WRITE);	// TODO allow read?
+				// poller might be blocked in select() with the old interest set
+				key.selector().wakeup();
+			}
+		} catch (CancelledKeyException cke) {
+			// closed meanwhile, noop
+		}
 	}
 
 	@Override
 	public void sendCompleted() {
 		//System.out.println("sendCompleted");
-		key.interestOps(SelectionKey.OP_READ);
+		final SelectionKey key = this.key;
+		if (key == null || !key.isValid())
+			return;
+		
+		try {
+			key.interestOps(SelectionKey.OP_READ);
+			// request might have been enqueued while OP_WRITE was still set
+			if (!sendQueue.isEmpty())
+				key.interestOps(SelectionKey.OP_WRITE);
+		} catch (CancelledKeyException cke) {
+			// closed meanwhile, noop
+		}
 	}
 
 	/* (non-Javadoc)
@@ -32,7 +32,15 @@ public abstract class NonBlockingSocketAbstractCodec extends NonBlockingAbstract
 		super(serverFlag, poller, receiveBuffer, sendBuffer, channel.socket().getSendBufferSize(), logger);
 		this.channel = channel;
 		this.socketAddress = (InetSocketAddress)channel.socket().getRemoteSocketAddress();
-	
+	}
+
+	/**
+	 * Register the channel with the poller.
+	 * Must be called by the concrete class at the end of its constructor,
+	 * <code>ready()</code> is called by the poller thread as soon as the channel is registered.
+	 */
+	public void start()
+	{
 		// TODO
 		try {
 			channel.configureBlocking(false);
@@ -53,6 +61,16 @@ public abstract class NonBlockingSocketAbstractCodec extends NonBlockingAbstract
 		return channel.write(src);
 	}
 
+	@Override
+	public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+		return channel.read(dsts, offset, length);
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+		return channel.write(srcs, offset, length);
+	}
+
 	@Override
 	protected void internalDestroy() {
 		if (channel.isOpen())
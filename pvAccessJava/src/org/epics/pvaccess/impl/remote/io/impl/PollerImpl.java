@@ -10,6 +10,7 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.epics.pvaccess.impl.remote.io.PollEvents;
 import org.epics.pvaccess.impl.remote.io.Poller;
@@ -25,22 +26,53 @@ public class PollerImpl implements Poller, Runnable {
 	// wake-up time kills low-latency, this mechanism loops selectNow for some time
 	private int trottle = 0;
 
+	private final String name;
+	
+	private volatile boolean shutdown = false;
+	
+	// number of registered keys, updated by the polling thread
+	private volatile int keyCount = 0;
+	
+	private final AtomicInteger pendingRegistrations = new AtomicInteger();
+	
 	public PollerImpl() throws IOException {
+		this("PollerImpl-");
+	}
+
+	public PollerImpl(String name) throws IOException {
+		this.name = name;
 		selector = Selector.open();
 	}
 
 	public void start() {
-		Thread t = new Thread(this,"PollerImpl-");
+		Thread t = new Thread(this,name);
 		//t.setPriority(Thread.NORM_PRIORITY);
 		t.start();
 	}
 
+	/**
+	 * Stop the polling thread and close the selector.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		selector.wakeup();
+	}
+	
+	/**
+	 * Get number of channels registered (or being registered) to this poller.
+	 * @return the load of this poller.
+	 */
+	public int getLoad() {
+		return keyCount + pendingRegistrations.get();
+	}
+
 	/* (non-Javadoc)
 	 * @see com.cosylab.jam.io.Poller#add(java.nio.channels.SelectableChannel, com.cosylab.jam.io.PollEvents, int)
 	 */
 	@Override
 	public void add(SelectableChannel channel, PollEvents handler, int ops) 
 	{
+		pendingRegistrations.incrementAndGet();
 		registrations.add(new RegistrationRequest(channel, handler, ops));
 		selector.wakeup();
 	}
@@ -87,15 +119,23 @@ public class PollerImpl implements Poller, Runnable {
 			if (rr == null)
 				break;
 
+			SelectionKey key = null;
+			Throwable registrationException = null;
 			try
 			{
-				SelectionKey key = rr.channel.register(selector, rr.ops, rr.handler);
-				rr.handler.registeredNotify(key, null);
-			} catch (Throwable registrationException) {
+				key = rr.channel.register(selector, rr.ops, rr.handler);
+			} catch (Throwable th) {
 				// watch for exception from here
-				rr.handler.registeredNotify(null, registrationException);
+				registrationException = th;
 			}
+			
+			// update load before notifying
+			keyCount = selector.keys().size();
+			pendingRegistrations.decrementAndGet();
+			
+			rr.handler.registeredNotify(key, registrationException);
 		}
+		keyCount = selector.keys().size();
 		
 		int numSelectedKeys;
 		if (trottle == 0)
@@ -140,8 +180,7 @@ public class PollerImpl implements Poller, Runnable {
 	{
 		try
 		{
-			// TODO shutdown
-			while (true)
+			while (!shutdown)
 				pollOne();
 		} catch (Throwable th) {
 			// IOException, ClosedSelectorException
@@ -149,6 +188,14 @@ public class PollerImpl implements Poller, Runnable {
 			// TODO
 			th.printStackTrace();
 		}
+		finally
+		{
+			try {
+				selector.close();
+			} catch (IOException e) {
+				// noop
+			}
+		}
 	}
 
 }
@@ -0,0 +1,146 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.io.impl;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.pvaccess.impl.remote.io.Poller;
+
+/**
+ * Pool of pollers (reactors), each running its own selector on its own thread.
+ * Every (non-blocking) transport is assigned to one of the pollers,
+ * so that IO processing of many connections is spread across cores.
+ * NOTE: a transport must use the same poller for its whole lifetime
+ * (<code>pollOne()</code> is called on the poller the channel is registered with).
+ */
+public class PollerPool {
+
+	/**
+	 * Poller assignment policy.
+	 */
+	public enum AssignmentPolicy {
+		/**
+		 * Pollers are assigned in turn.
+		 */
+		ROUND_ROBIN,
+		/**
+		 * Poller with least registered channels is assigned.
+		 */
+		LEAST_LOADED
+	}
+
+	private final PollerImpl[] pollers;
+	private final AssignmentPolicy policy;
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * Create a pool with one poller per available processor and round-robin assignment.
+	 * @param name name prefix of the poller threads.
+	 * @throws IOException if selector cannot be opened.
+	 */
+	public PollerPool(String name) throws IOException {
+		this(name, Runtime.getRuntime().availableProcessors(), AssignmentPolicy.ROUND_ROBIN);
+	}
+
+	/**
+	 * Create a pool.
+	 * @param name name prefix of the poller threads.
+	 * @param size number of pollers, <code>0</code> or negative means one per available processor.
+	 * @param policy poller assignment policy.
+	 * @throws IOException if selector cannot be opened.
+	 */
+	public PollerPool(String name, int size, AssignmentPolicy policy) throws IOException {
+		if (size <= 0)
+			size = Runtime.getRuntime().availableProcessors();
+		this.policy = policy;
+		pollers = new PollerImpl[size];
+		try
+		{
+			for (int i = 0; i < size; i++)
+				pollers[i] = new PollerImpl(name + i);
+		}
+		catch (IOException ioex)
+		{
+			shutdown();
+			throw ioex;
+		}
+	}
+
+	/**
+	 * Start all the pollers.
+	 */
+	public void start() {
+		for (PollerImpl poller : pollers)
+			poller.start();
+	}
+
+	/**
+	 * Shutdown all the pollers.
+	 */
+	public void shutdown() {
+		for (PollerImpl poller : pollers)
+			if (poller != null)
+				poller.shutdown();
+	}
+
+	/**
+	 * Get a poller to be used by a new transport.
+	 * @return the assigned poller.
+	 */
+	public Poller getPoller() {
+		if (pollers.length == 1)
+			return pollers[0];
+
+		if (policy == AssignmentPolicy.LEAST_LOADED)
+		{
+			// start at different pollers to spread equally loaded ones
+			final int start = (next.getAndIncrement() & Integer.MAX_VALUE) % pollers.length;
+			PollerImpl leastLoaded = pollers[start];
+			int minLoad = leastLoaded.getLoad();
+			for (int i = 1; i < pollers.length && minLoad > 0; i++)
+			{
+				final PollerImpl poller = pollers[(start + i) % pollers.length];
+				final int load = poller.getLoad();
+				if (load < minLoad)
+				{
+					leastLoaded = poller;
+					minLoad = load;
+				}
+			}
+			return leastLoaded;
+		}
+		else
+			return pollers[(next.getAndIncrement() & Integer.MAX_VALUE) % pollers.length];
+	}
+
+	/**
+	 * Get number of pollers.
+	 * @return number of pollers.
+	 */
+	public int getSize() {
+		return pollers.length;
+	}
+
+	/**
+	 * Get the assignment policy.
+	 * @return the assignment policy.
+	 */
+	public AssignmentPolicy getAssignmentPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Get load of each of the pollers, i.e. number of registered channels.
+	 * @return array of loads.
+	 */
+	public int[] getLoads() {
+		int[] loads = new int[pollers.length];
+		for (int i = 0; i < pollers.length; i++)
+			loads[i] = pollers[i].getLoad();
+		return loads;
+	}
+}
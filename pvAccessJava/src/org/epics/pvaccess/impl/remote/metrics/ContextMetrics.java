@@ -0,0 +1,270 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics of a client or server context.
+ * A context that has metrics disabled has no <code>ContextMetrics</code> instance
+ * (<code>Context.getMetrics()</code> returns <code>null</code>), so the hot paths
+ * only pay a <code>null</code> check.
+ * Context specific statistics (e.g. search retries) are provided by overriding the getters.
+ */
+public class ContextMetrics implements ContextMetricsMXBean {
+
+	private final String contextName;
+
+	private final Set<TransportMetrics> transports = ConcurrentHashMap.<TransportMetrics>newKeySet();
+
+	// totals of closed transports
+	private final LongAdder closedBytesReceived = new LongAdder();
+	private final LongAdder closedBytesSent = new LongAdder();
+	private final LongAdder closedMessagesReceived = new LongAdder();
+	private final LongAdder closedMessagesSent = new LongAdder();
+	private final LatencyHistogram closedReceiveLatency = new LatencyHistogram();
+	private final LongAdder closedIntrospectionCacheHits = new LongAdder();
+	private final LongAdder closedIntrospectionCacheMisses = new LongAdder();
+
+	private final LongAdder monitorOverruns = new LongAdder();
+
+	/**
+	 * Create context metrics.
+	 * @param contextName name of the context, e.g. <code>client</code> or <code>server</code>.
+	 */
+	public ContextMetrics(String contextName) {
+		this.contextName = contextName;
+	}
+
+	/**
+	 * Create metrics of a new transport.
+	 * @param name transport name, i.e. remote address.
+	 * @return transport metrics.
+	 */
+	public TransportMetrics createTransportMetrics(String name) {
+		TransportMetrics metrics = new TransportMetrics(this, name);
+		transports.add(metrics);
+		return metrics;
+	}
+
+	void transportClosed(TransportMetrics metrics) {
+		closedBytesReceived.add(metrics.getBytesReceived());
+		closedBytesSent.add(metrics.getBytesSent());
+		closedMessagesReceived.add(metrics.getMessagesReceived());
+		closedMessagesSent.add(metrics.getMessagesSent());
+		metrics.getReceiveLatency().addTo(closedReceiveLatency);
+		closedIntrospectionCacheHits.add(metrics.getIntrospectionCacheHits());
+		closedIntrospectionCacheMisses.add(metrics.getIntrospectionCacheMisses());
+		transports.remove(metrics);
+	}
+
+	/**
+	 * Monitor update merged into a previous one (overrun), i.e. update lost.
+	 */
+	public void monitorOverrun() {
+		monitorOverruns.increment();
+	}
+
+	/**
+	 * Get metrics of active transports.
+	 * @return active transports metrics.
+	 */
+	public TransportMetrics[] getTransportMetrics() {
+		ArrayList<TransportMetrics> list = new ArrayList<TransportMetrics>(transports);
+		return list.toArray(new TransportMetrics[list.size()]);
+	}
+
+	/**
+	 * Get receive-to-callback latency of all the transports.
+	 * @return a new (snapshot) histogram.
+	 */
+	public LatencyHistogram getReceiveLatency() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		closedReceiveLatency.addTo(histogram);
+		for (TransportMetrics metrics : transports)
+			metrics.getReceiveLatency().addTo(histogram);
+		return histogram;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getContextName()
+	 */
+	@Override
+	public String getContextName() {
+		return contextName;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getActiveTransports()
+	 */
+	@Override
+	public int getActiveTransports() {
+		return transports.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getBytesReceived()
+	 */
+	@Override
+	public long getBytesReceived() {
+		long sum = closedBytesReceived.sum();
+		for (TransportMetrics metrics : transports)
+			sum += metrics.getBytesReceived();
+		return sum;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getBytesSent()
+	 */
+	@Override
+	public long getBytesSent() {
+		long sum = closedBytesSent.sum();
+		for (TransportMetrics metrics : transports)
+			sum += metrics.getBytesSent();
+		return sum;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getMessagesReceived()
+	 */
+	@Override
+	public long getMessagesReceived() {
+		long sum = closedMessagesReceived.sum();
+		for (TransportMetrics metrics : transports)
+			sum += metrics.getMessagesReceived();
+		return sum;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getMessagesSent()
+	 */
+	@Override
+	public long getMessagesSent() {
+		long sum = closedMessagesSent.sum();
+		for (TransportMetrics metrics : transports)
+			sum += metrics.getMessagesSent();
+		return sum;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getSendQueueDepth()
+	 */
+	@Override
+	public int getSendQueueDepth() {
+		int sum = 0;
+		for (TransportMetrics metrics : transports)
+			sum += metrics.getSendQueueDepth();
+		return sum;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getReceiveLatencyCount()
+	 */
+	@Override
+	public long getReceiveLatencyCount() {
+		return getReceiveLatency().getCount();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getReceiveLatencyMedian()
+	 */
+	@Override
+	public long getReceiveLatencyMedian() {
+		return getReceiveLatency().getPercentile(50);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getReceiveLatency99thPercentile()
+	 */
+	@Override
+	public long getReceiveLatency99thPercentile() {
+		return getReceiveLatency().getPercentile(99);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getReceiveLatency999thPercentile()
+	 */
+	@Override
+	public long getReceiveLatency999thPercentile() {
+		return getReceiveLatency().getPercentile(99.9);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getMonitorOverrunCount()
+	 */
+	@Override
+	public long getMonitorOverrunCount() {
+		return monitorOverruns.sum();
+	}
+
+	/**
+	 * Get number of repeated channel searches, <code>0</code> if the context does not search.
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getSearchRetryCount()
+	 */
+	@Override
+	public long getSearchRetryCount() {
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getIntrospectionCacheHitCount()
+	 */
+	@Override
+	public long getIntrospectionCacheHitCount() {
+		// NOTE: cache is shared by all the contexts, only lookups of this context's transports are counted
+		long sum = closedIntrospectionCacheHits.sum();
+		for (TransportMetrics metrics : transports)
+			sum += metrics.getIntrospectionCacheHits();
+		return sum;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getIntrospectionCacheMissCount()
+	 */
+	@Override
+	public long getIntrospectionCacheMissCount() {
+		long sum = closedIntrospectionCacheMisses.sum();
+		for (TransportMetrics metrics : transports)
+			sum += metrics.getIntrospectionCacheMisses();
+		return sum;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.ContextMetricsMXBean#getTransports()
+	 */
+	@Override
+	public String[] getTransports() {
+		final TransportMetrics[] metrics = getTransportMetrics();
+		final String[] summary = new String[metrics.length];
+		for (int i = 0; i < metrics.length; i++)
+			summary[i] = metrics[i].toString();
+		return summary;
+	}
+
+	/**
+	 * Print metrics.
+	 * @param out output stream.
+	 */
+	public void printInfo(PrintStream out) {
+		out.println("METRICS_CONTEXT : " + contextName);
+		out.println("METRICS_ACTIVE_TRANSPORTS : " + getActiveTransports());
+		out.println("METRICS_BYTES_IN : " + getBytesReceived());
+		out.println("METRICS_BYTES_OUT : " + getBytesSent());
+		out.println("METRICS_MESSAGES_IN : " + getMessagesReceived());
+		out.println("METRICS_MESSAGES_OUT : " + getMessagesSent());
+		out.println("METRICS_SEND_QUEUE_DEPTH : " + getSendQueueDepth());
+		out.println("METRICS_RECEIVE_LATENCY_P50 : " + getReceiveLatencyMedian() + " ns");
+		out.println("METRICS_RECEIVE_LATENCY_P99 : " + getReceiveLatency99thPercentile() + " ns");
+		out.println("METRICS_MONITOR_OVERRUNS : " + getMonitorOverrunCount());
+		out.println("METRICS_SEARCH_RETRIES : " + getSearchRetryCount());
+		out.println("METRICS_INTROSPECTION_CACHE_HITS : " + getIntrospectionCacheHitCount());
+		out.println("METRICS_INTROSPECTION_CACHE_MISSES : " + getIntrospectionCacheMissCount());
+	}
+}
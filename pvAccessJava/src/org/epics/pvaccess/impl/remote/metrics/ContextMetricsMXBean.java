@@ -0,0 +1,51 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.metrics;
+
+/**
+ * JMX management interface of <code>ContextMetrics</code>.
+ * Counters are totals over all the transports of the context, closed ones included.
+ * Latencies are in nanoseconds.
+ */
+public interface ContextMetricsMXBean {
+
+	public String getContextName();
+
+	public int getActiveTransports();
+
+	public long getBytesReceived();
+
+	public long getBytesSent();
+
+	public long getMessagesReceived();
+
+	public long getMessagesSent();
+
+	public int getSendQueueDepth();
+
+	public long getReceiveLatencyCount();
+
+	public long getReceiveLatencyMedian();
+
+	public long getReceiveLatency99thPercentile();
+
+	public long getReceiveLatency999thPercentile();
+
+	public long getMonitorOverrunCount();
+
+	public long getSearchRetryCount();
+
+	public long getIntrospectionCacheHitCount();
+
+	public long getIntrospectionCacheMissCount();
+
+	/**
+	 * Get a summary of every active transport.
+	 * @return one line per transport.
+	 */
+	public String[] getTransports();
+
+}
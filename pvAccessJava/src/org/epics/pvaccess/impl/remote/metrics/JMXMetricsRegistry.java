@@ -0,0 +1,79 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry publishing context metrics as MXBeans to the platform MBean server,
+ * named <code>org.epics.pvaccess:type=&lt;contextName&gt;,id=&lt;n&gt;</code>.
+ */
+public class JMXMetricsRegistry implements MetricsRegistry {
+
+	public static final String DOMAIN = "org.epics.pvaccess";
+
+	private static final Logger logger = Logger.getLogger(JMXMetricsRegistry.class.getName());
+
+	private static int nextId = 0;
+
+	private final Map<ContextMetrics, ObjectName> names = new IdentityHashMap<ContextMetrics, ObjectName>();
+
+	private static synchronized int nextId() {
+		return nextId++;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.MetricsRegistry#register(org.epics.pvaccess.impl.remote.metrics.ContextMetrics)
+	 */
+	@Override
+	public synchronized void register(ContextMetrics metrics) {
+		if (names.containsKey(metrics))
+			return;
+
+		try {
+			final ObjectName name = new ObjectName(DOMAIN + ":type=" + ObjectName.quote(metrics.getContextName()) + ",id=" + nextId());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+			names.put(metrics, name);
+		} catch (JMException ex) {
+			logger.log(Level.WARNING, "Failed to register pvAccess metrics MBean.", ex);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.metrics.MetricsRegistry#unregister(org.epics.pvaccess.impl.remote.metrics.ContextMetrics)
+	 */
+	@Override
+	public synchronized void unregister(ContextMetrics metrics) {
+		final ObjectName name = names.remove(metrics);
+		if (name == null)
+			return;
+
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name))
+				server.unregisterMBean(name);
+		} catch (JMException ex) {
+			logger.log(Level.WARNING, "Failed to unregister pvAccess metrics MBean.", ex);
+		}
+	}
+
+	/**
+	 * Get JMX name of registered metrics.
+	 * @param metrics context metrics.
+	 * @return object name, <code>null</code> if not registered.
+	 */
+	public synchronized ObjectName getObjectName(ContextMetrics metrics) {
+		return names.get(metrics);
+	}
+}
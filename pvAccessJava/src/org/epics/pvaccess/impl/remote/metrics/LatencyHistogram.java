@@ -0,0 +1,128 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two buckets.
+ * Bucket <code>i</code> counts latencies in range <code>[2^i, 2^(i+1))</code> ns
+ * (bucket <code>0</code> also counts zero latency, the last bucket everything above).
+ * Recording is a single atomic increment, percentiles are resolved to a bucket upper bound.
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Number of buckets, the last one starts at 2^39 ns (~9 minutes).
+	 */
+	public static final int BUCKETS = 40;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Get bucket index of a latency.
+	 * @param nanos latency in nanoseconds.
+	 * @return bucket index.
+	 */
+	public static int bucketOf(long nanos) {
+		if (nanos <= 0)
+			return 0;
+		return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * Get (exclusive) upper bound of a bucket.
+	 * @param bucket bucket index.
+	 * @return upper bound in nanoseconds, <code>Long.MAX_VALUE</code> for the last bucket.
+	 */
+	public static long getBucketUpperBound(int bucket) {
+		return (bucket >= BUCKETS - 1) ? Long.MAX_VALUE : (1L << (bucket + 1));
+	}
+
+	/**
+	 * Record a latency.
+	 * @param nanos latency in nanoseconds.
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(bucketOf(nanos));
+	}
+
+	/**
+	 * Add all the counts of this histogram to the given one.
+	 * @param histogram histogram to add counts to.
+	 */
+	public void addTo(LatencyHistogram histogram) {
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			final long count = counts.get(i);
+			if (count != 0)
+				histogram.counts.addAndGet(i, count);
+		}
+	}
+
+	/**
+	 * Get number of latencies recorded in a bucket.
+	 * @param bucket bucket index.
+	 * @return bucket count.
+	 */
+	public long getCount(int bucket) {
+		return counts.get(bucket);
+	}
+
+	/**
+	 * Get number of all recorded latencies.
+	 * @return total count.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * Get bucket counts.
+	 * @return a copy of bucket counts.
+	 */
+	public long[] getCounts() {
+		final long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			copy[i] = counts.get(i);
+		return copy;
+	}
+
+	/**
+	 * Get a percentile, resolved to the upper bound of the bucket containing it.
+	 * @param percentile percentile, <code>(0, 100]</code>.
+	 * @return latency in nanoseconds, <code>0</code> if nothing was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		final long[] copy = getCounts();
+		long total = 0;
+		for (long count : copy)
+			total += count;
+		if (total == 0)
+			return 0;
+
+		final long rank = Math.max(1, (long)Math.ceil(total * percentile / 100.0));
+		long cumulative = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			cumulative += copy[i];
+			if (cumulative >= rank)
+				return getBucketUpperBound(i);
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Reset all the counts.
+	 */
+	public void clear() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+	}
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.metrics;
+
+/**
+ * Registry (exporter) the context metrics are published to,
+ * e.g. JMX or a monitoring system of the application.
+ * Implementations configured by name need a public no-argument constructor.
+ */
+public interface MetricsRegistry {
+
+	/**
+	 * Publish context metrics, called when a context is initialized.
+	 * @param metrics metrics to publish.
+	 */
+	public void register(ContextMetrics metrics);
+
+	/**
+	 * Withdraw context metrics, called when a context is destroyed.
+	 * @param metrics metrics to withdraw.
+	 */
+	public void unregister(ContextMetrics metrics);
+
+}
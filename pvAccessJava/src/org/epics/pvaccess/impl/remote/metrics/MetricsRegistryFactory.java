@@ -0,0 +1,52 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.metrics;
+
+/**
+ * Creates metrics registries by (configuration) name.
+ */
+public final class MetricsRegistryFactory {
+
+	/**
+	 * Name of the JMX registry, the default one.
+	 */
+	public static final String JMX = "jmx";
+
+	/**
+	 * Name of no registry, i.e. metrics are only available via <code>Context.getMetrics()</code>.
+	 */
+	public static final String NONE = "none";
+
+	private static JMXMetricsRegistry jmxRegistry = null;
+
+	private MetricsRegistryFactory() {
+		// no instances
+	}
+
+	/**
+	 * Get a registry.
+	 * @param name <code>jmx</code>, <code>none</code> or a fully qualified name of a class
+	 * 			implementing <code>MetricsRegistry</code> (with a public no-argument constructor).
+	 * @return registry, <code>null</code> for <code>none</code>.
+	 * @throws IllegalArgumentException if registry class cannot be instantiated.
+	 */
+	public static synchronized MetricsRegistry getRegistry(String name) {
+		if (name == null || name.trim().isEmpty() || JMX.equalsIgnoreCase(name.trim()))
+		{
+			if (jmxRegistry == null)
+				jmxRegistry = new JMXMetricsRegistry();
+			return jmxRegistry;
+		}
+		else if (NONE.equalsIgnoreCase(name.trim()))
+			return null;
+
+		try {
+			return (MetricsRegistry)Class.forName(name.trim()).newInstance();
+		} catch (Throwable th) {
+			throw new IllegalArgumentException("Failed to instantiate metrics registry '" + name + "'.", th);
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.metrics;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a single transport (connection), updated by its codec.
+ * Created by <code>ContextMetrics.createTransportMetrics()</code>, on <code>close()</code>
+ * the counters are added to the context totals.
+ */
+public final class TransportMetrics {
+
+	private final ContextMetrics contextMetrics;
+	private final String name;
+	private final AtomicBoolean closed = new AtomicBoolean(false);
+
+	private final LongAdder bytesReceived = new LongAdder();
+	private final LongAdder bytesSent = new LongAdder();
+	private final LongAdder messagesReceived = new LongAdder();
+	private final LongAdder messagesSent = new LongAdder();
+
+	private final AtomicInteger sendQueueDepth = new AtomicInteger();
+	private final AtomicInteger maxSendQueueDepth = new AtomicInteger();
+
+	private final LatencyHistogram receiveLatency = new LatencyHistogram();
+
+	private final LongAdder introspectionCacheHits = new LongAdder();
+	private final LongAdder introspectionCacheMisses = new LongAdder();
+
+	TransportMetrics(ContextMetrics contextMetrics, String name) {
+		this.contextMetrics = contextMetrics;
+		this.name = name;
+	}
+
+	/**
+	 * Get transport name, i.e. remote address.
+	 * @return transport name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Bytes read from the socket.
+	 * @param bytes number of bytes.
+	 */
+	public void bytesReceived(long bytes) {
+		bytesReceived.add(bytes);
+	}
+
+	/**
+	 * Bytes written to the socket.
+	 * @param bytes number of bytes.
+	 */
+	public void bytesSent(long bytes) {
+		bytesSent.add(bytes);
+	}
+
+	/**
+	 * Application message processed (all its callbacks returned).
+	 * @param receiveTime <code>System.nanoTime()</code> when the data of the message was read from the socket.
+	 */
+	public void messageProcessed(long receiveTime) {
+		messagesReceived.increment();
+		receiveLatency.record(System.nanoTime() - receiveTime);
+	}
+
+	/**
+	 * Message put to the send buffer.
+	 */
+	public void messageSent() {
+		messagesSent.increment();
+	}
+
+	/**
+	 * Received introspection interface resolved to an already cached instance.
+	 */
+	public void introspectionCacheHit() {
+		introspectionCacheHits.increment();
+	}
+
+	/**
+	 * Received introspection interface not cached yet.
+	 */
+	public void introspectionCacheMiss() {
+		introspectionCacheMisses.increment();
+	}
+
+	/**
+	 * Sender added to the send queue.
+	 */
+	public void senderEnqueued() {
+		final int depth = sendQueueDepth.incrementAndGet();
+		int max;
+		while (depth > (max = maxSendQueueDepth.get()))
+			if (maxSendQueueDepth.compareAndSet(max, depth))
+				break;
+	}
+
+	/**
+	 * Sender taken from the send queue.
+	 */
+	public void senderDequeued() {
+		sendQueueDepth.decrementAndGet();
+	}
+
+	/**
+	 * Send queue cleared.
+	 */
+	public void sendQueueCleared() {
+		sendQueueDepth.set(0);
+	}
+
+	/**
+	 * Get number of bytes read from the socket.
+	 * @return bytes received.
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
+
+	/**
+	 * Get number of bytes written to the socket.
+	 * @return bytes sent.
+	 */
+	public long getBytesSent() {
+		return bytesSent.sum();
+	}
+
+	/**
+	 * Get number of application messages processed.
+	 * @return messages received.
+	 */
+	public long getMessagesReceived() {
+		return messagesReceived.sum();
+	}
+
+	/**
+	 * Get number of messages put to the send buffer.
+	 * @return messages sent.
+	 */
+	public long getMessagesSent() {
+		return messagesSent.sum();
+	}
+
+	/**
+	 * Get number of received introspection interfaces resolved to an already cached instance.
+	 * @return introspection cache hits.
+	 */
+	public long getIntrospectionCacheHits() {
+		return introspectionCacheHits.sum();
+	}
+
+	/**
+	 * Get number of received introspection interfaces that were not cached yet.
+	 * @return introspection cache misses.
+	 */
+	public long getIntrospectionCacheMisses() {
+		return introspectionCacheMisses.sum();
+	}
+
+	/**
+	 * Get current number of senders waiting in the send queue.
+	 * @return send queue depth.
+	 */
+	public int getSendQueueDepth() {
+		return Math.max(0, sendQueueDepth.get());
+	}
+
+	/**
+	 * Get maximum send queue depth reached.
+	 * @return maximum send queue depth.
+	 */
+	public int getMaxSendQueueDepth() {
+		return maxSendQueueDepth.get();
+	}
+
+	/**
+	 * Get latency from reading a message from the socket to the return of its callbacks.
+	 * @return receive-to-callback latency histogram.
+	 */
+	public LatencyHistogram getReceiveLatency() {
+		return receiveLatency;
+	}
+
+	/**
+	 * Transport closed, counters are added to the context totals.
+	 * Calling this method more than once has no effect.
+	 */
+	public void close() {
+		if (closed.compareAndSet(false, true))
+			contextMetrics.transportClosed(this);
+	}
+
+	/**
+	 * Check if transport was closed.
+	 * @return <code>true</code> if closed.
+	 */
+	public boolean isClosed() {
+		return closed.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return name + " [bytesIn=" + getBytesReceived() + ", bytesOut=" + getBytesSent() +
+				", messagesIn=" + getMessagesReceived() + ", messagesOut=" + getMessagesSent() +
+				", sendQueueDepth=" + getSendQueueDepth() + ", latencyP99=" + receiveLatency.getPercentile(99) + "ns]";
+	}
+}
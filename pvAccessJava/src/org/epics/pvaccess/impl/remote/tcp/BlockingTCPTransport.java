@@ -28,6 +28,7 @@ import org.epics.pvaccess.impl.remote.ProtocolType;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
 import org.epics.pvaccess.impl.remote.codec.impl.BlockingSocketAbstractCodec;
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
 import org.epics.pvaccess.server.ServerContext;
 import org.epics.pvdata.pv.Field;
@@ -101,6 +102,17 @@ public abstract class BlockingTCPTransport extends BlockingSocketAbstractCodec i
 		this.remoteTransportRevision = 0;
 		this.priority = priority;
 
+		setVirtualThreads(context.isVirtualThreadsEnabled());
+
+		incomingIR.setCache(context.getIntrospectionCache());
+
+		final ContextMetrics contextMetrics = context.getMetrics();
+		if (contextMetrics != null)
+		{
+			setMetrics(contextMetrics.createTransportMetrics(String.valueOf(socketAddress)));
+			incomingIR.setMetrics(getMetrics());
+		}
+
 		// add to registry
 		context.getTransportRegistry().put(this);
 	}
@@ -112,6 +124,9 @@ public abstract class BlockingTCPTransport extends BlockingSocketAbstractCodec i
 
 		// remove from registry
 		context.getTransportRegistry().remove(this);
+		
+		if (metrics != null)
+			metrics.close();
 	
 		// clean resources
 		internalClose();
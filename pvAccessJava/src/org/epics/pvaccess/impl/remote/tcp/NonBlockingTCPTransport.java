@@ -29,6 +29,7 @@ import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
 import org.epics.pvaccess.impl.remote.codec.impl.NonBlockingSocketAbstractCodec;
 import org.epics.pvaccess.impl.remote.io.Poller;
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
 import org.epics.pvaccess.server.ServerContext;
 import org.epics.pvdata.pv.Field;
@@ -106,6 +107,15 @@ public abstract class NonBlockingTCPTransport extends NonBlockingSocketAbstractC
 		this.remoteTransportRevision = 0;
 		this.priority = priority;
 
+		incomingIR.setCache(context.getIntrospectionCache());
+
+		final ContextMetrics contextMetrics = context.getMetrics();
+		if (contextMetrics != null)
+		{
+			setMetrics(contextMetrics.createTransportMetrics(String.valueOf(socketAddress)));
+			incomingIR.setMetrics(getMetrics());
+		}
+
 		// add to registry
 		context.getTransportRegistry().put(this);
 	}
@@ -117,6 +127,9 @@ public abstract class NonBlockingTCPTransport extends NonBlockingSocketAbstractC
 		
 		// remove from registry
 		context.getTransportRegistry().remove(this);
+		
+		if (metrics != null)
+			metrics.close();
 	
 		// clean resources
 		internalClose();
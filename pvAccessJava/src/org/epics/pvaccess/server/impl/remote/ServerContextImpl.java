@@ -35,14 +35,21 @@ import org.epics.pvaccess.PVAConstants;
 import org.epics.pvaccess.PVAException;
 import org.epics.pvaccess.PVAVersion;
 import org.epics.pvaccess.Version;
+import org.epics.pvaccess.client.Channel;
 import org.epics.pvaccess.client.ChannelProvider;
 import org.epics.pvaccess.client.ChannelProviderRegistry;
 import org.epics.pvaccess.client.ChannelProviderRegistryFactory;
 import org.epics.pvaccess.impl.remote.ConnectionException;
 import org.epics.pvaccess.impl.remote.Context;
+import org.epics.pvaccess.impl.remote.CreditWindowMonitor;
+import org.epics.pvaccess.impl.remote.IntrospectionCache;
 import org.epics.pvaccess.impl.remote.ProtocolType;
+import org.epics.pvaccess.impl.remote.SharedMonitor;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportRegistry;
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
+import org.epics.pvaccess.impl.remote.metrics.MetricsRegistry;
+import org.epics.pvaccess.impl.remote.metrics.MetricsRegistryFactory;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPConnector;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPTransport;
@@ -51,13 +58,18 @@ import org.epics.pvaccess.server.ServerContext;
 import org.epics.pvaccess.server.impl.remote.tcp.BlockingTCPAcceptor;
 import org.epics.pvaccess.server.plugins.BeaconServerStatusProvider;
 import org.epics.pvaccess.util.InetAddressUtil;
+import org.epics.pvaccess.util.VirtualThreadSupport;
 import org.epics.pvaccess.util.configuration.Configuration;
 import org.epics.pvaccess.util.configuration.ConfigurationProvider;
 import org.epics.pvaccess.util.configuration.impl.ConfigurationFactory;
 import org.epics.pvaccess.util.logging.ConsoleLogHandler;
+import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.misc.ThreadPriority;
 import org.epics.pvdata.misc.Timer;
 import org.epics.pvdata.misc.TimerFactory;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.PVStructure;
 
 /**
  * Implementation of <code>ServerContext</code>. 
@@ -164,6 +176,82 @@ public class ServerContextImpl implements ServerContext, Context {
 	 */
 	protected int receiveBufferSize = PVAConstants.MAX_TCP_RECV;
 
+	/**
+	 * Maximum number of monitor elements sent in one send pass (per monitor),
+	 * <code>1</code> disables batching.
+	 */
+	protected int monitorSendBatchSize = 1;
+
+	/**
+	 * Maximum number of bytes of monitor elements sent in one send pass (per monitor),
+	 * a batch never exceeds the free space of the send buffer either.
+	 */
+	protected int monitorSendBatchBytes = PVAConstants.MAX_TCP_RECV;
+
+	/**
+	 * What to do with pipeline monitor updates when the client has no free queue slots (credits).
+	 */
+	protected CreditWindowMonitor.OverflowPolicy monitorOverflowPolicy = CreditWindowMonitor.OverflowPolicy.SQUASH_LATEST;
+
+	/**
+	 * Maximum number of pipeline monitor updates buffered per monitor when the client has no credits.
+	 */
+	protected int monitorBacklogSize = 16;
+
+	/**
+	 * Share one provider monitor (and the serialized updates) among all the monitors
+	 * of a channel created with an equal pvRequest.
+	 * NOTE: to be enabled only if providers serve the same data to all the clients.
+	 */
+	protected boolean sharedMonitorsEnabled = false;
+
+	/**
+	 * Shared monitors, see <code>createSharedMonitor()</code>.
+	 */
+	private final Map<String, SharedMonitor> sharedMonitors = new HashMap<String, SharedMonitor>();
+
+	/**
+	 * Number of poller (reactor) threads serving non-blocking transports,
+	 * <code>0</code> to use blocking transports (a thread per connection),
+	 * negative to use one poller per available processor.
+	 */
+	protected int pollerThreads = 0;
+
+	/**
+	 * Run receive and send loops of blocking transports on virtual threads (if supported by the JVM).
+	 */
+	protected boolean virtualThreads = false;
+
+	/**
+	 * Max. number of cached received introspection interfaces, <code>0</code> disables the cache.
+	 */
+	protected int introspectionCacheSize = 0;
+
+	/**
+	 * Cache of received introspection interfaces, <code>null</code> if disabled.
+	 */
+	protected IntrospectionCache introspectionCache = null;
+
+	/**
+	 * Enable runtime metrics (<code>getMetrics()</code>).
+	 */
+	protected boolean metricsEnabled = false;
+
+	/**
+	 * Metrics registry name, see <code>MetricsRegistryFactory.getRegistry()</code>.
+	 */
+	protected String metricsRegistryName = MetricsRegistryFactory.JMX;
+
+	/**
+	 * Runtime metrics, <code>null</code> if disabled.
+	 */
+	protected ContextMetrics metrics = null;
+
+	/**
+	 * Registry the metrics are published to, <code>null</code> if none.
+	 */
+	private MetricsRegistry metricsRegistry = null;
+
 	/**
 	 * Timer.
 	 */
@@ -355,6 +443,33 @@ public class ServerContextImpl implements ServerContext, Context {
 		channelProviderNames = config.getPropertyAsString("EPICS_PVA_PROVIDER_NAMES", channelProviderNames);
 		channelProviderNames = config.getPropertyAsString("EPICS_PVAS_PROVIDER_NAMES", channelProviderNames);
 		
+		monitorSendBatchSize = Math.max(1, config.getPropertyAsInteger("EPICS_PVAS_MONITOR_SEND_BATCH_SIZE", monitorSendBatchSize));
+		monitorSendBatchBytes = Math.max(1, config.getPropertyAsInteger("EPICS_PVAS_MONITOR_SEND_BATCH_BYTES", monitorSendBatchBytes));
+		
+		String overflowPolicy = config.getPropertyAsString("EPICS_PVAS_MONITOR_OVERFLOW_POLICY", monitorOverflowPolicy.name());
+		try {
+			monitorOverflowPolicy = CreditWindowMonitor.OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+		} catch (IllegalArgumentException iae) {
+			// invalid value, default is used
+		}
+		monitorBacklogSize = Math.max(2, config.getPropertyAsInteger("EPICS_PVAS_MONITOR_BACKLOG_SIZE", monitorBacklogSize));
+		
+		sharedMonitorsEnabled = config.getPropertyAsBoolean("EPICS_PVAS_SHARED_MONITORS", sharedMonitorsEnabled);
+		
+		pollerThreads = config.getPropertyAsInteger("EPICS_PVAS_POLLER_THREADS", pollerThreads);
+		
+		virtualThreads = config.getPropertyAsBoolean(PVAConstants.PVACCESS_VIRTUAL_THREADS, virtualThreads);
+		virtualThreads = config.getPropertyAsBoolean("EPICS_PVAS_VIRTUAL_THREADS", virtualThreads);
+		
+		introspectionCacheSize = Math.max(0, config.getPropertyAsInteger(PVAConstants.PVACCESS_INTROSPECTION_CACHE_SIZE, introspectionCacheSize));
+		introspectionCacheSize = Math.max(0, config.getPropertyAsInteger("EPICS_PVAS_INTROSPECTION_CACHE_SIZE", introspectionCacheSize));
+		
+		metricsEnabled = config.getPropertyAsBoolean("EPICS_PVA_METRICS", metricsEnabled);
+		metricsEnabled = config.getPropertyAsBoolean("EPICS_PVAS_METRICS", metricsEnabled);
+
+		metricsRegistryName = config.getPropertyAsString("EPICS_PVA_METRICS_REGISTRY", metricsRegistryName);
+		metricsRegistryName = config.getPropertyAsString("EPICS_PVAS_METRICS_REGISTRY", metricsRegistryName);
+		
 	}
 	
 	public void setChannelProviderNames(String providerNames)
@@ -441,6 +556,32 @@ public class ServerContextImpl implements ServerContext, Context {
 	 */
 	private void internalInitialize() throws PVAException {
 
+		if (metricsEnabled)
+		{
+			metrics = new ContextMetrics("server");
+			try {
+				metricsRegistry = MetricsRegistryFactory.getRegistry(metricsRegistryName);
+				if (metricsRegistry != null)
+					metricsRegistry.register(metrics);
+			} catch (IllegalArgumentException iae) {
+				logger.log(Level.WARNING, "Metrics will not be published.", iae);
+			}
+		}
+
+		if (virtualThreads && !VirtualThreadSupport.isAvailable())
+		{
+			logger.warning("Virtual threads are not supported by this JVM, " + PVAConstants.PVACCESS_VIRTUAL_THREADS + " ignored.");
+			virtualThreads = false;
+		}
+
+		if (introspectionCacheSize > 0)
+		{
+			if (FieldFactory.isInterning())
+				logger.warning("Introspection interfaces are interned by pvData, " + PVAConstants.PVACCESS_INTROSPECTION_CACHE_SIZE + " ignored.");
+			else
+				introspectionCache = new IntrospectionCache(introspectionCacheSize);
+		}
+
 		timer = TimerFactory.create("pvAccess-server timer", ThreadPriority.lower);
 		transportRegistry = new TransportRegistry();
 /*
@@ -490,7 +631,7 @@ public class ServerContextImpl implements ServerContext, Context {
 		*/
 		
 //		acceptor = new TCPAcceptor(this, serverPort, receiveBufferSize);
-		acceptor = new BlockingTCPAcceptor(this, serverPort, receiveBufferSize);
+		acceptor = new BlockingTCPAcceptor(this, serverPort, receiveBufferSize, pollerThreads);
 		serverPort = acceptor.getBindAddress().getPort();
 
 		// setup broadcast UDP transport
@@ -727,6 +868,9 @@ public class ServerContextImpl implements ServerContext, Context {
 		
 		// this will also destroy all channels
 		destroyAllTransports();
+
+		if (metricsRegistry != null)
+			metricsRegistry.unregister(metrics);
 		/*
 		// shutdown reactor
 		if (reactor != null)
@@ -787,6 +931,19 @@ public class ServerContextImpl implements ServerContext, Context {
 		out.println("BROADCAST_PORT : " + broadcastPort);
 		out.println("SERVER_PORT : " + serverPort);
 		out.println("RCV_BUFFER_SIZE : " + receiveBufferSize);
+		out.println("MONITOR_SEND_BATCH_SIZE : " + monitorSendBatchSize);
+		out.println("MONITOR_SEND_BATCH_BYTES : " + monitorSendBatchBytes);
+		out.println("MONITOR_OVERFLOW_POLICY : " + monitorOverflowPolicy.name());
+		out.println("MONITOR_BACKLOG_SIZE : " + monitorBacklogSize);
+		out.println("SHARED_MONITORS : " + sharedMonitorsEnabled);
+		out.println("POLLER_THREADS : " + pollerThreads);
+		out.println("VIRTUAL_THREADS : " + virtualThreads);
+		out.println("INTROSPECTION_CACHE_SIZE : " + (introspectionCache != null ? introspectionCacheSize : 0));
+		out.println("METRICS : " + metricsEnabled);
+		if (metricsEnabled)
+			out.println("METRICS_REGISTRY : " + metricsRegistryName);
+		if (metrics != null)
+			metrics.printInfo(out);
 		out.println("IGNORE_ADDR_LIST: " + ignoreAddressList);
 		out.println("STATE : " + state.name());
 	}
@@ -854,6 +1011,30 @@ public class ServerContextImpl implements ServerContext, Context {
 	public int getDebugLevel() {
 		return debugLevel;
 	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.Context#getMetrics()
+	 */
+	@Override
+	public ContextMetrics getMetrics() {
+		return metrics;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.Context#isVirtualThreadsEnabled()
+	 */
+	@Override
+	public boolean isVirtualThreadsEnabled() {
+		return virtualThreads;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvaccess.impl.remote.Context#getIntrospectionCache()
+	 */
+	@Override
+	public IntrospectionCache getIntrospectionCache() {
+		return introspectionCache;
+	}
 	
 	/**
 	 * Get receiver buffer (payload) size.
@@ -863,6 +1044,67 @@ public class ServerContextImpl implements ServerContext, Context {
 		return receiveBufferSize;
 	}
 
+	/**
+	 * Get maximum number of monitor elements sent in one send pass.
+	 * @return monitor send batch size, <code>1</code> if batching is disabled.
+	 */
+	public int getMonitorSendBatchSize() {
+		return monitorSendBatchSize;
+	}
+
+	/**
+	 * Get maximum number of bytes of monitor elements sent in one send pass.
+	 * @return monitor send batch byte budget.
+	 */
+	public int getMonitorSendBatchBytes() {
+		return monitorSendBatchBytes;
+	}
+
+	/**
+	 * Get pipeline monitor overflow policy.
+	 * @return overflow policy.
+	 */
+	public CreditWindowMonitor.OverflowPolicy getMonitorOverflowPolicy() {
+		return monitorOverflowPolicy;
+	}
+
+	/**
+	 * Get maximum number of pipeline monitor updates buffered per monitor.
+	 * @return monitor backlog size.
+	 */
+	public int getMonitorBacklogSize() {
+		return monitorBacklogSize;
+	}
+
+	/**
+	 * Check if monitors of a channel with an equal pvRequest share one provider monitor.
+	 * @return <code>true</code> if monitors are shared.
+	 */
+	public boolean isSharedMonitorsEnabled() {
+		return sharedMonitorsEnabled;
+	}
+
+	/**
+	 * Create a monitor that shares the provider's monitor with all the other monitors
+	 * of the same channel created with an equal pvRequest, every update is serialized only once.
+	 * Each monitor queues up to <code>getMonitorBacklogSize()</code> updates.
+	 * @param channel local channel.
+	 * @param requester monitor requester.
+	 * @param pvRequest pvRequest.
+	 * @return monitor.
+	 */
+	public Monitor createSharedMonitor(Channel channel, MonitorRequester requester, PVStructure pvRequest) {
+		return SharedMonitor.createMonitor(sharedMonitors, channel, requester, pvRequest, monitorBacklogSize);
+	}
+
+	/**
+	 * Get number of poller (reactor) threads serving non-blocking transports.
+	 * @return number of poller threads, <code>0</code> if blocking transports are used.
+	 */
+	public int getPollerThreads() {
+		return pollerThreads;
+	}
+
 	/**
 	 * Get server port.
 	 * @return server port.
@@ -55,8 +55,14 @@ public final class ServerResponseHandler implements ResponseHandler {
 	 */
 	private final ServerContextImpl context;
 	
+	/**
+	 * Monitor request handler.
+	 */
+	private final MonitorHandler monitorHandler;
+	
 	public ServerResponseHandler(ServerContextImpl context) {
 		this.context = context;
+		this.monitorHandler = new MonitorHandler(context);
 
 		final ResponseHandler badResponse = new BadResponse(context);
 		
@@ -75,7 +81,7 @@ public final class ServerResponseHandler implements ResponseHandler {
 				new GetHandler(context), /* 10 */
 				new PutHandler(context), /* 11 */
 				new PutGetHandler(context), /* 12 */
-				new MonitorHandler(context), /* 13 */
+				monitorHandler, /* 13 */
 				new ArrayHandler(context), /* 14 */
 				new DestroyRequestHandler(context), /* 15 */
 				new ProcessHandler(context), /* 16 */
@@ -110,4 +116,12 @@ public final class ServerResponseHandler implements ResponseHandler {
 		handlerTable[command].handleResponse(responseFrom, transport, version, command, payloadSize, payloadBuffer);
 	}
 
+	/**
+	 * Get monitor request handler (e.g. to access its send statistics).
+	 * @return monitor request handler.
+	 */
+	public MonitorHandler getMonitorHandler() {
+		return monitorHandler;
+	}
+
 }
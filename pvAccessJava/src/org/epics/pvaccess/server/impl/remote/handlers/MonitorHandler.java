@@ -16,13 +16,20 @@ package org.epics.pvaccess.server.impl.remote.handlers;
 
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.impl.remote.CreditWindowMonitor;
 import org.epics.pvaccess.impl.remote.PipelineMonitor;
 import org.epics.pvaccess.impl.remote.QoS;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
+import org.epics.pvaccess.impl.remote.SerializedMonitorUpdate;
+import org.epics.pvaccess.impl.remote.SharedEncodingMonitorElement;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
 import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerChannelImpl;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
@@ -42,27 +49,102 @@ import org.epics.pvdata.pv.Structure;
  */
 public class MonitorHandler extends AbstractServerResponseHandler {
 
+	/**
+	 * Number of send passes that sent at least one monitor element.
+	 */
+	private final AtomicLong sendPassCount = new AtomicLong();
+
+	/**
+	 * Number of monitor elements sent.
+	 */
+	private final AtomicLong elementsSentCount = new AtomicLong();
+
+	/**
+	 * Number of monitor events for which there was no element to send.
+	 */
+	private final AtomicLong eventsWithoutElementCount = new AtomicLong();
+
 	public MonitorHandler(ServerContextImpl context) {
 		super(context, "Monitor request");
 	}
 
+	/**
+	 * Get number of send passes that sent at least one monitor element.
+	 * @return send pass count.
+	 */
+	public long getSendPassCount() {
+		return sendPassCount.get();
+	}
+
+	/**
+	 * Get number of monitor elements sent.
+	 * @return sent element count.
+	 */
+	public long getElementsSentCount() {
+		return elementsSentCount.get();
+	}
+
+	/**
+	 * Get average number of monitor elements sent per send pass.
+	 * @return elements per send pass, <code>0</code> if nothing was sent yet.
+	 */
+	public double getElementsPerSendPass() {
+		final long passes = sendPassCount.get();
+		return passes == 0 ? 0.0 : (double)elementsSentCount.get() / passes;
+	}
+
+	/**
+	 * Get number of monitor events for which there was no element to send,
+	 * e.g. updates merged by the provider. Updates dropped by a pipeline monitor credit window are not counted.
+	 * @return count of monitor events w/o an element.
+	 */
+	public long getEventsWithoutElementCount() {
+		return eventsWithoutElementCount.get();
+	}
+
+	private void elementsSent(int count) {
+		sendPassCount.incrementAndGet();
+		elementsSentCount.addAndGet(count);
+	}
+
 	private static class MonitorRequesterImpl extends BaseChannelRequester implements MonitorRequester, TransportSender {
 		
+		private final MonitorHandler handler;
+		private final int sendBatchSize;
+		private final int sendBatchBytes;
+		private final CreditWindowMonitor creditWindow;
 		private volatile Monitor channelMonitor;
 		private Status status;
 		private volatile Structure structure;
 		private volatile Monitor monitor;
 		private volatile boolean unlisten = false;
+		
+		/**
+		 * Number of <code>monitorEvent</code> calls not yet served by a sent element,
+		 * a send pass never polls more elements (a monitor w/o a queue returns an element on every poll).
+		 * A send pass is requested only when the count leaves zero, the pass requests the next one while events remain.
+		 * Updates dropped by the credit window are subtracted, they are never polled.
+		 */
+		private final AtomicInteger pendingEvents = new AtomicInteger();
 
-		public MonitorRequesterImpl(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
-				 PVStructure pvRequest) {
+		public MonitorRequesterImpl(MonitorHandler handler, ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
+				 PVStructure pvRequest, boolean pipeline, int freeElements) {
 			super(context, channel, ioid, transport);
+			this.handler = handler;
+			this.sendBatchSize = context.getMonitorSendBatchSize();
+			this.sendBatchBytes = context.getMonitorSendBatchBytes();
+			// pipelining monitor (i.e. w/ flow control), client's queue size is the initial window
+			this.creditWindow = pipeline ?
+					new CreditWindowMonitor(this, freeElements, context.getMonitorOverflowPolicy(), context.getMonitorBacklogSize()) :
+					null;
 
 			startRequest(QoS.INIT.getMaskValue());
 			channel.registerRequest(ioid, this);
 			
 			try {
-				channelMonitor = channel.getChannel().createMonitor(this, pvRequest);
+				channelMonitor = context.isSharedMonitorsEnabled() ?
+						context.createSharedMonitor(channel.getChannel(), this, pvRequest) :
+						channel.getChannel().createMonitor(this, pvRequest);
 			} catch (Throwable th) {
 				// simply cannot trust code above
 				BaseChannelRequester.sendFailureMessage((byte)13, transport, ioid, (byte)QoS.INIT.getMaskValue(),
@@ -79,11 +161,16 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 		
 		@Override
 		public void monitorConnect(Status status, Monitor monitor, Structure structure) {
+			if (creditWindow != null && status.isSuccess())
+			{
+				creditWindow.connect(monitor, structure);
+				monitor = creditWindow;
+			}
+			
 			synchronized (this) {
 				this.status = status;
 				this.monitor = monitor;
 				this.structure = structure;
-				this.monitor = monitor;
 			}
 			transport.enqueueSendRequest(this);
 
@@ -108,7 +195,12 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 			}*/
 			// TODO
 			// multiple ((BlockingServerTCPTransport)transport).enqueueMonitorSendRequest(this);
-			transport.enqueueSendRequest(this);
+			
+			// credits received, resume sending of the pending events
+			if (monitor == creditWindow)
+				transport.enqueueSendRequest(this);
+			else if (pendingEvents.getAndIncrement() == 0)
+				transport.enqueueSendRequest(this);
 		}
 		
 		/* (non-Javadoc)
@@ -121,6 +213,9 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 			// asCheck
 			channel.getChannelSecuritySession().release(ioid);
 			
+			if (creditWindow != null)
+				creditWindow.destroy();
+			
 			if (channelMonitor != null)
 				channelMonitor.destroy();
 		}
@@ -131,6 +226,35 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 		public Monitor getChannelMonitor() {
 			return channelMonitor;
 		}
+		
+		/**
+		 * Get credit window of a pipeline monitor.
+		 * @return the credit window, <code>null</code> if not a pipeline monitor.
+		 */
+		public CreditWindowMonitor getCreditWindow() {
+			return creditWindow;
+		}
+		
+		public void start() {
+			if (creditWindow != null)
+				creditWindow.clearBacklog();
+			channelMonitor.start();
+		}
+		
+		public void stop() {
+			channelMonitor.stop();
+		}
+		
+		/**
+		 * Report remote (client) queue status of a pipeline monitor.
+		 * @param freeElements number of newly freed elements.
+		 */
+		public void reportRemoteQueueStatus(int freeElements) {
+			if (creditWindow != null)
+				creditWindow.reportRemoteQueueStatus(freeElements);
+			else if (channelMonitor instanceof PipelineMonitor)
+				((PipelineMonitor)channelMonitor).reportRemoteQueueStatus(freeElements);
+		}
 
 		/* (non-Javadoc)
 		 * @see org.epics.pvaccess.impl.remote.TransportSender#lock()
@@ -148,6 +272,44 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 			// noop
 		}
 
+		/**
+		 * Poll an element for a pending <code>monitorEvent</code>.
+		 * @param monitor monitor to poll.
+		 * @return polled element, <code>null</code> if there is no pending event or no element.
+		 */
+		private MonitorElement pollEvent(Monitor monitor) {
+			int pending = pendingEvents.get();
+			if (pending <= 0)
+				return null;
+			
+			final long creditStallCount = (creditWindow != null) ? creditWindow.getCreditStallCount() : 0;
+			final MonitorElement element = monitor.poll();
+			if (creditWindow != null)
+			{
+				// updates squashed or discarded by the window will never be polled
+				final int dropped = creditWindow.takeDroppedCount();
+				if (dropped != 0)
+				{
+					pendingEvents.addAndGet(-dropped);
+					pending -= dropped;
+				}
+			}
+			
+			if (element != null)
+				pendingEvents.decrementAndGet();
+			// if there were no credits left, the events stay pending until the window resumes (see monitorEvent)
+			else if (pending > 0 && (creditWindow == null || creditWindow.getCreditStallCount() == creditStallCount))
+			{
+				// events w/o an element (e.g. merged by the provider) are forgotten,
+				// unless new ones arrived meanwhile, they did not request a send pass
+				if (pendingEvents.compareAndSet(pending, 0))
+					handler.eventsWithoutElementCount.addAndGet(pending);
+				else
+					transport.enqueueSendRequest(this);
+			}
+			return element;
+		}
+
 		/* (non-Javadoc)
 		 * @see org.epics.pvaccess.impl.remote.TransportSender#send(java.nio.ByteBuffer, org.epics.pvaccess.impl.remote.TransportSendControl)
 		 */
@@ -180,26 +342,76 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 			else
 			{
 				final Monitor monitor = this.monitor;
-				final MonitorElement element = monitor.poll();
+				MonitorElement element = pollEvent(monitor);
 				if (element != null)
 				{
-					control.startMessage((byte)13, Integer.SIZE/Byte.SIZE + 1);
-					// multiple control.ensureBuffer(Integer.SIZE/Byte.SIZE + 1);
-					buffer.putInt(ioid);
-					buffer.put((byte)request);
-					
-					// changedBitSet and data, if not notify only (i.e. queueSize == -1)
-					final BitSet changedBitSet = element.getChangedBitSet();
-					if (changedBitSet != null)
+					final ContextMetrics metrics = context.getMetrics();
+
+					// batched mode: drain up to sendBatchSize queued elements (and sendBatchBytes) in this pass,
+					// one message per element, as long as the next one is expected to fit into the send buffer
+					int sent = 0;
+					int sentBytes = 0;
+					boolean yield = false;
+					while (true)
 					{
-						changedBitSet.serialize(buffer, control);
-						element.getPVStructure().serialize(buffer, control, changedBitSet);
+						final int startPosition = buffer.position();
+						control.startMessage((byte)13, Integer.SIZE/Byte.SIZE + 1);
+						// multiple control.ensureBuffer(Integer.SIZE/Byte.SIZE + 1);
+						buffer.putInt(ioid);
+						buffer.put((byte)request);
+						
+						// changedBitSet and data, if not notify only (i.e. queueSize == -1)
+						final BitSet changedBitSet = element.getChangedBitSet();
+						final SerializedMonitorUpdate serializedUpdate = (element instanceof SharedEncodingMonitorElement) ?
+								((SharedEncodingMonitorElement)element).getSerializedMonitorUpdate() : null;
+						if (serializedUpdate != null)
+						{
+							// encoded once, shared among all the subscribers
+							serializedUpdate.serialize(buffer, control);
+						}
+						else if (changedBitSet != null)
+						{
+							changedBitSet.serialize(buffer, control);
+							element.getPVStructure().serialize(buffer, control, changedBitSet);
+							
+							// overrunBitset
+							element.getOverrunBitSet().serialize(buffer, control);
+						}
+						
+						// updates merged into this one (by the provider or the credit window)
+						if (metrics != null && changedBitSet != null && !element.getOverrunBitSet().isEmpty())
+							metrics.monitorOverrun();
+						
+						monitor.release(element);
+						sent++;
+
+						// the buffer was flushed while serializing (large element) if the position went back,
+						// the element size is known only if the whole message (header included) stayed in the buffer
+						final int endPosition = buffer.position();
+						final int elementSize = endPosition - startPosition;
+						sentBytes += elementSize;
 						
-						// overrunBitset
-						element.getOverrunBitSet().serialize(buffer, control);
+						// yield if the batch is full or the next one (assuming the same size) will not fit
+						if (sent >= sendBatchSize || endPosition < startPosition ||
+							sentBytes + elementSize > sendBatchBytes ||
+							buffer.remaining() < elementSize + PVAConstants.PVA_ALIGNMENT)
+						{
+							yield = true;
+							break;
+						}
+						
+						element = pollEvent(monitor);
+						if (element == null)
+							break;
+
+						control.endMessage();
 					}
 					
-					monitor.release(element);
+					handler.elementsSent(sent);
+
+					// the remaining events are sent in the next send pass
+					if (yield && pendingEvents.get() > 0)
+						transport.enqueueSendRequest(this);
 				}
 				else
 				{
@@ -263,20 +475,17 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 				return;
 			}
 			
-			// create...
-			new MonitorRequesterImpl(context, channel, ioid, transport, pvRequest);
-			
 			// pipelining monitor (i.e. w/ flow control)
 			final boolean ack = QoS.GET_PUT.isSet(qosCode);
+			int nfree = 0;
 	        if (ack)
 	        {
 	        	transport.ensureData(4);
-	            int nfree = payloadBuffer.getInt();
-				MonitorRequesterImpl request = (MonitorRequesterImpl)channel.getRequest(ioid);
-				Monitor channelMonitor = request.getChannelMonitor();
-				if (channelMonitor instanceof PipelineMonitor)
-					((PipelineMonitor)channelMonitor).reportRemoteQueueStatus(nfree);
+	            nfree = payloadBuffer.getInt();
 	        }
+			
+			// create...
+			new MonitorRequesterImpl(this, context, channel, ioid, transport, pvRequest, ack, nfree);
 	    }
 		else
 		{
@@ -296,9 +505,7 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 	        {
 	        	transport.ensureData(4);
 	            int nfree = payloadBuffer.getInt();
-	            Monitor channelMonitor = request.getChannelMonitor();
-				if (channelMonitor instanceof PipelineMonitor)
-					((PipelineMonitor)channelMonitor).reportRemoteQueueStatus(nfree);
+	            request.reportRemoteQueueStatus(nfree);
 				return;
 	            // note: not possible to ack and destroy
 			}
@@ -325,9 +532,9 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 			if (process)
 			{
 				if (get)
-					request.getChannelMonitor().start();
+					request.start();
 				else
-					request.getChannelMonitor().stop();
+					request.stop();
 				//request.stopRequest();
 			}
 			else if (get)
@@ -27,6 +27,7 @@ import java.util.logging.Level;
 import org.epics.pvaccess.PVAException;
 import org.epics.pvaccess.impl.remote.Context;
 import org.epics.pvaccess.impl.remote.Transport;
+import org.epics.pvaccess.impl.remote.io.impl.PollerPool;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
 
 /**
@@ -61,21 +62,40 @@ public class BlockingTCPAcceptor {
 	 */
 	private AtomicBoolean destroyed = new AtomicBoolean(false);
 
-	//private final PollerImpl poller;
+	/**
+	 * Pollers serving non-blocking transports, <code>null</code> if blocking transports are used.
+	 */
+	private final PollerPool pollerPool;
 
 	public BlockingTCPAcceptor(Context context, int port, int receiveBufferSize) throws PVAException {
+		this(context, port, receiveBufferSize, 0);
+	}
+
+	/**
+	 * Constructor.
+	 * @param context context where acceptor lives in.
+	 * @param port port to listen on.
+	 * @param receiveBufferSize receive buffer size.
+	 * @param pollerThreads number of poller threads serving non-blocking transports,
+	 * 			<code>0</code> to use blocking transports, negative to use one poller per available processor.
+	 * @throws PVAException if acceptor fails to initialize.
+	 */
+	public BlockingTCPAcceptor(Context context, int port, int receiveBufferSize, int pollerThreads) throws PVAException {
 		this.context = context;
 		this.receiveBufferSize = receiveBufferSize;
 
-		/*
-		// TODO!!!
-		try {
-			poller = new PollerImpl();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		if (pollerThreads != 0)
+		{
+			try {
+				pollerPool = new PollerPool("TCP-poller-", pollerThreads, PollerPool.AssignmentPolicy.LEAST_LOADED);
+			} catch (IOException e) {
+				throw new PVAException("Failed to create pollers.", e);
+			}
+			pollerPool.start();
 		}
-		poller.start();
-		 */
+		else
+			pollerPool = null;
+		
 		initialize(port);
 	}
 
@@ -105,8 +125,11 @@ public class BlockingTCPAcceptor {
 				// do NOT tune socket buffer sizes, this will disable auto-tuning
 				
 				// create transport
-				final Transport transport = new BlockingServerTCPTransport(context, socket, ((ServerContextImpl)context).getServerResponseHandler(), receiveBufferSize);
-				//final Transport transport = new NonBlockingServerTCPTransport(context, poller, socket, ((ServerContextImpl)context).getServerResponseHandler(), receiveBufferSize);
+				final Transport transport;
+				if (pollerPool != null)
+					transport = new NonBlockingServerTCPTransport(context, pollerPool.getPoller(), socket, ((ServerContextImpl)context).getServerResponseHandler(), receiveBufferSize);
+				else
+					transport = new BlockingServerTCPTransport(context, socket, ((ServerContextImpl)context).getServerResponseHandler(), receiveBufferSize);
 	
 				// validate connection
 				if (!validateConnection(transport, address))
@@ -247,6 +270,9 @@ public class BlockingTCPAcceptor {
 				context.getLogger().log(Level.FINE, "Failed to close acceptor socket at " + bindAddress + ".", e);
 			}
 		}
+		
+		if (pollerPool != null)
+			pollerPool.shutdown();
 	}
 	
 }
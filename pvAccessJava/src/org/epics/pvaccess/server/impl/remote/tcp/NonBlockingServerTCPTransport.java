@@ -88,6 +88,7 @@ public class NonBlockingServerTCPTransport extends NonBlockingTCPTransport
 		final int INITIAL_SIZE = 64;
 		channels = Collections.synchronizedMap(new HashMap<Integer, ServerChannel>(INITIAL_SIZE));
 		
+		start();
 	}
 	
 	
@@ -478,6 +479,6 @@ public class NonBlockingServerTCPTransport extends NonBlockingTCPTransport
 	 */
 	@Override
 	protected void ready() {
-		enqueueSendRequest(this);
+		// noop, validation request is enqueued by verify()
 	}	
 }
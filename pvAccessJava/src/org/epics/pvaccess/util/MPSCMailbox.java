@@ -0,0 +1,146 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free multi-producer/single-consumer mailbox.
+ * Same API as <code>Mailbox</code>, but producers never take a lock and
+ * a blocked consumer is woken up via <code>LockSupport.unpark</code>.
+ * NOTE: <code>take</code>, <code>isEmpty</code> and <code>clear</code> must only be called
+ * by the (single) consumer thread.
+ * @param <E> element type.
+ */
+public class MPSCMailbox<E> {
+
+	private static final class Node<E> {
+		E value;
+		volatile Node<E> next;
+
+		Node(E value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Last added node, producers side.
+	 */
+	private final AtomicReference<Node<E>> head;
+
+	/**
+	 * Last consumed node (sentinel), consumer side.
+	 */
+	private volatile Node<E> tail;
+
+	/**
+	 * Consumer thread waiting in <code>take</code>, <code>null</code> if none.
+	 */
+	private volatile Thread waiter = null;
+
+	private final AtomicBoolean wakeup = new AtomicBoolean(false);
+
+	public MPSCMailbox()
+	{
+		Node<E> sentinel = new Node<E>(null);
+		head = new AtomicReference<Node<E>>(sentinel);
+		tail = sentinel;
+	}
+
+	public void put(E msg)
+	{
+		final Node<E> node = new Node<E>(msg);
+		final Node<E> prev = head.getAndSet(node);
+		prev.next = node;
+
+		final Thread thread = waiter;
+		if (thread != null)
+			LockSupport.unpark(thread);
+	}
+
+	private E poll()
+	{
+		final Node<E> next = tail.next;
+		if (next == null)
+			return null;
+
+		final E val = next.value;
+		next.value = null;
+		tail = next;
+		return val;
+	}
+
+	/**
+	 * Take an element.
+	 * @param timeout <code>-1</code> do not wait, <code>0</code> wait until element is available
+	 * 			or <code>wakeup()</code> is called, otherwise wait at most <code>timeout</code> ms.
+	 * @return element or <code>null</code> if none is available.
+	 * @throws InterruptedException if consumer thread is interrupted while waiting.
+	 */
+	public E take(long timeout) throws InterruptedException
+	{
+		E val = poll();
+		if (val != null || timeout < 0)
+			return val;
+
+		final long deadline = (timeout > 0) ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+		waiter = Thread.currentThread();
+		try
+		{
+			while (true)
+			{
+				// recheck after publishing waiter, producer might have missed it
+				val = poll();
+				if (val != null)
+					return val;
+
+				if (wakeup.getAndSet(false))
+					return null;
+
+				// elements already put are taken before reporting an interrupt
+				if (Thread.interrupted())
+					throw new InterruptedException();
+
+				if (timeout > 0)
+				{
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0)
+						return null;
+					LockSupport.parkNanos(this, remaining);
+				}
+				else
+					LockSupport.park(this);
+			}
+		}
+		finally
+		{
+			waiter = null;
+		}
+	}
+
+	public boolean isEmpty()
+	{
+		return tail.next == null;
+	}
+
+	public void clear()
+	{
+		while (poll() != null);
+	}
+
+	public void wakeup()
+	{
+		if (!wakeup.getAndSet(true))
+		{
+			final Thread thread = waiter;
+			if (thread != null)
+				LockSupport.unpark(thread);
+		}
+	}
+}
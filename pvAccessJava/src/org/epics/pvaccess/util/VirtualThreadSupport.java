@@ -0,0 +1,78 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads when running on a JVM that supports them (Java 21+),
+ * while the code base itself is still compiled for Java 8.
+ * Virtual threads are cheap to block, so blocking transports can use them
+ * to serve tens of thousands of connections without as many OS threads.
+ * NOTE: a virtual thread blocked inside a <code>synchronized</code> block
+ * (or in <code>Object.wait()</code>) pins its carrier thread (up to Java 23),
+ * code run by virtual threads should prefer <code>java.util.concurrent</code> locks
+ * and <code>LockSupport</code> (e.g. <code>MPSCMailbox</code>).
+ */
+public final class VirtualThreadSupport {
+
+	private static final Method ofVirtualMethod;
+	private static final Method nameMethod;
+	private static final Method unstartedMethod;
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method unstarted = null;
+		try {
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			name = builderClass.getMethod("name", String.class);
+			unstarted = builderClass.getMethod("unstarted", Runnable.class);
+
+			// fails on Java 19/20 if preview features are not enabled
+			ofVirtual.invoke(null);
+		} catch (Throwable th) {
+			ofVirtual = null;
+		}
+		ofVirtualMethod = ofVirtual;
+		nameMethod = name;
+		unstartedMethod = unstarted;
+	}
+
+	private VirtualThreadSupport() {
+		// static class
+	}
+
+	/**
+	 * Check if virtual threads are supported by the running JVM.
+	 * @return <code>true</code> if virtual threads can be created.
+	 */
+	public static boolean isAvailable() {
+		return ofVirtualMethod != null;
+	}
+
+	/**
+	 * Create a new (not yet started) thread.
+	 * @param runnable thread body.
+	 * @param name thread name.
+	 * @param virtual create a virtual thread, ignored if not supported by the JVM.
+	 * @return the thread.
+	 */
+	public static Thread newThread(Runnable runnable, String name, boolean virtual) {
+		if (virtual && ofVirtualMethod != null)
+		{
+			try {
+				Object builder = ofVirtualMethod.invoke(null);
+				builder = nameMethod.invoke(builder, name);
+				return (Thread)unstartedMethod.invoke(builder, runnable);
+			} catch (Throwable th) {
+				// fallback to platform thread
+			}
+		}
+		return new Thread(runnable, name);
+	}
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.client.impl.remote.search.test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.client.impl.remote.search.SearchInstance;
+import org.epics.pvaccess.client.impl.remote.search.SimpleChannelSearchManagerImpl;
+import org.epics.pvaccess.client.impl.remote.search.TokenBucket;
+import org.epics.pvaccess.impl.remote.udp.BlockingUDPTransport.InetAddressType;
+import org.epics.pvaccess.impl.remote.utils.GUID;
+
+/**
+ * JUnit test for <code>SimpleChannelSearchManagerImpl</code> and its <code>TokenBucket</code> rate limiter.
+ */
+public class SimpleChannelSearchManagerTest extends TestCase {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	// search frame layout: header, sequence number, flags, reserved, response address and port, "tcp" protocol
+	private static final int DATA_COUNT_POSITION = PVAConstants.PVA_MESSAGE_HEADER_SIZE + 4+1+3+16+2+1+4;
+
+	/**
+	 * Token bucket with a manually advanced clock.
+	 */
+	private static class ManualClockTokenBucket extends TokenBucket {
+		long now;
+
+		ManualClockTokenBucket(int ratePerSecond, int burst) {
+			super(ratePerSecond, burst);
+		}
+
+		@Override
+		protected long nanoTime() {
+			return now;
+		}
+	}
+
+	private static class SearchInstanceImpl implements SearchInstance {
+		private final int cid;
+		private final String name;
+		private final AtomicInteger userValue = new AtomicInteger();
+		int responses = 0;
+
+		SearchInstanceImpl(int cid, String name) {
+			this.cid = cid;
+			this.name = name;
+		}
+
+		@Override
+		public int getChannelID() {
+			return cid;
+		}
+
+		@Override
+		public String getChannelName() {
+			return name;
+		}
+
+		@Override
+		public AtomicInteger getUserValue() {
+			return userValue;
+		}
+
+		@Override
+		public synchronized void searchResponse(GUID guid, byte minorRevision, InetSocketAddress serverAddress) {
+			responses++;
+		}
+	}
+
+	/**
+	 * Search manager that records channel IDs of every (unicast) frame instead of sending it.
+	 */
+	private static class RecordingSearchManager extends SimpleChannelSearchManagerImpl {
+		final List<List<Integer>> frames = new ArrayList<List<Integer>>();
+		volatile Thread searchThread;
+
+		RecordingSearchManager(ClientContextImpl context) {
+			super(context);
+		}
+
+		@Override
+		protected void sendFrame(ByteBuffer frame, InetAddressType target) {
+			// every frame is sent to unicast and broadcast/multicast destinations
+			if (target != InetAddressType.UNICAST)
+				return;
+
+			searchThread = Thread.currentThread();
+
+			final ByteBuffer data = frame.duplicate();
+			data.flip();
+			final int count = data.getShort(DATA_COUNT_POSITION);
+			data.position(DATA_COUNT_POSITION + 2);
+			final List<Integer> cids = new ArrayList<Integer>();
+			for (int i = 0; i < count; i++)
+			{
+				cids.add(data.getInt());
+				// name, size is less than 254 bytes
+				final int nameSize = data.get();
+				data.position(data.position() + nameSize);
+			}
+
+			synchronized (frames) {
+				frames.add(cids);
+				frames.notifyAll();
+			}
+		}
+
+		Set<Integer> searched() {
+			final Set<Integer> cids = new HashSet<Integer>();
+			synchronized (frames) {
+				for (List<Integer> frame : frames)
+					cids.addAll(frame);
+			}
+			return cids;
+		}
+
+		void waitForFrames(int count) throws InterruptedException {
+			final long t1 = System.currentTimeMillis();
+			synchronized (frames) {
+				while (frames.size() < count && (System.currentTimeMillis() - t1) < TIMEOUT_MS)
+					frames.wait(TIMEOUT_MS);
+				assertTrue("search frame(s) not sent", frames.size() >= count);
+			}
+		}
+	}
+
+	private ClientContextImpl context;
+	private RecordingSearchManager searchManager;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (searchManager != null)
+			searchManager.cancel();
+		if (context != null)
+			context.dispose();
+	}
+
+	private RecordingSearchManager createSearchManager(final int maxFramesPerSecond, final int maxFramesBurst) throws Exception {
+		context = new ClientContextImpl() {
+			@Override
+			protected void loadConfiguration() {
+				super.loadConfiguration();
+				searchMaxFramesPerSecond = maxFramesPerSecond;
+				searchMaxFramesBurst = maxFramesBurst;
+			}
+		};
+		context.initialize();
+		assertEquals(maxFramesPerSecond, context.getSearchMaxFramesPerSecond());
+		assertEquals(maxFramesBurst, context.getSearchMaxFramesBurst());
+
+		searchManager = new RecordingSearchManager(context);
+		return searchManager;
+	}
+
+	public void testTokenBucketBurst()
+	{
+		ManualClockTokenBucket bucket = new ManualClockTokenBucket(10, 3);
+
+		// full bucket, burst allowed
+		for (int i = 0; i < 3; i++)
+			assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+
+		// never refilled above the burst size
+		bucket.now += 10000000000L;
+		for (int i = 0; i < 3; i++)
+			assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+	}
+
+	public void testTokenBucketRefill()
+	{
+		ManualClockTokenBucket bucket = new ManualClockTokenBucket(10, 3);
+		for (int i = 0; i < 3; i++)
+			assertTrue(bucket.tryAcquire());
+
+		// 10 tokens per second, i.e. one per 100ms
+		bucket.now += 50000000L;
+		assertFalse(bucket.tryAcquire());
+		bucket.now += 50000000L;
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+
+		bucket.now += 250000000L;
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+	}
+
+	public void testTokenBucketInvalidArguments()
+	{
+		try {
+			new TokenBucket(0, 1);
+			fail("zero rate accepted");
+		} catch (IllegalArgumentException iae) {
+			// expected
+		}
+		try {
+			new TokenBucket(1, 0);
+			fail("zero burst accepted");
+		} catch (IllegalArgumentException iae) {
+			// expected
+		}
+	}
+
+	public void testImmediateSearchCoalesced() throws Exception
+	{
+		createSearchManager(200, 10);
+
+		final int count = 50;
+		Set<Integer> cids = new HashSet<Integer>();
+		for (int i = 0; i < count; i++)
+		{
+			searchManager.register(new SearchInstanceImpl(i, "coalesced" + i));
+			cids.add(i);
+		}
+		assertEquals(count, searchManager.registeredCount());
+
+		// registrations done in a row are searched for in one frame
+		searchManager.waitForFrames(1);
+		synchronized (searchManager.frames) {
+			assertEquals(cids, new HashSet<Integer>(searchManager.frames.get(0)));
+		}
+		assertTrue(searchManager.getSearchesSentCount() >= count);
+	}
+
+	public void testFoundChannelsSkipped() throws Exception
+	{
+		createSearchManager(200, 10);
+
+		SearchInstanceImpl found = new SearchInstanceImpl(1, "found");
+		SearchInstanceImpl notFound = new SearchInstanceImpl(2, "notFound");
+		searchManager.register(found);
+		searchManager.register(notFound);
+		// found before the (coalesced) immediate search is sent
+		searchManager.searchResponse(null, found.getChannelID(), 0, (byte)0, null);
+		assertEquals(1, found.responses);
+		assertEquals(1, searchManager.getResponseCount());
+		assertEquals(1, searchManager.registeredCount());
+
+		searchManager.waitForFrames(1);
+		synchronized (searchManager.frames) {
+			assertEquals(1, searchManager.frames.get(0).size());
+			assertEquals(notFound.getChannelID(), searchManager.frames.get(0).get(0).intValue());
+		}
+
+		// periodic searches skip it too
+		searchManager.newServerDetected();
+		searchManager.waitForFrames(2);
+		assertFalse(searchManager.searched().contains(found.getChannelID()));
+	}
+
+	public void testCancelWhileRateLimited() throws Exception
+	{
+		// one frame per second, no burst
+		createSearchManager(1, 1);
+
+		// long names, many frames needed
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			name.append('x');
+		final int count = 4 * PVAConstants.MAX_UDP_UNFRAGMENTED_SEND / name.length();
+		for (int i = 0; i < count; i++)
+			searchManager.register(new SearchInstanceImpl(i, name.toString() + i));
+
+		// first frame is sent, the next one waits for the rate limiter
+		searchManager.waitForFrames(1);
+		Thread searchThread = searchManager.searchThread;
+		Thread.sleep(100);
+
+		final long t1 = System.currentTimeMillis();
+		searchManager.cancel();
+		searchThread.join(TIMEOUT_MS);
+		assertFalse("search thread not stopped", searchThread.isAlive());
+		assertTrue("search thread waited for the rate limiter", System.currentTimeMillis() - t1 < 500);
+
+		synchronized (searchManager.frames) {
+			assertEquals(1, searchManager.frames.size());
+		}
+		assertEquals(1, searchManager.getFramesSentCount());
+	}
+}
@@ -2897,6 +2897,48 @@ public abstract class ChannelAccessIFTest extends TestCase {
 	    
     }
 	
+    public void testPipelineMonitorAndProcess() throws Throwable
+    {
+        Channel ch = syncCreateChannel("simpleCounter");
+		
+    	CreateRequest createRequest = CreateRequest.create();
+		String request = "record[queueSize=4,pipeline=true]field(timeStamp,value)";
+    	PVStructure pvRequest = createRequest.createRequest(request);
+    	if(pvRequest==null) {
+    		String message ="createRequest failed " + createRequest.getMessage();
+    		throw new IllegalArgumentException(message);
+    	}
+    	ChannelMonitorRequesterImpl channelMonitorRequester = new ChannelMonitorRequesterImpl();
+	    ch.createMonitor(channelMonitorRequester, pvRequest);
+	    channelMonitorRequester.waitAndCheckConnect();
+
+	    synchronized (channelMonitorRequester) {
+		    channelMonitorRequester.channelMonitor.start();
+		    
+		    if (channelMonitorRequester.monitorCounter.get() == 0)
+		    	channelMonitorRequester.wait(getTimeoutMs());
+		    assertEquals(1, channelMonitorRequester.monitorCounter.get());
+	    }
+
+		ChannelProcessRequesterImpl channelProcessRequester = new ChannelProcessRequesterImpl();
+		ch.createChannelProcess(channelProcessRequester, null);
+		channelProcessRequester.waitAndCheckConnect();
+
+		// many more updates than queueSize, i.e. credits (released elements) need to be reported back
+		final int COUNT = 1000;
+		for (int i = 2; i < COUNT; i++)
+		{
+			channelProcessRequester.syncProcess(false);
+			synchronized (channelMonitorRequester) {
+			    if (channelMonitorRequester.monitorCounter.get() < i)
+			    	channelMonitorRequester.wait(getTimeoutMs());
+				assertEquals(i, channelMonitorRequester.monitorCounter.get());
+			}
+		}
+		
+		ch.destroy();
+    }
+	
 	// ----------------- ... and at last destroy() -------------- 
 	
 	public void testDestroy() throws Throwable
@@ -0,0 +1,537 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.client.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelFindRequester;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.impl.remote.metrics.MetricsRegistryFactory;
+import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
+import org.epics.pvaccess.server.impl.remote.ServerResponseHandler;
+import org.epics.pvaccess.server.impl.remote.handlers.MonitorHandler;
+import org.epics.pvaccess.server.impl.remote.plugins.DefaultBeaconServerDataProvider;
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorQueue;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Server monitor send batching (<code>EPICS_PVAS_MONITOR_SEND_BATCH_SIZE</code> &gt; 1) test,
+ * the provider queues several elements before the server gets to send any of them.
+ */
+public class MonitorSendBatchTest extends TestCase {
+
+	private static final String CHANNEL_NAME = "monitorSendBatch";
+
+	private static final int SEND_BATCH_SIZE = 4;
+
+	private static final long TIMEOUT_MS = 10000;
+
+	private static final Structure structure = PVFactory.getFieldCreate().createStructure(
+			new String[] { "counter", "value" },
+			new Field[] {
+				PVFactory.getFieldCreate().createScalar(ScalarType.pvInt),
+				PVFactory.getFieldCreate().createScalarArray(ScalarType.pvDouble)
+			});
+
+	/**
+	 * Provider monitor, queues all the elements on start and reports them at once.
+	 * Every odd element has its overrun bit set, released elements are recorded.
+	 */
+	private static class ProviderMonitor implements Monitor {
+		final MonitorQueue queue;
+		final MonitorRequester requester;
+		final int elementCount;
+		final int arraySize;
+		final List<Integer> released = new ArrayList<Integer>();
+
+		ProviderMonitor(MonitorRequester requester, int elementCount, int arraySize) {
+			this.requester = requester;
+			this.elementCount = elementCount;
+			this.arraySize = arraySize;
+			MonitorElement[] elements = new MonitorElement[elementCount];
+			for (int i = 0; i < elements.length; i++)
+				elements[i] = MonitorQueueFactory.createMonitorElement(PVFactory.getPVDataCreate().createPVStructure(structure));
+			queue = MonitorQueueFactory.create(elements);
+			requester.monitorConnect(PVFactory.getStatusCreate().getStatusOK(), this, structure);
+		}
+
+		@Override
+		public MonitorElement poll() {
+			synchronized (queue) {
+				return queue.getUsed();
+			}
+		}
+
+		@Override
+		public void release(MonitorElement monitorElement) {
+			synchronized (queue) {
+				released.add(monitorElement.getPVStructure().getIntField("counter").get());
+				queue.releaseUsed(monitorElement);
+			}
+		}
+
+		@Override
+		public Status start() {
+			synchronized (queue) {
+				for (int i = 0; i < elementCount; i++)
+				{
+					MonitorElement element = queue.getFree();
+					PVStructure pvStructure = element.getPVStructure();
+					pvStructure.getIntField("counter").put(i);
+					double[] value = new double[arraySize];
+					for (int j = 0; j < value.length; j++)
+						value[j] = i;
+					pvStructure.getSubField(PVDoubleArray.class, "value").put(0, value.length, value, 0);
+					element.getChangedBitSet().clear();
+					element.getChangedBitSet().set(0);
+					element.getOverrunBitSet().clear();
+					if (i % 2 == 1)
+						element.getOverrunBitSet().set(pvStructure.getIntField("counter").getFieldOffset());
+					queue.setUsed(element);
+				}
+
+				// server's poll is blocked until all the events are reported, i.e. a burst
+				for (int i = 0; i < elementCount; i++)
+					requester.monitorEvent(this);
+			}
+			return PVFactory.getStatusCreate().getStatusOK();
+		}
+
+		@Override
+		public Status stop() {
+			return PVFactory.getStatusCreate().getStatusOK();
+		}
+
+		@Override
+		public void destroy() {
+			// noop
+		}
+	}
+
+	/**
+	 * Channel provider hosting only <code>CHANNEL_NAME</code> channel (only monitors are supported).
+	 */
+	private static ChannelProvider createChannelProvider(final List<ProviderMonitor> monitors, final int elementCount, final int arraySize)
+	{
+		return (ChannelProvider)Proxy.newProxyInstance(
+				ChannelProvider.class.getClassLoader(), new Class<?>[] { ChannelProvider.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(final Object provider, Method method, Object[] args) {
+						if (method.getName().equals("getProviderName"))
+							return "monitorSendBatch";
+						else if (method.getName().equals("destroy"))
+							return null;
+						else if (method.getName().equals("channelFind"))
+						{
+							((ChannelFindRequester)args[1]).channelFindResult(PVFactory.getStatusCreate().getStatusOK(),
+									null, CHANNEL_NAME.equals(args[0]));
+							return null;
+						}
+						else if (method.getName().equals("createChannel"))
+						{
+							Channel channel = createChannel(provider, monitors, elementCount, arraySize);
+							((ChannelRequester)args[1]).channelCreated(PVFactory.getStatusCreate().getStatusOK(), channel);
+							return channel;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static Channel createChannel(final Object provider, final List<ProviderMonitor> monitors, final int elementCount, final int arraySize)
+	{
+		return (Channel)Proxy.newProxyInstance(
+				Channel.class.getClassLoader(), new Class<?>[] { Channel.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getChannelName"))
+							return CHANNEL_NAME;
+						else if (method.getName().equals("getProvider"))
+							return provider;
+						else if (method.getName().equals("destroy"))
+							return null;
+						else if (method.getName().equals("createMonitor"))
+						{
+							ProviderMonitor monitor = new ProviderMonitor((MonitorRequester)args[0], elementCount, arraySize);
+							synchronized (monitors) {
+								monitors.add(monitor);
+							}
+							return monitor;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static class ConnectionListener implements ChannelRequester {
+		private Boolean connected = null;
+
+		@Override
+		public void channelCreated(Status status, Channel channel) {
+			if (!status.isSuccess())
+			{
+				synchronized (this) {
+					connected = Boolean.FALSE;
+					this.notify();
+				}
+			}
+		}
+
+		@Override
+		public void channelStateChange(Channel channel, ConnectionState connectionState) {
+			synchronized (this) {
+				connected = Boolean.valueOf(connectionState == ConnectionState.CONNECTED);
+				this.notify();
+			}
+		}
+
+		public synchronized void waitAndCheck() throws InterruptedException {
+			if (connected == null)
+				this.wait(TIMEOUT_MS);
+			assertNotNull("channel connect timeout", connected);
+			assertTrue("channel not connected", connected.booleanValue());
+		}
+
+		@Override
+		public String getRequesterName() {
+			return this.getClass().getName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			System.err.println("[" + messageType + "] " + message);
+		}
+	}
+
+	/**
+	 * Client monitor requester, records received counters and overrun flags in order of arrival.
+	 */
+	private static class MonitorRequesterImpl implements MonitorRequester {
+		private final int arraySize;
+		private Boolean connected = null;
+		final List<Integer> counters = new ArrayList<Integer>();
+		final List<Boolean> overruns = new ArrayList<Boolean>();
+
+		MonitorRequesterImpl(int arraySize) {
+			this.arraySize = arraySize;
+		}
+
+		@Override
+		public synchronized void monitorConnect(Status status, Monitor monitor, Structure structure) {
+			connected = Boolean.valueOf(status.isSuccess());
+			this.notify();
+		}
+
+		@Override
+		public synchronized void monitorEvent(Monitor monitor) {
+			MonitorElement element;
+			while ((element = monitor.poll()) != null)
+			{
+				final int counter = element.getPVStructure().getIntField("counter").get();
+				final PVDoubleArray value = element.getPVStructure().getSubField(PVDoubleArray.class, "value");
+				assertEquals(arraySize, value.getLength());
+				if (arraySize > 0)
+				{
+					assertEquals((double)counter, value.get().getDouble(0));
+					assertEquals((double)counter, value.get().getDouble(arraySize - 1));
+				}
+				counters.add(counter);
+				overruns.add(Boolean.valueOf(!element.getOverrunBitSet().isEmpty()));
+				monitor.release(element);
+			}
+			this.notify();
+		}
+
+		public synchronized void waitAndCheckConnect() throws InterruptedException {
+			if (connected == null)
+				this.wait(TIMEOUT_MS);
+			assertNotNull("channel monitor connect timeout", connected);
+			assertTrue("channel monitor failed to connect", connected.booleanValue());
+		}
+
+		public synchronized void waitForCounter(int counter) throws InterruptedException {
+			final long t1 = System.currentTimeMillis();
+			while (!counters.contains(counter) && (System.currentTimeMillis() - t1) < TIMEOUT_MS)
+				this.wait(TIMEOUT_MS);
+			assertTrue("counter " + counter + " not received", counters.contains(counter));
+		}
+
+		public synchronized void waitForElements(int count) throws InterruptedException {
+			final long t1 = System.currentTimeMillis();
+			while (counters.size() < count && (System.currentTimeMillis() - t1) < TIMEOUT_MS)
+				this.wait(TIMEOUT_MS);
+		}
+
+		@Override
+		public void unlisten(Monitor monitor) {
+			// noop
+		}
+
+		@Override
+		public String getRequesterName() {
+			return this.getClass().getName();
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			System.err.println("[" + messageType + "] " + message);
+		}
+	}
+
+	private ServerContextImpl serverContext;
+	private ClientContextImpl clientContext;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (clientContext != null)
+			clientContext.dispose();
+		if (serverContext != null)
+			serverContext.dispose();
+	}
+
+	private MonitorHandler runMonitor(int elementCount, int arraySize) throws Throwable
+	{
+		return runMonitor(elementCount, arraySize, PVAConstants.MAX_TCP_RECV);
+	}
+
+	private void startServer(List<ProviderMonitor> monitors, int elementCount, int arraySize,
+			final int sendBatchBytes, final int backlogSize) throws Throwable
+	{
+		serverContext = new ServerContextImpl() {
+			@Override
+			protected void loadConfiguration() {
+				super.loadConfiguration();
+				monitorSendBatchSize = SEND_BATCH_SIZE;
+				monitorSendBatchBytes = sendBatchBytes;
+				monitorBacklogSize = backlogSize;
+				metricsEnabled = true;
+				metricsRegistryName = MetricsRegistryFactory.NONE;
+			}
+		};
+		serverContext.setBeaconServerStatusProvider(new DefaultBeaconServerDataProvider(serverContext));
+		serverContext.initialize(createChannelProvider(monitors, elementCount, arraySize));
+		assertEquals(SEND_BATCH_SIZE, serverContext.getMonitorSendBatchSize());
+		assertEquals(sendBatchBytes, serverContext.getMonitorSendBatchBytes());
+
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					serverContext.run(0);
+				} catch (Throwable th) {
+					th.printStackTrace();
+				}
+			}
+		}, "pvAccess server").start();
+	}
+
+	private Channel connectChannel() throws Throwable
+	{
+		clientContext = new ClientContextImpl();
+		clientContext.initialize();
+
+		ConnectionListener connectionListener = new ConnectionListener();
+		Channel channel = clientContext.getProvider().createChannel(CHANNEL_NAME, connectionListener, PVAConstants.PVA_DEFAULT_PRIORITY);
+		connectionListener.waitAndCheck();
+		return channel;
+	}
+
+	private static MonitorHandler getMonitorHandler(ServerContextImpl serverContext)
+	{
+		return ((ServerResponseHandler)serverContext.getServerResponseHandler()).getMonitorHandler();
+	}
+
+	private MonitorHandler runMonitor(int elementCount, int arraySize, int sendBatchBytes) throws Throwable
+	{
+		final List<ProviderMonitor> monitors = new ArrayList<ProviderMonitor>();
+		startServer(monitors, elementCount, arraySize, sendBatchBytes, 16);
+		Channel channel = connectChannel();
+
+		// client queue large enough not to squash any of the elements
+		CreateRequest createRequest = CreateRequest.create();
+		PVStructure pvRequest = createRequest.createRequest("record[queueSize=" + (elementCount + 1) + "]field()");
+		assertNotNull(createRequest.getMessage(), pvRequest);
+
+		MonitorRequesterImpl monitorRequester = new MonitorRequesterImpl(arraySize);
+		Monitor monitor = channel.createMonitor(monitorRequester, pvRequest);
+		monitorRequester.waitAndCheckConnect();
+		monitor.start();
+
+		monitorRequester.waitForElements(elementCount);
+
+		List<Integer> expectedCounters = new ArrayList<Integer>();
+		List<Boolean> expectedOverruns = new ArrayList<Boolean>();
+		for (int i = 0; i < elementCount; i++)
+		{
+			expectedCounters.add(i);
+			expectedOverruns.add(Boolean.valueOf(i % 2 == 1));
+		}
+
+		synchronized (monitorRequester) {
+			assertEquals("all elements in order", expectedCounters, monitorRequester.counters);
+			assertEquals(expectedOverruns, monitorRequester.overruns);
+		}
+
+		// every element released exactly once, in order
+		assertEquals(1, monitors.size());
+		ProviderMonitor providerMonitor = monitors.get(0);
+		synchronized (providerMonitor.queue) {
+			assertEquals(expectedCounters, providerMonitor.released);
+			assertEquals(elementCount, providerMonitor.queue.getNumberFree());
+		}
+
+		assertEquals(elementCount / 2, serverContext.getMetrics().getMonitorOverrunCount());
+
+		monitor.destroy();
+		channel.destroy();
+
+		MonitorHandler monitorHandler = getMonitorHandler(serverContext);
+		assertEquals(elementCount, monitorHandler.getElementsSentCount());
+		assertEquals(0, monitorHandler.getEventsWithoutElementCount());
+		return monitorHandler;
+	}
+
+	/**
+	 * Pipeline monitor, client's queue is smaller than the burst, i.e. the server's credit window stalls.
+	 * @return received counters.
+	 */
+	private List<Integer> runPipelineMonitor(int elementCount, int queueSize, int backlogSize) throws Throwable
+	{
+		final List<ProviderMonitor> monitors = new ArrayList<ProviderMonitor>();
+		startServer(monitors, elementCount, 4, PVAConstants.MAX_TCP_RECV, backlogSize);
+		Channel channel = connectChannel();
+
+		CreateRequest createRequest = CreateRequest.create();
+		PVStructure pvRequest = createRequest.createRequest("record[queueSize=" + queueSize + ",pipeline=true]field()");
+		assertNotNull(createRequest.getMessage(), pvRequest);
+
+		MonitorRequesterImpl monitorRequester = new MonitorRequesterImpl(4);
+		Monitor monitor = channel.createMonitor(monitorRequester, pvRequest);
+		monitorRequester.waitAndCheckConnect();
+		monitor.start();
+
+		// the last update is never dropped
+		monitorRequester.waitForCounter(elementCount - 1);
+		
+		// let the window process the last acknowledgments
+		Thread.sleep(500);
+
+		List<Integer> expectedReleased = new ArrayList<Integer>();
+		for (int i = 0; i < elementCount; i++)
+			expectedReleased.add(i);
+
+		assertEquals(1, monitors.size());
+		ProviderMonitor providerMonitor = monitors.get(0);
+		synchronized (providerMonitor.queue) {
+			assertEquals(expectedReleased, providerMonitor.released);
+			assertEquals(elementCount, providerMonitor.queue.getNumberFree());
+		}
+
+		List<Integer> counters;
+		synchronized (monitorRequester) {
+			counters = new ArrayList<Integer>(monitorRequester.counters);
+		}
+
+		monitor.destroy();
+		channel.destroy();
+
+		// every event got an element or was dropped by the window, i.e. no extra polls
+		MonitorHandler monitorHandler = getMonitorHandler(serverContext);
+		assertEquals(counters.size(), monitorHandler.getElementsSentCount());
+		assertEquals(0, monitorHandler.getEventsWithoutElementCount());
+		return counters;
+	}
+
+	/**
+	 * Small elements, more than <code>SEND_BATCH_SIZE</code> queued (batch limit).
+	 */
+	public void testBatchedElementsInOrder() throws Throwable
+	{
+		final int elementCount = 3 * SEND_BATCH_SIZE + 1;
+		MonitorHandler monitorHandler = runMonitor(elementCount, 4);
+		// full batches and the rest
+		assertEquals(4, monitorHandler.getSendPassCount());
+		assertEquals((double)elementCount / 4, monitorHandler.getElementsPerSendPass());
+	}
+
+	/**
+	 * Large elements, next element does not fit into the send buffer.
+	 */
+	public void testBatchedElementsDoNotFit() throws Throwable
+	{
+		final int elementCount = SEND_BATCH_SIZE + 2;
+		MonitorHandler monitorHandler = runMonitor(elementCount, (PVAConstants.MAX_TCP_RECV * 3 / 4) / (Double.SIZE / Byte.SIZE));
+		// every send pass yields after one element
+		assertEquals(elementCount, monitorHandler.getSendPassCount());
+	}
+
+	/**
+	 * Byte budget of a send pass allows only two elements.
+	 */
+	public void testBatchedElementsByteBudget() throws Throwable
+	{
+		final int elementCount = 2 * SEND_BATCH_SIZE;
+		final int arraySize = 64;
+		// a bit more than two elements (array and header)
+		final int elementBytes = arraySize * (Double.SIZE / Byte.SIZE);
+		MonitorHandler monitorHandler = runMonitor(elementCount, arraySize, 2 * elementBytes + elementBytes / 2);
+		assertEquals(elementCount / 2, monitorHandler.getSendPassCount());
+	}
+
+	/**
+	 * Pipeline monitor, the updates not covered by credits are buffered in the window's backlog.
+	 */
+	public void testPipelineStalledWindow() throws Throwable
+	{
+		final int elementCount = 3 * SEND_BATCH_SIZE + 1;
+		List<Integer> counters = runPipelineMonitor(elementCount, SEND_BATCH_SIZE, 16);
+
+		List<Integer> expectedCounters = new ArrayList<Integer>();
+		for (int i = 0; i < elementCount; i++)
+			expectedCounters.add(i);
+		assertEquals("all elements in order", expectedCounters, counters);
+	}
+
+	/**
+	 * Pipeline monitor, the updates not covered by credits overflow the window's backlog and are squashed.
+	 */
+	public void testPipelineSquashedWindow() throws Throwable
+	{
+		final int elementCount = 3 * SEND_BATCH_SIZE + 1;
+		List<Integer> counters = runPipelineMonitor(elementCount, SEND_BATCH_SIZE, 2);
+
+		assertTrue("some elements squashed", counters.size() < elementCount);
+		for (int i = 1; i < counters.size(); i++)
+			assertTrue("elements in order", counters.get(i - 1) < counters.get(i));
+		assertEquals(elementCount - 1, counters.get(counters.size() - 1).intValue());
+	}
+
+}
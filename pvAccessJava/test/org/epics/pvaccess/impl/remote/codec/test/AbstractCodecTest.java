@@ -21,7 +21,17 @@ import org.epics.pvaccess.impl.remote.codec.AbstractCodec.WriteMode;
 import org.epics.pvaccess.impl.remote.codec.ConnectionClosedException;
 import org.epics.pvaccess.impl.remote.codec.test.AbstractCodecTest.TestCodec.ReadPollOneCallback;
 import org.epics.pvaccess.impl.remote.codec.test.AbstractCodecTest.TestCodec.WritePollOneCallback;
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
+import org.epics.pvaccess.impl.remote.metrics.TransportMetrics;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.ByteArrayData;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DoubleArrayData;
 import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVByteArray;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.ScalarType;
 
 
 
@@ -46,7 +56,7 @@ public class AbstractCodecTest extends TestCase {
 		}
 		
 	}
-	static class TestCodec extends AbstractCodec
+	static class TestCodec extends AbstractCodec implements DeserializableControl
 	{
 		static interface ReadPollOneCallback {
 			public void readPollOne() throws IOException;
@@ -63,8 +73,11 @@ public class AbstractCodecTest extends TestCase {
 		int sendBufferFullCount = 0;
 		int readPollOneCount = 0;
 		int writePollOneCount = 0;
+		int scatteringReadCount = 0;
+		int gatheringWriteCount = 0;
 		
 		boolean throwExceptionOnSend = false;
+		boolean scatterGather = false;
 		
 		ByteBuffer readBuffer;
 		final ByteBuffer writeBuffer;
@@ -79,6 +92,7 @@ public class AbstractCodecTest extends TestCase {
 		boolean disconnected = false;
 		
 		int forcePayloadRead = -1;
+		PVField payloadField = null;
 		
 		public TestCodec(int bufferSize) throws IOException {
 			this(bufferSize, bufferSize);
@@ -164,6 +178,42 @@ public class AbstractCodecTest extends TestCase {
 			return buffer.position() - startPos;
 		}
 		
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			if (!scatterGather)
+				return super.read(dsts, offset, length);
+
+			scatteringReadCount++;
+			long bytesRead = 0;
+			for (int i = offset; i < offset + length; i++)
+			{
+				final int count = read(dsts[i]);
+				if (count < 0)
+					return (bytesRead == 0) ? -1 : bytesRead;
+				bytesRead += count;
+			}
+			return bytesRead;
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			if (!scatterGather)
+				return super.write(srcs, offset, length);
+
+			gatheringWriteCount++;
+			long bytesWritten = 0;
+			for (int i = offset; i < offset + length; i++)
+			{
+				final int count = write(srcs[i]);
+				if (count < 0)
+					return (bytesWritten == 0) ? -1 : bytesWritten;
+				bytesWritten += count;
+				if (srcs[i].hasRemaining())
+					break;
+			}
+			return bytesWritten;
+		}
+		
 		public void transferToReadBuffer() throws IOException
 		{
 			flushSerializeBuffer();
@@ -214,7 +264,9 @@ public class AbstractCodecTest extends TestCase {
 				throw new IllegalStateException("message not aligned");
 				
 			PVAMessage caMessage = new PVAMessage(version, flags, command, payloadSize);
-			if (readPayload && payloadSize > 0)
+			if (payloadField != null)
+				payloadField.deserialize(socketBuffer, this);
+			else if (readPayload && payloadSize > 0)
 			{
 				// no fragmentation supported by this implementation
 				int toRead = forcePayloadRead >= 0 ? forcePayloadRead : payloadSize;
@@ -289,6 +341,11 @@ public class AbstractCodecTest extends TestCase {
 		public void cachedSerialize(Field field, ByteBuffer buffer) {
 			field.serialize(buffer, this);
 		}
+
+		@Override
+		public Field cachedDeserialize(ByteBuffer buffer) {
+			return null;
+		}
 	}
 	
 	private static int DEFAULT_BUFFER_SIZE = 10240;
@@ -1480,6 +1537,60 @@ public class AbstractCodecTest extends TestCase {
 		assertEquals(header.payloadSize, 0xDDCCBBAA);
 	}	
 	
+	public void testMetrics() throws Throwable
+	{
+		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+		final ContextMetrics contextMetrics = new ContextMetrics("test");
+		final TransportMetrics metrics = contextMetrics.createTransportMetrics("test");
+		codec.setMetrics(metrics);
+		assertSame(metrics, codec.getMetrics());
+		
+		TransportSender sender = new TransportSender() {
+			
+			@Override
+			public void unlock() {
+			}
+			
+			@Override
+			public void lock() {
+			}
+			
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				codec.startMessage((byte)0x20, 0x00000000);
+				codec.endMessage();
+			}
+		};
+
+		codec.enqueueSendRequest(sender);
+		codec.enqueueSendRequest(sender);
+		assertEquals(2, metrics.getSendQueueDepth());
+		assertEquals(2, metrics.getMaxSendQueueDepth());
+		
+		codec.processSendQueue();
+		assertEquals(0, metrics.getSendQueueDepth());
+		assertEquals(2, metrics.getMessagesSent());
+		assertEquals(2*PVAConstants.PVA_MESSAGE_HEADER_SIZE, metrics.getBytesSent());
+		
+		codec.transferToReadBuffer();
+		codec.processRead();
+		
+		assertEquals(2, codec.receivedAppMessages.size());
+		assertEquals(2, metrics.getMessagesReceived());
+		assertEquals(2*PVAConstants.PVA_MESSAGE_HEADER_SIZE, metrics.getBytesReceived());
+		assertEquals(2, metrics.getReceiveLatency().getCount());
+		
+		// totals survive transport close
+		assertEquals(1, contextMetrics.getActiveTransports());
+		metrics.close();
+		metrics.close();
+		assertEquals(0, contextMetrics.getActiveTransports());
+		assertEquals(2, contextMetrics.getMessagesReceived());
+		assertEquals(2, contextMetrics.getMessagesSent());
+		assertEquals(2*PVAConstants.PVA_MESSAGE_HEADER_SIZE, contextMetrics.getBytesReceived());
+		assertEquals(2, contextMetrics.getReceiveLatencyCount());
+	}	
+	
 	public void testEnqueueSendDirectRequest() throws Throwable
 	{
 		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
@@ -1749,6 +1860,231 @@ public class AbstractCodecTest extends TestCase {
 
 	}	
 
+	public void testSendDirectArray() throws Throwable
+	{
+		final int arraySize = AbstractCodec.MIN_DIRECT_TRANSFER_SIZE+3*DEFAULT_BUFFER_SIZE+5;
+		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+		codec.readBuffer = ByteBuffer.allocate(arraySize+DEFAULT_BUFFER_SIZE);
+		
+		WritePollOneCallback wpollCB = new WritePollOneCallback() {
+			@Override
+			public void writePollOne() throws IOException {
+				codec.processWrite();	// this should return immediately
+				
+				// now we fake reading
+				codec.writeBuffer.flip();
+				codec.readBuffer.put(codec.writeBuffer);
+				codec.writeBuffer.clear();
+			}
+		};
+		codec.writePollOneCallback = wpollCB;
+
+		final PVByteArray sentArray = (PVByteArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvByte);
+		byte[] data = new byte[arraySize];
+		for (int i = 0; i < arraySize; i++)
+			data[i] = (byte)i;
+		sentArray.put(0, arraySize, data, 0);
+		
+		TransportSender sender = new TransportSender() {
+			
+			@Override
+			public void unlock() {
+			}
+			
+			@Override
+			public void lock() {
+			}
+			
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				codec.startMessage((byte)0x12, 0);
+				sentArray.serialize(buffer, control);
+				codec.endMessage();
+			}
+		};
+
+		// process
+		codec.enqueueSendRequest(sender);
+		codec.processSendQueue();
+		
+		codec.addToReadBuffer();
+		
+		final PVByteArray receivedArray = (PVByteArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvByte);
+		codec.payloadField = receivedArray;
+		codec.processRead();
+		
+		assertEquals(0, codec.invalidDataStreamCount);
+		assertEquals(0, codec.closedCount);
+		assertEquals(0, codec.receivedControlMessages.size());
+		assertEquals(1, codec.receivedAppMessages.size());
+		assertEquals(ReadMode.NORMAL, codec.getReadMode());
+		
+		// whole stream consumed
+		assertFalse(codec.readBuffer.hasRemaining());
+		
+		assertEquals(arraySize, receivedArray.getLength());
+		ByteArrayData receivedData = new ByteArrayData();
+		receivedArray.get(0, arraySize, receivedData);
+		for (int i = 0; i < arraySize; i++)
+			assertEquals((byte)i, receivedData.data[i]);
+	}
+
+	public void testSendDirectArrayScatterGather() throws Throwable
+	{
+		final int arraySize = AbstractCodec.MIN_DIRECT_TRANSFER_SIZE+3*DEFAULT_BUFFER_SIZE+5;
+		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+		codec.scatterGather = true;
+		codec.readBuffer = ByteBuffer.allocate(arraySize+DEFAULT_BUFFER_SIZE);
+		
+		WritePollOneCallback wpollCB = new WritePollOneCallback() {
+			@Override
+			public void writePollOne() throws IOException {
+				codec.processWrite();	// this should return immediately
+				
+				// now we fake reading
+				codec.writeBuffer.flip();
+				codec.readBuffer.put(codec.writeBuffer);
+				codec.writeBuffer.clear();
+			}
+		};
+		codec.writePollOneCallback = wpollCB;
+
+		final PVByteArray sentArray = (PVByteArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvByte);
+		byte[] data = new byte[arraySize];
+		for (int i = 0; i < arraySize; i++)
+			data[i] = (byte)i;
+		sentArray.put(0, arraySize, data, 0);
+		
+		TransportSender sender = new TransportSender() {
+			
+			@Override
+			public void unlock() {
+			}
+			
+			@Override
+			public void lock() {
+			}
+			
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				codec.startMessage((byte)0x12, 0);
+				sentArray.serialize(buffer, control);
+				codec.endMessage();
+				
+				// message following the array, to be read ahead
+				codec.putControlMessage((byte)0xEE, 0xDDCCBBAA);
+			}
+		};
+
+		// process
+		codec.enqueueSendRequest(sender);
+		codec.processSendQueue();
+		
+		// header, array and padding are sent together
+		assertTrue(codec.gatheringWriteCount > 0);
+		
+		codec.addToReadBuffer();
+		
+		final PVByteArray receivedArray = (PVByteArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvByte);
+		codec.payloadField = receivedArray;
+		codec.processRead();
+		
+		assertTrue(codec.scatteringReadCount > 0);
+		assertEquals(0, codec.invalidDataStreamCount);
+		assertEquals(0, codec.closedCount);
+		assertEquals(1, codec.receivedAppMessages.size());
+		assertEquals(1, codec.receivedControlMessages.size());
+		assertEquals(ReadMode.NORMAL, codec.getReadMode());
+		
+		// whole stream consumed
+		assertFalse(codec.readBuffer.hasRemaining());
+		
+		assertEquals(arraySize, receivedArray.getLength());
+		ByteArrayData receivedData = new ByteArrayData();
+		receivedArray.get(0, arraySize, receivedData);
+		for (int i = 0; i < arraySize; i++)
+			assertEquals((byte)i, receivedData.data[i]);
+
+		PVAMessage header = codec.receivedControlMessages.get(0);
+		assertEquals(header.flags, (byte)0x81);
+		assertEquals(header.command, (byte)0xEE);
+		assertEquals(header.payloadSize, 0xDDCCBBAA);
+	}
+
+	public void testSendDirectDoubleArray() throws Throwable
+	{
+		final int arraySize = (AbstractCodec.MIN_DIRECT_TRANSFER_SIZE+3*DEFAULT_BUFFER_SIZE)/8+5;
+		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+		codec.scatterGather = true;
+		codec.readBuffer = ByteBuffer.allocate(arraySize*8+DEFAULT_BUFFER_SIZE);
+
+		WritePollOneCallback wpollCB = new WritePollOneCallback() {
+			@Override
+			public void writePollOne() throws IOException {
+				codec.processWrite();	// this should return immediately
+
+				// now we fake reading
+				codec.writeBuffer.flip();
+				codec.readBuffer.put(codec.writeBuffer);
+				codec.writeBuffer.clear();
+			}
+		};
+		codec.writePollOneCallback = wpollCB;
+
+		final PVDoubleArray sentArray = (PVDoubleArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+		double[] data = new double[arraySize];
+		for (int i = 0; i < arraySize; i++)
+			data[i] = i * 1.5;
+		sentArray.put(0, arraySize, data, 0);
+
+		TransportSender sender = new TransportSender() {
+
+			@Override
+			public void unlock() {
+			}
+
+			@Override
+			public void lock() {
+			}
+
+			@Override
+			public void send(ByteBuffer buffer, TransportSendControl control) {
+				codec.startMessage((byte)0x12, 0);
+				sentArray.serialize(buffer, control);
+				codec.endMessage();
+			}
+		};
+
+		// process
+		codec.enqueueSendRequest(sender);
+		codec.processSendQueue();
+
+		// array is sent directly from the transfer buffer
+		assertTrue(codec.gatheringWriteCount > 0);
+
+		codec.addToReadBuffer();
+
+		final PVDoubleArray receivedArray = (PVDoubleArray)PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+		codec.payloadField = receivedArray;
+		codec.processRead();
+
+		assertTrue(codec.scatteringReadCount > 0);
+		assertEquals(0, codec.invalidDataStreamCount);
+		assertEquals(0, codec.closedCount);
+		assertEquals(0, codec.receivedControlMessages.size());
+		assertEquals(1, codec.receivedAppMessages.size());
+		assertEquals(ReadMode.NORMAL, codec.getReadMode());
+
+		// whole stream consumed
+		assertFalse(codec.readBuffer.hasRemaining());
+
+		assertEquals(arraySize, receivedArray.getLength());
+		DoubleArrayData receivedData = new DoubleArrayData();
+		receivedArray.get(0, arraySize, receivedData);
+		for (int i = 0; i < arraySize; i++)
+			assertEquals(i * 1.5, receivedData.data[i]);
+	}
+
 	public void testRecipient() throws Throwable
 	{
 		final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
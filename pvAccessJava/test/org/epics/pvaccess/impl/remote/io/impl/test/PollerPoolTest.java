@@ -0,0 +1,172 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.io.impl.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.impl.remote.io.PollEvents;
+import org.epics.pvaccess.impl.remote.io.Poller;
+import org.epics.pvaccess.impl.remote.io.impl.PollerPool;
+
+/**
+ * <code>PollerPool</code> test.
+ */
+public class PollerPoolTest extends TestCase {
+
+	private static class PipeHandler implements PollEvents {
+		final Pipe pipe;
+		final CountDownLatch registered = new CountDownLatch(1);
+		final CountDownLatch received = new CountDownLatch(1);
+		volatile String pollThreadName;
+		volatile int bytesReceived = 0;
+
+		PipeHandler() throws IOException {
+			pipe = Pipe.open();
+			pipe.source().configureBlocking(false);
+		}
+
+		@Override
+		public void registeredNotify(SelectionKey key, Throwable registrationException) {
+			registered.countDown();
+		}
+
+		@Override
+		public void pollNotify(SelectionKey key) throws IOException {
+			if (key.isReadable())
+			{
+				ByteBuffer buffer = ByteBuffer.allocate(16);
+				bytesReceived += pipe.source().read(buffer);
+				pollThreadName = Thread.currentThread().getName();
+				received.countDown();
+			}
+		}
+
+		void close() throws IOException {
+			pipe.sink().close();
+			pipe.source().close();
+		}
+	}
+
+	private final List<PipeHandler> handlers = new ArrayList<PipeHandler>();
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (PipeHandler handler : handlers)
+			handler.close();
+		handlers.clear();
+	}
+
+	private PipeHandler add(Poller poller) throws IOException {
+		PipeHandler handler = new PipeHandler();
+		handlers.add(handler);
+		poller.add(handler.pipe.source(), handler, SelectionKey.OP_READ);
+		return handler;
+	}
+
+	public void testRoundRobin() throws IOException
+	{
+		PollerPool pool = new PollerPool("rr-", 3, PollerPool.AssignmentPolicy.ROUND_ROBIN);
+		pool.start();
+		try
+		{
+			assertEquals(3, pool.getSize());
+			assertEquals(PollerPool.AssignmentPolicy.ROUND_ROBIN, pool.getAssignmentPolicy());
+
+			Poller[] first = new Poller[3];
+			for (int i = 0; i < first.length; i++)
+				first[i] = pool.getPoller();
+
+			assertNotSame(first[0], first[1]);
+			assertNotSame(first[1], first[2]);
+			assertNotSame(first[0], first[2]);
+
+			for (int i = 0; i < first.length; i++)
+				assertSame(first[i], pool.getPoller());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	public void testLeastLoaded() throws Throwable
+	{
+		PollerPool pool = new PollerPool("ll-", 2, PollerPool.AssignmentPolicy.LEAST_LOADED);
+		pool.start();
+		try
+		{
+			// pending (not yet processed) registrations count too
+			Poller p1 = pool.getPoller();
+			add(p1);
+			Poller p2 = pool.getPoller();
+			assertNotSame(p1, p2);
+			add(p2);
+			add(pool.getPoller());
+			add(pool.getPoller());
+
+			for (PipeHandler handler : handlers)
+				assertTrue(handler.registered.await(3, TimeUnit.SECONDS));
+
+			int[] loads = pool.getLoads();
+			assertEquals(2, loads.length);
+			assertEquals(2, loads[0]);
+			assertEquals(2, loads[1]);
+
+			// channels closed, keys are removed on next select
+			handlers.get(0).close();
+			handlers.get(2).close();
+			handlers.get(1).pipe.sink().write(ByteBuffer.wrap(new byte[] { 1 }));
+			handlers.get(3).pipe.sink().write(ByteBuffer.wrap(new byte[] { 1 }));
+			assertTrue(handlers.get(1).received.await(3, TimeUnit.SECONDS));
+			assertTrue(handlers.get(3).received.await(3, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	public void testEventDelivery() throws Throwable
+	{
+		final int POLLERS = 4;
+		PollerPool pool = new PollerPool("ed-", POLLERS, PollerPool.AssignmentPolicy.ROUND_ROBIN);
+		pool.start();
+		try
+		{
+			for (int i = 0; i < POLLERS * 2; i++)
+				add(pool.getPoller());
+
+			for (PipeHandler handler : handlers)
+				assertTrue(handler.registered.await(3, TimeUnit.SECONDS));
+
+			for (PipeHandler handler : handlers)
+				handler.pipe.sink().write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+
+			for (int i = 0; i < handlers.size(); i++)
+			{
+				PipeHandler handler = handlers.get(i);
+				assertTrue(handler.received.await(3, TimeUnit.SECONDS));
+				assertEquals(3, handler.bytesReceived);
+				// each poller runs its own thread
+				assertEquals("ed-" + (i % POLLERS), handler.pollThreadName);
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.metrics.test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
+import org.epics.pvaccess.impl.remote.metrics.JMXMetricsRegistry;
+import org.epics.pvaccess.impl.remote.metrics.LatencyHistogram;
+import org.epics.pvaccess.impl.remote.metrics.MetricsRegistry;
+import org.epics.pvaccess.impl.remote.metrics.MetricsRegistryFactory;
+import org.epics.pvaccess.impl.remote.metrics.TransportMetrics;
+
+/**
+ * JUnit test for pvAccess metrics.
+ */
+public class ContextMetricsTest extends TestCase {
+
+	public void testHistogramBuckets()
+	{
+		assertEquals(0, LatencyHistogram.bucketOf(-1));
+		assertEquals(0, LatencyHistogram.bucketOf(0));
+		assertEquals(0, LatencyHistogram.bucketOf(1));
+		assertEquals(1, LatencyHistogram.bucketOf(2));
+		assertEquals(1, LatencyHistogram.bucketOf(3));
+		assertEquals(10, LatencyHistogram.bucketOf(1024));
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+
+		assertEquals(2048, LatencyHistogram.getBucketUpperBound(10));
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.getBucketUpperBound(LatencyHistogram.BUCKETS - 1));
+	}
+
+	public void testHistogramPercentiles()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(50));
+
+		// 90 x ~1us, 10 x ~1ms
+		for (int i = 0; i < 90; i++)
+			histogram.record(1000);
+		for (int i = 0; i < 10; i++)
+			histogram.record(1000000);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(1024, histogram.getPercentile(50));
+		assertEquals(1024, histogram.getPercentile(90));
+		assertEquals(1 << 20, histogram.getPercentile(91));
+		assertEquals(1 << 20, histogram.getPercentile(100));
+
+		LatencyHistogram sum = new LatencyHistogram();
+		histogram.addTo(sum);
+		histogram.addTo(sum);
+		assertEquals(200, sum.getCount());
+		assertEquals(180, sum.getCount(LatencyHistogram.bucketOf(1000)));
+
+		histogram.clear();
+		assertEquals(0, histogram.getCount());
+	}
+
+	public void testTotals()
+	{
+		ContextMetrics metrics = new ContextMetrics("test");
+		TransportMetrics t1 = metrics.createTransportMetrics("t1");
+		TransportMetrics t2 = metrics.createTransportMetrics("t2");
+
+		t1.bytesReceived(100);
+		t1.bytesSent(10);
+		t1.messageSent();
+		t1.messageProcessed(System.nanoTime());
+		t2.bytesReceived(200);
+		t2.messageProcessed(System.nanoTime());
+		t2.senderEnqueued();
+		t2.senderEnqueued();
+		t2.senderDequeued();
+
+		assertEquals(2, metrics.getActiveTransports());
+		assertEquals(2, metrics.getTransports().length);
+		assertEquals(300, metrics.getBytesReceived());
+		assertEquals(10, metrics.getBytesSent());
+		assertEquals(2, metrics.getMessagesReceived());
+		assertEquals(1, metrics.getMessagesSent());
+		assertEquals(1, metrics.getSendQueueDepth());
+		assertEquals(2, metrics.getReceiveLatencyCount());
+
+		t2.close();
+		assertTrue(t2.isClosed());
+		assertEquals(1, metrics.getActiveTransports());
+		assertEquals(300, metrics.getBytesReceived());
+		assertEquals(2, metrics.getMessagesReceived());
+		assertEquals(0, metrics.getSendQueueDepth());
+		assertEquals(2, metrics.getReceiveLatencyCount());
+
+		metrics.monitorOverrun();
+		assertEquals(1, metrics.getMonitorOverrunCount());
+		assertEquals(0, metrics.getSearchRetryCount());
+	}
+
+	public void testJMXRegistry() throws Throwable
+	{
+		MetricsRegistry registry = MetricsRegistryFactory.getRegistry(MetricsRegistryFactory.JMX);
+		assertTrue(registry instanceof JMXMetricsRegistry);
+		assertSame(registry, MetricsRegistryFactory.getRegistry(null));
+
+		ContextMetrics metrics = new ContextMetrics("test");
+		metrics.createTransportMetrics("t1").bytesReceived(123);
+
+		registry.register(metrics);
+		ObjectName name = ((JMXMetricsRegistry)registry).getObjectName(metrics);
+		assertNotNull(name);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertTrue(server.isRegistered(name));
+		assertEquals(123L, server.getAttribute(name, "BytesReceived"));
+		assertEquals("test", server.getAttribute(name, "ContextName"));
+
+		registry.unregister(metrics);
+		assertFalse(server.isRegistered(name));
+		assertNull(((JMXMetricsRegistry)registry).getObjectName(metrics));
+	}
+
+	public static class TestRegistry implements MetricsRegistry {
+		@Override
+		public void register(ContextMetrics metrics) {
+			// noop
+		}
+
+		@Override
+		public void unregister(ContextMetrics metrics) {
+			// noop
+		}
+	}
+
+	public void testPluggableRegistry()
+	{
+		assertNull(MetricsRegistryFactory.getRegistry(MetricsRegistryFactory.NONE));
+		assertTrue(MetricsRegistryFactory.getRegistry(TestRegistry.class.getName()) instanceof TestRegistry);
+
+		try {
+			MetricsRegistryFactory.getRegistry("no.such.Registry");
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException iae) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.test;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.impl.remote.CreditWindowMonitor;
+import org.epics.pvaccess.impl.remote.CreditWindowMonitor.OverflowPolicy;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorQueue;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * JUnit test for <code>CreditWindowMonitor</code>.
+ */
+public class CreditWindowMonitorTest extends TestCase {
+
+	private static final Structure structure = StandardFieldFactory.getStandardField().scalar(ScalarType.pvDouble, "timeStamp");
+
+	/**
+	 * Provider monitor, every update changes only the value field.
+	 */
+	private static class ProviderMonitor implements Monitor {
+		final MonitorQueue queue;
+		final MonitorRequester requester;
+		int used = 0;
+
+		ProviderMonitor(MonitorRequester requester) {
+			this.requester = requester;
+			MonitorElement[] elements = new MonitorElement[16];
+			for (int i = 0; i < elements.length; i++)
+				elements[i] = MonitorQueueFactory.createMonitorElement(PVFactory.getPVDataCreate().createPVStructure(structure));
+			queue = MonitorQueueFactory.create(elements);
+		}
+
+		void update(double value) {
+			MonitorElement element = queue.getFree();
+			PVDouble pvValue = element.getPVStructure().getDoubleField("value");
+			pvValue.put(value);
+			element.getChangedBitSet().clear();
+			element.getChangedBitSet().set(pvValue.getFieldOffset());
+			element.getOverrunBitSet().clear();
+			queue.setUsed(element);
+			used++;
+			requester.monitorEvent(this);
+		}
+
+		@Override
+		public MonitorElement poll() {
+			return queue.getUsed();
+		}
+
+		@Override
+		public void release(MonitorElement monitorElement) {
+			queue.releaseUsed(monitorElement);
+			used--;
+		}
+
+		@Override
+		public Status start() {
+			return PVFactory.getStatusCreate().getStatusOK();
+		}
+
+		@Override
+		public Status stop() {
+			return PVFactory.getStatusCreate().getStatusOK();
+		}
+
+		@Override
+		public void destroy() {
+			// noop
+		}
+	}
+
+	private static class CountingRequester implements MonitorRequester {
+		int events = 0;
+
+		@Override
+		public String getRequesterName() {
+			return "test";
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			// noop
+		}
+
+		@Override
+		public void monitorConnect(Status status, Monitor monitor, Structure structure) {
+			// noop
+		}
+
+		@Override
+		public void monitorEvent(Monitor monitor) {
+			events++;
+		}
+
+		@Override
+		public void unlisten(Monitor monitor) {
+			// noop
+		}
+	}
+
+	private final CountingRequester requester = new CountingRequester();
+	private ProviderMonitor provider;
+
+	private CreditWindowMonitor create(int credits, OverflowPolicy policy, int backlogSize)
+	{
+		CreditWindowMonitor window = new CreditWindowMonitor(requester, credits, policy, backlogSize);
+		provider = new ProviderMonitor(requester);
+		window.connect(provider, structure);
+		return window;
+	}
+
+	/**
+	 * Provider update followed by a send attempt, as done by the server monitor handler.
+	 */
+	private static void updateAndSend(CreditWindowMonitor window, ProviderMonitor provider, double value)
+	{
+		provider.update(value);
+		assertNull(window.poll());
+	}
+
+	private static double value(MonitorElement element) {
+		return element.getPVStructure().getDoubleField("value").get();
+	}
+
+	private static boolean valueOverrun(MonitorElement element) {
+		final PVStructure pvStructure = element.getPVStructure();
+		return element.getOverrunBitSet().get(pvStructure.getDoubleField("value").getFieldOffset());
+	}
+
+	private static void pollAndCheck(CreditWindowMonitor window, double expectedValue, boolean expectedOverrun)
+	{
+		MonitorElement element = window.poll();
+		assertNotNull(element);
+		assertEquals(expectedValue, value(element));
+		assertEquals(expectedOverrun, valueOverrun(element));
+		window.release(element);
+	}
+
+	public void testCredits()
+	{
+		CreditWindowMonitor window = create(2, OverflowPolicy.SQUASH_LATEST, 4);
+
+		provider.update(1);
+		provider.update(2);
+		provider.update(3);
+
+		pollAndCheck(window, 1, false);
+		pollAndCheck(window, 2, false);
+		assertEquals(0, window.getCredits());
+
+		// window closed, update moved to the backlog
+		assertNull(window.poll());
+		assertEquals(1, window.getBacklog());
+		assertEquals(0, provider.used);
+		assertEquals(1, window.getCreditStallCount());
+
+		// credit received, requester notified to send
+		final int events = requester.events;
+		window.reportRemoteQueueStatus(1);
+		assertEquals(events + 1, requester.events);
+		assertEquals(1, window.getCredits());
+
+		pollAndCheck(window, 3, false);
+		assertEquals(0, window.getBacklog());
+		assertNull(window.poll());
+	}
+
+	public void testSquashLatest()
+	{
+		CreditWindowMonitor window = create(0, OverflowPolicy.SQUASH_LATEST, 2);
+
+		for (int i = 1; i <= 4; i++)
+			updateAndSend(window, provider, i);
+
+		assertEquals(0, provider.used);
+		assertEquals(2, window.getBacklog());
+		assertEquals(2, window.getMaxBacklog());
+		assertEquals(2, window.getOverflowCount());
+		assertEquals(2, window.takeDroppedCount());
+		assertEquals(0, window.takeDroppedCount());
+
+		window.reportRemoteQueueStatus(10);
+		pollAndCheck(window, 1, false);
+		pollAndCheck(window, 4, true);
+		assertNull(window.poll());
+	}
+
+	public void testDropOldest()
+	{
+		CreditWindowMonitor window = create(0, OverflowPolicy.DROP_OLDEST, 2);
+
+		for (int i = 1; i <= 4; i++)
+			updateAndSend(window, provider, i);
+
+		assertEquals(0, provider.used);
+		assertEquals(2, window.getBacklog());
+		assertEquals(2, window.getOverflowCount());
+		assertEquals(2, window.takeDroppedCount());
+
+		window.reportRemoteQueueStatus(10);
+		pollAndCheck(window, 3, true);
+		pollAndCheck(window, 4, false);
+		assertNull(window.poll());
+	}
+
+	public void testBlockProvider()
+	{
+		CreditWindowMonitor window = create(0, OverflowPolicy.BLOCK_PROVIDER, 2);
+
+		for (int i = 1; i <= 4; i++)
+			updateAndSend(window, provider, i);
+
+		// not polled from the provider
+		assertEquals(4, provider.used);
+		assertEquals(0, window.getBacklog());
+
+		window.reportRemoteQueueStatus(1);
+		pollAndCheck(window, 1, false);
+		assertNull(window.poll());
+		assertEquals(3, provider.used);
+	}
+
+	public void testClearBacklog()
+	{
+		CreditWindowMonitor window = create(0, OverflowPolicy.SQUASH_LATEST, 4);
+
+		updateAndSend(window, provider, 1);
+		updateAndSend(window, provider, 2);
+		assertEquals(2, window.getBacklog());
+
+		window.start();
+		assertEquals(0, window.getBacklog());
+		assertEquals(2, window.takeDroppedCount());
+
+		window.reportRemoteQueueStatus(1);
+		assertNull(window.poll());
+		assertEquals(1, window.getCredits());
+	}
+}
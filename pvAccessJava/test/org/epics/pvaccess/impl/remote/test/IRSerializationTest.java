@@ -10,7 +10,11 @@ import java.nio.ByteBuffer;
 import junit.framework.TestCase;
 
 import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.impl.remote.IntrospectionCache;
 import org.epics.pvaccess.impl.remote.IntrospectionRegistry;
+import org.epics.pvaccess.impl.remote.metrics.ContextMetrics;
+import org.epics.pvaccess.impl.remote.metrics.TransportMetrics;
 import org.epics.pvaccess.util.BooleanHolder;
 import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.pv.DeserializableControl;
@@ -19,6 +23,7 @@ import org.epics.pvdata.pv.PVField;
 import org.epics.pvdata.pv.PVStructure;
 import org.epics.pvdata.pv.ScalarType;
 import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
 
 import static org.junit.Assert.*;
 
@@ -127,4 +132,213 @@ public class IRSerializationTest extends TestCase {
 		
 	}
 	
+	public void testRegisterExistingIntrospectionInterface() {
+		
+		IntrospectionRegistry introspectionRegistry =
+				new IntrospectionRegistry();
+		
+		Structure structure1 = FieldFactory.getFieldCreate().createFieldBuilder().
+				add("value", ScalarType.pvDouble).createStructure();
+		Structure structure2 = FieldFactory.getFieldCreate().createFieldBuilder().
+				add("value", ScalarType.pvDouble).createStructure();
+		Structure structure3 = FieldFactory.getFieldCreate().createFieldBuilder().
+				add("value", ScalarType.pvInt).createStructure();
+		
+		BooleanHolder existing = new BooleanHolder();
+		
+		short key1 = introspectionRegistry.registerIntrospectionInterface(structure1, existing);
+		assertFalse(existing.value);
+
+		// equal structure gets the same key
+		short key2 = introspectionRegistry.registerIntrospectionInterface(structure2, existing);
+		assertTrue(existing.value);
+		assertEquals(key1, key2);
+		
+		short key3 = introspectionRegistry.registerIntrospectionInterface(structure3, existing);
+		assertFalse(existing.value);
+		assertTrue(key1 != key3);
+		
+		// after reset everything is new again
+		introspectionRegistry.reset();
+		introspectionRegistry.registerIntrospectionInterface(structure2, existing);
+		assertFalse(existing.value);
+	}
+	
+	public void testRegisterIntrospectionInterfaceWraparound() {
+
+		IntrospectionRegistry introspectionRegistry =
+				new IntrospectionRegistry();
+
+		final int count = (1 << 16) + 10;
+		Structure[] structures = new Structure[count];
+		short[] keys = new short[count];
+		BooleanHolder existing = new BooleanHolder();
+		for (int i = 0; i < count; i++)
+		{
+			structures[i] = FieldFactory.getFieldCreate().createFieldBuilder().
+					add("f" + i, ScalarType.pvDouble).createStructure();
+			keys[i] = introspectionRegistry.registerIntrospectionInterface(structures[i], existing);
+			assertFalse(existing.value);
+		}
+
+		// first structures had their keys reused, they must be sent in full again
+		assertEquals(keys[0], keys[1 << 16]);
+		assertSame(structures[1 << 16], introspectionRegistry.getIntrospectionInterface(keys[0]));
+		short key = introspectionRegistry.registerIntrospectionInterface(structures[0], existing);
+		assertFalse(existing.value);
+		assertSame(structures[0], introspectionRegistry.getIntrospectionInterface(key));
+
+		// recent structures still resolve to their (unchanged) keys
+		key = introspectionRegistry.registerIntrospectionInterface(structures[count - 1], existing);
+		assertTrue(existing.value);
+		assertEquals(keys[count - 1], key);
+
+		// every ONLY_ID key the peer sees must resolve to the field that was sent
+		IRControl ic = new IRControl();
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		for (int i = 0; i < count; i++)
+		{
+			buffer.clear();
+			ic.cachedSerialize(structures[i], buffer);
+			buffer.flip();
+			ic.cachedDeserialize(buffer);
+		}
+		for (int i = 0; i < count; i++)
+		{
+			buffer.clear();
+			ic.cachedSerialize(structures[i], buffer);
+			buffer.flip();
+			assertEquals(structures[i], ic.cachedDeserialize(buffer));
+		}
+	}
+
+	public void testSerializeExistingIntrospectionInterface() {
+		
+		Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+				add("value", ScalarType.pvDouble).createStructure();
+
+		IRControl ic = new IRControl();
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		ic.cachedSerialize(structure, buffer);
+		final int fullSize = buffer.position();
+		ic.cachedSerialize(structure, buffer);
+		assertEquals(3, buffer.position() - fullSize);		// only ID
+		buffer.flip();
+		
+		Field field1 = ic.cachedDeserialize(buffer);
+		Field field2 = ic.cachedDeserialize(buffer);
+		assertEquals(structure, field1);
+		assertSame(field1, field2);
+		
+		// another transport, e.g. after reconnect, resolves to the same instance
+		buffer.rewind();
+		Field field3 = new IRControl().cachedDeserialize(buffer);
+		assertSame(field1, field3);
+	}
+	
+	public void testIntrospectionCache() {
+		
+		IntrospectionCache cache = new IntrospectionCache(2);
+		Structure structure1 = FieldFactory.getFieldCreate().createFieldBuilder().
+				add("a", ScalarType.pvDouble).createStructure();
+		Structure structure2 = FieldFactory.getFieldCreate().createFieldBuilder().
+				add("b", ScalarType.pvDouble).createStructure();
+		Structure structure3 = FieldFactory.getFieldCreate().createFieldBuilder().
+				add("c", ScalarType.pvDouble).createStructure();
+		
+		assertSame(structure1, cache.intern(structure1));
+		assertSame(structure1, cache.intern(FieldFactory.getFieldCreate().createFieldBuilder().
+				add("a", ScalarType.pvDouble).createStructure()));
+		assertSame(structure2, cache.intern(structure2));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		
+		// LRU, evicts structure2
+		cache.intern(structure1);
+		cache.intern(structure3);
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(structure1, cache.intern(structure1));
+		
+		assertNull(cache.intern(null));
+		
+		// disabled
+		IntrospectionCache disabledCache = new IntrospectionCache(0);
+		assertSame(structure1, disabledCache.intern(structure1));
+		assertEquals(0, disabledCache.getSize());
+	}
+	
+	public void testContextIntrospectionCache() throws Exception {
+		
+		// disabled by default
+		ClientContextImpl context = new ClientContextImpl();
+		context.initialize();
+		try {
+			assertNull(context.getIntrospectionCache());
+		} finally {
+			context.dispose();
+		}
+		
+		// not needed when pvData interns introspection interfaces
+		context = new ClientContextImpl() {
+			@Override
+			protected void loadConfiguration() {
+				super.loadConfiguration();
+				introspectionCacheSize = 16;
+			}
+		};
+		context.initialize();
+		try {
+			if (FieldFactory.isInterning())
+				assertNull(context.getIntrospectionCache());
+			else
+				assertEquals(16, context.getIntrospectionCache().getMaxSize());
+		} finally {
+			context.dispose();
+		}
+	}
+	
+	public void testIntrospectionCacheMetrics() {
+		
+		Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+				add("introspectionCacheMetrics", ScalarType.pvDouble).createStructure();
+		
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		new IRControl().cachedSerialize(structure, buffer);
+		buffer.flip();
+		
+		// hits and misses are counted per transport (and context), here the cache is shared
+		IntrospectionCache cache = new IntrospectionCache(16);
+		ContextMetrics contextMetrics1 = new ContextMetrics("context1");
+		ContextMetrics contextMetrics2 = new ContextMetrics("context2");
+		
+		IRControl ic1 = new IRControl();
+		TransportMetrics transportMetrics1 = contextMetrics1.createTransportMetrics("transport1");
+		ic1.incomingIR.setCache(cache);
+		ic1.incomingIR.setMetrics(transportMetrics1);
+		assertEquals(structure, ic1.cachedDeserialize(buffer.duplicate()));
+		
+		IRControl ic2 = new IRControl();
+		ic2.incomingIR.setCache(cache);
+		ic2.incomingIR.setMetrics(contextMetrics2.createTransportMetrics("transport2"));
+		assertEquals(structure, ic2.cachedDeserialize(buffer.duplicate()));
+		
+		assertEquals(0, contextMetrics1.getIntrospectionCacheHitCount());
+		assertEquals(1, contextMetrics1.getIntrospectionCacheMissCount());
+		assertEquals(1, contextMetrics2.getIntrospectionCacheHitCount());
+		assertEquals(0, contextMetrics2.getIntrospectionCacheMissCount());
+		
+		// totals survive transport close
+		transportMetrics1.close();
+		assertEquals(1, contextMetrics1.getIntrospectionCacheMissCount());
+		
+		// no cache (default), nothing counted
+		ContextMetrics contextMetrics3 = new ContextMetrics("context3");
+		IRControl ic3 = new IRControl();
+		ic3.incomingIR.setMetrics(contextMetrics3.createTransportMetrics("transport3"));
+		assertEquals(structure, ic3.cachedDeserialize(buffer.duplicate()));
+		assertEquals(0, contextMetrics3.getIntrospectionCacheHitCount());
+		assertEquals(0, contextMetrics3.getIntrospectionCacheMissCount());
+	}
+	
 }
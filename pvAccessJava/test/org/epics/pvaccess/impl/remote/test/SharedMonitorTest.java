@@ -0,0 +1,380 @@
+/**
+ * Copyright - See the COPYRIGHT that is included with this distribution.
+ * EPICS pvData is distributed subject to a Software License Agreement found
+ * in file LICENSE that is included with this distribution.
+ */
+package org.epics.pvaccess.impl.remote.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.impl.remote.SerializedMonitorUpdate;
+import org.epics.pvaccess.impl.remote.SharedEncodingMonitorElement;
+import org.epics.pvaccess.impl.remote.SharedMonitor;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorQueue;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * JUnit test for <code>SharedMonitor</code>.
+ */
+public class SharedMonitorTest extends TestCase {
+
+	private static final Structure structure = StandardFieldFactory.getStandardField().scalar(ScalarType.pvDouble, "timeStamp");
+
+	private static final PVStructure pvRequest = PVFactory.getPVDataCreate().createPVStructure(
+			PVFactory.getFieldCreate().createStructure(new String[0], new Field[0]));
+
+	/**
+	 * Provider monitor, every update but the first one after start changes only the value field.
+	 */
+	private static class ProviderMonitor implements Monitor {
+		final MonitorQueue queue;
+		final MonitorRequester requester;
+		boolean started = false;
+		boolean initial = false;
+		boolean destroyed = false;
+
+		ProviderMonitor(MonitorRequester requester) {
+			this.requester = requester;
+			MonitorElement[] elements = new MonitorElement[16];
+			for (int i = 0; i < elements.length; i++)
+				elements[i] = MonitorQueueFactory.createMonitorElement(PVFactory.getPVDataCreate().createPVStructure(structure));
+			queue = MonitorQueueFactory.create(elements);
+			requester.monitorConnect(PVFactory.getStatusCreate().getStatusOK(), this, structure);
+		}
+
+		void update(double value) {
+			MonitorElement element = queue.getFree();
+			PVDouble pvValue = element.getPVStructure().getDoubleField("value");
+			pvValue.put(value);
+			element.getChangedBitSet().clear();
+			// first update after start contains everything
+			element.getChangedBitSet().set(initial ? 0 : pvValue.getFieldOffset());
+			initial = false;
+			element.getOverrunBitSet().clear();
+			queue.setUsed(element);
+			requester.monitorEvent(this);
+		}
+
+		@Override
+		public MonitorElement poll() {
+			return queue.getUsed();
+		}
+
+		@Override
+		public void release(MonitorElement monitorElement) {
+			queue.releaseUsed(monitorElement);
+		}
+
+		@Override
+		public Status start() {
+			started = true;
+			initial = true;
+			return PVFactory.getStatusCreate().getStatusOK();
+		}
+
+		@Override
+		public Status stop() {
+			started = false;
+			return PVFactory.getStatusCreate().getStatusOK();
+		}
+
+		@Override
+		public void destroy() {
+			destroyed = true;
+		}
+	}
+
+	/**
+	 * Local channel (only monitors are supported), records the created provider monitors.
+	 */
+	private static Channel createChannel(final String channelName, final List<ProviderMonitor> monitors)
+	{
+		final ChannelProvider provider = (ChannelProvider)Proxy.newProxyInstance(
+				ChannelProvider.class.getClassLoader(), new Class<?>[] { ChannelProvider.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getProviderName"))
+							return "test";
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+
+		return (Channel)Proxy.newProxyInstance(
+				Channel.class.getClassLoader(), new Class<?>[] { Channel.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getChannelName"))
+							return channelName;
+						else if (method.getName().equals("getProvider"))
+							return provider;
+						else if (method.getName().equals("createMonitor"))
+						{
+							ProviderMonitor monitor = new ProviderMonitor((MonitorRequester)args[0]);
+							monitors.add(monitor);
+							return monitor;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static class CountingRequester implements MonitorRequester {
+		int events = 0;
+		Structure structure = null;
+		boolean unlisten = false;
+
+		@Override
+		public String getRequesterName() {
+			return "test";
+		}
+
+		@Override
+		public void message(String message, MessageType messageType) {
+			// noop
+		}
+
+		@Override
+		public void monitorConnect(Status status, Monitor monitor, Structure structure) {
+			assertTrue(status.isSuccess());
+			this.structure = structure;
+		}
+
+		@Override
+		public void monitorEvent(Monitor monitor) {
+			events++;
+		}
+
+		@Override
+		public void unlisten(Monitor monitor) {
+			unlisten = true;
+		}
+	}
+
+	private static class BufferControl implements SerializableControl {
+		@Override
+		public void flushSerializeBuffer() {
+			fail("buffer too small");
+		}
+
+		@Override
+		public void ensureBuffer(int size) {
+			// noop
+		}
+
+		@Override
+		public void alignBuffer(int alignment) {
+			// noop
+		}
+
+		@Override
+		public void cachedSerialize(Field field, ByteBuffer buffer) {
+			field.serialize(buffer, this);
+		}
+	}
+
+	/**
+	 * Serialize update the same way the server monitor handler does.
+	 */
+	private static byte[] serialize(MonitorElement element)
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(1024);
+		final BufferControl control = new BufferControl();
+		final SerializedMonitorUpdate serializedUpdate = ((SharedEncodingMonitorElement)element).getSerializedMonitorUpdate();
+		if (serializedUpdate != null)
+			serializedUpdate.serialize(buffer, control);
+		else
+		{
+			element.getChangedBitSet().serialize(buffer, control);
+			element.getPVStructure().serialize(buffer, control, element.getChangedBitSet());
+			element.getOverrunBitSet().serialize(buffer, control);
+		}
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	private static double value(MonitorElement element) {
+		return element.getPVStructure().getDoubleField("value").get();
+	}
+
+	private final Map<String, SharedMonitor> registry = new HashMap<String, SharedMonitor>();
+	private final List<ProviderMonitor> providerMonitors = new ArrayList<ProviderMonitor>();
+
+	public void testSerializeOnce()
+	{
+		final int subscriberCount = 10;
+		CountingRequester[] requesters = new CountingRequester[subscriberCount];
+		Monitor[] monitors = new Monitor[subscriberCount];
+		for (int i = 0; i < subscriberCount; i++)
+		{
+			requesters[i] = new CountingRequester();
+			monitors[i] = SharedMonitor.createMonitor(registry,
+					createChannel("test", providerMonitors), requesters[i], pvRequest, 4);
+			assertEquals(structure, requesters[i].structure);
+			monitors[i].start();
+		}
+
+		// one provider monitor for all the subscribers
+		assertEquals(1, registry.size());
+		assertEquals(1, providerMonitors.size());
+		final ProviderMonitor provider = providerMonitors.get(0);
+		assertTrue(provider.started);
+
+		provider.update(1);
+		provider.update(2);
+
+		// reference encoding, serialized as if not shared
+		final byte[] expected = serialize(new SharedEncodingMonitorElement() {
+			final PVStructure pvStructure = PVFactory.getPVDataCreate().createPVStructure(structure);
+			final BitSet changedBitSet = new BitSet();
+			{
+				pvStructure.getDoubleField("value").put(2);
+				changedBitSet.set(pvStructure.getDoubleField("value").getFieldOffset());
+			}
+			@Override
+			public PVStructure getPVStructure() { return pvStructure; }
+			@Override
+			public BitSet getChangedBitSet() { return changedBitSet; }
+			@Override
+			public BitSet getOverrunBitSet() { return new BitSet(); }
+			@Override
+			public SerializedMonitorUpdate getSerializedMonitorUpdate() { return null; }
+		});
+
+		SerializedMonitorUpdate sharedUpdate = null;
+		for (int i = 0; i < subscriberCount; i++)
+		{
+			assertEquals(1, requesters[i].events);
+
+			MonitorElement first = monitors[i].poll();
+			assertEquals(1.0, value(first));
+			monitors[i].release(first);
+
+			MonitorElement second = monitors[i].poll();
+			assertEquals(2.0, value(second));
+
+			// the same update instance (encoded once) for all the subscribers
+			SerializedMonitorUpdate update = ((SharedEncodingMonitorElement)second).getSerializedMonitorUpdate();
+			assertNotNull(update);
+			if (sharedUpdate == null)
+				sharedUpdate = update;
+			assertSame(sharedUpdate, update);
+
+			// byte-identical to the per-subscriber serialization
+			assertTrue(Arrays.equals(expected, serialize(second)));
+			monitors[i].release(second);
+
+			assertNull(monitors[i].poll());
+		}
+
+		for (Monitor monitor : monitors)
+			monitor.destroy();
+		assertTrue(provider.destroyed);
+		assertTrue(registry.isEmpty());
+	}
+
+	public void testLateStart()
+	{
+		CountingRequester requester1 = new CountingRequester();
+		Monitor monitor1 = SharedMonitor.createMonitor(registry, createChannel("test", providerMonitors), requester1, pvRequest, 4);
+		monitor1.start();
+		final ProviderMonitor provider = providerMonitors.get(0);
+		provider.update(1);
+		provider.update(2);
+
+		// started later, gets the current value
+		CountingRequester requester2 = new CountingRequester();
+		Monitor monitor2 = SharedMonitor.createMonitor(registry, createChannel("test", providerMonitors), requester2, pvRequest, 4);
+		assertEquals(0, requester2.events);
+		monitor2.start();
+		assertEquals(1, requester2.events);
+
+		MonitorElement element = monitor2.poll();
+		assertEquals(2.0, value(element));
+		assertTrue(element.getChangedBitSet().get(0));
+		assertNull(monitor2.poll());
+
+		// stopped subscribers get nothing, provider is stopped with the last one
+		monitor1.stop();
+		assertTrue(provider.started);
+		provider.update(3);
+		assertEquals(3.0, value(monitor2.poll()));
+		monitor2.stop();
+		assertFalse(provider.started);
+		assertNull(monitor1.poll());
+	}
+
+	public void testQueueOverflow()
+	{
+		CountingRequester requester = new CountingRequester();
+		Monitor monitor = SharedMonitor.createMonitor(registry, createChannel("test", providerMonitors), requester, pvRequest, 2);
+		monitor.start();
+		final ProviderMonitor provider = providerMonitors.get(0);
+		for (int i = 1; i <= 4; i++)
+			provider.update(i);
+
+		// oldest updates squashed (not shared), value overrun
+		MonitorElement element = monitor.poll();
+		assertEquals(3.0, value(element));
+		assertTrue(element.getChangedBitSet().get(0));
+		assertNull(((SharedEncodingMonitorElement)element).getSerializedMonitorUpdate());
+		assertTrue(element.getOverrunBitSet().get(element.getPVStructure().getDoubleField("value").getFieldOffset()));
+		assertEquals(4.0, value(monitor.poll()));
+		assertNull(monitor.poll());
+	}
+
+	public void testChannelHandover()
+	{
+		CountingRequester requester1 = new CountingRequester();
+		CountingRequester requester2 = new CountingRequester();
+		Monitor monitor1 = SharedMonitor.createMonitor(registry, createChannel("test", providerMonitors), requester1, pvRequest, 4);
+		Monitor monitor2 = SharedMonitor.createMonitor(registry, createChannel("test", providerMonitors), requester2, pvRequest, 4);
+		monitor1.start();
+		monitor2.start();
+		assertEquals(1, providerMonitors.size());
+
+		// channel that created the provider monitor goes away
+		monitor1.destroy();
+		assertTrue(providerMonitors.get(0).destroyed);
+		assertEquals(2, providerMonitors.size());
+		final ProviderMonitor provider = providerMonitors.get(1);
+		assertTrue(provider.started);
+		assertFalse(requester2.unlisten);
+
+		provider.update(5);
+		assertEquals(5.0, value(monitor2.poll()));
+
+		// different pvRequest, not shared
+		PVStructure otherRequest = PVFactory.getPVDataCreate().createPVStructure(
+				PVFactory.getFieldCreate().createFieldBuilder().add("field", ScalarType.pvString).createStructure());
+		SharedMonitor.createMonitor(registry, createChannel("test", providerMonitors), new CountingRequester(), otherRequest, 4);
+		assertEquals(3, providerMonitors.size());
+		assertEquals(2, registry.size());
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DirectDeserializableControl;
+import org.epics.pvdata.pv.DirectSerializableControl;
+import org.epics.pvdata.pv.PVDirectArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.util.array.ListNumber;
+
+/**
+ * Abstract base class for numeric scalar arrays whose elements are stored in a byte buffer
+ * obtained from a <code>ByteBufferAllocator</code>.
+ * The storage keeps the byte order of the last deserialized data, so that transfers
+ * of arrays in the same byte order are done as bulk copies (or directly from/to the socket).
+ */
+public abstract class AbstractDirectPVScalarArray extends AbstractPVScalarArray implements PVDirectArray {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocateDirect(0);
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(8192);
+
+    private final ByteBufferAllocator allocator;
+    private final int elementSize;
+    /**
+     * For use by derived classes, the elements are stored from position <code>0</code> on.
+     */
+    protected ByteBuffer storage;
+
+    /**
+     * Constructor that derived classes must call.
+     * @param array the introspection interface.
+     * @param allocator allocator of the storage.
+     */
+    protected AbstractDirectPVScalarArray(ScalarArray array, ByteBufferAllocator allocator) {
+        super(array);
+        if (allocator == null)
+            throw new IllegalArgumentException("allocator == null");
+        this.allocator = allocator;
+        this.elementSize = getElementSize();
+        // allocate() called by the super constructor could not allocate, do it now
+        storage = allocateStorage(capacity, ByteOrder.BIG_ENDIAN);
+    }
+
+    private ByteBuffer allocateStorage(int newCapacity, ByteOrder order) {
+        if (newCapacity == 0)
+            return EMPTY.duplicate().order(order);
+        if (newCapacity > Integer.MAX_VALUE / elementSize)
+            throw new IllegalArgumentException("array capacity too large for a buffer");
+        final ByteBuffer buffer = allocator.allocate(newCapacity * elementSize);
+        // the content of (pooled) buffers is undefined, elements of Java arrays are initialized to zero
+        while (buffer.hasRemaining())
+        {
+            final ByteBuffer zeros = ZEROS.duplicate();
+            zeros.limit(Math.min(zeros.capacity(), buffer.remaining()));
+            buffer.put(zeros);
+        }
+        buffer.flip();
+        return buffer.order(order);
+    }
+
+    private void releaseStorage(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() > 0)
+            allocator.release(buffer);
+    }
+
+    /**
+     * Get a view of the elements, the view has the same byte order as the storage.
+     * @param offset index of the first element.
+     * @param count number of elements.
+     * @return view of the elements.
+     */
+    protected final ByteBuffer elements(int offset, int count) {
+        final ByteBuffer view = storage.duplicate();
+        view.limit((offset + count) * elementSize);
+        view.position(offset * elementSize);
+        return view.slice().order(storage.order());
+    }
+
+    /**
+     * Copy the remaining bytes of <code>src</code> to <code>dst</code>, converting the byte order of elements if necessary.
+     * Positions of both buffers are advanced.
+     */
+    private void copy(ByteBuffer src, ByteBuffer dst) {
+        final int bytes = src.remaining();
+        if (elementSize == 1 || src.order() == dst.order())
+        {
+            dst.put(src);
+            return;
+        }
+
+        switch (elementSize)
+        {
+        case 2: dst.asShortBuffer().put(src.asShortBuffer()); break;
+        case 4: dst.asIntBuffer().put(src.asIntBuffer()); break;
+        case 8: dst.asLongBuffer().put(src.asLongBuffer()); break;
+        default: throw new IllegalStateException("unsupported element size: " + elementSize);
+        }
+        src.position(src.position() + bytes);
+        dst.position(dst.position() + bytes);
+    }
+
+    /**
+     * Prepare for writing of elements, the array grows if necessary.
+     * @param offset index of the first element to be written.
+     * @param len number of elements to be written.
+     */
+    protected final void prepareWrite(int offset, int len) {
+        if (super.isImmutable())
+            throw new IllegalStateException("field is immutable");
+
+        final int newLength = offset + len;
+        if (newLength > length)
+        {
+            checkLength(newLength);
+            if (newLength > capacity)
+                setCapacity(newLength);
+            length = newLength;
+        }
+    }
+
+    /**
+     * Prepare for replacing all the elements, since the storage cannot be shared the elements are copied.
+     * @param len the new length.
+     */
+    protected final void prepareShare(int len) {
+        checkLength(len);
+        if (len > capacity)
+            setCapacity(len);
+        length = len;
+    }
+
+    /**
+     * Get number of elements available from <code>offset</code> on.
+     * @param offset index of the first element.
+     * @param len number of elements requested.
+     * @return number of elements available.
+     */
+    protected final int available(int offset, int len) {
+        if (offset + len > length)
+            return Math.max(0, length - offset);
+        return len;
+    }
+
+    /**
+     * Set elements from a list, the storage is already prepared.
+     * @param offset index of the first element.
+     * @param list the elements.
+     */
+    protected abstract void putList(int offset, ListNumber list);
+
+    @Override
+    protected void allocate(int newCapacity) {
+        // called by the super constructor, the allocator is not available yet
+        capacity = newCapacity;
+    }
+
+    @Override
+    protected Object getValue() {
+        return storage;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.AbstractPVArray#setCapacity(int)
+     */
+    @Override
+    public void setCapacity(int newCapacity) {
+        if (newCapacity == capacity) return;
+
+        if (!capacityMutable)
+            throw new IllegalStateException("not capacityMutable");
+
+        checkLength(newCapacity);
+
+        if (length > newCapacity)
+            length = newCapacity;
+
+        final ByteBuffer oldStorage = storage;
+        final ByteBuffer newStorage = allocateStorage(newCapacity, oldStorage.order());
+        if (length > 0)
+        {
+            newStorage.put(elements(0, length));
+            newStorage.position(0);
+        }
+
+        storage = newStorage;
+        capacity = newCapacity;
+        releaseStorage(oldStorage);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.AbstractPVArray#put(int, org.epics.util.array.ListNumber)
+     */
+    @Override
+    public void put(int offset, ListNumber list) {
+        prepareWrite(offset, list.size());
+        putList(offset, list);
+        super.postPut();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDirectArray#getBuffer()
+     */
+    @Override
+    public ByteBuffer getBuffer() {
+        return elements(0, length).asReadOnlyBuffer().order(storage.order());
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDirectArray#put(int, int, java.nio.ByteBuffer)
+     */
+    @Override
+    public int put(int offset, int len, ByteBuffer from) {
+        prepareWrite(offset, len);
+        final ByteBuffer src = from.duplicate().order(from.order());
+        src.limit(src.position() + len * elementSize);
+        copy(src, elements(offset, len));
+        from.position(src.position());
+        super.postPut();
+        return len;
+    }
+
+    @Override
+    protected int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length) {
+        copy(elements(offset, length), buffer);
+        return length;
+    }
+
+    @Override
+    protected int getFromBuffer(ByteBuffer buffer, DeserializableControl control, int offset, int length) {
+        final ByteBuffer src = buffer.duplicate().order(buffer.order());
+        src.limit(src.position() + length * elementSize);
+        copy(src, elements(offset, length));
+        buffer.position(src.position());
+        return length;
+    }
+
+    @Override
+    protected boolean putToBufferDirect(ByteBuffer buffer, DirectSerializableControl control, int offset, int length) {
+        if (elementSize > 1 && storage.order() != buffer.order())
+            return false;
+        return control.directSerialize(buffer, elements(offset, length));
+    }
+
+    @Override
+    protected boolean getFromBufferDirect(ByteBuffer buffer, DirectDeserializableControl control, int offset, int length) {
+        if (elementSize > 1 && storage.order() != buffer.order())
+            return false;
+        return control.directDeserialize(buffer, elements(offset, length));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.AbstractPVScalarArray#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+     */
+    @Override
+    public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+        // all the elements are replaced, adopt the byte order of the data
+        storage.order(buffer.order());
+        super.deserialize(buffer, control);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        // same as Arrays.hashCode() of the elements (as BasePV*Array), equal heap and direct arrays have equal hash codes
+        final ByteBuffer view = elements(0, length);
+        int result = 1;
+        switch (getScalarArray().getElementType())
+        {
+        case pvDouble:
+            for (int i = 0; i < length; i++)
+            {
+                final long bits = Double.doubleToLongBits(view.getDouble(i * 8));
+                result = 31 * result + (int)(bits ^ (bits >>> 32));
+            }
+            break;
+        case pvFloat:
+            for (int i = 0; i < length; i++)
+                result = 31 * result + Float.floatToIntBits(view.getFloat(i * 4));
+            break;
+        case pvLong:
+        case pvULong:
+            for (int i = 0; i < length; i++)
+            {
+                final long element = view.getLong(i * 8);
+                result = 31 * result + (int)(element ^ (element >>> 32));
+            }
+            break;
+        case pvInt:
+        case pvUInt:
+            for (int i = 0; i < length; i++)
+                result = 31 * result + view.getInt(i * 4);
+            break;
+        case pvShort:
+        case pvUShort:
+            for (int i = 0; i < length; i++)
+                result = 31 * result + view.getShort(i * 2);
+            break;
+        default:
+            for (int i = 0; i < length; i++)
+                result = 31 * result + view.get(i);
+            break;
+        }
+        return result;
+    }
+}
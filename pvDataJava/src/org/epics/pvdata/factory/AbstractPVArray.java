@@ -61,7 +61,6 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
 	}
 	
 	protected abstract Object getValue();
-    protected abstract void setValue(Object array);
 	protected abstract void allocate(int newCapacity);
     protected abstract boolean valueEquals(Object obj);
 	
@@ -134,7 +133,7 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
         super.postPut();
     }
 
-    private void checkLength(int len)
+    protected void checkLength(int len)
     {
     	Array.ArraySizeType type = getArray().getArraySizeType();
     	if (type != Array.ArraySizeType.variable)
@@ -147,12 +146,13 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
     	}
     }
     
-    protected void internalShareData(Object from) {
-    	int len = java.lang.reflect.Array.getLength(from);
-
+    /**
+     * Set length and capacity for the data shared by a derived class, the derived class then replaces its value.
+     * @param len length of the shared data.
+     */
+    protected void internalShareData(int len) {
     	checkLength(len);
     	
-    	setValue(from);
     	capacity = length = len;
     }
 
@@ -5,10 +5,15 @@
 package org.epics.pvdata.factory;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.Array;
 import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DirectDeserializableControl;
+import org.epics.pvdata.pv.DirectSerializableControl;
 import org.epics.pvdata.pv.PVScalarArray;
 import org.epics.pvdata.pv.ScalarArray;
 import org.epics.pvdata.pv.SerializableControl;
@@ -56,6 +61,12 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
 			putToBuffer(buffer, flusher, offset, count);
 		else
 		{
+			// large array, try to bypass the buffer
+			if (count*elementSize > buffer.remaining() &&
+				flusher instanceof DirectSerializableControl &&
+				putToBufferDirect(buffer, (DirectSerializableControl)flusher, offset, count))
+				return;
+			
 			final int end = offset + count;
 			int i = offset;
 			while (true)
@@ -94,6 +105,12 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
 				int i = 0;
 				while (true)
 				{
+					// large (rest of the) array, try to bypass the buffer
+					if ((size-i)*elementSize > buffer.remaining() &&
+						control instanceof DirectDeserializableControl &&
+						getFromBufferDirect(buffer, (DirectDeserializableControl)control, i, size-i))
+						break;
+					
 					final int n = Math.min(size-i, buffer.remaining()/elementSize);
 					i += getFromBuffer(buffer, control, i, n);
 					if (i < size)
@@ -131,4 +148,89 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
 
 	protected abstract int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length);
 	protected abstract int getFromBuffer(ByteBuffer buffer, DeserializableControl control, int offset, int length);
+
+	/**
+	 * Serialize elements directly via control, bypassing the buffer.
+	 * Only arrays whose storage can be wrapped as a byte buffer support this.
+	 * @param buffer the serialization buffer in use.
+	 * @param control the control.
+	 * @param offset offset of the first element.
+	 * @param length number of elements.
+	 * @return <code>true</code> if elements were serialized.
+	 */
+	protected boolean putToBufferDirect(ByteBuffer buffer, DirectSerializableControl control, int offset, int length)
+	{
+		return false;
+	}
+
+	/**
+	 * Deserialize elements directly via control, bypassing the buffer.
+	 * Only arrays whose storage can be wrapped as a byte buffer support this.
+	 * @param buffer the deserialization buffer in use.
+	 * @param control the control.
+	 * @param offset offset of the first element.
+	 * @param length number of elements.
+	 * @return <code>true</code> if elements were deserialized.
+	 */
+	protected boolean getFromBufferDirect(ByteBuffer buffer, DirectDeserializableControl control, int offset, int length)
+	{
+		return false;
+	}
+
+	/**
+	 * Largest transfer buffer kept for reuse, larger ones are heap buffers.
+	 */
+	private static final int MAX_POOLED_TRANSFER_BUFFER_SIZE = 16*1024*1024;
+
+	/**
+	 * Maximum number of transfer buffers kept for reuse.
+	 */
+	private static final int MAX_POOLED_TRANSFER_BUFFERS = 4;
+
+	private static final ConcurrentLinkedQueue<ByteBuffer> transferBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+	private static final AtomicInteger pooledTransferBuffers = new AtomicInteger();
+
+	/**
+	 * Get a buffer to transfer elements of a non-byte array directly.
+	 * The elements are copied to (from) it with a single typed view, it is then written (read) with
+	 * a single direct transfer. Must be returned via <code>releaseTransferBuffer</code>.
+	 * @param size size in bytes.
+	 * @param byteOrder byte order of the serialization buffer.
+	 * @return the buffer, position is 0 and limit is <code>size</code>.
+	 */
+	protected static ByteBuffer acquireTransferBuffer(int size, ByteOrder byteOrder)
+	{
+		ByteBuffer buffer = transferBuffers.poll();
+		if (buffer != null)
+			pooledTransferBuffers.decrementAndGet();
+
+		if (buffer == null || buffer.capacity() < size)
+		{
+			if (size <= MAX_POOLED_TRANSFER_BUFFER_SIZE)
+			{
+				// round up, so that the buffer can be reused for similar arrays
+				final int capacity = Math.min(MAX_POOLED_TRANSFER_BUFFER_SIZE, Integer.highestOneBit(Math.max(size - 1, 1)) << 1);
+				buffer = ByteBuffer.allocateDirect(Math.max(size, capacity));
+			}
+			else
+				buffer = ByteBuffer.allocate(size);
+		}
+
+		buffer.clear();
+		buffer.limit(size);
+		buffer.order(byteOrder);
+		return buffer;
+	}
+
+	/**
+	 * Return a buffer obtained via <code>acquireTransferBuffer</code>.
+	 * @param buffer the buffer.
+	 */
+	protected static void releaseTransferBuffer(ByteBuffer buffer)
+	{
+		if (buffer.isDirect() && pooledTransferBuffers.incrementAndGet() <= MAX_POOLED_TRANSFER_BUFFERS)
+			transferBuffers.offer(buffer);
+		else
+			pooledTransferBuffers.decrementAndGet();
+	}
 }
@@ -44,12 +44,6 @@ public class BasePVBooleanArray extends AbstractPVScalarArray implements PVBoole
     	return value;
     }
     
-    @Override
-    protected void setValue(Object array)
-    {
-    	value = (boolean[])array;
-    }
-
     @Override
 	protected int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length)
 	{
@@ -90,7 +84,8 @@ public class BasePVBooleanArray extends AbstractPVScalarArray implements PVBoole
      */
     @Override
     public void shareData(boolean[] from) {
-    	internalShareData(from);
+    	internalShareData(from.length);
+    	value = from;
     }
 
     @Override
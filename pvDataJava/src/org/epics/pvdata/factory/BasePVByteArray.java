@@ -9,6 +9,8 @@ import java.util.Arrays;
 
 import org.epics.pvdata.pv.ByteArrayData;
 import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DirectDeserializableControl;
+import org.epics.pvdata.pv.DirectSerializableControl;
 import org.epics.pvdata.pv.PVByteArray;
 import org.epics.pvdata.pv.ScalarArray;
 import org.epics.pvdata.pv.SerializableControl;
@@ -46,12 +48,6 @@ public class BasePVByteArray extends AbstractPVScalarArray implements PVByteArra
     	return value;
     }
     
-    @Override
-    protected void setValue(Object array)
-    {
-    	value = (byte[])array;
-    }
-
     @Override
 	protected int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length)
 	{
@@ -66,6 +62,18 @@ public class BasePVByteArray extends AbstractPVScalarArray implements PVByteArra
 		return length;
 	}
 
+    @Override
+	protected boolean putToBufferDirect(ByteBuffer buffer, DirectSerializableControl control, int offset, int length)
+	{
+		return control.directSerialize(buffer, ByteBuffer.wrap(value, offset, length));
+	}
+	
+    @Override
+	protected boolean getFromBufferDirect(ByteBuffer buffer, DirectDeserializableControl control, int offset, int length)
+	{
+		return control.directDeserialize(buffer, ByteBuffer.wrap(value, offset, length));
+	}
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.PVByteArray#get(int, int, org.epics.pvdata.pv.ByteArrayData)
      */
@@ -93,7 +101,8 @@ public class BasePVByteArray extends AbstractPVScalarArray implements PVByteArra
      */
     @Override
     public void shareData(byte[] from) {
-    	internalShareData(from);
+    	internalShareData(from.length);
+    	value = from;
     }
 
     @Override
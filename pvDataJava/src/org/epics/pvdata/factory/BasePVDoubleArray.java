@@ -8,6 +8,8 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DirectDeserializableControl;
+import org.epics.pvdata.pv.DirectSerializableControl;
 import org.epics.pvdata.pv.DoubleArrayData;
 import org.epics.pvdata.pv.PVDoubleArray;
 import org.epics.pvdata.pv.ScalarArray;
@@ -47,12 +49,6 @@ public class BasePVDoubleArray extends AbstractPVScalarArray implements PVDouble
     	return value;
     }
     
-    @Override
-    protected void setValue(Object array)
-    {
-    	value = (double[])array;
-    }
-
     @Override
 	protected int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length)
 	{
@@ -69,6 +65,33 @@ public class BasePVDoubleArray extends AbstractPVScalarArray implements PVDouble
 		return length;
 	}
 
+    @Override
+	protected boolean putToBufferDirect(ByteBuffer buffer, DirectSerializableControl control, int offset, int length)
+	{
+		final ByteBuffer data = acquireTransferBuffer(length*8, buffer.order());
+		try {
+			data.asDoubleBuffer().put(value, offset, length);
+			return control.directSerialize(buffer, data);
+		} finally {
+			releaseTransferBuffer(data);
+		}
+	}
+	
+    @Override
+	protected boolean getFromBufferDirect(ByteBuffer buffer, DirectDeserializableControl control, int offset, int length)
+	{
+		final ByteBuffer data = acquireTransferBuffer(length*8, buffer.order());
+		try {
+			if (!control.directDeserialize(buffer, data))
+				return false;
+			data.flip();
+			data.asDoubleBuffer().get(value, offset, length);
+			return true;
+		} finally {
+			releaseTransferBuffer(data);
+		}
+	}
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.PVDoubleArray#get(int, int, org.epics.pvdata.pv.DoubleArrayData)
      */
@@ -95,7 +118,8 @@ public class BasePVDoubleArray extends AbstractPVScalarArray implements PVDouble
      */
     @Override
     public void shareData(double[] from) {
-    	internalShareData(from);
+    	internalShareData(from.length);
+    	value = from;
     }
 
     @Override
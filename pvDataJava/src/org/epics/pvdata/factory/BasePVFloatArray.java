@@ -8,6 +8,8 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DirectDeserializableControl;
+import org.epics.pvdata.pv.DirectSerializableControl;
 import org.epics.pvdata.pv.FloatArrayData;
 import org.epics.pvdata.pv.PVFloatArray;
 import org.epics.pvdata.pv.ScalarArray;
@@ -46,12 +48,6 @@ public class BasePVFloatArray extends AbstractPVScalarArray implements PVFloatAr
     	return value;
     }
     
-    @Override
-    protected void setValue(Object array)
-    {
-    	value = (float[])array;
-    }
-
     @Override
 	protected int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length)
 	{
@@ -68,6 +64,33 @@ public class BasePVFloatArray extends AbstractPVScalarArray implements PVFloatAr
 		return length;
 	}
 
+    @Override
+	protected boolean putToBufferDirect(ByteBuffer buffer, DirectSerializableControl control, int offset, int length)
+	{
+		final ByteBuffer data = acquireTransferBuffer(length*4, buffer.order());
+		try {
+			data.asFloatBuffer().put(value, offset, length);
+			return control.directSerialize(buffer, data);
+		} finally {
+			releaseTransferBuffer(data);
+		}
+	}
+	
+    @Override
+	protected boolean getFromBufferDirect(ByteBuffer buffer, DirectDeserializableControl control, int offset, int length)
+	{
+		final ByteBuffer data = acquireTransferBuffer(length*4, buffer.order());
+		try {
+			if (!control.directDeserialize(buffer, data))
+				return false;
+			data.flip();
+			data.asFloatBuffer().get(value, offset, length);
+			return true;
+		} finally {
+			releaseTransferBuffer(data);
+		}
+	}
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.PVFloatArray#get(int, int, org.epics.pvdata.pv.FloatArrayData)
      */
@@ -95,7 +118,8 @@ public class BasePVFloatArray extends AbstractPVScalarArray implements PVFloatAr
      */
     @Override
     public void shareData(float[] from) {
-    	internalShareData(from);
+    	internalShareData(from.length);
+    	value = from;
     }
 
     @Override
@@ -8,6 +8,8 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DirectDeserializableControl;
+import org.epics.pvdata.pv.DirectSerializableControl;
 import org.epics.pvdata.pv.LongArrayData;
 import org.epics.pvdata.pv.PVLongArray;
 import org.epics.pvdata.pv.ScalarArray;
@@ -46,12 +48,6 @@ public class BasePVLongArray extends AbstractPVScalarArray implements PVLongArra
     	return value;
     }
     
-    @Override
-    protected void setValue(Object array)
-    {
-    	value = (long[])array;
-    }
-
     @Override
 	protected int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length)
 	{
@@ -68,6 +64,33 @@ public class BasePVLongArray extends AbstractPVScalarArray implements PVLongArra
 		return length;
 	}
 
+    @Override
+	protected boolean putToBufferDirect(ByteBuffer buffer, DirectSerializableControl control, int offset, int length)
+	{
+		final ByteBuffer data = acquireTransferBuffer(length*8, buffer.order());
+		try {
+			data.asLongBuffer().put(value, offset, length);
+			return control.directSerialize(buffer, data);
+		} finally {
+			releaseTransferBuffer(data);
+		}
+	}
+	
+    @Override
+	protected boolean getFromBufferDirect(ByteBuffer buffer, DirectDeserializableControl control, int offset, int length)
+	{
+		final ByteBuffer data = acquireTransferBuffer(length*8, buffer.order());
+		try {
+			if (!control.directDeserialize(buffer, data))
+				return false;
+			data.flip();
+			data.asLongBuffer().get(value, offset, length);
+			return true;
+		} finally {
+			releaseTransferBuffer(data);
+		}
+	}
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.PVLongArray#get(int, int, org.epics.pvdata.pv.LongArrayData)
      */
@@ -95,7 +118,8 @@ public class BasePVLongArray extends AbstractPVScalarArray implements PVLongArra
      */
     @Override
     public void shareData(long[] from) {
-    	internalShareData(from);
+    	internalShareData(from.length);
+    	value = from;
     }
 
     @Override
@@ -45,12 +45,6 @@ public class BasePVStringArray extends AbstractPVScalarArray implements PVString
     	return value;
     }
     
-    @Override
-    protected void setValue(Object array)
-    {
-    	value = (String[])array;
-    }
-
     @Override
 	protected int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int length)
 	{
@@ -91,7 +85,8 @@ public class BasePVStringArray extends AbstractPVScalarArray implements PVString
      */
     @Override
     public void shareData(String[] from) {
-    	internalShareData(from);
+    	internalShareData(from.length);
+    	value = from;
     }
 
     @Override
@@ -38,7 +38,7 @@ import org.epics.pvdata.pv.Type;
  */
 public class BasePVStructure extends AbstractPVField implements PVStructure
 {
-    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private final PVDataCreate pvDataCreate;
     private PVField[] pvFields;
     
     private void setParentAndName() {
@@ -63,7 +63,16 @@ public class BasePVStructure extends AbstractPVField implements PVStructure
      * @param structure the reflection interface for the PVStructure data.
      */
     public BasePVStructure(Structure structure) {
+        this(structure, PVDataFactory.getPVDataCreate());
+    }
+    /**
+     * Constructor.
+     * @param structure the reflection interface for the PVStructure data.
+     * @param pvDataCreate the factory used to create the subfields.
+     */
+    public BasePVStructure(Structure structure, PVDataCreate pvDataCreate) {
         super(structure);
+        this.pvDataCreate = pvDataCreate;
     	Field[] fields = structure.getFields();
     	pvFields = new PVField[fields.length];
     	for(int i=0; i < pvFields.length; i++) {
@@ -79,6 +88,7 @@ public class BasePVStructure extends AbstractPVField implements PVStructure
     public BasePVStructure(Structure structure, PVField[] pvFields)
     {
         super(structure);
+        this.pvDataCreate = PVDataFactory.getPVDataCreate();
         this.pvFields = pvFields;
         setParentAndName();
     }
@@ -21,7 +21,7 @@ import org.epics.pvdata.pv.StructureArrayData;
  */
 public class BasePVStructureArray extends AbstractPVComplexArray implements PVStructureArray
 {
-	private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+	private final PVDataCreate pvDataCreate;
     protected PVStructure[] value;
 
     protected StructureArray structureArray;
@@ -31,8 +31,19 @@ public class BasePVStructureArray extends AbstractPVComplexArray implements PVSt
      * @param structureArray The Introspection interface.
      */
     public BasePVStructureArray(StructureArray structureArray)
+    {
+        this(structureArray, PVDataFactory.getPVDataCreate());
+    }
+
+    /**
+     * Constructor.
+     * @param structureArray The Introspection interface.
+     * @param pvDataCreate The factory used to create the elements.
+     */
+    public BasePVStructureArray(StructureArray structureArray, PVDataCreate pvDataCreate)
     {
         super(structureArray);
+        this.pvDataCreate = pvDataCreate;
         this.structureArray = structureArray;
     }
 
@@ -56,12 +67,6 @@ public class BasePVStructureArray extends AbstractPVComplexArray implements PVSt
     	return value;
     }
     
-    @Override
-    protected void setValue(Object array)
-    {
-    	value = (PVStructure[])array;
-    }
-
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.PVStructureArray#get(int, int, org.epics.pvdata.pv.StructureArrayData)
      */
@@ -93,7 +98,8 @@ public class BasePVStructureArray extends AbstractPVComplexArray implements PVSt
      */
     @Override
     public void shareData(PVStructure[] from) {
-    	internalShareData(from);
+    	internalShareData(from.length);
+    	value = from;
     }
 
     @Override
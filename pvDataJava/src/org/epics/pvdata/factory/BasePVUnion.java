@@ -21,7 +21,7 @@ import org.epics.pvdata.pv.Union;
  */
 public class BasePVUnion extends AbstractPVField implements PVUnion
 {
-    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private final PVDataCreate pvDataCreate;
 
     private final Union union;
 	private int selector = UNDEFINED_INDEX;
@@ -33,7 +33,17 @@ public class BasePVUnion extends AbstractPVField implements PVUnion
      * @param union the reflection interface for the PVUnion data.
      */
     public BasePVUnion(Union union) {
+        this(union, PVDataFactory.getPVDataCreate());
+    }
+
+	/**
+     * Constructor.
+     * @param union the reflection interface for the PVUnion data.
+     * @param pvDataCreate the factory used to create the selected field.
+     */
+    public BasePVUnion(Union union, PVDataCreate pvDataCreate) {
         super(union);
+        this.pvDataCreate = pvDataCreate;
         this.union = union;
         variant = union.isVariant();
     }
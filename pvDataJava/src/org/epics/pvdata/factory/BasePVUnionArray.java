@@ -22,7 +22,7 @@ import org.epics.pvdata.pv.UnionArrayData;
  */
 public class BasePVUnionArray extends AbstractPVComplexArray implements PVUnionArray
 {
-	private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+	private final PVDataCreate pvDataCreate;
     protected PVUnion[] value;
 
 	protected UnionArray unionArray;
@@ -32,8 +32,19 @@ public class BasePVUnionArray extends AbstractPVComplexArray implements PVUnionA
      * @param unionArray The Introspection interface.
      */
     public BasePVUnionArray(UnionArray unionArray)
+    {
+        this(unionArray, PVDataFactory.getPVDataCreate());
+    }
+
+    /**
+     * Constructor.
+     * @param unionArray The Introspection interface.
+     * @param pvDataCreate The factory used to create the elements.
+     */
+    public BasePVUnionArray(UnionArray unionArray, PVDataCreate pvDataCreate)
     {
         super(unionArray);
+        this.pvDataCreate = pvDataCreate;
         this.unionArray = unionArray;
     }
 
@@ -57,12 +68,6 @@ public class BasePVUnionArray extends AbstractPVComplexArray implements PVUnionA
     	return value;
     }
     
-    @Override
-    protected void setValue(Object array)
-    {
-    	value = (PVUnion[])array;
-    }
-
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.PVUnionArray#get(int, int, org.epics.pvdata.pv.UnionArrayData)
      */
@@ -91,7 +96,8 @@ public class BasePVUnionArray extends AbstractPVComplexArray implements PVUnionA
      */
     @Override
     public void shareData(PVUnion[] from) {
-    	internalShareData(from);
+    	internalShareData(from.length);
+    	value = from;
     }
 
     @Override
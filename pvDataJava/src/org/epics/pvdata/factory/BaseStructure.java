@@ -29,6 +29,7 @@ public class BaseStructure extends BaseField implements Structure {
     private final String id;
     private Field[] fields;
     private String[] fieldNames;
+    private final int hash;
     /**
      * Constructor for a structure field.
      * @param fieldNames The field names for the subfields
@@ -82,6 +83,7 @@ public class BaseStructure extends BaseField implements Structure {
     			}
     		}
     	}
+    	this.hash = computeHash();
     }
     /* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Field#getID()
@@ -239,6 +241,10 @@ public class BaseStructure extends BaseField implements Structure {
 	 */
 	@Override
 	public int hashCode() {
+		return hash;
+	}
+	
+	private int computeHash() {
 		final int PRIME = 31;
 		return id.hashCode() + PRIME *
 			(PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
@@ -253,6 +259,9 @@ public class BaseStructure extends BaseField implements Structure {
 		if (getClass() != obj.getClass())
 			return false;
 		final BaseStructure other = (BaseStructure) obj;
+		// structural hash is precomputed, cheap rejection
+		if (hash != other.hash)
+			return false;
 		if (id == null) {
 			if (other.id != null)
 				return false;
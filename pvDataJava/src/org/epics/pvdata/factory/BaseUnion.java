@@ -26,6 +26,7 @@ public class BaseUnion extends BaseField implements Union {
     private final String id;
     private final Field[] fields;
     private String[] fieldNames;
+    private final int hash;
 
     /**
 	 * Default unrestricted union (aka any type) ID.
@@ -95,6 +96,7 @@ public class BaseUnion extends BaseField implements Union {
     			}
     		}
     	}
+    	this.hash = computeHash();
     }
 
 	/* (non-Javadoc)
@@ -235,6 +237,10 @@ public class BaseUnion extends BaseField implements Union {
 	 */
 	@Override
 	public int hashCode() {
+		return hash;
+	}
+	
+	private int computeHash() {
 		final int PRIME = 37;
 		return id.hashCode() + PRIME *
 			(PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
@@ -249,6 +255,9 @@ public class BaseUnion extends BaseField implements Union {
 		if (getClass() != obj.getClass())
 			return false;
 		final BaseUnion other = (BaseUnion) obj;
+		// structural hash is precomputed, cheap rejection
+		if (hash != other.hash)
+			return false;
 		if (id == null) {
 			if (other.id != null)
 				return false;
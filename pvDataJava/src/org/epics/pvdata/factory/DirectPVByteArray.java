@@ -0,0 +1,93 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.pv.ByteArrayData;
+import org.epics.pvdata.pv.PVByteArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayByte;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+/**
+ * PVByteArray whose elements are stored in a byte buffer.
+ */
+public class DirectPVByteArray extends AbstractDirectPVScalarArray implements PVByteArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     * @param allocator The allocator of the storage.
+     */
+    public DirectPVByteArray(ScalarArray array, ByteBufferAllocator allocator)
+    {
+        super(array, allocator);
+    }
+
+    private ByteBuffer view(int offset, int count)
+    {
+        return elements(offset, count);
+    }
+
+    @Override
+    protected void putList(int offset, ListNumber list)
+    {
+        final ByteBuffer view = view(offset, list.size());
+        for (int i = 0; i < list.size(); i++)
+            view.put(i, list.getByte(i));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVByteArray#get(int, int, org.epics.pvdata.pv.ByteArrayData)
+     */
+    @Override
+    public int get(int offset, int len, ByteArrayData data) {
+        final int n = available(offset, len);
+        final byte[] values = new byte[n];
+        view(offset, n).get(values);
+        data.set(values, 0);
+        return n;
+    }
+
+    @Override
+    public ArrayByte get() {
+        final byte[] values = new byte[length];
+        view(0, length).get(values);
+        return CollectionNumbers.unmodifiableListByte(values);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVByteArray#put(int, int, byte[], int)
+     */
+    @Override
+    public int put(int offset, int len, byte[] from, int fromOffset) {
+        prepareWrite(offset, len);
+        view(offset, len).put(from, fromOffset, len);
+        super.postPut();
+        return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVByteArray#shareData(byte[])
+     */
+    @Override
+    public void shareData(byte[] from) {
+        // storage cannot be shared, elements are copied
+        prepareShare(from.length);
+        view(0, from.length).put(from);
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj)
+    {
+        PVByteArray b = (PVByteArray)obj;
+        ByteArrayData arrayData = new ByteArrayData();
+        b.get(0, b.getLength(), arrayData);
+        return ByteBuffer.wrap(arrayData.data, arrayData.offset, b.getLength()).equals(view(0, length));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.DoubleBuffer;
+
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+/**
+ * PVDoubleArray whose elements are stored in a byte buffer.
+ */
+public class DirectPVDoubleArray extends AbstractDirectPVScalarArray implements PVDoubleArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     * @param allocator The allocator of the storage.
+     */
+    public DirectPVDoubleArray(ScalarArray array, ByteBufferAllocator allocator)
+    {
+        super(array, allocator);
+    }
+
+    private DoubleBuffer view(int offset, int count)
+    {
+        return elements(offset, count).asDoubleBuffer();
+    }
+
+    @Override
+    protected void putList(int offset, ListNumber list)
+    {
+        final DoubleBuffer view = view(offset, list.size());
+        for (int i = 0; i < list.size(); i++)
+            view.put(i, list.getDouble(i));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDoubleArray#get(int, int, org.epics.pvdata.pv.DoubleArrayData)
+     */
+    @Override
+    public int get(int offset, int len, DoubleArrayData data) {
+        final int n = available(offset, len);
+        final double[] values = new double[n];
+        view(offset, n).get(values);
+        data.set(values, 0);
+        return n;
+    }
+
+    @Override
+    public ArrayDouble get() {
+        final double[] values = new double[length];
+        view(0, length).get(values);
+        return CollectionNumbers.unmodifiableListDouble(values);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDoubleArray#put(int, int, double[], int)
+     */
+    @Override
+    public int put(int offset, int len, double[] from, int fromOffset) {
+        prepareWrite(offset, len);
+        view(offset, len).put(from, fromOffset, len);
+        super.postPut();
+        return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDoubleArray#shareData(double[])
+     */
+    @Override
+    public void shareData(double[] from) {
+        // storage cannot be shared, elements are copied
+        prepareShare(from.length);
+        view(0, from.length).put(from);
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj)
+    {
+        PVDoubleArray b = (PVDoubleArray)obj;
+        DoubleArrayData arrayData = new DoubleArrayData();
+        b.get(0, b.getLength(), arrayData);
+        return DoubleBuffer.wrap(arrayData.data, arrayData.offset, b.getLength()).equals(view(0, length));
+    }
+}
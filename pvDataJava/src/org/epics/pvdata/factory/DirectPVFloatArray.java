@@ -0,0 +1,93 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.FloatBuffer;
+
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.pv.FloatArrayData;
+import org.epics.pvdata.pv.PVFloatArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+/**
+ * PVFloatArray whose elements are stored in a byte buffer.
+ */
+public class DirectPVFloatArray extends AbstractDirectPVScalarArray implements PVFloatArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     * @param allocator The allocator of the storage.
+     */
+    public DirectPVFloatArray(ScalarArray array, ByteBufferAllocator allocator)
+    {
+        super(array, allocator);
+    }
+
+    private FloatBuffer view(int offset, int count)
+    {
+        return elements(offset, count).asFloatBuffer();
+    }
+
+    @Override
+    protected void putList(int offset, ListNumber list)
+    {
+        final FloatBuffer view = view(offset, list.size());
+        for (int i = 0; i < list.size(); i++)
+            view.put(i, list.getFloat(i));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVFloatArray#get(int, int, org.epics.pvdata.pv.FloatArrayData)
+     */
+    @Override
+    public int get(int offset, int len, FloatArrayData data) {
+        final int n = available(offset, len);
+        final float[] values = new float[n];
+        view(offset, n).get(values);
+        data.set(values, 0);
+        return n;
+    }
+
+    @Override
+    public ArrayFloat get() {
+        final float[] values = new float[length];
+        view(0, length).get(values);
+        return CollectionNumbers.unmodifiableListFloat(values);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVFloatArray#put(int, int, float[], int)
+     */
+    @Override
+    public int put(int offset, int len, float[] from, int fromOffset) {
+        prepareWrite(offset, len);
+        view(offset, len).put(from, fromOffset, len);
+        super.postPut();
+        return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVFloatArray#shareData(float[])
+     */
+    @Override
+    public void shareData(float[] from) {
+        // storage cannot be shared, elements are copied
+        prepareShare(from.length);
+        view(0, from.length).put(from);
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj)
+    {
+        PVFloatArray b = (PVFloatArray)obj;
+        FloatArrayData arrayData = new FloatArrayData();
+        b.get(0, b.getLength(), arrayData);
+        return FloatBuffer.wrap(arrayData.data, arrayData.offset, b.getLength()).equals(view(0, length));
+    }
+}
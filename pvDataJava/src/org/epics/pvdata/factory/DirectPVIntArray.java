@@ -0,0 +1,93 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.IntBuffer;
+
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.pv.IntArrayData;
+import org.epics.pvdata.pv.PVIntArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+/**
+ * PVIntArray whose elements are stored in a byte buffer.
+ */
+public class DirectPVIntArray extends AbstractDirectPVScalarArray implements PVIntArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     * @param allocator The allocator of the storage.
+     */
+    public DirectPVIntArray(ScalarArray array, ByteBufferAllocator allocator)
+    {
+        super(array, allocator);
+    }
+
+    private IntBuffer view(int offset, int count)
+    {
+        return elements(offset, count).asIntBuffer();
+    }
+
+    @Override
+    protected void putList(int offset, ListNumber list)
+    {
+        final IntBuffer view = view(offset, list.size());
+        for (int i = 0; i < list.size(); i++)
+            view.put(i, list.getInt(i));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVIntArray#get(int, int, org.epics.pvdata.pv.IntArrayData)
+     */
+    @Override
+    public int get(int offset, int len, IntArrayData data) {
+        final int n = available(offset, len);
+        final int[] values = new int[n];
+        view(offset, n).get(values);
+        data.set(values, 0);
+        return n;
+    }
+
+    @Override
+    public ArrayInteger get() {
+        final int[] values = new int[length];
+        view(0, length).get(values);
+        return CollectionNumbers.unmodifiableListInt(values);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVIntArray#put(int, int, int[], int)
+     */
+    @Override
+    public int put(int offset, int len, int[] from, int fromOffset) {
+        prepareWrite(offset, len);
+        view(offset, len).put(from, fromOffset, len);
+        super.postPut();
+        return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVIntArray#shareData(int[])
+     */
+    @Override
+    public void shareData(int[] from) {
+        // storage cannot be shared, elements are copied
+        prepareShare(from.length);
+        view(0, from.length).put(from);
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj)
+    {
+        PVIntArray b = (PVIntArray)obj;
+        IntArrayData arrayData = new IntArrayData();
+        b.get(0, b.getLength(), arrayData);
+        return IntBuffer.wrap(arrayData.data, arrayData.offset, b.getLength()).equals(view(0, length));
+    }
+}
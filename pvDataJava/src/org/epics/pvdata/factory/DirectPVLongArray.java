@@ -0,0 +1,93 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.LongBuffer;
+
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.pv.LongArrayData;
+import org.epics.pvdata.pv.PVLongArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayLong;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+/**
+ * PVLongArray whose elements are stored in a byte buffer.
+ */
+public class DirectPVLongArray extends AbstractDirectPVScalarArray implements PVLongArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     * @param allocator The allocator of the storage.
+     */
+    public DirectPVLongArray(ScalarArray array, ByteBufferAllocator allocator)
+    {
+        super(array, allocator);
+    }
+
+    private LongBuffer view(int offset, int count)
+    {
+        return elements(offset, count).asLongBuffer();
+    }
+
+    @Override
+    protected void putList(int offset, ListNumber list)
+    {
+        final LongBuffer view = view(offset, list.size());
+        for (int i = 0; i < list.size(); i++)
+            view.put(i, list.getLong(i));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVLongArray#get(int, int, org.epics.pvdata.pv.LongArrayData)
+     */
+    @Override
+    public int get(int offset, int len, LongArrayData data) {
+        final int n = available(offset, len);
+        final long[] values = new long[n];
+        view(offset, n).get(values);
+        data.set(values, 0);
+        return n;
+    }
+
+    @Override
+    public ArrayLong get() {
+        final long[] values = new long[length];
+        view(0, length).get(values);
+        return CollectionNumbers.unmodifiableListLong(values);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVLongArray#put(int, int, long[], int)
+     */
+    @Override
+    public int put(int offset, int len, long[] from, int fromOffset) {
+        prepareWrite(offset, len);
+        view(offset, len).put(from, fromOffset, len);
+        super.postPut();
+        return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVLongArray#shareData(long[])
+     */
+    @Override
+    public void shareData(long[] from) {
+        // storage cannot be shared, elements are copied
+        prepareShare(from.length);
+        view(0, from.length).put(from);
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj)
+    {
+        PVLongArray b = (PVLongArray)obj;
+        LongArrayData arrayData = new LongArrayData();
+        b.get(0, b.getLength(), arrayData);
+        return LongBuffer.wrap(arrayData.data, arrayData.offset, b.getLength()).equals(view(0, length));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.pv.ByteArrayData;
+import org.epics.pvdata.pv.PVUByteArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayUByte;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+/**
+ * PVUByteArray whose elements are stored in a byte buffer.
+ */
+public class DirectPVUByteArray extends AbstractDirectPVScalarArray implements PVUByteArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     * @param allocator The allocator of the storage.
+     */
+    public DirectPVUByteArray(ScalarArray array, ByteBufferAllocator allocator)
+    {
+        super(array, allocator);
+    }
+
+    private ByteBuffer view(int offset, int count)
+    {
+        return elements(offset, count);
+    }
+
+    @Override
+    protected void putList(int offset, ListNumber list)
+    {
+        final ByteBuffer view = view(offset, list.size());
+        for (int i = 0; i < list.size(); i++)
+            view.put(i, list.getByte(i));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUByteArray#get(int, int, org.epics.pvdata.pv.ByteArrayData)
+     */
+    @Override
+    public int get(int offset, int len, ByteArrayData data) {
+        final int n = available(offset, len);
+        final byte[] values = new byte[n];
+        view(offset, n).get(values);
+        data.set(values, 0);
+        return n;
+    }
+
+    @Override
+    public ArrayUByte get() {
+        final byte[] values = new byte[length];
+        view(0, length).get(values);
+        return CollectionNumbers.unmodifiableListUByte(values);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUByteArray#put(int, int, byte[], int)
+     */
+    @Override
+    public int put(int offset, int len, byte[] from, int fromOffset) {
+        prepareWrite(offset, len);
+        view(offset, len).put(from, fromOffset, len);
+        super.postPut();
+        return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUByteArray#shareData(byte[])
+     */
+    @Override
+    public void shareData(byte[] from) {
+        // storage cannot be shared, elements are copied
+        prepareShare(from.length);
+        view(0, from.length).put(from);
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj)
+    {
+        PVUByteArray b = (PVUByteArray)obj;
+        ByteArrayData arrayData = new ByteArrayData();
+        b.get(0, b.getLength(), arrayData);
+        return ByteBuffer.wrap(arrayData.data, arrayData.offset, b.getLength()).equals(view(0, length));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ShortBuffer;
+
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.pv.ShortArrayData;
+import org.epics.pvdata.pv.PVUShortArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayUShort;
+import org.epics.util.array.CollectionNumbers;
+import org.epics.util.array.ListNumber;
+
+/**
+ * PVUShortArray whose elements are stored in a byte buffer.
+ */
+public class DirectPVUShortArray extends AbstractDirectPVScalarArray implements PVUShortArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     * @param allocator The allocator of the storage.
+     */
+    public DirectPVUShortArray(ScalarArray array, ByteBufferAllocator allocator)
+    {
+        super(array, allocator);
+    }
+
+    private ShortBuffer view(int offset, int count)
+    {
+        return elements(offset, count).asShortBuffer();
+    }
+
+    @Override
+    protected void putList(int offset, ListNumber list)
+    {
+        final ShortBuffer view = view(offset, list.size());
+        for (int i = 0; i < list.size(); i++)
+            view.put(i, list.getShort(i));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUShortArray#get(int, int, org.epics.pvdata.pv.ShortArrayData)
+     */
+    @Override
+    public int get(int offset, int len, ShortArrayData data) {
+        final int n = available(offset, len);
+        final short[] values = new short[n];
+        view(offset, n).get(values);
+        data.set(values, 0);
+        return n;
+    }
+
+    @Override
+    public ArrayUShort get() {
+        final short[] values = new short[length];
+        view(0, length).get(values);
+        return CollectionNumbers.unmodifiableListUShort(values);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUShortArray#put(int, int, short[], int)
+     */
+    @Override
+    public int put(int offset, int len, short[] from, int fromOffset) {
+        prepareWrite(offset, len);
+        view(offset, len).put(from, fromOffset, len);
+        super.postPut();
+        return len;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUShortArray#shareData(short[])
+     */
+    @Override
+    public void shareData(short[] from) {
+        // storage cannot be shared, elements are copied
+        prepareShare(from.length);
+        view(0, from.length).put(from);
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj)
+    {
+        PVUShortArray b = (PVUShortArray)obj;
+        ShortArrayData arrayData = new ShortArrayData();
+        b.get(0, b.getLength(), arrayData);
+        return ShortBuffer.wrap(arrayData.data, arrayData.offset, b.getLength()).equals(view(0, length));
+    }
+}
@@ -4,7 +4,10 @@
  */
 package org.epics.pvdata.factory;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.BoundedString;
@@ -37,6 +40,98 @@ public final class FieldFactory {
     private static ScalarArray[] scalarArrays = null;
     private static Union variantUnion = null;
     private static UnionArray variantUnionArray = null;
+
+    /**
+     * System property to disable interning of introspection objects, i.e. <code>false</code>.
+     */
+    public static final String FIELD_INTERNING_KEY = "EPICS_PVDATA_FIELD_INTERNING";
+    private static final boolean interning =
+    		Boolean.parseBoolean(System.getProperty(FIELD_INTERNING_KEY, "true"));
+    // weak, unused introspection objects are garbage collected
+    private static final ConcurrentHashMap<InternedField, InternedField> internedFields =
+    		new ConcurrentHashMap<InternedField, InternedField>();
+    private static final ReferenceQueue<Field> collectedFields = new ReferenceQueue<Field>();
+
+    /**
+     * Weak reference to an interned introspection object.
+     * References are equal if their (not yet collected) introspection objects are equal.
+     */
+    private static final class InternedField extends WeakReference<Field> {
+    	private final int hash;
+
+    	InternedField(Field field) {
+    		super(field, collectedFields);
+    		hash = field.hashCode();
+    	}
+
+    	@Override
+    	public int hashCode() {
+    		return hash;
+    	}
+
+    	@Override
+    	public boolean equals(Object obj) {
+    		if (this == obj)
+    			return true;
+    		if (!(obj instanceof InternedField))
+    			return false;
+    		final InternedField other = (InternedField)obj;
+    		if (hash != other.hash)
+    			return false;
+    		// collected reference is only equal to itself
+    		final Field field = get();
+    		final Field otherField = other.get();
+    		return field != null && otherField != null && field.equals(otherField);
+    	}
+    }
+
+    private static void expungeCollectedFields() {
+    	Object ref;
+    	while ((ref = collectedFields.poll()) != null)
+    		internedFields.remove(ref);
+    }
+
+    /**
+     * Get the canonical instance of the introspection object.
+     * Structurally equal introspection objects created by the factory are the same instance,
+     * therefore (mostly) compared by an identity check.
+     * @param field The introspection object.
+     * @return The canonical instance, equal to <i>field</i>.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Field> T intern(T field) {
+    	if (!interning || field == null)
+    		return field;
+    	expungeCollectedFields();
+    	final InternedField ref = new InternedField(field);
+    	while (true) {
+    		final InternedField existingRef = internedFields.putIfAbsent(ref, ref);
+    		if (existingRef == null)
+    			return field;
+    		final Field existing = existingRef.get();
+    		if (existing != null)
+    			return (T)existing;		// equals() checks the class
+    		// collected in the meantime, retry
+    		internedFields.remove(existingRef, existingRef);
+    	}
+    }
+
+    /**
+     * Check if introspection objects are interned, see {@link #FIELD_INTERNING_KEY}.
+     * @return <code>true</code> if interning is enabled.
+     */
+    public static boolean isInterning() {
+    	return interning;
+    }
+
+    /**
+     * Get the number of interned introspection objects (not yet garbage collected).
+     * @return The number of interned introspection objects.
+     */
+    public static int getInternedFieldCount() {
+    	expungeCollectedFields();
+    	return internedFields.size();
+    }
     /**
      * Get the FieldCreate interface.
      * @return The interface for creating introspection objects.
@@ -50,8 +145,8 @@ public final class FieldFactory {
             for(int i = 0; i<num; i++) scalars[i] = new BaseScalar(scalarTypes[i]);
             scalarArrays = new ScalarArray[num];
             for(int i = 0; i<num; i++) scalarArrays[i] = new BaseScalarArray(scalarTypes[i]);
-            variantUnion = new BaseUnion();
-            variantUnionArray = new BaseUnionArray(variantUnion);
+            variantUnion = intern(new BaseUnion());
+            variantUnionArray = intern(new BaseUnionArray(variantUnion));
         }
         return singleImplementation;
     }
@@ -78,7 +173,7 @@ public final class FieldFactory {
          */
         @Override
 		public BoundedString createBoundedString(int maxLength) {
-			return new BaseBoundedString(maxLength);
+			return intern(new BaseBoundedString(maxLength));
 		}
 		/* (non-Javadoc)
          * @see org.epics.pvdata.pv.FieldCreate#createArray(java.lang.String, org.epics.pvdata.pv.ScalarType)
@@ -93,14 +188,14 @@ public final class FieldFactory {
          */
         @Override
 		public ScalarArray createFixedScalarArray(ScalarType elementType, int size) {
-        	return new BaseScalarFixedArray(elementType, size);
+        	return intern(new BaseScalarFixedArray(elementType, size));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createBoundedScalarArray(org.epics.pvdata.pv.ScalarType, int)
 		 */
 		@Override
 		public ScalarArray createBoundedScalarArray(ScalarType elementType, int bound) {
-        	return new BaseScalarBoundedArray(elementType, bound);
+        	return intern(new BaseScalarBoundedArray(elementType, bound));
 		}
 		/* (non-Javadoc)
          * @see org.epics.pvdata.pv.FieldCreate#createArray(java.lang.String, org.epics.pvdata.pv.Structure)
@@ -108,14 +203,14 @@ public final class FieldFactory {
         @Override
 		public StructureArray createStructureArray(Structure elementStructure)
         {
-			return new BaseStructureArray(elementStructure);
+			return intern(new BaseStructureArray(elementStructure));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createUnionArray(org.epics.pvdata.pv.Union)
 		 */
 		@Override
 		public UnionArray createUnionArray(Union elementUnion) {
-			return new BaseUnionArray(elementUnion);
+			return intern(new BaseUnionArray(elementUnion));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createVariantUnionArray()
@@ -130,7 +225,8 @@ public final class FieldFactory {
         public Structure createStructure(String[] fieldNames, Field[] fields)
         {
             validateFieldNames(fieldNames);
-            return new BaseStructure(fieldNames,fields);
+            // copy, interned instance is shared and must not change with caller's arrays
+            return intern(new BaseStructure(fieldNames.clone(),fields.clone()));
         }
         
 		/* (non-Javadoc)
@@ -139,7 +235,8 @@ public final class FieldFactory {
 		@Override
 		public Structure createStructure(String id, String[] fieldNames, Field[] fields) {
             validateFieldNames(fieldNames);
-            return new BaseStructure(id,fieldNames,fields);
+            // copy, interned instance is shared and must not change with caller's arrays
+            return intern(new BaseStructure(id,fieldNames.clone(),fields.clone()));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createStructure(org.epics.pvdata.pv.Structure)
@@ -157,7 +254,9 @@ public final class FieldFactory {
 		    }
 		    String id = structToClone.getID();
 		    BaseStructure structure = (BaseStructure)createStructure(id,fieldNames,fields);
-		    structure.clone(fields, fieldNames);
+		    // interned instance is shared (and immutable), nothing to clone
+		    if (!interning)
+		        structure.clone(fields, fieldNames);
 		    return structure;
         }
         /* (non-Javadoc)
@@ -219,7 +318,8 @@ public final class FieldFactory {
 		@Override
 		public Union createUnion(String[] fieldNames, Field[] fields) {
 			validateFieldNames(fieldNames);
-			return new BaseUnion(fieldNames, fields);
+			// copy, interned instance is shared and must not change with caller's arrays
+			return intern(new BaseUnion(fieldNames.clone(), fields.clone()));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createUnion(java.lang.String, java.lang.String[], org.epics.pvdata.pv.Field[])
@@ -227,7 +327,8 @@ public final class FieldFactory {
 		@Override
 		public Union createUnion(String id, String[] fieldNames, Field[] fields) {
 			validateFieldNames(fieldNames);
-			return new BaseUnion(id, fieldNames, fields);
+			// copy, interned instance is shared and must not change with caller's arrays
+			return intern(new BaseUnion(id, fieldNames.clone(), fields.clone()));
 		}
 
 
@@ -296,12 +397,12 @@ public final class FieldFactory {
     			else if (typeCode == 0x80)
     			{
     				// Type type = Type.structure;
-    				return BaseStructure.deserializeStructureField(buffer, control);
+    				return intern(BaseStructure.deserializeStructureField(buffer, control));
     			}
     			else if (typeCode == 0x81)
     			{
     				// Type type = union;
-    				return BaseUnion.deserializeUnionField(buffer, control);
+    				return intern(BaseUnion.deserializeUnionField(buffer, control));
     			}
     			else if (typeCode == 0x82)
     			{
@@ -313,7 +414,7 @@ public final class FieldFactory {
     				// TODO cache some sizes?
     				// bounded string
     				int maxLength = SerializeHelper.readSize(buffer, control);
-    				return new BaseBoundedString(maxLength);
+    				return intern(new BaseBoundedString(maxLength));
     			}
     			else
     				throw new IllegalArgumentException("invalid type encoding");
@@ -335,9 +436,9 @@ public final class FieldFactory {
     				if (isVariable)
     					return scalarArrays[scalarType.ordinal()];
     				else if (isFixed)
-						return new BaseScalarFixedArray(scalarType, size);
+						return intern(new BaseScalarFixedArray(scalarType, size));
 					else
-						return new BaseScalarBoundedArray(scalarType, size);
+						return intern(new BaseScalarBoundedArray(scalarType, size));
     			}
     			else if (typeCode == 0x80)
     			{
@@ -347,7 +448,7 @@ public final class FieldFactory {
     				    				
     				// Type type = Type.structureArray;
     				final Structure elementStructure = (Structure)control.cachedDeserialize(buffer);
-    				return new BaseStructureArray(elementStructure);
+    				return intern(new BaseStructureArray(elementStructure));
     			}
     			else if (typeCode == 0x81)
     			{
@@ -357,7 +458,7 @@ public final class FieldFactory {
     				
     				// Type type = unionArray;
     				final Union elementUnion = (Union)control.cachedDeserialize(buffer);
-    				return new BaseUnionArray(elementUnion);
+    				return intern(new BaseUnionArray(elementUnion));
     			}
     			else if (typeCode == 0x82)
     			{
@@ -6,6 +6,8 @@ package org.epics.pvdata.factory;
 
 import java.util.Formatter;
 
+import org.epics.pvdata.misc.ByteBufferAllocator;
+import org.epics.pvdata.misc.DirectByteBufferPool;
 import org.epics.pvdata.pv.Convert;
 import org.epics.pvdata.pv.Field;
 import org.epics.pvdata.pv.FieldCreate;
@@ -43,6 +45,36 @@ public class PVDataFactory {
     public static synchronized PVDataCreate getPVDataCreate() {
         return PVDataCreateImpl.getPVDataCreate();
     }
+
+    /**
+     * Get the interface for PVDataCreate that stores the elements of numeric scalar arrays
+     * in buffers obtained from the given allocator, e.g. off-heap or memory-mapped buffers.
+     * Boolean and string arrays are not affected.
+     * Structures and unions created by the returned interface use it to create their fields.
+     * @param allocator the allocator of the array storage.
+     * @return The interface.
+     */
+    public static PVDataCreate getPVDataCreate(ByteBufferAllocator allocator) {
+        if (allocator == null)
+            throw new IllegalArgumentException("allocator == null");
+        return new PVDataCreateImpl(allocator);
+    }
+
+    private static final long DIRECT_POOL_SIZE = 64*1024*1024;
+    private static PVDataCreate directPVDataCreate = null;
+
+    /**
+     * Get the interface for PVDataCreate that stores the elements of numeric scalar arrays
+     * in direct (off-heap) buffers, taken from a shared pool.
+     * @return The interface.
+     * @see #getPVDataCreate(ByteBufferAllocator)
+     */
+    public static synchronized PVDataCreate getDirectPVDataCreate() {
+        if (directPVDataCreate==null) {
+            directPVDataCreate = getPVDataCreate(new DirectByteBufferPool(DIRECT_POOL_SIZE));
+        }
+        return directPVDataCreate;
+    }
     
     private static final class PVDataCreateImpl implements PVDataCreate{
         private static FieldCreate fieldCreate = FieldFactory.getFieldCreate();
@@ -50,10 +82,15 @@ public class PVDataFactory {
         private static PVDataCreateImpl singleImplementation = null;
         private static synchronized PVDataCreateImpl getPVDataCreate() {
                 if (singleImplementation==null) {
-                    singleImplementation = new PVDataCreateImpl();
+                    singleImplementation = new PVDataCreateImpl(null);
                 }
                 return singleImplementation;
         }
+        // null for Java array storage
+        private final ByteBufferAllocator allocator;
+        private PVDataCreateImpl(ByteBufferAllocator allocator) {
+            this.allocator = allocator;
+        }
         /* (non-Javadoc)
          * @see org.epics.pvdata.pv.PVDataCreate#createPVField(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.pv.Field)
          */
@@ -62,10 +99,10 @@ public class PVDataFactory {
 			switch(field.getType()) {
 			case scalar: 	     return createPVScalar((Scalar)field); 
 			case scalarArray:    return createPVScalarArray((ScalarArray)field); 
-			case structure:      return new BasePVStructure((Structure)field);
-			case structureArray: return new BasePVStructureArray((StructureArray)field);
-			case union: 	     return new BasePVUnion((Union)field);
-			case unionArray:     return new BasePVUnionArray((UnionArray)field);
+			case structure:      return new BasePVStructure((Structure)field, this);
+			case structureArray: return new BasePVStructureArray((StructureArray)field, this);
+			case union: 	     return new BasePVUnion((Union)field, this);
+			case unionArray:     return new BasePVUnionArray((UnionArray)field, this);
 			}
             throw new IllegalArgumentException("Illegal Type");
 		}
@@ -147,6 +184,21 @@ public class PVDataFactory {
         @Override
         public PVScalarArray createPVScalarArray(ScalarArray array)
         {
+        	if (allocator != null) {
+        	    switch(array.getElementType()) {
+        	    case pvByte:    return new DirectPVByteArray(array, allocator);
+        	    case pvShort:   return new DirectPVShortArray(array, allocator);
+        	    case pvInt:     return new DirectPVIntArray(array, allocator);
+        	    case pvLong:    return new DirectPVLongArray(array, allocator);
+        	    case pvUByte:   return new DirectPVUByteArray(array, allocator);
+        	    case pvUShort:  return new DirectPVUShortArray(array, allocator);
+        	    case pvUInt:    return new DirectPVUIntArray(array, allocator);
+        	    case pvULong:   return new DirectPVULongArray(array, allocator);
+        	    case pvFloat:   return new DirectPVFloatArray(array, allocator);
+        	    case pvDouble:  return new DirectPVDoubleArray(array, allocator);
+        	    default: break;
+        	    }
+        	}
         	switch(array.getElementType()) {
             case pvBoolean: return new BasePVBooleanArray(array);
             case pvByte:    return new BasePVByteArray(array);
@@ -185,14 +237,14 @@ public class PVDataFactory {
          */
         @Override
 		public PVStructureArray createPVStructureArray(StructureArray structureArray) {
-			return new BasePVStructureArray(structureArray);
+			return new BasePVStructureArray(structureArray, this);
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVUnionArray(org.epics.pvdata.pv.UnionArray)
 		 */
 		@Override
 		public PVUnionArray createPVUnionArray(UnionArray unionArray) {
-			return new BasePVUnionArray(unionArray);
+			return new BasePVUnionArray(unionArray, this);
 		}
 		/* (non-Javadoc)
          * @see org.epics.pvdata.pv.PVDataCreate#createPVStructure(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.pv.Structure)
@@ -200,7 +252,7 @@ public class PVDataFactory {
         @Override
         public PVStructure createPVStructure(Structure structure)
         {
-            return new BasePVStructure(structure);
+            return new BasePVStructure(structure, this);
         }
         /* (non-Javadoc)
          * @see org.epics.pvdata.pv.PVDataCreate#createPVStructure(org.epics.pvdata.pv.PVStructure, java.lang.String[], org.epics.pvdata.pv.PVField[])
@@ -225,7 +277,7 @@ public class PVDataFactory {
                 throw new IllegalArgumentException("structToClone is null");
             }
         	Structure structure = fieldCreate.createStructure(structToClone.getStructure());
-            PVStructure pvStructure = new BasePVStructure(structure);
+            PVStructure pvStructure = new BasePVStructure(structure, this);
         	if(!copyStructure(structToClone,pvStructure)) {
         	    System.err.printf("strictToClone%n%s%n", structToClone);
         	    System.err.printf("pvStructure%n%s%n", pvStructure);
@@ -240,14 +292,14 @@ public class PVDataFactory {
          */
         @Override
 		public PVUnion createPVUnion(Union union) {
-        	return new BasePVUnion(union);
+        	return new BasePVUnion(union, this);
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVVariantUnion()
 		 */
 		@Override
 		public PVUnion createPVVariantUnion() {
-			return new BasePVUnion(fieldCreate.createVariantUnion());
+			return new BasePVUnion(fieldCreate.createVariantUnion(), this);
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVUnion(org.epics.pvdata.pv.PVUnion)
@@ -257,7 +309,7 @@ public class PVDataFactory {
             if (unionToClone==null)
                 throw new IllegalArgumentException("unionToClone is null");
      
-			PVUnion union = new BasePVUnion(unionToClone.getUnion());
+			PVUnion union = new BasePVUnion(unionToClone.getUnion(), this);
 			// set cloned value
 			union.set(unionToClone.getSelectedIndex(), createPVField(unionToClone.get()));
 			return union;
@@ -267,7 +319,7 @@ public class PVDataFactory {
 		 */
 		@Override
 		public PVUnionArray createPVVariantUnionArray() {
-			return new BasePVUnionArray(fieldCreate.createVariantUnionArray());
+			return new BasePVUnionArray(fieldCreate.createVariantUnionArray(), this);
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVScalar(org.epics.pvdata.pv.PVScalarType)
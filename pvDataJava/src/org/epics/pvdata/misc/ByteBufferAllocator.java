@@ -0,0 +1,27 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.misc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocator of the storage of buffer backed arrays, e.g. direct or memory-mapped byte buffers.
+ */
+public interface ByteBufferAllocator {
+
+    /**
+     * Allocate a buffer.
+     * @param size required size in bytes.
+     * @return a buffer with position <code>0</code> and limit <code>size</code>,
+     *         its capacity can be larger, its content is undefined.
+     */
+    ByteBuffer allocate(int size);
+
+    /**
+     * Return a buffer that is not used anymore, the buffer must not be accessed after this call.
+     * @param buffer buffer obtained by <code>allocate</code>.
+     */
+    void release(ByteBuffer buffer);
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.misc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct (off-heap) byte buffers.
+ * Buffer capacities are rounded up to a power of two, released buffers are kept
+ * (per capacity) for reuse until the pool limit is reached.
+ * Buffers that are never released are freed by the garbage collector.
+ */
+public class DirectByteBufferPool implements ByteBufferAllocator {
+
+    private static final int MIN_SIZE_CLASS = 12;   // 4kB
+    private static final int MAX_SIZE_CLASS = 30;   // 1GB
+
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedQueue<ByteBuffer>[] pools = new ConcurrentLinkedQueue[MAX_SIZE_CLASS + 1];
+
+    /**
+     * Create a pool.
+     * @param maxPooledBytes maximum number of bytes kept in the pool (not in use).
+     */
+    public DirectByteBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        for (int i = MIN_SIZE_CLASS; i <= MAX_SIZE_CLASS; i++)
+            pools[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+    }
+
+    private static int sizeClass(int size) {
+        if (size <= (1 << MIN_SIZE_CLASS))
+            return MIN_SIZE_CLASS;
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.misc.ByteBufferAllocator#allocate(int)
+     */
+    @Override
+    public ByteBuffer allocate(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("size < 0");
+
+        final int sizeClass = sizeClass(size);
+        if (sizeClass > MAX_SIZE_CLASS)
+            return ByteBuffer.allocateDirect(size);
+
+        ByteBuffer buffer = pools[sizeClass].poll();
+        if (buffer != null)
+            pooledBytes.addAndGet(-buffer.capacity());
+        else
+            buffer = ByteBuffer.allocateDirect(1 << sizeClass);
+
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.misc.ByteBufferAllocator#release(java.nio.ByteBuffer)
+     */
+    @Override
+    public void release(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        if (!buffer.isDirect() || Integer.bitCount(capacity) != 1)
+            return;
+
+        final int sizeClass = sizeClass(capacity);
+        if (sizeClass < MIN_SIZE_CLASS || sizeClass > MAX_SIZE_CLASS || capacity != (1 << sizeClass))
+            return;
+
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes)
+        {
+            // pool full, leave it to the garbage collector
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        pools[sizeClass].offer(buffer);
+    }
+
+    /**
+     * Get number of bytes kept in the pool.
+     * @return pooled bytes.
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+}
@@ -4,6 +4,7 @@
  */
 package org.epics.pvdata.misc;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 
 import org.epics.pvdata.pv.DeserializableControl;
@@ -87,33 +88,163 @@ public final class SerializeHelper {
             return (int)(b < 0 ? b + 256 : b);
     }
 
+    // max. number of bytes a single char (or surrogate pair) is encoded into
+    private static final int MAX_UTF8_CHAR_SIZE = 4;
+
+    // larger strings use a temporary array
+    private static final int MAX_SCRATCH_SIZE = 4096;
+
+    private static final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[256];
+        }
+    };
+
+    private static final StringCache stringCache = new StringCache(4096, 64);
+
     /**
-     * Serialize the specified string into the specified buffer, flushing when necessary.
-     * The specified SerializableControl manages any flushing required.
+     * Get the cache used to intern deserialized (short) strings.
      *
-     * @param value   the string to be serialized
-     * @param buffer  the buffer to be serialized into
-     * @param flusher the SerializableControl to manage the flushing
+     * @return the string cache
      */
-    public final static void serializeString(final String value, ByteBuffer buffer, SerializableControl flusher) {
-        if (value == null)
-            writeSize(-1, buffer, flusher);
+    public final static StringCache getStringCache() {
+        return stringCache;
+    }
+
+    /**
+     * Get the length of the ASCII only prefix of the specified substring.
+     *
+     * @param value   the string
+     * @param offset  the start of the substring
+     * @param count   the length of the substring
+     * @return the number of leading ASCII characters
+     */
+    private final static int asciiLength(final String value, final int offset, final int count) {
+        int i = 0;
+        while (i < count && value.charAt(offset + i) < 0x80)
+            i++;
+        return i;
+    }
+
+    /**
+     * Get the length of the UTF-8 encoding of the specified substring.
+     * Unpaired surrogates are encoded as '?', as <code>String.getBytes</code> does.
+     *
+     * @param value   the string
+     * @param offset  the start of the substring
+     * @param count   the length of the substring
+     * @return the number of bytes
+     */
+    private final static int encodedLength(final String value, final int offset, final int count) {
+        final int end = offset + count;
+        int len = count;
+        for (int i = offset; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80)
+                continue;
+            else if (c < 0x800)
+                len++;
+            else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                len += 2;       // 4 bytes for 2 chars
+                i++;
+            }
+            else if (!Character.isSurrogate(c))
+                len += 2;
+        }
+        return len;
+    }
+
+    /**
+     * Encode the specified (ASCII only) substring into the specified buffer.
+     *
+     * @param value   the string
+     * @param offset  the start of the substring
+     * @param count   the length of the substring
+     * @param buffer  the buffer to be serialized into, must have enough space
+     */
+    @SuppressWarnings("deprecation")
+    private final static void putASCII(final String value, final int offset, final int count, ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            // no intermediate copy
+            final int pos = buffer.position();
+            value.getBytes(offset, offset + count, buffer.array(), buffer.arrayOffset() + pos);
+            buffer.position(pos + count);
+        }
         else {
-            final int len = value.length(); 
-            writeSize(len, buffer, flusher);
-            int i = 0;
+            final int end = offset + count;
+            for (int i = offset; i < end; i++)
+                buffer.put((byte)value.charAt(i));
+        }
+    }
+
+    /**
+     * Encode the specified substring into the specified buffer (UTF-8), flushing when necessary.
+     *
+     * @param value   the string
+     * @param offset  the start of the substring
+     * @param count   the length of the substring
+     * @param ascii   <code>true</code> if substring is known to contain only ASCII characters
+     * @param buffer  the buffer to be serialized into
+     * @param flusher the SerializableControl to manage the flushing, <code>null</code> if buffer is large enough
+     */
+    private final static void encode(final String value, final int offset, final int count, final boolean ascii,
+            ByteBuffer buffer, SerializableControl flusher) {
+        final int end = offset + count;
+        int i = offset;
+        if (ascii) {
             while (true) {
-                final int maxToWrite = Math.min(len-i, buffer.remaining());
-                buffer.put(value.getBytes(), i, maxToWrite);    // UTF-8
+                final int maxToWrite = Math.min(end - i, buffer.remaining());
+                putASCII(value, i, maxToWrite, buffer);
                 i += maxToWrite;
-                if (i < len)
+                if (i < end)
                     flusher.flushSerializeBuffer();
                 else
                     break;
             }
+            return;
+        }
+
+        while (i < end) {
+            if (flusher != null && buffer.remaining() < MAX_UTF8_CHAR_SIZE)
+                flusher.flushSerializeBuffer();
+
+            final char c = value.charAt(i++);
+            if (c < 0x80)
+                buffer.put((byte)c);
+            else if (c < 0x800)
+                buffer.put((byte)(0xC0 | (c >> 6))).put((byte)(0x80 | (c & 0x3F)));
+            else if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(value.charAt(i))) {
+                final int cp = Character.toCodePoint(c, value.charAt(i++));
+                buffer.put((byte)(0xF0 | (cp >> 18)))
+                      .put((byte)(0x80 | ((cp >> 12) & 0x3F)))
+                      .put((byte)(0x80 | ((cp >> 6) & 0x3F)))
+                      .put((byte)(0x80 | (cp & 0x3F)));
+            }
+            else if (Character.isSurrogate(c))
+                buffer.put((byte)'?');
+            else
+                buffer.put((byte)(0xE0 | (c >> 12)))
+                      .put((byte)(0x80 | ((c >> 6) & 0x3F)))
+                      .put((byte)(0x80 | (c & 0x3F)));
         }
     }
 
+    /**
+     * Serialize the specified string into the specified buffer, flushing when necessary.
+     * The specified SerializableControl manages any flushing required.
+     *
+     * @param value   the string to be serialized
+     * @param buffer  the buffer to be serialized into
+     * @param flusher the SerializableControl to manage the flushing
+     */
+    public final static void serializeString(final String value, ByteBuffer buffer, SerializableControl flusher) {
+        if (value == null)
+            writeSize(-1, buffer, flusher);
+        else
+            serializeSubstring(value, 0, value.length(), buffer, flusher);
+    }
+
     /**
      * Serialize the specified string into the specified buffer.
      *
@@ -124,12 +255,34 @@ public final class SerializeHelper {
         if (value == null)
             writeSize(-1, buffer);
         else {
-            final int len = value.length(); 
-            writeSize(len, buffer);
-            buffer.put(value.getBytes());    // UTF-8
+            final int count = value.length();
+            final int ascii = asciiLength(value, 0, count);
+            if (ascii == count) {
+                writeSize(count, buffer);
+                putASCII(value, 0, count, buffer);
+            }
+            else {
+                writeSize(ascii + encodedLength(value, ascii, count - ascii), buffer);
+                encode(value, 0, count, false, buffer, null);
+            }
         }
     }
 
+    /**
+     * Get the number of bytes the specified string is serialized into (size and UTF-8 encoded characters).
+     *
+     * @param value   the string, can be <code>null</code>
+     * @return the serialized size in bytes
+     */
+    public final static int getSerializedSize(final String value) {
+        if (value == null)
+            return 1;
+        final int count = value.length();
+        final int ascii = asciiLength(value, 0, count);
+        final int len = (ascii == count) ? count : ascii + encodedLength(value, ascii, count - ascii);
+        return ((len < 254) ? 1 : 1 + Integer.SIZE/Byte.SIZE) + len;
+    }
+
 
     /**
      * Serialize a substring of a specified string into the specified buffer, flushing when necessary.
@@ -148,20 +301,45 @@ public final class SerializeHelper {
         if (value == null)
             writeSize(-1, buffer, flusher);
         else {
-            writeSize(count, buffer, flusher);
-            int i = 0;
-            while (true) {
-                final int maxToWrite = Math.min(count - i, buffer.remaining());
-                buffer.put(value.getBytes(), i + offset, maxToWrite); // UTF-8
-                i += maxToWrite;
-                if (i < count)
-                    flusher.flushSerializeBuffer();
-                else
-                    break;
-            }
+            // size is the number of encoded bytes (UTF-8)
+            final int ascii = asciiLength(value, offset, count);
+            final int len = (ascii == count) ? count : ascii + encodedLength(value, offset + ascii, count - ascii);
+            writeSize(len, buffer, flusher);
+            encode(value, offset, count, ascii == count, buffer, flusher);
         }
     }
 
+    /**
+     * Decode a string, using the string cache for short strings.
+     *
+     * @param bytes   UTF-8 encoded string
+     * @param offset  offset of the first byte
+     * @param size    number of bytes
+     * @return the decoded string
+     */
+    private final static String decode(byte[] bytes, int offset, int size) {
+        if (size == 0)
+            return "";
+        return stringCache.get(bytes, offset, size);
+    }
+
+    /**
+     * Get an array to deserialize the string of the specified size into.
+     *
+     * @param size the size of the string
+     * @return a (per-thread reused) array
+     */
+    private final static byte[] getScratch(int size) {
+        if (size > MAX_SCRATCH_SIZE)
+            return new byte[size];
+        byte[] bytes = scratch.get();
+        if (bytes.length < size) {
+            bytes = new byte[Math.min(Math.max(size, bytes.length * 2), MAX_SCRATCH_SIZE)];
+            scratch.set(bytes);
+        }
+        return bytes;
+    }
+
     /**
      * Deserialize a string from the specified buffer.
      * The specified DeserializableControl ensures sufficient bytes are available.
@@ -173,7 +351,11 @@ public final class SerializeHelper {
     public final static String deserializeString(ByteBuffer buffer, DeserializableControl control) {
         int size = SerializeHelper.readSize(buffer, control);
         if (size >= 0) {
-            byte[] bytes = new byte[size];
+            // common case, the whole string is already in the buffer
+            if (buffer.remaining() >= size && buffer.hasArray())
+                return deserializeFromArray(buffer, size);
+
+            byte[] bytes = getScratch(size);
             int i = 0;
             while (true)
             {
@@ -185,7 +367,7 @@ public final class SerializeHelper {
                 else
                     break;
             }
-            return new String(bytes);
+            return decode(bytes, 0, size);
         }
         else
             return null;
@@ -199,11 +381,23 @@ public final class SerializeHelper {
     public final static String deserializeString(ByteBuffer buffer) {
         int size = SerializeHelper.readSize(buffer);
         if (size >= 0) {
-            byte[] bytes = new byte[size];
+            if (buffer.hasArray())
+                return deserializeFromArray(buffer, size);
+
+            byte[] bytes = getScratch(size);
             buffer.get(bytes, 0, size);        // UTF-8
-            return new String(bytes);
+            return decode(bytes, 0, size);
         }
         else
             return null;
     }
+
+    private final static String deserializeFromArray(ByteBuffer buffer, int size) {
+        if (size > buffer.remaining())
+            throw new BufferUnderflowException();
+        final int pos = buffer.position();
+        final String value = decode(buffer.array(), buffer.arrayOffset() + pos, size);
+        buffer.position(pos + size);
+        return value;
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.misc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of deserialized (UTF-8 encoded) strings.
+ * Recurring strings (units, enum choices, descriptions, ...) are looked up by their
+ * encoded bytes, so that a hit does not allocate anything.
+ * The cache is direct-mapped, i.e. an entry is simply replaced by a colliding one;
+ * it is lock-free and can be shared by an arbitrary number of threads.
+ */
+public final class StringCache {
+
+	private static final class Entry {
+		final int hash;
+		final byte[] bytes;
+		final String value;
+
+		Entry(int hash, byte[] bytes, String value) {
+			this.hash = hash;
+			this.bytes = bytes;
+			this.value = value;
+		}
+	}
+
+	// entries are immutable, racy publication is safe
+	private final Entry[] entries;
+	private final int mask;
+	private final int maxLength;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Constructor.
+	 * @param capacity number of entries, rounded up to the power of two.
+	 * @param maxLength max. length (in bytes) of the strings to be cached.
+	 */
+	public StringCache(int capacity, int maxLength)
+	{
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be > 0");
+		int size = 1;
+		while (size < capacity)
+			size <<= 1;
+		entries = new Entry[size];
+		mask = size - 1;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Get the string encoded by the given bytes, either a cached instance or a new one.
+	 * @param bytes UTF-8 encoded string.
+	 * @param offset offset of the first byte.
+	 * @param length number of bytes.
+	 * @return the decoded string.
+	 */
+	public String get(byte[] bytes, int offset, int length)
+	{
+		if (length > maxLength)
+			return new String(bytes, offset, length, StandardCharsets.UTF_8);
+
+		int hash = 0;
+		final int end = offset + length;
+		for (int i = offset; i < end; i++)
+			hash = 31*hash + bytes[i];
+
+		final int index = (hash ^ (hash >>> 16)) & mask;
+		final Entry entry = entries[index];
+		if (entry != null && entry.hash == hash && equals(entry.bytes, bytes, offset, length))
+		{
+			hits.increment();
+			return entry.value;
+		}
+
+		misses.increment();
+		final byte[] key = new byte[length];
+		System.arraycopy(bytes, offset, key, 0, length);
+		final String value = new String(key, 0, length, StandardCharsets.UTF_8);
+		entries[index] = new Entry(hash, key, value);
+		return value;
+	}
+
+	private static boolean equals(byte[] key, byte[] bytes, int offset, int length)
+	{
+		if (key.length != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (key[i] != bytes[offset + i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Get max. length (in bytes) of the strings being cached.
+	 * @return max. length.
+	 */
+	public int getMaxLength()
+	{
+		return maxLength;
+	}
+
+	/**
+	 * Get number of cache hits.
+	 * @return number of cache hits.
+	 */
+	public long getHitCount()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * Get number of cache misses (strings longer than max. length are not counted).
+	 * @return number of cache misses.
+	 */
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Get cache hit rate.
+	 * @return hit rate, <code>0</code> if cache was not used yet.
+	 */
+	public double getHitRate()
+	{
+		final long h = hits.sum();
+		final long total = h + misses.sum();
+		return (total == 0) ? 0.0 : (double)h / total;
+	}
+
+	/**
+	 * Clear the cache and its statistics.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < entries.length; i++)
+			entries[i] = null;
+		hits.reset();
+		misses.reset();
+	}
+}
@@ -30,6 +30,9 @@ public interface Monitor extends Destroyable {
 
     /**
      * If monitor has occurred return data.
+     * The data of the returned element is owned by the monitor and must be treated as read-only:
+     * implementations may reuse released elements and update only the changed fields,
+     * so any modification made by the client can show up in later updates.
      *
      * @return monitorElement for modified data on null if no monitors have occurred
      */
@@ -16,6 +16,7 @@ import org.epics.pvdata.pv.PVStructure;
 public interface MonitorElement {
     /**
      * Get the PVStructure.
+     * Clients must not modify it, see {@link Monitor#poll()}.
      *
      * @return The PVStructure.
      */
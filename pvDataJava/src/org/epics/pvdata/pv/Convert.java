@@ -4,6 +4,8 @@
  */
 package org.epics.pvdata.pv;
 
+import org.epics.pvdata.misc.BitSet;
+
 /**
  * Convert between numeric types,convert any field to a string,
  * and convert from a string to a scalar field.
@@ -198,6 +200,36 @@ public interface Convert {
      */
     void copyStructure(PVStructure from, PVStructure to);
 
+    /**
+     * Copy only the fields of a PVStructure whose bits are set in a bitSet to another PVStructure.
+     * A set bit of a substructure copies the whole substructure, as in a compressed bitSet.
+     * Both structures must have the same introspection interface.
+     * Default implementation uses <code>copyStructure</code> and <code>copy</code>,
+     * so existing implementations of this interface need not provide it.
+     *
+     * @param from the source
+     * @param to the destination
+     * @param bitSet field offsets (see PVField.getFieldOffset()) of the fields to copy
+     * @throws IllegalArgumentException if the arguments are not compatible
+     */
+    default void copy(PVStructure from, PVStructure to, BitSet bitSet) {
+        if (from.getStructure() != to.getStructure() && !from.getStructure().equals(to.getStructure()))
+            throw new IllegalArgumentException("Illegal copy, structures differ");
+        final int fieldOffset = from.getFieldOffset();
+        int offset = bitSet.nextSetBit(fieldOffset);
+        if (offset == fieldOffset) {
+            copyStructure(from, to);
+            return;
+        }
+        final int nextFieldOffset = from.getNextFieldOffset();
+        while (offset > fieldOffset && offset < nextFieldOffset) {
+            PVField fromField = from.getSubField(offset);
+            copy(fromField, to.getSubField(offset));
+            // skip subfields of a copied structure
+            offset = bitSet.nextSetBit(fromField.getNextFieldOffset());
+        }
+    }
+
     /**
      * Are from and to the instrospection interfaces for valid arguments for copyUnion.
      * They are only compatible if they have the same Union description.
@@ -0,0 +1,27 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.pv;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Optional <code>DeserializableControl</code> extension that supports reading (large) data
+ * directly, bypassing the deserialization buffer.
+ */
+public interface DirectDeserializableControl {
+
+	/**
+	 * Deserialize data directly into the destination buffer.
+	 * Data already available in <code>existingBuffer</code> is consumed first.
+     *
+	 * @param existingBuffer the deserialization buffer in use
+	 * @param data the destination buffer, on success filled up to its limit
+	 * @return <code>true</code> if data was deserialized, <code>false</code> if caller
+	 * needs to deserialize data via <code>existingBuffer</code> (e.g. data too small)
+	 */
+	boolean directDeserialize(ByteBuffer existingBuffer, ByteBuffer data);
+	
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.pv;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Optional <code>SerializableControl</code> extension that supports writing (large) data
+ * directly, bypassing the serialization buffer.
+ */
+public interface DirectSerializableControl {
+
+    /**
+     * Serialize data directly, i.e. without copying it to the serialization buffer.
+     * Everything already serialized to <code>existingBuffer</code> is flushed first.
+     * 
+     * @param existingBuffer the serialization buffer in use
+     * @param data the data to be serialized, on success its position is moved to its limit
+     * @return <code>true</code> if data was serialized, <code>false</code> if caller
+     * needs to serialize data via <code>existingBuffer</code> (e.g. data too small)
+     */
+    boolean directSerialize(ByteBuffer existingBuffer, ByteBuffer data);
+    
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.pv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Numeric scalar array whose elements are stored in a (direct or memory-mapped) byte buffer
+ * instead of a Java array.
+ * The <code>get/put</code> methods taking Java arrays copy the elements,
+ * the methods of this interface allow bulk access to the storage.
+ */
+public interface PVDirectArray extends PVScalarArray {
+
+    /**
+     * Get a read-only view of the elements, i.e. <code>getLength()</code> elements,
+     * in the byte order of the storage. The view is valid until the capacity of the array changes.
+     * @return read-only view of the elements.
+     */
+    ByteBuffer getBuffer();
+
+    /**
+     * Copy elements from a buffer.
+     * @param offset the index of the first element to be changed.
+     * @param length the number of elements to copy.
+     * @param from the buffer holding (at least <code>length</code>) elements in its byte order,
+     *        its position is advanced by the number of bytes copied.
+     * @return the number of elements copied.
+     */
+    int put(int offset, int length, ByteBuffer from);
+}
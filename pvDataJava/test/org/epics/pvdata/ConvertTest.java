@@ -9,6 +9,8 @@ import junit.framework.TestCase;
 
 import org.epics.pvdata.factory.ConvertFactory;
 import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardPVFieldFactory;
+import org.epics.pvdata.misc.BitSet;
 import org.epics.pvdata.pv.Convert;
 import org.epics.pvdata.pv.PVByte;
 import org.epics.pvdata.pv.PVByteArray;
@@ -23,6 +25,7 @@ import org.epics.pvdata.pv.PVLong;
 import org.epics.pvdata.pv.PVLongArray;
 import org.epics.pvdata.pv.PVShort;
 import org.epics.pvdata.pv.PVShortArray;
+import org.epics.pvdata.pv.PVStructure;
 import org.epics.pvdata.pv.PVUByte;
 import org.epics.pvdata.pv.PVUByteArray;
 import org.epics.pvdata.pv.PVUInt;
@@ -499,4 +502,43 @@ public class ConvertTest extends TestCase {
         convert.copyScalarArray(pvULong,0, pvDouble,0,length);
         print("double from unsigned " +pvDouble.toString());
 	}
+
+	public void testCopyBitSet() {
+		PVStructure from = StandardPVFieldFactory.getStandardPVField().scalarArray(ScalarType.pvDouble, "alarm,timeStamp");
+		PVStructure to = pvDataCreate.createPVStructure(from);
+		
+		PVDoubleArray fromValue = (PVDoubleArray)from.getScalarArrayField("value", ScalarType.pvDouble);
+		PVDoubleArray toValue = (PVDoubleArray)to.getScalarArrayField("value", ScalarType.pvDouble);
+		PVLong fromSeconds = from.getLongField("timeStamp.secondsPastEpoch");
+		PVLong toSeconds = to.getLongField("timeStamp.secondsPastEpoch");
+		PVInt fromSeverity = from.getIntField("alarm.severity");
+		PVInt toSeverity = to.getIntField("alarm.severity");
+		
+		fromValue.put(0, 3, new double[] { 1, 2, 3 }, 0);
+		fromSeconds.put(123);
+		fromSeverity.put(2);
+		
+		// only timeStamp.secondsPastEpoch
+		BitSet bitSet = new BitSet(from.getNumberFields());
+		bitSet.set(fromSeconds.getFieldOffset());
+		convert.copy(from, to, bitSet);
+		assertEquals(123, toSeconds.get());
+		assertEquals(0, toValue.getLength());
+		assertEquals(0, toSeverity.get());
+		
+		// whole alarm substructure and value
+		bitSet.clear();
+		bitSet.set(from.getSubField("alarm").getFieldOffset());
+		bitSet.set(fromValue.getFieldOffset());
+		convert.copy(from, to, bitSet);
+		assertEquals(2, toSeverity.get());
+		assertEquals(3, toValue.getLength());
+		
+		// all
+		fromSeconds.put(456);
+		bitSet.clear();
+		bitSet.set(0);
+		convert.copy(from, to, bitSet);
+		assertEquals(from, to);
+	}
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.misc.DirectByteBufferPool;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DirectDeserializableControl;
+import org.epics.pvdata.pv.DirectSerializableControl;
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDirectArray;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVIntArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.PVShortArray;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVUnion;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.CollectionNumbers;
+
+/**
+ * JUnit test for scalar arrays stored in direct byte buffers.
+ */
+public class DirectArrayTest extends TestCase {
+
+	private static class Control implements SerializableControl, DeserializableControl {
+
+		@Override
+		public void ensureBuffer(int size) {
+			// noop
+		}
+
+		@Override
+		public void flushSerializeBuffer() {
+			// noop
+		}
+
+		@Override
+		public void alignBuffer(int alignment) {
+			// noop
+		}
+
+		@Override
+		public void cachedSerialize(Field field, ByteBuffer buffer) {
+			field.serialize(buffer, this);
+		}
+
+		@Override
+		public void ensureData(int size) {
+			// noop
+		}
+
+		@Override
+		public void alignData(int alignment) {
+			// noop
+		}
+
+		@Override
+		public Field cachedDeserialize(ByteBuffer buffer) {
+			return FieldFactory.getFieldCreate().deserialize(buffer, this);
+		}
+	}
+
+	// captures/provides array data passed directly
+	private static class DirectControl extends Control implements DirectSerializableControl, DirectDeserializableControl {
+
+		ByteBuffer data = ByteBuffer.allocate(1 << 16);
+		int directCount;
+
+		@Override
+		public boolean directSerialize(ByteBuffer existingBuffer, ByteBuffer data) {
+			directCount++;
+			this.data.put(data);
+			return true;
+		}
+
+		@Override
+		public boolean directDeserialize(ByteBuffer existingBuffer, ByteBuffer data) {
+			directCount++;
+			this.data.flip();
+			data.put(this.data);
+			return true;
+		}
+	}
+
+	private static final PVDataCreate directCreate = PVDataFactory.getDirectPVDataCreate();
+	private static final PVDataCreate heapCreate = PVDataFactory.getPVDataCreate();
+	private static final Convert convert = ConvertFactory.getConvert();
+
+	public void testCreate()
+	{
+		for (ScalarType type : ScalarType.values())
+		{
+			PVScalarArray array = directCreate.createPVScalarArray(type);
+			assertEquals(type.isNumeric(), array instanceof PVDirectArray);
+		}
+
+		Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+			addArray("value", ScalarType.pvDouble).
+			addNestedStructure("nested").
+				addArray("value", ScalarType.pvInt).
+			endNested().
+			createStructure();
+		PVStructure pvStructure = directCreate.createPVStructure(structure);
+		assertTrue(pvStructure.getSubField("value") instanceof PVDirectArray);
+		assertTrue(pvStructure.getSubField("nested.value") instanceof PVDirectArray);
+
+		PVUnion pvUnion = directCreate.createPVVariantUnion();
+		pvUnion.set(directCreate.createPVScalarArray(ScalarType.pvShort));
+		assertTrue(pvUnion.get() instanceof PVDirectArray);
+
+		assertFalse(heapCreate.createPVScalarArray(ScalarType.pvDouble) instanceof PVDirectArray);
+	}
+
+	public void testPutGet()
+	{
+		PVDoubleArray array = (PVDoubleArray)directCreate.createPVScalarArray(ScalarType.pvDouble);
+		assertEquals(0, array.getLength());
+
+		double[] values = { 1.1, 2.2, 3.3, 4.4 };
+		assertEquals(3, array.put(0, 3, values, 1));
+		assertEquals(3, array.getLength());
+
+		ArrayDouble list = array.get();
+		assertEquals(3, list.size());
+		assertEquals(2.2, list.getDouble(0));
+		assertEquals(4.4, list.getDouble(2));
+
+		DoubleArrayData data = new DoubleArrayData();
+		assertEquals(2, array.get(1, 10, data));
+		assertEquals(3.3, data.data[data.offset]);
+		assertEquals(4.4, data.data[data.offset + 1]);
+
+		// grow, keeping the elements
+		array.setCapacity(10000);
+		assertEquals(10000, array.getCapacity());
+		assertEquals(3, array.getLength());
+		assertEquals(2.2, array.get().getDouble(0));
+
+		// shrink
+		array.setCapacity(2);
+		assertEquals(2, array.getLength());
+		assertEquals(3.3, array.get().getDouble(1));
+
+		array.shareData(values);
+		assertEquals(4, array.getLength());
+		assertEquals(1.1, array.get().getDouble(0));
+
+		PVIntArray intArray = (PVIntArray)directCreate.createPVScalarArray(ScalarType.pvInt);
+		intArray.put(2, CollectionNumbers.unmodifiableListInt(new int[] { 7, 8 }));
+		assertEquals(4, intArray.getLength());
+		assertEquals(0, intArray.get().getInt(0));
+		assertEquals(8, intArray.get().getInt(3));
+	}
+
+	public void testBuffer()
+	{
+		PVShortArray array = (PVShortArray)directCreate.createPVScalarArray(ScalarType.pvShort);
+
+		ByteBuffer from = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN);
+		from.putShort((short)1).putShort((short)-2).putShort((short)3).flip();
+		assertEquals(3, ((PVDirectArray)array).put(0, 3, from));
+		assertEquals(0, from.remaining());
+		assertEquals(-2, array.get().getShort(1));
+
+		ByteBuffer view = ((PVDirectArray)array).getBuffer();
+		assertTrue(view.isReadOnly());
+		assertTrue(view.isDirect());
+		assertEquals(6, view.remaining());
+		assertEquals(3, view.getShort(4));
+	}
+
+	public void testEquals()
+	{
+		double[] values = { 1, 2, Double.NaN };
+		PVDoubleArray direct = (PVDoubleArray)directCreate.createPVScalarArray(ScalarType.pvDouble);
+		PVDoubleArray heap = (PVDoubleArray)heapCreate.createPVScalarArray(ScalarType.pvDouble);
+		direct.put(0, values.length, values, 0);
+		heap.put(0, values.length, values, 0);
+		assertEquals(direct, heap);
+		assertEquals(heap, direct);
+		assertEquals(heap.hashCode(), direct.hashCode());
+
+		PVDoubleArray direct2 = (PVDoubleArray)directCreate.createPVScalarArray(ScalarType.pvDouble);
+		direct2.put(0, values.length, values, 0);
+		assertEquals(direct, direct2);
+		assertEquals(direct.hashCode(), direct2.hashCode());
+
+		direct2.put(0, 1, new double[] { 3 }, 0);
+		assertFalse(direct.equals(direct2));
+
+		PVStringArray strings = (PVStringArray)directCreate.createPVScalarArray(ScalarType.pvString);
+		assertFalse(strings instanceof PVDirectArray);
+	}
+
+	public void testHashCode()
+	{
+		Control control = new Control();
+		for (ScalarType type : ScalarType.values())
+		{
+			if (!type.isNumeric())
+				continue;
+
+			int[] values = { 1, -2, 3, Integer.MAX_VALUE, Integer.MIN_VALUE };
+			PVScalarArray heap = heapCreate.createPVScalarArray(type);
+			convert.fromIntArray(heap, 0, values.length, values, 0);
+			PVScalarArray direct = directCreate.createPVScalarArray(type);
+			convert.fromIntArray(direct, 0, values.length, values, 0);
+			assertEquals(type.name(), heap, direct);
+			assertEquals(type.name(), heap.hashCode(), direct.hashCode());
+
+			// independent of the byte order of the storage
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 10).order(ByteOrder.LITTLE_ENDIAN);
+			heap.serialize(buffer, control);
+			buffer.flip();
+			PVScalarArray littleEndian = directCreate.createPVScalarArray(type);
+			littleEndian.deserialize(buffer, control);
+			assertEquals(type.name(), heap.hashCode(), littleEndian.hashCode());
+		}
+	}
+
+	private void serializationTest(PVScalarArray from, ByteOrder order, SerializableControl control)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(order);
+		from.serialize(buffer, control);
+		buffer.flip();
+
+		PVScalarArray to = directCreate.createPVScalarArray(from.getScalarArray());
+		to.deserialize(buffer, (DeserializableControl)control);
+		assertEquals(0, buffer.remaining());
+		assertEquals(from, to);
+	}
+
+	public void testSerialization()
+	{
+		Control control = new Control();
+		for (ScalarType type : ScalarType.values())
+		{
+			if (!type.isNumeric())
+				continue;
+
+			PVScalarArray array = directCreate.createPVScalarArray(type);
+			int[] values = { 1, -2, 3, Integer.MAX_VALUE, Integer.MIN_VALUE };
+			convert.fromIntArray(array, 0, values.length, values, 0);
+			serializationTest(array, ByteOrder.BIG_ENDIAN, control);
+			serializationTest(array, ByteOrder.LITTLE_ENDIAN, control);
+
+			PVScalarArray heap = heapCreate.createPVScalarArray(type);
+			convert.fromIntArray(heap, 0, 3, values, 0);
+			serializationTest(heap, ByteOrder.LITTLE_ENDIAN, control);
+		}
+	}
+
+	public void testDirectSerialization()
+	{
+		final int count = 1000;
+		PVDoubleArray array = (PVDoubleArray)directCreate.createPVScalarArray(ScalarType.pvDouble);
+		for (int i = 0; i < count; i++)
+			array.put(i, 1, new double[] { i * 0.5 }, 0);
+
+		// buffer too small for the elements, they go directly via control
+		DirectControl control = new DirectControl();
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		array.serialize(buffer, control);
+		assertEquals(1, control.directCount);
+		assertEquals(count * 8, control.data.position());
+
+		buffer.flip();
+		PVDoubleArray to = (PVDoubleArray)directCreate.createPVScalarArray(ScalarType.pvDouble);
+		to.deserialize(buffer, control);
+		assertEquals(2, control.directCount);
+		assertEquals(array, to);
+
+		// different byte order, elements are converted via the buffer
+		control.data.clear();
+		buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		array.serialize(buffer, control);
+		assertEquals(2, control.directCount);
+		buffer.flip();
+		to = (PVDoubleArray)directCreate.createPVScalarArray(ScalarType.pvDouble);
+		to.deserialize(buffer, control);
+		assertEquals(2, control.directCount);
+		assertEquals(array, to);
+		assertEquals(ByteOrder.LITTLE_ENDIAN, ((PVDirectArray)to).getBuffer().order());
+	}
+
+	public void testPool()
+	{
+		DirectByteBufferPool pool = new DirectByteBufferPool(1 << 20);
+
+		ByteBuffer buffer = pool.allocate(5000);
+		assertTrue(buffer.isDirect());
+		assertEquals(0, buffer.position());
+		assertEquals(5000, buffer.limit());
+		assertEquals(8192, buffer.capacity());
+
+		pool.release(buffer);
+		assertEquals(8192, pool.getPooledBytes());
+		assertSame(buffer, pool.allocate(8000));
+		assertEquals(0, pool.getPooledBytes());
+
+		// heap buffers are ignored
+		pool.release(ByteBuffer.allocate(4096));
+		assertEquals(0, pool.getPooledBytes());
+
+		// pool limit
+		pool.release(pool.allocate(1 << 20));
+		pool.release(pool.allocate(4096));
+		assertEquals(1 << 20, pool.getPooledBytes());
+
+		// capacity changes return buffers to the pool
+		PVDataCreate create = PVDataFactory.getPVDataCreate(new DirectByteBufferPool(1 << 20));
+		PVDoubleArray array = (PVDoubleArray)create.createPVScalarArray(ScalarType.pvDouble);
+		array.setCapacity(1000);
+		array.setCapacity(2000);
+		assertEquals(2000, array.getCapacity());
+	}
+}
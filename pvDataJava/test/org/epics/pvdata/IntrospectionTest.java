@@ -6,9 +6,11 @@ package org.epics.pvdata;
 
 
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
 
 import junit.framework.TestCase;
 
+import org.epics.pvdata.factory.BaseStructure;
 import org.epics.pvdata.factory.BaseUnion;
 import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.pv.BoundedString;
@@ -145,4 +147,113 @@ public class IntrospectionTest extends TestCase {
         assertEquals(16, boundedString.getMaximumLength());
 		System.out.println(boundedString);
 	}
+
+	public void testInterning() {
+		Structure alarm1 = fieldCreate.createFieldBuilder().
+				add("severity", ScalarType.pvInt).
+				add("status", ScalarType.pvInt).
+				add("message", ScalarType.pvString).
+				createStructure();
+		Structure alarm2 = fieldCreate.createFieldBuilder().
+				add("severity", ScalarType.pvInt).
+				add("status", ScalarType.pvInt).
+				add("message", ScalarType.pvString).
+				createStructure();
+		assertSame(alarm1, alarm2);
+		
+		Structure s1 = fieldCreate.createFieldBuilder().
+				setId("test_t").
+				add("value", ScalarType.pvDouble).
+				add("alarm", alarm1).
+				addArray("values", ScalarType.pvDouble).
+				createStructure();
+		Structure s2 = fieldCreate.createStructure("test_t",
+				new String[] { "value", "alarm", "values" },
+				new Field[] { fieldCreate.createScalar(ScalarType.pvDouble), alarm2,
+							  fieldCreate.createScalarArray(ScalarType.pvDouble) });
+		assertSame(s1, s2);
+		assertSame(fieldCreate.createStructureArray(s1), fieldCreate.createStructureArray(s2));
+		assertSame(s1, fieldCreate.createStructure(s1));
+		assertSame(fieldCreate.createBoundedString(8), fieldCreate.createBoundedString(8));
+		assertSame(fieldCreate.createVariantUnion(),
+				fieldCreate.createUnion(new String[0], new Field[0]));
+
+		// different ID, different instance
+		Structure s3 = fieldCreate.createStructure("other_t", s1.getFieldNames(), s1.getFields());
+		assertNotSame(s1, s3);
+		assertFalse(s1.equals(s3));
+		
+		// directly created instances are not interned, but still equal
+		Structure s4 = new BaseStructure("test_t", s1.getFieldNames(), s1.getFields());
+		assertNotSame(s1, s4);
+		assertEquals(s1, s4);
+		assertEquals(s1.hashCode(), s4.hashCode());
+		assertSame(s1, fieldCreate.appendFields(
+				fieldCreate.createStructure("test_t", new String[] { "value" }, new Field[] { s1.getField("value") }),
+				new String[] { "alarm", "values" }, new Field[] { s1.getField("alarm"), s1.getField("values") }));
+	}
+
+	public void testInterningCopiesArrays() {
+		String[] fieldNames = new String[] { "interned_a", "interned_b" };
+		Field[] fields = new Field[] { fieldCreate.createScalar(ScalarType.pvDouble),
+									   fieldCreate.createScalar(ScalarType.pvInt) };
+		Structure structure = fieldCreate.createStructure("interned_t", fieldNames, fields);
+		Union union = fieldCreate.createUnion("interned_u", fieldNames, fields);
+		final int structureHash = structure.hashCode();
+		final int unionHash = union.hashCode();
+
+		// mutate the input arrays after creation
+		fieldNames[0] = "mutated";
+		fields[1] = fieldCreate.createScalar(ScalarType.pvString);
+
+		assertEquals("interned_a", structure.getFieldName(0));
+		assertEquals(ScalarType.pvInt, ((Scalar)structure.getField(1)).getScalarType());
+		assertEquals(structureHash, structure.hashCode());
+		assertEquals("interned_a", union.getFieldName(0));
+		assertEquals(ScalarType.pvInt, ((Scalar)union.getField(1)).getScalarType());
+		assertEquals(unionHash, union.hashCode());
+
+		// still resolves to the same (unchanged) interned instances
+		String[] originalNames = new String[] { "interned_a", "interned_b" };
+		Field[] originalFields = new Field[] { fieldCreate.createScalar(ScalarType.pvDouble),
+											   fieldCreate.createScalar(ScalarType.pvInt) };
+		assertSame(structure, fieldCreate.createStructure("interned_t", originalNames, originalFields));
+		assertSame(union, fieldCreate.createUnion("interned_u", originalNames, originalFields));
+
+		// mutated arrays give a different instance
+		Structure mutated = fieldCreate.createStructure("interned_t", fieldNames, fields);
+		assertNotSame(structure, mutated);
+		assertEquals("mutated", mutated.getFieldName(0));
+	}
+
+	public void testConcurrentInterning() throws InterruptedException {
+		final int threadCount = 8;
+		final Structure[] results = new Structure[threadCount];
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int index = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					results[index] = fieldCreate.createFieldBuilder().
+							setId("concurrent_t").
+							add("value", ScalarType.pvDouble).
+							createStructure();
+				}
+			});
+			threads[t].start();
+		}
+		startLatch.countDown();
+		for (Thread thread : threads)
+			thread.join();
+
+		for (int t = 1; t < threadCount; t++)
+			assertSame(results[0], results[t]);
+	}
 }
@@ -5,12 +5,15 @@
 package org.epics.pvdata;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import junit.framework.TestCase;
 
 import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.factory.PVDataFactory;
 import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.SerializeHelper;
+import org.epics.pvdata.misc.StringCache;
 import org.epics.pvdata.pv.DeserializableControl;
 import org.epics.pvdata.pv.Field;
 import org.epics.pvdata.pv.FieldCreate;
@@ -359,6 +362,70 @@ public class SerializationTest extends TestCase {
 		serializationTest(pvString);
 	}
 	
+	public void testStringUTF8()
+	{
+		PVDataCreate factory = PVDataFactory.getPVDataCreate();
+		PVString pvString = (PVString)factory.createPVScalar(ScalarType.pvString);
+		
+		final String[] values = {
+			"\u00b5A",							// 2-byte
+			"\u2103 and \u00b0C",				// 3-byte
+			"\ud834\udd1e clef",				// surrogate pair, 4-byte
+		};
+		for (String value : values)
+		{
+			pvString.put(value);
+			serializationTest(pvString);
+
+			// size is the number of encoded bytes
+			final byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			ByteBuffer buffer = ByteBuffer.allocate(128);
+			SerializeHelper.serializeString(value, buffer, flusher);
+			assertEquals(1 + encoded.length, buffer.position());
+			assertEquals(buffer.position(), SerializeHelper.getSerializedSize(value));
+			buffer.flip();
+			assertEquals(encoded.length, SerializeHelper.readSize(buffer));
+		}
+		
+		// unpaired surrogate is replaced, as String.getBytes() does
+		ByteBuffer buffer = ByteBuffer.allocate(128);
+		SerializeHelper.serializeString("a\ud834b", buffer);
+		buffer.flip();
+		assertEquals("a?b", SerializeHelper.deserializeString(buffer));
+		
+		// direct (no backing array) buffers
+		buffer = ByteBuffer.allocateDirect(128);
+		SerializeHelper.serializeString(values[1], buffer, flusher);
+		SerializeHelper.serializeString("ascii", buffer, flusher);
+		buffer.flip();
+		assertEquals(values[1], SerializeHelper.deserializeString(buffer, control));
+		assertEquals("ascii", SerializeHelper.deserializeString(buffer, control));
+	}
+	
+	public void testStringCache()
+	{
+		StringCache cache = new StringCache(16, 8);
+		byte[] bytes = "units".getBytes(StandardCharsets.UTF_8);
+		
+		String s1 = cache.get(bytes, 0, bytes.length);
+		String s2 = cache.get(bytes.clone(), 0, bytes.length);
+		assertEquals("units", s1);
+		assertSame(s1, s2);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate(), 0.0);
+		
+		// too long to be cached
+		byte[] longBytes = "description".getBytes(StandardCharsets.UTF_8);
+		assertEquals("description", cache.get(longBytes, 0, longBytes.length));
+		assertNotSame(cache.get(longBytes, 0, longBytes.length), cache.get(longBytes, 0, longBytes.length));
+		assertEquals(1, cache.getMissCount());
+		
+		cache.clear();
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0.0, cache.getHitRate(), 0.0);
+	}
+	
 	public void testArrayNonInitialized()
 	{
 		PVDataCreate factory = PVDataFactory.getPVDataCreate();